@@ -0,0 +1,31 @@
+plugins {
+    application
+    checkstyle
+}
+
+dependencies {
+    implementation(project(":metrics"))
+    implementation(project(":metrics-uds"))
+    implementation(libs.slf4j.api)
+    runtimeOnly(libs.logback.classic)
+
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation(libs.bundles.testing)
+}
+
+// Runs on 17 for Unix domain socket channels.
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(17)
+    }
+}
+
+application {
+    mainClass = "com.codeheadsystems.metrics.aggregator.AggregatorDaemon"
+    applicationDefaultJvmArgs = listOf("-Xmx256m")
+}
+
+tasks.named<Test>("test") {
+    // Use JUnit Platform for unit tests.
+    useJUnitPlatform()
+}
@@ -0,0 +1,120 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * One series over a flush interval, summed across every process that sent it.
+ */
+public class AggregatedSeries {
+
+  private final Type type;
+  private final String metricName;
+  private final Map<String, String> tags;
+  private final long count;
+  private final long total;
+  private final long min;
+  private final long max;
+  private final double value;
+
+  AggregatedSeries(final Type type, final String metricName, final Map<String, String> tags, final long count,
+                   final long total, final long min, final long max, final double value) {
+    this.type = type;
+    this.metricName = metricName;
+    this.tags = tags;
+    this.count = count;
+    this.total = total;
+    this.min = min;
+    this.max = max;
+    this.value = value;
+  }
+
+  public Type type() {
+    return type;
+  }
+
+  public String metricName() {
+    return metricName;
+  }
+
+  public Map<String, String> tags() {
+    return tags;
+  }
+
+  /**
+   * The events for the series in the interval. For a counter, the sum of the increments.
+   *
+   * @return the long
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * The sum of the times of a timer.
+   *
+   * @return the duration
+   */
+  public Duration total() {
+    return Duration.ofNanos(total);
+  }
+
+  /**
+   * The shortest time of a timer.
+   *
+   * @return the duration
+   */
+  public Duration min() {
+    return Duration.ofNanos(min);
+  }
+
+  /**
+   * The longest time of a timer.
+   *
+   * @return the duration
+   */
+  public Duration max() {
+    return Duration.ofNanos(max);
+  }
+
+  /**
+   * The last value of a gauge.
+   *
+   * @return the double
+   */
+  public double value() {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder(metricName).append(tags);
+    switch (type) {
+      case COUNTER -> builder.append(" count=").append(count);
+      case TIMER -> builder.append(" count=").append(count)
+          .append(" total=").append(total().toNanos())
+          .append("ns min=").append(min)
+          .append("ns max=").append(max).append("ns");
+      default -> builder.append(" value=").append(value);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * The kind of series.
+   */
+  public enum Type {
+    /**
+     * Increments, summed.
+     */
+    COUNTER,
+    /**
+     * Times, with their count, total, min and max.
+     */
+    TIMER,
+    /**
+     * Gauges, the last value sent.
+     */
+    GAUGE
+  }
+}
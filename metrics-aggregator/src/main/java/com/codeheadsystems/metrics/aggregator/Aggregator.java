@@ -0,0 +1,117 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import com.codeheadsystems.metrics.uds.WireFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pre-aggregates the decoded events per series until they are drained. Counters are summed, timers
+ * keep their count, total, min and max, and gauges keep the last value. Events from every process
+ * for the same name and tags land in the same series.
+ */
+public class Aggregator implements WireFormat.EventHandler {
+
+  private final Map<Key, Accumulator> series = new HashMap<>();
+  private final LongAdder events = new LongAdder();
+
+  @Override
+  public synchronized void increment(final String metricName, final Map<String, String> tags, final long value) {
+    accumulator(AggregatedSeries.Type.COUNTER, metricName, tags).count += value;
+  }
+
+  @Override
+  public synchronized void time(final String metricName, final Map<String, String> tags, final long nanos) {
+    final Accumulator accumulator = accumulator(AggregatedSeries.Type.TIMER, metricName, tags);
+    accumulator.count++;
+    accumulator.total += nanos;
+    accumulator.min = Math.min(accumulator.min, nanos);
+    accumulator.max = Math.max(accumulator.max, nanos);
+  }
+
+  @Override
+  public synchronized void gauge(final String metricName, final Map<String, String> tags, final double value) {
+    final Accumulator accumulator = accumulator(AggregatedSeries.Type.GAUGE, metricName, tags);
+    accumulator.count++;
+    accumulator.value = value;
+  }
+
+  /**
+   * The events seen since this started.
+   *
+   * @return the long
+   */
+  public long events() {
+    return events.sum();
+  }
+
+  /**
+   * The series seen since the last drain, and starts over.
+   *
+   * @return the list
+   */
+  public List<AggregatedSeries> drain() {
+    final Map<Key, Accumulator> drained;
+    synchronized (this) {
+      if (series.isEmpty()) {
+        return List.of();
+      }
+      drained = new HashMap<>(series);
+      series.clear();
+    }
+    final List<AggregatedSeries> result = new ArrayList<>(drained.size());
+    drained.forEach((key, accumulator) -> result.add(new AggregatedSeries(key.type, key.metricName, key.tags,
+        accumulator.count, accumulator.total, accumulator.count == 0 ? 0 : accumulator.min, accumulator.max,
+        accumulator.value)));
+    return result;
+  }
+
+  private Accumulator accumulator(final AggregatedSeries.Type type, final String metricName,
+                                  final Map<String, String> tags) {
+    events.increment();
+    return series.computeIfAbsent(new Key(type, metricName, tags), k -> new Accumulator());
+  }
+
+  private static final class Accumulator {
+
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double value;
+  }
+
+  private static final class Key {
+
+    private final AggregatedSeries.Type type;
+    private final String metricName;
+    private final Map<String, String> tags;
+    private final int hash;
+
+    private Key(final AggregatedSeries.Type type, final String metricName, final Map<String, String> tags) {
+      this.type = type;
+      this.metricName = metricName;
+      this.tags = tags;
+      this.hash = (31 * metricName.hashCode() + tags.hashCode()) * 31 + type.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) o;
+      return type == that.type && metricName.equals(that.metricName) && tags.equals(that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
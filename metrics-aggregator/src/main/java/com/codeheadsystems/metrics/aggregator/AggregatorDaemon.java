@@ -0,0 +1,174 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The local aggregator. Every JVM on the host sends its events here with a UdsMetricsPublisher,
+ * and each interval the series summed across them are written to the sink. The sink sees one
+ * write per interval instead of every event of every process.
+ */
+public class AggregatorDaemon implements Closeable {
+
+  /**
+   * The socket unless set.
+   */
+  public static final Path DEFAULT_SOCKET = Path.of(System.getProperty("java.io.tmpdir"), "metrics-aggregator.sock");
+
+  /**
+   * The flush interval unless set.
+   */
+  public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AggregatorDaemon.class);
+
+  private final Aggregator aggregator = new Aggregator();
+  private final Sink sink;
+  private final AggregatorServer server;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "metrics-aggregator-flush");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Binds the socket and starts flushing to the sink.
+   *
+   * @param socket   the socket.
+   * @param interval the flush interval.
+   * @param sink     the sink.
+   * @throws IOException if the socket cannot be bound.
+   */
+  public AggregatorDaemon(final Path socket, final Duration interval, final Sink sink) throws IOException {
+    LOGGER.info("AggregatorDaemon({},{},{})", socket, interval, sink.getClass().getName());
+    this.sink = sink;
+    this.server = new AggregatorServer(socket, aggregator);
+    scheduler.scheduleAtFixedRate(this::flushSafely, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Runs the aggregator until the JVM is stopped, flushing what is left on the way out. Options are
+   * --socket=path, --interval=10s and --sink=print|class name.
+   *
+   * @param args the input arguments
+   * @throws IOException          if the socket cannot be bound.
+   * @throws InterruptedException if interrupted.
+   */
+  public static void main(final String[] args) throws IOException, InterruptedException {
+    Path socket = DEFAULT_SOCKET;
+    Duration interval = DEFAULT_INTERVAL;
+    Sink sink = new PrintSink();
+    for (String arg : args) {
+      final int equals = arg.indexOf('=');
+      final String name = equals < 0 ? arg : arg.substring(0, equals);
+      final String value = equals < 0 ? null : arg.substring(equals + 1);
+      switch (name) {
+        case "--socket" -> socket = Path.of(value);
+        case "--interval" -> interval = duration(value);
+        case "--sink" -> sink = sink(value);
+        default -> throw new IllegalArgumentException("Unknown option: " + arg);
+      }
+    }
+    final AggregatorDaemon daemon = new AggregatorDaemon(socket, interval, sink);
+    final CountDownLatch stopped = new CountDownLatch(1);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        daemon.close();
+      } catch (IOException e) {
+        LOGGER.warn("main(): {}", e.getMessage());
+      }
+      stopped.countDown();
+    }, "metrics-aggregator-shutdown"));
+    stopped.await();
+  }
+
+  /**
+   * Reads 500ms, 30s, 10m, 2h or an ISO-8601 duration.
+   *
+   * @param value the value
+   * @return the duration
+   */
+  static Duration duration(final String value) {
+    if (value.startsWith("P") || value.startsWith("p")) {
+      return Duration.parse(value);
+    } else if (value.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+    }
+    final long amount = Long.parseLong(value.substring(0, value.length() - 1));
+    return switch (value.charAt(value.length() - 1)) {
+      case 's' -> Duration.ofSeconds(amount);
+      case 'm' -> Duration.ofMinutes(amount);
+      case 'h' -> Duration.ofHours(amount);
+      default -> throw new IllegalArgumentException("Unknown duration: " + value);
+    };
+  }
+
+  private static Sink sink(final String value) {
+    if ("print".equals(value)) {
+      return new PrintSink();
+    }
+    try {
+      return (Sink) Class.forName(value).getConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Cannot create sink " + value, e);
+    }
+  }
+
+  public AggregatorServer server() {
+    return server;
+  }
+
+  public Aggregator aggregator() {
+    return aggregator;
+  }
+
+  /**
+   * Writes the series aggregated since the last flush to the sink.
+   *
+   * @return the number of series written.
+   * @throws IOException if the sink failed. The series are dropped.
+   */
+  public int flush() throws IOException {
+    final List<AggregatedSeries> series = aggregator.drain();
+    if (!series.isEmpty()) {
+      sink.write(series);
+    }
+    return series.size();
+  }
+
+  /**
+   * Stops accepting events, then flushes what was aggregated.
+   *
+   * @throws IOException if the socket file cannot be removed.
+   */
+  @Override
+  public void close() throws IOException {
+    LOGGER.info("close()");
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    server.close();
+    flushSafely();
+  }
+
+  private void flushSafely() {
+    try {
+      final int written = flush();
+      LOGGER.debug("flushSafely(): {} series, {} events so far", written, aggregator.events());
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("flushSafely(): dropped an interval", e);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import com.codeheadsystems.metrics.uds.WireFormat;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listens on a Unix domain socket and feeds the frames of every connected process into an
+ * {@link Aggregator}. One thread serves every connection with a selector, since decoding a frame is
+ * far cheaper than the system calls around it. A connection sending a frame that cannot be read is
+ * closed, and its sender connects again.
+ */
+public class AggregatorServer implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AggregatorServer.class);
+  private static final int BUFFER_LENGTH = 64 * 1024;
+
+  private final Path path;
+  private final Aggregator aggregator;
+  private final ServerSocketChannel server;
+  private final Selector selector;
+  private final Thread thread;
+  private final LongAdder connections = new LongAdder();
+  private final LongAdder frames = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private volatile boolean running = true;
+
+  /**
+   * Binds the socket and starts serving it. A file left at the path by an earlier server is
+   * replaced.
+   *
+   * @param path       the socket.
+   * @param aggregator gets the events.
+   * @throws IOException if the socket cannot be bound.
+   */
+  public AggregatorServer(final Path path, final Aggregator aggregator) throws IOException {
+    LOGGER.info("AggregatorServer({})", path);
+    this.path = path;
+    this.aggregator = aggregator;
+    Files.deleteIfExists(path);
+    this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    this.selector = Selector.open();
+    try {
+      server.bind(UnixDomainSocketAddress.of(path));
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      selector.close();
+      server.close();
+      throw e;
+    }
+    this.thread = new Thread(this::serve, "metrics-aggregator");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * The connections accepted since this started.
+   *
+   * @return the long
+   */
+  public long connections() {
+    return connections.sum();
+  }
+
+  /**
+   * The frames read since this started.
+   *
+   * @return the long
+   */
+  public long frames() {
+    return frames.sum();
+  }
+
+  /**
+   * The connections closed for sending a frame that could not be read.
+   *
+   * @return the long
+   */
+  public long rejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * Stops serving, closes every connection and removes the socket file.
+   *
+   * @throws IOException if the socket file cannot be removed.
+   */
+  @Override
+  public void close() throws IOException {
+    LOGGER.info("close()");
+    if (running) {
+      running = false;
+      selector.wakeup();
+      try {
+        thread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    Files.deleteIfExists(path);
+  }
+
+  private void serve() {
+    try {
+      while (running) {
+        selector.select();
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else if (key.isReadable()) {
+            read(key);
+          }
+        }
+      }
+    } catch (IOException | ClosedSelectorException e) {
+      LOGGER.error("serve(): stopped", e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        closeQuietly(key);
+      }
+      try {
+        selector.close();
+        server.close();
+      } catch (IOException e) {
+        LOGGER.debug("serve(): {}", e.getMessage());
+      }
+    }
+  }
+
+  private void accept() throws IOException {
+    final SocketChannel channel = server.accept();
+    if (channel != null) {
+      channel.configureBlocking(false);
+      channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(BUFFER_LENGTH));
+      connections.increment();
+      LOGGER.debug("accept(): {} connections", connections.sum());
+    }
+  }
+
+  private void read(final SelectionKey key) {
+    final SocketChannel channel = (SocketChannel) key.channel();
+    final ByteBuffer buffer = (ByteBuffer) key.attachment();
+    try {
+      if (channel.read(buffer) < 0) {
+        closeQuietly(key);
+        return;
+      }
+      buffer.flip();
+      while (buffer.remaining() >= Integer.BYTES) {
+        final int length = buffer.getInt(buffer.position());
+        if (length < WireFormat.FRAME_HEADER_LENGTH - Integer.BYTES || length > WireFormat.MAX_FRAME_LENGTH) {
+          throw new IllegalArgumentException("Bad frame length " + length);
+        }
+        if (buffer.remaining() < Integer.BYTES + length) {
+          break;
+        }
+        final int end = buffer.position() + Integer.BYTES + length;
+        final ByteBuffer frame = buffer.duplicate();
+        frame.position(buffer.position() + Integer.BYTES).limit(end);
+        WireFormat.decode(frame, aggregator);
+        buffer.position(end);
+        frames.increment();
+      }
+      if (buffer.remaining() >= Integer.BYTES
+          && Integer.BYTES + buffer.getInt(buffer.position()) > buffer.capacity()) {
+        // the next frame is bigger than the buffer.
+        final ByteBuffer bigger = ByteBuffer.allocate(Integer.BYTES + buffer.getInt(buffer.position()));
+        bigger.put(buffer);
+        key.attach(bigger);
+      } else {
+        buffer.compact();
+      }
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("read(): closing a connection sending a bad frame: {}", e.getMessage());
+      rejected.increment();
+      closeQuietly(key);
+    } catch (IOException e) {
+      LOGGER.debug("read(): {}", e.getMessage());
+      closeQuietly(key);
+    }
+  }
+
+  private void closeQuietly(final SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      LOGGER.debug("closeQuietly(): {}", e.getMessage());
+    }
+  }
+}
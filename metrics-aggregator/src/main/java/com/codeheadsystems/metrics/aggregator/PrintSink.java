@@ -0,0 +1,34 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Prints each series on a line, the default sink of the daemon.
+ */
+public class PrintSink implements Sink {
+
+  private final PrintStream out;
+
+  /**
+   * Prints to standard out.
+   */
+  public PrintSink() {
+    this(System.out);
+  }
+
+  /**
+   * Instantiates a new Print sink.
+   *
+   * @param out the out
+   */
+  public PrintSink(final PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(final List<AggregatedSeries> series) {
+    series.forEach(out::println);
+    out.flush();
+  }
+}
@@ -0,0 +1,19 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the aggregated series go at each flush. Implementations named on the command line need a
+ * public no argument constructor.
+ */
+public interface Sink {
+
+  /**
+   * Writes the series of one interval. Called from one thread at a time.
+   *
+   * @param series the series, never empty.
+   * @throws IOException if they cannot be written. The series are dropped.
+   */
+  void write(List<AggregatedSeries> series) throws IOException;
+}
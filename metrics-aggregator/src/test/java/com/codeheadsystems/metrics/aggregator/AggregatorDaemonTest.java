@@ -0,0 +1,124 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.uds.UdsMetricsPublisher;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AggregatorDaemonTest {
+
+  @TempDir Path directory;
+
+  private final List<AggregatedSeries> written = new CopyOnWriteArrayList<>();
+  private Path path;
+  private AggregatorDaemon daemon;
+
+  @BeforeEach
+  void setup() throws IOException {
+    path = directory.resolve("aggregator.sock");
+    daemon = new AggregatorDaemon(path, Duration.ofHours(1), written::addAll);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    daemon.close();
+  }
+
+  @Test
+  void aggregatesAcrossPublishers() throws Exception {
+    final List<UdsMetricsPublisher> publishers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final UdsMetricsPublisher publisher = UdsMetricsPublisher.builder()
+          .withPath(path)
+          .withFlushInterval(Duration.ofMillis(10))
+          .build();
+      publishers.add(publisher);
+      for (int j = 0; j < 1000; j++) {
+        publisher.increment("requests", 1, Tags.of("region", "us"));
+      }
+      publisher.time("latency", Duration.ofMillis(i + 1), null);
+    }
+    for (UdsMetricsPublisher publisher : publishers) {
+      publisher.shutdown();
+      assertThat(publisher.dropped()).isZero();
+    }
+    awaitEvents(3003);
+
+    assertThat(daemon.flush()).isEqualTo(2);
+    assertThat(written).hasSize(2);
+    final AggregatedSeries requests = find("requests");
+    assertThat(requests.count()).isEqualTo(3000);
+    final AggregatedSeries latency = find("latency");
+    assertThat(latency.count()).isEqualTo(3);
+    assertThat(latency.min()).isEqualTo(Duration.ofMillis(1));
+    assertThat(latency.max()).isEqualTo(Duration.ofMillis(3));
+    assertThat(daemon.server().connections()).isEqualTo(3);
+    assertThat(daemon.flush()).isZero();
+  }
+
+  @Test
+  void closesConnectionsSendingBadFrames() throws Exception {
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(path));
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, -1));
+      final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+      while (channel.read(ByteBuffer.allocate(1)) >= 0 && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+    }
+    assertThat(daemon.server().rejected()).isEqualTo(1);
+  }
+
+  @Test
+  void close_flushesAndRemovesTheSocket() throws Exception {
+    final UdsMetricsPublisher publisher = UdsMetricsPublisher.builder()
+        .withPath(path)
+        .withFlushInterval(Duration.ofMillis(10))
+        .build();
+    publisher.gauge("queue", 4, null);
+    publisher.shutdown();
+    awaitEvents(1);
+
+    daemon.close();
+    assertThat(written).hasSize(1);
+    assertThat(written.get(0).value()).isEqualTo(4);
+    assertThat(Files.exists(path)).isFalse();
+  }
+
+  @Test
+  void duration() {
+    assertThat(AggregatorDaemon.duration("500ms")).isEqualTo(Duration.ofMillis(500));
+    assertThat(AggregatorDaemon.duration("10s")).isEqualTo(Duration.ofSeconds(10));
+    assertThat(AggregatorDaemon.duration("PT1M")).isEqualTo(Duration.ofMinutes(1));
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> AggregatorDaemon.duration("10d"));
+  }
+
+  private void awaitEvents(final long events) throws InterruptedException {
+    final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (daemon.aggregator().events() < events && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(daemon.aggregator().events()).isEqualTo(events);
+  }
+
+  private AggregatedSeries find(final String metricName) {
+    return written.stream().filter(series -> series.metricName().equals(metricName)).findFirst().orElseThrow();
+  }
+}
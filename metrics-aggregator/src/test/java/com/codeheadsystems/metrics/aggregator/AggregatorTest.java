@@ -0,0 +1,59 @@
+package com.codeheadsystems.metrics.aggregator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class AggregatorTest {
+
+  private final Aggregator aggregator = new Aggregator();
+
+  @Test
+  void drain() {
+    aggregator.increment("requests", Map.of("region", "us"), 2);
+    aggregator.increment("requests", Map.of("region", "us"), 3);
+    aggregator.increment("requests", Map.of("region", "eu"), 1);
+    aggregator.time("latency", Map.of(), 5);
+    aggregator.time("latency", Map.of(), 2);
+    aggregator.time("latency", Map.of(), 9);
+    aggregator.gauge("queue", Map.of(), 1.5);
+    aggregator.gauge("queue", Map.of(), 2.5);
+
+    final List<AggregatedSeries> series = aggregator.drain();
+    series.sort(Comparator.comparing(AggregatedSeries::toString));
+    assertThat(series).hasSize(4);
+    assertThat(series.get(0).type()).isEqualTo(AggregatedSeries.Type.TIMER);
+    assertThat(series.get(0).count()).isEqualTo(3);
+    assertThat(series.get(0).total()).isEqualTo(Duration.ofNanos(16));
+    assertThat(series.get(0).min()).isEqualTo(Duration.ofNanos(2));
+    assertThat(series.get(0).max()).isEqualTo(Duration.ofNanos(9));
+    assertThat(series.get(1).value()).isEqualTo(2.5);
+    assertThat(series.get(2).tags()).isEqualTo(Map.of("region", "eu"));
+    assertThat(series.get(2).count()).isEqualTo(1);
+    assertThat(series.get(3).tags()).isEqualTo(Map.of("region", "us"));
+    assertThat(series.get(3).count()).isEqualTo(5);
+    assertThat(aggregator.events()).isEqualTo(8);
+  }
+
+  @Test
+  void drain_startsOver() {
+    aggregator.increment("requests", Map.of(), 2);
+    assertThat(aggregator.drain()).hasSize(1);
+
+    assertThat(aggregator.drain()).isEmpty();
+    aggregator.increment("requests", Map.of(), 1);
+    assertThat(aggregator.drain().get(0).count()).isEqualTo(1);
+  }
+
+  @Test
+  void sameNameDifferentTypes() {
+    aggregator.increment("calls", Map.of(), 1);
+    aggregator.time("calls", Map.of(), 1);
+
+    assertThat(aggregator.drain()).hasSize(2);
+  }
+}
@@ -0,0 +1,580 @@
+package com.codeheadsystems.metrics.declarative.processor;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Writes the source of one decorator.
+ */
+class DecoratorWriter {
+
+  private static final String METRICS = "com.codeheadsystems.metrics.Metrics";
+  private static final String TAGS = "com.codeheadsystems.metrics.Tags";
+
+  private final ProcessingEnvironment processingEnv;
+  private final Elements elements;
+  private final Types types;
+  private final TypeElement type;
+  private final String packageName;
+  private final String simpleName;
+  private final StringBuilder out;
+  private final StringBuilder helpers;
+  private int helperCount;
+  private boolean needsRethrow;
+  private boolean failed;
+
+  /**
+   * Instantiates a new Decorator writer.
+   *
+   * @param processingEnv the processing env
+   * @param type          the type to decorate
+   */
+  DecoratorWriter(final ProcessingEnvironment processingEnv, final TypeElement type) {
+    this.processingEnv = processingEnv;
+    this.elements = processingEnv.getElementUtils();
+    this.types = processingEnv.getTypeUtils();
+    this.type = type;
+    final PackageElement packageElement = elements.getPackageOf(type);
+    this.packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    this.simpleName = binaryName(type) + MetricsProcessor.SUFFIX;
+    this.out = new StringBuilder();
+    this.helpers = new StringBuilder();
+  }
+
+  /**
+   * The name of the generated class.
+   *
+   * @return the string
+   */
+  String qualifiedName() {
+    return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+  }
+
+  /**
+   * Generate the source.
+   *
+   * @return the source, or null if errors were reported.
+   */
+  String source() {
+    final boolean isInterface = type.getKind() == ElementKind.INTERFACE;
+    final StringBuilder body = new StringBuilder();
+    if (isInterface) {
+      writeInterfaceMembers(body);
+    } else {
+      writeClassMembers(body);
+    }
+    if (failed) {
+      return null;
+    }
+    if (!packageName.isEmpty()) {
+      out.append("package ").append(packageName).append(";\n\n");
+    }
+    out.append("@javax.annotation.processing.Generated(\"").append(MetricsProcessor.class.getName()).append("\")\n");
+    if (type.getModifiers().contains(Modifier.PUBLIC)) {
+      out.append("public ");
+    }
+    if (!isInterface && type.getModifiers().contains(Modifier.ABSTRACT)) {
+      out.append("abstract ");
+    }
+    out.append("class ").append(simpleName).append(typeParameters(type.getTypeParameters()).trim())
+        .append(isInterface ? " implements " : " extends ").append(typeName()).append(" {\n\n");
+    out.append("  private final ").append(METRICS).append(" metrics;\n");
+    if (isInterface) {
+      out.append("  private final ").append(typeName()).append(" delegate;\n");
+    }
+    out.append(body);
+    out.append(helpers);
+    if (needsRethrow) {
+      out.append("\n  @SuppressWarnings(\"unchecked\")\n")
+          .append("  private static <T extends Throwable> RuntimeException rethrow(final Throwable throwable) throws T {\n")
+          .append("    throw (T) throwable;\n")
+          .append("  }\n");
+    }
+    out.append("}\n");
+    return out.toString();
+  }
+
+  private void writeInterfaceMembers(final StringBuilder body) {
+    body.append("\n  public ").append(simpleName)
+        .append("(final ").append(typeName()).append(" delegate, final ").append(METRICS).append(" metrics) {\n")
+        .append("    this.delegate = delegate;\n")
+        .append("    this.metrics = metrics;\n")
+        .append("  }\n");
+    final DeclaredType declaredType = (DeclaredType) type.asType();
+    final Set<String> seen = new HashSet<>();
+    for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+      if (method.getModifiers().contains(Modifier.STATIC)
+          || method.getModifiers().contains(Modifier.PRIVATE)
+          || isObjectMethod(method)) {
+        checkNotAnnotated(method);
+        continue;
+      }
+      final ExecutableType executableType = (ExecutableType) types.asMemberOf(declaredType, method);
+      if (seen.add(signature(method, executableType))) {
+        writeMethod(body, method, executableType, "this.delegate.");
+      }
+    }
+  }
+
+  private void writeClassMembers(final StringBuilder body) {
+    boolean hasConstructor = false;
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        hasConstructor = true;
+        writeConstructor(body, constructor);
+      }
+    }
+    if (!hasConstructor) {
+      error(type, "@Metrics needs a constructor that is not private in %s", type);
+    }
+    final DeclaredType declaredType = (DeclaredType) type.asType();
+    for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+      if (!isInstrumented(method)) {
+        continue;
+      }
+      if (method.getModifiers().contains(Modifier.STATIC)
+          || method.getModifiers().contains(Modifier.PRIVATE)
+          || method.getModifiers().contains(Modifier.FINAL)
+          || method.getModifiers().contains(Modifier.ABSTRACT)) {
+        error(method, "Metrics cannot be generated for static, private, final or abstract method %s", method);
+        continue;
+      }
+      writeMethod(body, method, (ExecutableType) types.asMemberOf(declaredType, method), "super.");
+    }
+  }
+
+  private void writeConstructor(final StringBuilder body, final ExecutableElement constructor) {
+    body.append('\n');
+    for (AnnotationMirror mirror : constructor.getAnnotationMirrors()) {
+      if (mirror.getAnnotationType().asElement().getSimpleName().contentEquals("Inject")) {
+        body.append("  ").append(mirror).append('\n');
+      }
+    }
+    body.append("  ").append(visibility(constructor)).append(typeParameters(constructor.getTypeParameters()))
+        .append(simpleName).append("(final ").append(METRICS).append(" metrics");
+    final List<? extends VariableElement> parameters = constructor.getParameters();
+    for (int i = 0; i < parameters.size(); i++) {
+      final VariableElement parameter = parameters.get(i);
+      body.append(", ");
+      for (AnnotationMirror mirror : parameter.getAnnotationMirrors()) {
+        body.append(mirror).append(' ');
+      }
+      body.append("final ").append(parameterType(parameter.asType(), constructor.isVarArgs() && i == parameters.size() - 1))
+          .append(" arg").append(i);
+    }
+    body.append(')').append(throwsClause(constructor.getThrownTypes())).append(" {\n")
+        .append("    super(")
+        .append(IntStream.range(0, parameters.size()).mapToObj(i -> "arg" + i)
+            .collect(Collectors.joining(", ")))
+        .append(");\n")
+        .append("    this.metrics = metrics;\n")
+        .append("  }\n");
+  }
+
+  private void writeMethod(final StringBuilder body,
+                           final ExecutableElement method,
+                           final ExecutableType executableType,
+                           final String target) {
+    final List<? extends VariableElement> parameters = method.getParameters();
+    final List<? extends TypeMirror> parameterTypes = executableType.getParameterTypes();
+    final TypeMirror returnType = executableType.getReturnType();
+    final List<? extends TypeMirror> thrownTypes = executableType.getThrownTypes();
+    final String arguments = parameters.stream().map(p -> p.getSimpleName().toString()).collect(Collectors.joining(", "));
+
+    body.append("\n  @Override\n  ").append(visibility(method)).append(typeParameters(method.getTypeParameters()))
+        .append(returnType).append(' ').append(method.getSimpleName()).append('(');
+    for (int i = 0; i < parameters.size(); i++) {
+      if (i > 0) {
+        body.append(", ");
+      }
+      body.append("final ").append(parameterType(parameterTypes.get(i), method.isVarArgs() && i == parameters.size() - 1))
+          .append(' ').append(parameters.get(i).getSimpleName());
+    }
+    body.append(')').append(throwsClause(thrownTypes)).append(" {\n");
+
+    final String call = target + method.getSimpleName() + "(" + arguments + ")";
+    final boolean isVoid = returnType.getKind() == TypeKind.VOID;
+    final AnnotationMirror metrics = annotation(method, MetricsProcessor.METRICS_ANNOTATION);
+    final AnnotationMirror counted = annotation(method, MetricsProcessor.COUNTED_ANNOTATION);
+    final String tagsExpression = tags(method);
+    final String tagsVariable = counted == null ? null : unique(method, "metricsTags");
+    final String tags = tagsVariable == null ? tagsExpression : tagsVariable;
+    String block = (isVoid ? "" : "return ") + call + ";";
+    if (metrics != null) {
+      block = timed(method, metrics, returnType, thrownTypes, call, tags, block);
+    }
+    if (counted != null) {
+      block = counted(method, counted, tagsVariable, tagsExpression, block);
+    }
+    body.append(indent(block, "    ")).append("  }\n");
+  }
+
+  private String timed(final ExecutableElement method,
+                       final AnnotationMirror metrics,
+                       final TypeMirror returnType,
+                       final List<? extends TypeMirror> thrownTypes,
+                       final String call,
+                       final String tags,
+                       final String untimed) {
+    final boolean isVoid = returnType.getKind() == TypeKind.VOID;
+    final StringBuilder block = new StringBuilder();
+    final double sampleRate = (Double) annotationValue(metrics, "sampleRate");
+    if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+      error(method, "@Metrics sampleRate must be from 0 to 1, not %s", sampleRate);
+    }
+    if (sampleRate < 1.0) {
+      block.append("if (java.util.concurrent.ThreadLocalRandom.current().nextDouble() >= ").append(sampleRate)
+          .append(") {\n").append(indent(untimed, "  "));
+      if (isVoid) {
+        block.append("  return;\n");
+      }
+      block.append("}\n");
+    }
+    final List<TypeMirror> checked = thrownTypes.stream().filter(this::isChecked).collect(Collectors.toList());
+    final String exceptionType = checked.isEmpty() ? "RuntimeException"
+        : checked.size() == 1 ? checked.get(0).toString() : "Exception";
+    final String supplier = isVoid
+        ? "() -> {\n  " + call + ";\n  return null;\n}"
+        : "() -> " + call;
+    final String time = "this.metrics.<" + boxed(returnType) + ", " + exceptionType + ">"
+        + (isAsync(returnType) ? "timeAsync(" : "time(")
+        + literal(metricName(method, metrics)) + ", " + supplier + ", " + tags + ")";
+    final String statement = (isVoid ? "" : "return ") + time + ";";
+    if (checked.size() > 1) {
+      // time() can only declare one exception, the delegate can still only throw what it declares.
+      needsRethrow = true;
+      block.append("try {\n").append(indent(statement, "  ")).append("} catch (Exception e) {\n")
+          .append("  throw ").append(simpleName).append(".<RuntimeException>rethrow(e);\n}\n");
+    } else {
+      block.append(statement).append('\n');
+    }
+    return block.toString();
+  }
+
+  private String counted(final ExecutableElement method,
+                         final AnnotationMirror counted,
+                         final String tagsVariable,
+                         final String tagsExpression,
+                         final String uncounted) {
+    final String name = metricName(method, counted);
+    final StringBuilder block = new StringBuilder()
+        .append("final ").append(TAGS).append(' ').append(tagsVariable).append(" = ").append(tagsExpression).append(";\n")
+        .append("try {\n").append(indent(uncounted, "  "));
+    if ((Boolean) annotationValue(counted, "exceptions")) {
+      final String thrown = unique(method, "thrown");
+      block.append("} catch (Throwable ").append(thrown).append(") {\n")
+          .append("  this.metrics.increment(").append(literal(name + ".exception")).append(", 1L, ")
+          .append(TAGS).append(".of(").append(tagsVariable).append(").add(\"exception\", ")
+          .append(thrown).append(".getClass().getSimpleName()));\n")
+          .append("  throw ").append(thrown).append(";\n");
+    }
+    block.append("} finally {\n")
+        .append("  this.metrics.increment(").append(literal(name)).append(", 1L, ").append(tagsVariable).append(");\n")
+        .append("}\n");
+    return block.toString();
+  }
+
+  private String unique(final ExecutableElement method, final String name) {
+    String candidate = name;
+    for (int i = 0; ; i++) {
+      final String check = candidate;
+      if (method.getParameters().stream().noneMatch(p -> p.getSimpleName().contentEquals(check))) {
+        return candidate;
+      }
+      candidate = name + i;
+    }
+  }
+
+  private String indent(final String block, final String prefix) {
+    final StringBuilder indented = new StringBuilder();
+    for (String line : block.split("\n")) {
+      indented.append(prefix).append(line).append('\n');
+    }
+    return indented.toString();
+  }
+
+  private String metricName(final ExecutableElement method, final AnnotationMirror annotation) {
+    final String value = (String) annotationValue(annotation, "value");
+    if (value != null && !value.isEmpty()) { // if the value is set, use it.
+      return value;
+    }
+    return method.getEnclosingElement().getSimpleName() + "." + method.getSimpleName();
+  }
+
+  private String tags(final ExecutableElement method) {
+    final StringBuilder tags = new StringBuilder();
+    for (VariableElement parameter : method.getParameters()) {
+      final AnnotationMirror tag = annotation(parameter, MetricsProcessor.TAG_ANNOTATION);
+      if (tag != null) {
+        final String value = (String) annotationValue(tag, "value");
+        final String key = value == null || value.isEmpty() ? parameter.getSimpleName().toString() : value;
+        tags.append(tags.length() == 0 ? "" : ", ").append(literal(key)).append(", ").append(tagValue(parameter, tag));
+      }
+    }
+    return tags.length() == 0 ? TAGS + ".empty()" : TAGS + ".of(" + tags + ")";
+  }
+
+  /**
+   * The expression for one tag value. With a path or converter this is a call to a generated helper
+   * that reads the path with the getters found here, checking each step for null. Like the aspect,
+   * the helper tags 'error' if a getter or the converter throws.
+   */
+  private String tagValue(final VariableElement parameter, final AnnotationMirror tag) {
+    final String path = (String) annotationValue(tag, "path");
+    final TypeMirror converter = (TypeMirror) annotationValue(tag, "converter");
+    final boolean converted = converter != null
+        && !((TypeElement) types.asElement(converter)).getQualifiedName().contentEquals(MetricsProcessor.TAG_CONVERTER);
+    if ((path == null || path.isEmpty()) && !converted) {
+      return "String.valueOf((Object) " + parameter.getSimpleName() + ")";
+    }
+    final String helper = "tag" + helperCount++;
+    final StringBuilder method = new StringBuilder();
+    TypeMirror current = parameter.asType();
+    String value = "value";
+    if (path != null && !path.isEmpty()) {
+      int step = 0;
+      for (String name : path.split("\\.", -1)) {
+        method.append(nullCheck(current, value));
+        final String access = access(current, name);
+        if (access == null) {
+          error(parameter, "@Tag path %s: no public getter or field named %s on %s", path, name, current);
+          return "null";
+        }
+        current = accessType(current, access);
+        final String next = "value" + step++;
+        method.append("final var ").append(next).append(" = ").append(value).append('.').append(access).append(";\n");
+        value = next;
+      }
+    }
+    method.append(nullCheck(current, value));
+    if (converted) {
+      final String field = helper.toUpperCase() + "_CONVERTER";
+      helpers.append("\n  private static final ").append(converter).append(' ').append(field)
+          .append(" = new ").append(converter).append("();\n");
+      method.append("return ").append(field).append(".convert(").append(value).append(");\n");
+    } else {
+      method.append("return String.valueOf(").append(value).append(");\n");
+    }
+    helpers.append("\n  private static String ").append(helper).append("(final ")
+        .append(types.erasure(parameter.asType())).append(" value) {\n")
+        .append("    try {\n").append(indent(method.toString(), "      "))
+        .append("    } catch (RuntimeException e) {\n      return \"error\";\n    }\n  }\n");
+    return helper + "(" + parameter.getSimpleName() + ")";
+  }
+
+  private String nullCheck(final TypeMirror typeMirror, final String value) {
+    if (typeMirror.getKind().isPrimitive()) {
+      return "";
+    }
+    return "if (" + value + " == null) {\n  return \"null\";\n}\n";
+  }
+
+  /**
+   * Finds the getX(), isX(), x() or field x on the type, in that order, like the aspect does.
+   *
+   * @return the access expression, like getX() or x, or null if there is none.
+   */
+  private String access(final TypeMirror typeMirror, final String name) {
+    if (name.isEmpty() || !(types.asElement(typeMirror) instanceof TypeElement typeElement)) {
+      return null;
+    }
+    final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    final List<? extends Element> members = elements.getAllMembers(typeElement);
+    for (String candidate : List.of("get" + capitalized, "is" + capitalized, name)) {
+      for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+        if (method.getSimpleName().contentEquals(candidate) && method.getParameters().isEmpty()
+            && method.getReturnType().getKind() != TypeKind.VOID && isPublicInstance(method)) {
+          return candidate + "()";
+        }
+      }
+    }
+    for (VariableElement field : ElementFilter.fieldsIn(members)) {
+      if (field.getSimpleName().contentEquals(name) && isPublicInstance(field)) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  private TypeMirror accessType(final TypeMirror typeMirror, final String access) {
+    final TypeElement typeElement = (TypeElement) types.asElement(typeMirror);
+    final boolean isMethod = access.endsWith("()");
+    final String name = isMethod ? access.substring(0, access.length() - 2) : access;
+    for (Element member : elements.getAllMembers(typeElement)) {
+      if (member.getSimpleName().contentEquals(name)
+          && (isMethod ? member.getKind() == ElementKind.METHOD && ((ExecutableElement) member).getParameters().isEmpty()
+          : member.getKind() == ElementKind.FIELD)) {
+        final TypeMirror memberType = types.asMemberOf((DeclaredType) typeMirror, member);
+        return isMethod ? ((ExecutableType) memberType).getReturnType() : memberType;
+      }
+    }
+    throw new IllegalStateException("No member " + access + " on " + typeMirror);
+  }
+
+  private boolean isPublicInstance(final Element element) {
+    return element.getModifiers().contains(Modifier.PUBLIC) && !element.getModifiers().contains(Modifier.STATIC);
+  }
+
+  private void checkNotAnnotated(final ExecutableElement method) {
+    if (isInstrumented(method)) {
+      error(method, "Metrics cannot be generated for static or private method %s", method);
+    }
+  }
+
+  private boolean isInstrumented(final ExecutableElement method) {
+    return annotation(method, MetricsProcessor.METRICS_ANNOTATION) != null
+        || annotation(method, MetricsProcessor.COUNTED_ANNOTATION) != null;
+  }
+
+  private boolean isObjectMethod(final ExecutableElement method) {
+    final TypeElement object = elements.getTypeElement(Object.class.getName());
+    if (method.getEnclosingElement().equals(object)) {
+      return true;
+    }
+    for (ExecutableElement objectMethod : ElementFilter.methodsIn(object.getEnclosedElements())) {
+      if (objectMethod.getModifiers().contains(Modifier.PUBLIC) && elements.overrides(method, objectMethod, type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isAsync(final TypeMirror returnType) {
+    final TypeElement completionStage = elements.getTypeElement(CompletionStage.class.getName());
+    return returnType.getKind() == TypeKind.DECLARED
+        && types.isAssignable(types.erasure(returnType), types.erasure(completionStage.asType()));
+  }
+
+  private boolean isChecked(final TypeMirror thrownType) {
+    final TypeMirror runtimeException = elements.getTypeElement(RuntimeException.class.getName()).asType();
+    final TypeMirror error = elements.getTypeElement(Error.class.getName()).asType();
+    return !types.isSubtype(thrownType, runtimeException) && !types.isSubtype(thrownType, error);
+  }
+
+  private String signature(final ExecutableElement method, final ExecutableType executableType) {
+    return method.getSimpleName() + executableType.getParameterTypes().stream()
+        .map(t -> types.erasure(t).toString())
+        .collect(Collectors.joining(",", "(", ")"));
+  }
+
+  private String typeName() {
+    final String name = type.getQualifiedName().toString();
+    if (type.getTypeParameters().isEmpty()) {
+      return name;
+    }
+    return name + type.getTypeParameters().stream()
+        .map(p -> p.getSimpleName().toString())
+        .collect(Collectors.joining(", ", "<", ">"));
+  }
+
+  private String typeParameters(final List<? extends TypeParameterElement> typeParameters) {
+    if (typeParameters.isEmpty()) {
+      return "";
+    }
+    return typeParameters.stream()
+        .map(p -> {
+          final List<? extends TypeMirror> bounds = p.getBounds();
+          if (bounds.isEmpty() || (bounds.size() == 1 && bounds.get(0).toString().equals(Object.class.getName()))) {
+            return p.getSimpleName().toString();
+          }
+          return p.getSimpleName() + " extends "
+              + bounds.stream().map(TypeMirror::toString).collect(Collectors.joining(" & "));
+        })
+        .collect(Collectors.joining(", ", "<", "> "));
+  }
+
+  private String parameterType(final TypeMirror typeMirror, final boolean varArgs) {
+    if (varArgs && typeMirror.getKind() == TypeKind.ARRAY) {
+      return ((ArrayType) typeMirror).getComponentType() + "...";
+    }
+    return typeMirror.toString();
+  }
+
+  private String throwsClause(final List<? extends TypeMirror> thrownTypes) {
+    if (thrownTypes.isEmpty()) {
+      return "";
+    }
+    return thrownTypes.stream().map(TypeMirror::toString).collect(Collectors.joining(", ", " throws ", ""));
+  }
+
+  private String boxed(final TypeMirror typeMirror) {
+    if (typeMirror.getKind() == TypeKind.VOID) {
+      return "Void";
+    }
+    if (typeMirror.getKind().isPrimitive()) {
+      return types.boxedClass(types.getPrimitiveType(typeMirror.getKind())).getQualifiedName().toString();
+    }
+    return typeMirror.toString();
+  }
+
+  private String visibility(final Element element) {
+    if (element.getModifiers().contains(Modifier.PUBLIC)) {
+      return "public ";
+    } else if (element.getModifiers().contains(Modifier.PROTECTED)) {
+      return "protected ";
+    }
+    return "";
+  }
+
+  private AnnotationMirror annotation(final Element element, final String annotationName) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  private Object annotationValue(final AnnotationMirror mirror, final String name) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+        : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(name)) {
+        return entry.getValue().getValue();
+      }
+    }
+    return null;
+  }
+
+  private String binaryName(final TypeElement typeElement) {
+    final Element enclosing = typeElement.getEnclosingElement();
+    if (enclosing instanceof TypeElement) {
+      return binaryName((TypeElement) enclosing) + "_" + typeElement.getSimpleName();
+    }
+    return typeElement.getSimpleName().toString();
+  }
+
+  private String literal(final String value) {
+    return processingEnv.getElementUtils().getConstantExpression(value);
+  }
+
+  private void error(final Element element, final String format, final Object... args) {
+    failed = true;
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+  }
+
+}
@@ -0,0 +1,120 @@
+package com.codeheadsystems.metrics.declarative.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a decorator for every type with @Metrics methods, as an alternative to the AspectJ
+ * weaving done by metrics-declarative. The decorators call Metrics.time() directly, so there is no
+ * reflection and nothing to weave.
+ *
+ * <p>For an interface Foo, FooMetricsDecorator implements Foo and wraps a delegate. For a class Foo,
+ * FooMetricsDecorator extends Foo and overrides the @Metrics methods. Its constructors take the
+ * Metrics first, followed by the arguments of the matching Foo constructor, and keep any @Inject so
+ * Dagger can build it.
+ */
+@SupportedAnnotationTypes({MetricsProcessor.METRICS_ANNOTATION, MetricsProcessor.COUNTED_ANNOTATION})
+public class MetricsProcessor extends AbstractProcessor {
+
+  /**
+   * The @Metrics annotation, read by name so this module does not need metrics-declarative.
+   */
+  static final String METRICS_ANNOTATION = "com.codeheadsystems.metrics.declarative.Metrics";
+
+  /**
+   * The @Counted annotation.
+   */
+  static final String COUNTED_ANNOTATION = "com.codeheadsystems.metrics.declarative.Counted";
+
+  /**
+   * The @Tag annotation.
+   */
+  static final String TAG_ANNOTATION = "com.codeheadsystems.metrics.declarative.Tag";
+
+  /**
+   * The TagConverter interface, the default for @Tag converter() meaning there is no converter.
+   */
+  static final String TAG_CONVERTER = "com.codeheadsystems.metrics.declarative.TagConverter";
+
+  /**
+   * Added to the name of the type being decorated.
+   */
+  static final String SUFFIX = "MetricsDecorator";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+    final Set<TypeElement> types = new LinkedHashSet<>();
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() == ElementKind.METHOD) {
+          types.add((TypeElement) element.getEnclosingElement());
+        }
+      }
+    }
+    for (TypeElement type : types) {
+      if (isValid(type)) {
+        write(type);
+      }
+    }
+    return false; // others, like the AspectJ weaver, may still want the annotations.
+  }
+
+  private boolean isValid(final TypeElement type) {
+    if (type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.INTERFACE) {
+      error(type, "@Metrics can only be generated for classes and interfaces, not %s", type);
+      return false;
+    }
+    if (type.getModifiers().contains(Modifier.PRIVATE)) {
+      error(type, "@Metrics cannot be generated for private type %s", type);
+      return false;
+    }
+    if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)
+        && type.getKind() == ElementKind.CLASS) {
+      error(type, "@Metrics cannot be generated for inner class %s, make it static", type);
+      return false;
+    }
+    if (type.getKind() == ElementKind.CLASS && type.getModifiers().contains(Modifier.FINAL)) {
+      error(type, "@Metrics cannot be generated for final class %s", type);
+      return false;
+    }
+    return true;
+  }
+
+  private void write(final TypeElement type) {
+    final DecoratorWriter decoratorWriter = new DecoratorWriter(processingEnv, type);
+    final String source = decoratorWriter.source();
+    if (source == null) {
+      return; // errors were already reported.
+    }
+    try {
+      final JavaFileObject file = processingEnv.getFiler().createSourceFile(decoratorWriter.qualifiedName(), type);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source);
+      }
+    } catch (IOException e) {
+      error(type, "Unable to write %s: %s", decoratorWriter.qualifiedName(), e.getMessage());
+    }
+  }
+
+  private void error(final Element element, final String format, final Object... args) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+  }
+
+}
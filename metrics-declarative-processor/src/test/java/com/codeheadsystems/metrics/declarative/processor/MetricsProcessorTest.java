@@ -0,0 +1,303 @@
+package com.codeheadsystems.metrics.declarative.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Compiles small sources with the processor and runs what it generated.
+ */
+@ExtendWith(MockitoExtension.class)
+class MetricsProcessorTest {
+
+  private static final String SERVICE = """
+      package sample;
+
+      import com.codeheadsystems.metrics.declarative.Counted;
+      import com.codeheadsystems.metrics.declarative.Metrics;
+      import com.codeheadsystems.metrics.declarative.Tag;
+      import java.io.IOException;
+      import java.util.concurrent.CompletableFuture;
+      import java.util.concurrent.TimeUnit;
+
+      public interface Service {
+        @Metrics
+        String hello(@Tag("name") String name, int count);
+
+        @Metrics("custom.name")
+        void fail(@Tag("id") long id) throws IOException;
+
+        @Metrics
+        int multi(String... values) throws IOException, InterruptedException;
+
+        @Metrics
+        CompletableFuture<String> async(@Tag("name") String name);
+
+        @Counted(exceptions = true)
+        void counted(@Tag("name") String name);
+
+        @Metrics(sampleRate = 0.0)
+        String neverSampled();
+
+        String notTimed();
+      }
+      """;
+
+  private static final String WORKER = """
+      package sample;
+
+      import com.codeheadsystems.metrics.declarative.Metrics;
+      import com.codeheadsystems.metrics.declarative.Tag;
+
+      public class Worker {
+        private final String prefix;
+
+        public Worker(String prefix) {
+          this.prefix = prefix;
+        }
+
+        @Metrics
+        public String work(@Tag("item") String item) {
+          return prefix + item;
+        }
+      }
+      """;
+
+  private static final String ORDERS = """
+      package sample;
+
+      import com.codeheadsystems.metrics.declarative.Metrics;
+      import com.codeheadsystems.metrics.declarative.Tag;
+      import com.codeheadsystems.metrics.declarative.TagConverter;
+      import java.util.Locale;
+      import java.util.concurrent.TimeUnit;
+
+      public interface Orders {
+        class LowerCase implements TagConverter<TimeUnit> {
+          public String convert(TimeUnit value) {
+            if (value == TimeUnit.DAYS) {
+              throw new IllegalArgumentException("days");
+            }
+            return value.name().toLowerCase(Locale.ROOT);
+          }
+        }
+
+        @Metrics
+        void place(@Tag(value = "language", path = "language") Locale locale,
+                   @Tag(value = "unit", converter = LowerCase.class) TimeUnit unit,
+                   @Tag(value = "length", path = "length") String value);
+      }
+      """;
+
+  @TempDir private Path directory;
+  @Mock private MetricPublisher metricPublisher;
+
+  private MetricFactory metricFactory;
+
+  @BeforeEach
+  void setup() {
+    metricFactory = MetricFactory.builder().withMetricPublisher(metricPublisher).build();
+  }
+
+  @Test
+  void interfaceDecorator() throws Exception {
+    final ClassLoader classLoader = compile(Map.of("sample/Service.java", SERVICE));
+    final CompletableFuture<String> future = new CompletableFuture<>();
+    final Class<?> service = classLoader.loadClass("sample.Service");
+    final Object delegate = Proxy.newProxyInstance(classLoader, new Class<?>[]{service}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "hello":
+          return "hello " + args[0];
+        case "fail":
+          throw new IOException("fail");
+        case "multi":
+          throw new InterruptedException("multi");
+        case "async":
+          return future;
+        case "counted":
+          throw new IllegalStateException("counted");
+        default:
+          return "plain";
+      }
+    });
+    final Object decorator = classLoader.loadClass("sample.ServiceMetricsDecorator")
+        .getConstructor(service, Metrics.class)
+        .newInstance(delegate, metricFactory);
+
+    assertThat(service.getMethod("hello", String.class, int.class).invoke(decorator, "bob", 1)).isEqualTo("hello bob");
+    verify(metricPublisher).time(eq("Service.hello"), any(), eq(Tags.of("name", "bob")));
+
+    assertThatExceptionOfType(InvocationTargetException.class)
+        .isThrownBy(() -> service.getMethod("fail", long.class).invoke(decorator, 5L))
+        .withCauseInstanceOf(IOException.class);
+    verify(metricPublisher).time(eq("custom.name"), any(), eq(Tags.of("id", "5")));
+
+    assertThatExceptionOfType(InvocationTargetException.class)
+        .isThrownBy(() -> service.getMethod("multi", String[].class).invoke(decorator, (Object) new String[0]))
+        .withCauseInstanceOf(InterruptedException.class);
+    verify(metricPublisher).time(eq("Service.multi"), any(), eq(Tags.empty()));
+
+    assertThat(service.getMethod("async", String.class).invoke(decorator, "later")).isSameAs(future);
+    verify(metricPublisher, never()).time(eq("Service.async"), any(), any());
+    future.complete("done");
+    verify(metricPublisher).time(eq("Service.async"), any(), eq(Tags.of("name", "later")));
+
+    assertThatExceptionOfType(InvocationTargetException.class)
+        .isThrownBy(() -> service.getMethod("counted", String.class).invoke(decorator, "count"))
+        .withCauseInstanceOf(IllegalStateException.class);
+    verify(metricPublisher).increment("Service.counted", 1L, Tags.of("name", "count"));
+    verify(metricPublisher).increment("Service.counted.exception", 1L,
+        Tags.of("name", "count", "exception", "IllegalStateException"));
+
+    assertThat(service.getMethod("neverSampled").invoke(decorator)).isEqualTo("plain");
+    verify(metricPublisher, never()).time(eq("Service.neverSampled"), any(), any());
+
+    assertThat(service.getMethod("notTimed").invoke(decorator)).isEqualTo("plain");
+  }
+
+  @Test
+  void classDecorator() throws Exception {
+    final ClassLoader classLoader = compile(Map.of("sample/Worker.java", WORKER));
+    final Class<?> worker = classLoader.loadClass("sample.Worker");
+    final Object decorator = classLoader.loadClass("sample.WorkerMetricsDecorator")
+        .getConstructor(Metrics.class, String.class)
+        .newInstance(metricFactory, "prefix-");
+
+    assertThat(worker.isInstance(decorator)).isTrue();
+    assertThat(worker.getMethod("work", String.class).invoke(decorator, "item")).isEqualTo("prefix-item");
+    verify(metricPublisher).time(eq("Worker.work"), any(), eq(Tags.of("item", "item")));
+  }
+
+  @Test
+  void tagPathAndConverter() throws Exception {
+    final ClassLoader classLoader = compile(Map.of("sample/Orders.java", ORDERS));
+    final Class<?> orders = classLoader.loadClass("sample.Orders");
+    final Object delegate = Proxy.newProxyInstance(classLoader, new Class<?>[]{orders}, (proxy, method, args) -> null);
+    final Object decorator = classLoader.loadClass("sample.OrdersMetricsDecorator")
+        .getConstructor(orders, Metrics.class)
+        .newInstance(delegate, metricFactory);
+    final Method place = orders.getMethod("place", Locale.class, TimeUnit.class, String.class);
+
+    place.invoke(decorator, Locale.CANADA_FRENCH, TimeUnit.SECONDS, "four");
+    verify(metricPublisher).time(eq("Orders.place"), any(), eq(Tags.of("language", "fr", "unit", "seconds", "length", "4")));
+
+    place.invoke(decorator, null, null, null);
+    verify(metricPublisher).time(eq("Orders.place"), any(), eq(Tags.of("language", "null", "unit", "null", "length", "null")));
+
+    place.invoke(decorator, Locale.CANADA_FRENCH, TimeUnit.DAYS, "four");
+    verify(metricPublisher).time(eq("Orders.place"), any(), eq(Tags.of("language", "fr", "unit", "error", "length", "4")));
+  }
+
+  @Test
+  void tagPath_unresolvable_isAnError() throws IOException {
+    final String source = ORDERS.replace("path = \"language\"", "path = \"nope\"");
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = compileWithDiagnostics(
+        Map.of("sample/Orders.java", source), directory.resolve("classes"));
+    assertThat(diagnostics)
+        .anySatisfy(diagnostic -> {
+          assertThat(diagnostic.getKind()).isEqualTo(Diagnostic.Kind.ERROR);
+          assertThat(diagnostic.getMessage(null)).contains("no public getter or field named nope");
+        });
+  }
+
+  @Test
+  void sampleRate_outOfRange_isAnError() throws IOException {
+    for (String sampleRate : List.of("-0.5", "1.5", "Double.NaN")) {
+      final String source = SERVICE.replace("sampleRate = 0.0", "sampleRate = " + sampleRate);
+      final List<Diagnostic<? extends JavaFileObject>> diagnostics = compileWithDiagnostics(
+          Map.of("sample/Service.java", source), directory.resolve("classes"));
+      assertThat(diagnostics)
+          .anySatisfy(diagnostic -> {
+            assertThat(diagnostic.getKind()).isEqualTo(Diagnostic.Kind.ERROR);
+            assertThat(diagnostic.getMessage(null)).contains("sampleRate must be from 0 to 1");
+          });
+    }
+  }
+
+  @Test
+  void finalClass_isAnError() throws IOException {
+    final String source = WORKER.replace("public class Worker", "public final class Worker");
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = compileWithDiagnostics(
+        Map.of("sample/Worker.java", source), directory.resolve("classes"));
+    assertThat(diagnostics)
+        .anySatisfy(diagnostic -> {
+          assertThat(diagnostic.getKind()).isEqualTo(Diagnostic.Kind.ERROR);
+          assertThat(diagnostic.getMessage(null)).contains("final class");
+        });
+  }
+
+  private ClassLoader compile(final Map<String, String> sources) throws IOException {
+    final Path classes = directory.resolve("classes");
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = compileWithDiagnostics(sources, classes);
+    assertThat(diagnostics).noneMatch(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR);
+    return new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader());
+  }
+
+  private List<Diagnostic<? extends JavaFileObject>> compileWithDiagnostics(final Map<String, String> sources,
+                                                                            final Path classes) throws IOException {
+    final Path sourceDirectory = directory.resolve("src");
+    for (Map.Entry<String, String> entry : sources.entrySet()) {
+      final Path file = sourceDirectory.resolve(entry.getKey());
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, entry.getValue());
+    }
+    Files.createDirectories(classes);
+    final String classpath = String.join(File.pathSeparator,
+        location(Metrics.class),
+        location(com.codeheadsystems.metrics.declarative.Metrics.class));
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(collector, null, null)) {
+      final Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(
+          sources.keySet().stream().map(sourceDirectory::resolve).toList());
+      final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, collector,
+          List.of("-classpath", classpath, "-d", classes.toString()), null, units);
+      task.setProcessors(List.of(new MetricsProcessor()));
+      task.call();
+    }
+    return collector.getDiagnostics();
+  }
+
+  private String location(final Class<?> clazz) {
+    try {
+      return Path.of(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -5,6 +5,9 @@ import com.codeheadsystems.metrics.Tags;
 import com.codeheadsystems.metrics.impl.MetricPublisher;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The type Sample object.
@@ -60,4 +63,67 @@ public class SampleObject {
   public void methodWithMetricsAndTagsAndThrownRuntimeException(@Tag("notname") String name) {
     throw new IllegalStateException();
   }
+
+  /**
+   * Method with metrics returning a future, timed when the future completes.
+   *
+   * @param name   the name
+   * @param future the future to return
+   * @return the future
+   */
+  @Metrics
+  public CompletableFuture<String> methodWithMetricsReturningFuture(@Tag("name") String name, CompletableFuture<String> future) {
+    return future;
+  }
+
+  /**
+   * Method that is only counted.
+   *
+   * @param name the name
+   */
+  @Counted
+  public void countedMethod(@Tag("name") String name) {
+  }
+
+  /**
+   * Method that is counted, with its exceptions.
+   *
+   * @throws IOException always
+   */
+  @Counted(value = "countedFailure", exceptions = true)
+  public void countedMethodThrowing() throws IOException {
+    throw new IOException();
+  }
+
+  /**
+   * Method that is never sampled.
+   *
+   * @return true
+   */
+  @Metrics(sampleRate = 0.0)
+  public boolean methodNeverSampled() {
+    return true;
+  }
+
+  /**
+   * Method with tags read from a property path and a converter.
+   *
+   * @param locale the locale, tagged with its language
+   * @param unit   the unit, tagged in lower case
+   */
+  @Metrics
+  public void methodWithTagPathAndConverter(@Tag(value = "language", path = "language") Locale locale,
+                                            @Tag(value = "unit", converter = LowerCase.class) TimeUnit unit) {
+  }
+
+  /**
+   * Tags enums in lower case.
+   */
+  public static class LowerCase implements TagConverter<Enum<?>> {
+
+    @Override
+    public String convert(final Enum<?> value) {
+      return value.name().toLowerCase(Locale.ROOT);
+    }
+  }
 }
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -11,6 +12,9 @@ import com.codeheadsystems.metrics.Tags;
 import com.codeheadsystems.metrics.impl.MetricPublisher;
 import com.codeheadsystems.metrics.impl.NullMetricsImpl;
 import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -84,4 +88,40 @@ class DeclarativeMetricsManagerTest {
     verify(metricPublisher).time(eq("SampleObject.methodWithMetricsAndTagsAndThrownRuntimeException"), any(), eq(Tags.of("notname", "null")));
   }
 
-}
\ No newline at end of file
+  @Test
+  void methodWithMetricsReturningFuture() {
+    final CompletableFuture<String> future = new CompletableFuture<>();
+    assertThat(sampleObject.methodWithMetricsReturningFuture("value", future)).isSameAs(future);
+    verifyNoInteractions(metricPublisher);
+    future.complete("done");
+    verify(metricPublisher).time(eq("SampleObject.methodWithMetricsReturningFuture"), any(), eq(Tags.of("name", "value")));
+  }
+
+  @Test
+  void countedMethod() {
+    sampleObject.countedMethod("value");
+    verify(metricPublisher).increment("SampleObject.countedMethod", 1L, Tags.of("name", "value"));
+    verify(metricPublisher, never()).time(any(), any(), any());
+  }
+
+  @Test
+  void countedMethodThrowing() {
+    assertThatExceptionOfType(IOException.class).isThrownBy(() -> sampleObject.countedMethodThrowing());
+    verify(metricPublisher).increment("countedFailure", 1L, Tags.empty());
+    verify(metricPublisher).increment("countedFailure.exception", 1L, Tags.of("exception", "IOException"));
+  }
+
+  @Test
+  void methodNeverSampled() {
+    assertThat(sampleObject.methodNeverSampled()).isTrue();
+    verifyNoInteractions(metricPublisher);
+  }
+
+  @Test
+  void methodWithTagPathAndConverter() {
+    sampleObject.methodWithTagPathAndConverter(Locale.CANADA_FRENCH, TimeUnit.SECONDS);
+    verify(metricPublisher).time(eq("SampleObject.methodWithTagPathAndConverter"), any(),
+        eq(Tags.of("language", "fr", "unit", "seconds")));
+  }
+
+}
@@ -3,12 +3,16 @@ package com.codeheadsystems.metrics.declarative;
 import com.codeheadsystems.metrics.MetricFactory;
 import com.codeheadsystems.metrics.Metrics;
 import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.helper.GaugeRegistry;
+import com.codeheadsystems.metrics.helper.MetricsStats;
 import com.codeheadsystems.metrics.impl.NullMetricsImpl;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
@@ -24,6 +28,7 @@ public class DeclarativeMetricsManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(DeclarativeMetricsManager.class);
   private static final NullMetricsImpl NULL_METRICS = new NullMetricsImpl();
   private static final AtomicBoolean INITIALIZED = new AtomicBoolean(false);
+  private static final Map<Method, MethodMetadata> METADATA = new ConcurrentHashMap<>();
   private static volatile MetricFactory METRICS;
 
   /**
@@ -43,6 +48,32 @@ public class DeclarativeMetricsManager {
     return METRICS == null ? NULL_METRICS : METRICS;
   }
 
+  /**
+   * Registers the @Gauge fields and methods of the owner with the declarative metric factory. The
+   * owner is only held weakly, so its gauges go away when it is collected.
+   *
+   * @param owner with the gauges.
+   */
+  public static void registerGauges(final Object owner) {
+    final MetricFactory factory = METRICS;
+    if (factory == null) {
+      LOGGER.warn("registerGauges({}) - no declarative factory yet, the gauges are not registered", owner);
+      return;
+    }
+    registerGauges(factory.gauges(), owner);
+  }
+
+  /**
+   * Registers the @Gauge fields and methods of the owner with the registry.
+   *
+   * @param gaugeRegistry to register with.
+   * @param owner         with the gauges.
+   */
+  public static void registerGauges(final GaugeRegistry gaugeRegistry, final Object owner) {
+    final int count = GaugeMetadata.register(gaugeRegistry, owner);
+    LOGGER.debug("registerGauges({}) - registered {}", owner, count);
+  }
+
   /**
    * Around declarative factory object.
    *
@@ -77,84 +108,97 @@ public class DeclarativeMetricsManager {
    */
   @Around("execution(* *(..)) && @annotation(com.codeheadsystems.metrics.declarative.Metrics)")
   public Object aroundMetrics(final ProceedingJoinPoint point) throws Throwable {
-    final Optional<Method> method = getMethod(point);
-    final String metricName = method.map(this::getMetricName).orElseGet(() -> getMetricName(point));
-    final Tags tags = method.map(m -> getTags(m, point.getArgs())).orElseGet(Tags::empty);
     final boolean initialized = INITIALIZED.get();
-    LOGGER.trace("aroundMetrics({}, {})", metricName, initialized);
     if (!initialized) {
-      return point.proceed(point.getArgs());
-    } else {
-      try {
-        return METRICS.time(metricName, tags, () -> {
-          try {
-            return point.proceed(point.getArgs());
-            // Begin wacky exception handling code. If you know better, create a PR please.
-            // The following code exists because the time() method uses a generic for Exceptions. When
-            // you do that, you cannot ref it directly because you cannot convert the exception into a
-            // throwable. (Yes, even though exception inherits from throwable.) So this is why we have
-            // o write the throwable around the use of the generic.
-            //
-            // This is really due to the Exception not being known at compile time.
-          } catch (Throwable t) {
-            throw new WrappedException(t);
-          }
-        });
-      } catch (WrappedException we) {
-        // we have to rethrow because the time() generic
-        throw we.getCause();
+      LOGGER.trace("aroundMetrics({}, {})", point, initialized);
+      return point.proceed();
+    }
+    final MethodMetadata metadata = getMetadata(point);
+    LOGGER.trace("aroundMetrics({}, {})", metadata, initialized);
+    if (!metadata.sampled()) {
+      final MetricsStats stats = METRICS.stats();
+      if (stats != null) {
+        stats.sampledOut();
       }
-      // End wacky exception handling code.
+      return point.proceed();
     }
-  }
-
-  private Tags getTags(final Method method, final Object[] args) {
-    final Tags tags = Tags.empty();
-    final Parameter[] parameters = method.getParameters();
-    if (parameters.length != args.length) {
-      LOGGER.warn("[BUG]getTags() - method {} has {} parameters but {} args", method.getName(), parameters.length, args.length);
-      return tags;
+    final Tags tags = metadata.hasTags() ? metadata.tags(point.getArgs()) : Tags.empty();
+    if (metadata.isAsync()) {
+      return aroundAsyncMetrics(point, metadata, tags);
     }
-    for (int i = 0; i < args.length; i++) {
-      final Tag tag = parameters[i].getAnnotation(Tag.class);
-      if (tag != null) {
-        final Object arg = args[i];
-        final String key = tag.value().isEmpty() ? parameters[i].getName() : tag.value();
-        if (arg == null) { // actually, if arg is null, do we just ignore this?
-          tags.add(key, "null");
-        } else {
-          tags.add(key, arg.toString());
+    try {
+      return METRICS.time(metadata.metricName(), tags, () -> {
+        try {
+          return point.proceed();
+          // Begin wacky exception handling code. If you know better, create a PR please.
+          // The following code exists because the time() method uses a generic for Exceptions. When
+          // you do that, you cannot ref it directly because you cannot convert the exception into a
+          // throwable. (Yes, even though exception inherits from throwable.) So this is why we have
+          // o write the throwable around the use of the generic.
+          //
+          // This is really due to the Exception not being known at compile time.
+        } catch (Throwable t) {
+          throw new WrappedException(t);
         }
-      }
+      });
+    } catch (WrappedException we) {
+      // we have to rethrow because the time() generic
+      throw we.getCause();
     }
-    return tags;
+    // End wacky exception handling code.
   }
 
-  private Optional<Method> getMethod(final ProceedingJoinPoint point) {
-    return Optional.ofNullable(point.getSignature())
-        .filter(signature -> signature instanceof MethodSignature)
-        .map(signature -> (MethodSignature) signature)
-        .map(MethodSignature::getMethod);
+  /**
+   * Around counted object.
+   *
+   * @param point the point
+   * @return the object
+   * @throws Throwable the throwable
+   */
+  @Around("execution(* *(..)) && @annotation(com.codeheadsystems.metrics.declarative.Counted)")
+  public Object aroundCounted(final ProceedingJoinPoint point) throws Throwable {
+    if (!INITIALIZED.get()) {
+      return point.proceed();
+    }
+    final MethodMetadata metadata = getMetadata(point);
+    final Tags tags = metadata.hasTags() ? metadata.tags(point.getArgs()) : Tags.empty();
+    try {
+      return point.proceed();
+    } catch (Throwable t) {
+      if (metadata.exceptionCountedName() != null) {
+        METRICS.increment(metadata.exceptionCountedName(), 1L,
+            Tags.of(tags).add("exception", t.getClass().getSimpleName()));
+      }
+      throw t;
+    } finally {
+      METRICS.increment(metadata.countedName(), 1L, tags);
+    }
   }
 
-  private String getMetricName(final Method method) {
-    final com.codeheadsystems.metrics.declarative.Metrics annotation =
-        method.getAnnotation(com.codeheadsystems.metrics.declarative.Metrics.class);
-    if (annotation != null && !annotation.value().isEmpty()) { // if the value is set, use it.
-      return annotation.value();
-    } else {
-      if (annotation == null) {
-        LOGGER.warn("[BUG] there is @Metrics without an @Metrics tag. This should not be possible.");
-      }
-      final String className = method.getDeclaringClass().getSimpleName();
-      return String.format("%s.%s", className, method.getName());
+  private Object aroundAsyncMetrics(final ProceedingJoinPoint point,
+                                    final MethodMetadata metadata,
+                                    final Tags tags) throws Throwable {
+    try {
+      return METRICS.timeAsync(metadata.metricName(), () -> {
+        try {
+          return (CompletionStage<?>) point.proceed();
+        } catch (Throwable t) {
+          throw new WrappedException(t);
+        }
+      }, tags);
+    } catch (WrappedException we) {
+      throw we.getCause();
     }
   }
 
-  private String getMetricName(final ProceedingJoinPoint point) {
-    final String className = point.getSignature().getDeclaringType().getSimpleName();
-    final String method = point.getSignature().getName();
-    return String.format("%s.%s", className, method);
+  private MethodMetadata getMetadata(final ProceedingJoinPoint point) {
+    final Signature signature = point.getSignature();
+    if (!(signature instanceof final MethodSignature methodSignature)) {
+      return MethodMetadata.of(String.format("%s.%s", signature.getDeclaringType().getSimpleName(), signature.getName()));
+    }
+    final Method method = methodSignature.getMethod();
+    final MethodMetadata metadata = METADATA.get(method);
+    return metadata != null ? metadata : METADATA.computeIfAbsent(method, MethodMetadata::of);
   }
 
   /**
@@ -0,0 +1,31 @@
+package com.codeheadsystems.metrics.declarative;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate a no-argument method or a field with this to publish its value as a gauge. Numbers and
+ * booleans are published as is, and collections and maps by their size. Register the object with
+ * DeclarativeMetricsManager.registerGauges() once it is built.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD})
+public @interface Gauge {
+
+  /**
+   * Specify this if you want to override the generated metric name.
+   *
+   * @return the string
+   */
+  String value() default "";
+
+  /**
+   * Tags for the gauge, as key and value pairs.
+   *
+   * @return the string [ ]
+   */
+  String[] tags() default {};
+
+}
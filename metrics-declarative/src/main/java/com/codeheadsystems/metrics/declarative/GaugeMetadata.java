@@ -0,0 +1,179 @@
+package com.codeheadsystems.metrics.declarative;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.helper.GaugeRegistry;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One @Gauge member of a class, with a method handle that reads it as a double. Worked out once per
+ * class, so registering more objects of the class and polling them does not use reflection.
+ */
+final class GaugeMetadata {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GaugeMetadata.class);
+  private static final MethodType READER = MethodType.methodType(double.class, Object.class);
+  private static final GaugeMetadata[] NO_GAUGES = new GaugeMetadata[0];
+  private static final ClassValue<GaugeMetadata[]> GAUGES = new ClassValue<>() {
+    @Override
+    protected GaugeMetadata[] computeValue(final Class<?> type) {
+      return scan(type);
+    }
+  };
+  private static final MethodHandle NUMBER;
+  private static final MethodHandle BOOLEAN;
+  private static final MethodHandle COLLECTION;
+  private static final MethodHandle MAP;
+
+  static {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      NUMBER = lookup.findVirtual(Number.class, "doubleValue", MethodType.methodType(double.class));
+      BOOLEAN = lookup.findVirtual(Boolean.class, "booleanValue", MethodType.methodType(boolean.class));
+      COLLECTION = lookup.findVirtual(Collection.class, "size", MethodType.methodType(int.class));
+      MAP = lookup.findVirtual(Map.class, "size", MethodType.methodType(int.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final String metricName;
+  private final Tags tags;
+  private final MethodHandle reader;
+
+  private GaugeMetadata(final String metricName, final Tags tags, final MethodHandle reader) {
+    this.metricName = metricName;
+    this.tags = tags;
+    this.reader = reader;
+  }
+
+  /**
+   * Registers every @Gauge member of the owner.
+   *
+   * @param gaugeRegistry to register with.
+   * @param owner         to read, held weakly.
+   * @return the number of gauges registered.
+   */
+  static int register(final GaugeRegistry gaugeRegistry, final Object owner) {
+    final GaugeMetadata[] gauges = GAUGES.get(owner.getClass());
+    for (GaugeMetadata gauge : gauges) {
+      gaugeRegistry.register(gauge.metricName, owner, gauge::read, gauge.tags);
+    }
+    return gauges.length;
+  }
+
+  /**
+   * The gauges of the class.
+   *
+   * @param type to read.
+   * @return the gauges.
+   */
+  static GaugeMetadata[] of(final Class<?> type) {
+    return GAUGES.get(type);
+  }
+
+  String metricName() {
+    return metricName;
+  }
+
+  Tags tags() {
+    return tags;
+  }
+
+  /**
+   * Read the value from the owner.
+   *
+   * @param owner to read.
+   * @return the value.
+   */
+  double read(final Object owner) {
+    try {
+      return (double) reader.invokeExact(owner);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Unable to read gauge " + metricName, t);
+    }
+  }
+
+  private static GaugeMetadata[] scan(final Class<?> type) {
+    final List<GaugeMetadata> gauges = new ArrayList<>();
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Method method : current.getDeclaredMethods()) {
+        final Gauge gauge = method.getAnnotation(Gauge.class);
+        if (gauge != null) {
+          if (method.getParameterCount() != 0) {
+            LOGGER.error("scan(): @Gauge method {} must not take arguments, skipping it", method);
+            continue;
+          }
+          add(gauges, gauge, method, method.getReturnType());
+        }
+      }
+      for (Field field : current.getDeclaredFields()) {
+        final Gauge gauge = field.getAnnotation(Gauge.class);
+        if (gauge != null) {
+          add(gauges, gauge, field, field.getType());
+        }
+      }
+    }
+    return gauges.toArray(NO_GAUGES);
+  }
+
+  private static <T extends AccessibleObject & Member> void add(final List<GaugeMetadata> gauges,
+                                                                final Gauge gauge,
+                                                                final T member,
+                                                                final Class<?> valueType) {
+    if (Modifier.isStatic(member.getModifiers())) {
+      LOGGER.error("scan(): @Gauge {} must not be static, skipping it", member);
+      return;
+    }
+    try {
+      member.trySetAccessible();
+      final MethodHandle handle = member instanceof Method
+          ? MethodHandles.lookup().unreflect((Method) member)
+          : MethodHandles.lookup().unreflectGetter((Field) member);
+      final String metricName = gauge.value().isEmpty()
+          ? member.getDeclaringClass().getSimpleName() + "." + member.getName()
+          : gauge.value();
+      gauges.add(new GaugeMetadata(metricName, Tags.of(gauge.tags()), toDouble(handle, valueType).asType(READER)));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.error("scan(): unable to read @Gauge {}, skipping it", member, e);
+    }
+  }
+
+  private static MethodHandle toDouble(final MethodHandle handle, final Class<?> valueType) {
+    final MethodType doubleType = handle.type().changeReturnType(double.class);
+    if (valueType.isPrimitive() && valueType != void.class) {
+      return MethodHandles.explicitCastArguments(handle, doubleType); // booleans are 1 or 0.
+    } else if (Number.class.isAssignableFrom(valueType)) {
+      return MethodHandles.filterReturnValue(handle.asType(handle.type().changeReturnType(Number.class)), NUMBER);
+    } else if (valueType == Boolean.class) {
+      return MethodHandles.explicitCastArguments(MethodHandles.filterReturnValue(handle, BOOLEAN), doubleType);
+    } else if (Collection.class.isAssignableFrom(valueType)) {
+      return MethodHandles.explicitCastArguments(
+          MethodHandles.filterReturnValue(handle.asType(handle.type().changeReturnType(Collection.class)), COLLECTION),
+          doubleType);
+    } else if (Map.class.isAssignableFrom(valueType)) {
+      return MethodHandles.explicitCastArguments(
+          MethodHandles.filterReturnValue(handle.asType(handle.type().changeReturnType(Map.class)), MAP), doubleType);
+    }
+    throw new IllegalArgumentException("@Gauge needs a number, boolean, collection or map, not " + valueType.getName());
+  }
+
+  @Override
+  public String toString() {
+    return "GaugeMetadata{" + "metricName='" + metricName + '\'' + ", tags=" + tags + '}';
+  }
+}
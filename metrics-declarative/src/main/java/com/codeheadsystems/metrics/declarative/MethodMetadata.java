@@ -0,0 +1,158 @@
+package com.codeheadsystems.metrics.declarative;
+
+import com.codeheadsystems.metrics.Tags;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * What the aspect needs to know about a @Metrics or @Counted method, worked out once from
+ * reflection so the intercepted call only has to read the tag arguments.
+ */
+final class MethodMetadata {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodMetadata.class);
+  private static final TagExtractor[] NO_TAGS = new TagExtractor[0];
+
+  private final String metricName;
+  private final double sampleRate;
+  private final String countedName;
+  private final String exceptionCountedName;
+  private final TagExtractor[] tagExtractors;
+  private final boolean async;
+
+  private MethodMetadata(final String metricName,
+                         final double sampleRate,
+                         final String countedName,
+                         final boolean countExceptions,
+                         final TagExtractor[] tagExtractors,
+                         final boolean async) {
+    this.metricName = metricName;
+    this.sampleRate = sampleRate;
+    this.countedName = countedName;
+    this.exceptionCountedName = countExceptions ? countedName + ".exception" : null;
+    this.tagExtractors = tagExtractors;
+    this.async = async;
+  }
+
+  /**
+   * Reads the annotations on the method.
+   *
+   * @param method to read.
+   * @return the metadata.
+   */
+  static MethodMetadata of(final Method method) {
+    final String defaultName = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    final Metrics metrics = method.getAnnotation(Metrics.class);
+    final Counted counted = method.getAnnotation(Counted.class);
+    final Parameter[] parameters = method.getParameters();
+    final List<TagExtractor> tagExtractors = new ArrayList<>();
+    for (int i = 0; i < parameters.length; i++) {
+      final Tag tag = parameters[i].getAnnotation(Tag.class);
+      if (tag != null) {
+        tagExtractors.add(TagExtractor.of(i, parameters[i], tag));
+      }
+    }
+    return new MethodMetadata(
+        metrics != null && !metrics.value().isEmpty() ? metrics.value() : defaultName, // if the value is set, use it.
+        metrics == null ? 1.0 : sampleRate(method, metrics.sampleRate()),
+        counted != null && !counted.value().isEmpty() ? counted.value() : defaultName,
+        counted != null && counted.exceptions(),
+        tagExtractors.toArray(NO_TAGS),
+        CompletionStage.class.isAssignableFrom(method.getReturnType()));
+  }
+
+  /**
+   * Metadata when all we have is the name.
+   *
+   * @param metricName to use.
+   * @return the metadata.
+   */
+  static MethodMetadata of(final String metricName) {
+    return new MethodMetadata(metricName, 1.0, metricName, false, NO_TAGS, false);
+  }
+
+  /**
+   * The sample rate, clamped to 0 to 1. The annotation processor fails the build on a rate outside
+   * that, but the aspect only finds out at runtime, so it logs the error and times what it can.
+   */
+  private static double sampleRate(final Method method, final double sampleRate) {
+    if (sampleRate >= 0.0 && sampleRate <= 1.0) {
+      return sampleRate;
+    }
+    final double clamped = sampleRate < 0.0 ? 0.0 : 1.0;
+    LOGGER.error("sampleRate({}): @Metrics sampleRate must be from 0 to 1, not {}, using {}",
+        method, sampleRate, clamped);
+    return clamped;
+  }
+
+  String metricName() {
+    return metricName;
+  }
+
+  double sampleRate() {
+    return sampleRate;
+  }
+
+  String countedName() {
+    return countedName;
+  }
+
+  /**
+   * The name to count exceptions with, or null if they are not counted.
+   *
+   * @return the string
+   */
+  String exceptionCountedName() {
+    return exceptionCountedName;
+  }
+
+  /**
+   * If this call should be timed, based on the sample rate.
+   *
+   * @return the boolean
+   */
+  boolean sampled() {
+    return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * If the method returns a CompletionStage, so it is timed until the stage completes.
+   *
+   * @return the boolean
+   */
+  boolean isAsync() {
+    return async;
+  }
+
+  boolean hasTags() {
+    return tagExtractors.length > 0;
+  }
+
+  /**
+   * The tags for this call.
+   *
+   * @param args the arguments of the call.
+   * @return the tags.
+   */
+  Tags tags(final Object[] args) {
+    final Tags tags = Tags.empty();
+    for (TagExtractor tagExtractor : tagExtractors) {
+      tags.add(tagExtractor.key(), tagExtractor.extract(args));
+    }
+    return tags;
+  }
+
+  @Override
+  public String toString() {
+    return "MethodMetadata{" + "metricName='" + metricName + '\'' + ", sampleRate=" + sampleRate
+        + ", countedName='" + countedName + '\'' + ", tags=" + Arrays.toString(tagExtractors)
+        + ", async=" + async + '}';
+  }
+}
@@ -20,4 +20,12 @@ public @interface Metrics {
    */
   String value() default "";
 
+  /**
+   * The fraction of calls to time, from 0 to 1. Calls that are not sampled skip the clock and the
+   * tags entirely. Defaults to every call.
+   *
+   * @return the double
+   */
+  double sampleRate() default 1.0;
+
 }
@@ -20,4 +20,22 @@ public @interface Tag {
    */
   String value();
 
+  /**
+   * A property path to tag with instead of the parameter itself, like 'region' or 'region.code'.
+   * Each name is read with a public getX(), isX() or x() method, or else a public field, of the
+   * declared type. Resolved once per method. If any step is null, the tag is 'null'.
+   *
+   * @return the string
+   */
+  String path() default "";
+
+  /**
+   * Converts the value, after the path, into the tag value. By default strings are used as is,
+   * enums and small numbers use cached strings, and anything else uses toString().
+   *
+   * @return the class
+   */
+  @SuppressWarnings("rawtypes")
+  Class<? extends TagConverter> converter() default TagConverter.class;
+
 }
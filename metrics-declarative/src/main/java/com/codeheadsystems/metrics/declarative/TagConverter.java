@@ -0,0 +1,20 @@
+package com.codeheadsystems.metrics.declarative;
+
+/**
+ * Turns a tagged value into the tag value. Set it on @Tag with converter(). Implementations need a
+ * public no-argument constructor, and one instance is shared by every call, so keep it stateless.
+ * Nulls are tagged as 'null' without calling the converter.
+ *
+ * @param <T> the type of value.
+ */
+public interface TagConverter<T> {
+
+  /**
+   * Convert the value.
+   *
+   * @param value never null.
+   * @return the tag value.
+   */
+  String convert(T value);
+
+}
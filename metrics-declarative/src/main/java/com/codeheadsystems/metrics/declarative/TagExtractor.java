@@ -0,0 +1,154 @@
+package com.codeheadsystems.metrics.declarative;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gets one tag from the arguments of a call. The @Tag path is resolved once against the declared
+ * type of the parameter into a chain of method handles, so each call is a few direct getter calls.
+ */
+final class TagExtractor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TagExtractor.class);
+  private static final MethodType ACCESSOR = MethodType.methodType(Object.class, Object.class);
+  private static final MethodHandle[] NO_PATH = new MethodHandle[0];
+  private static final MethodHandle[] UNRESOLVED = new MethodHandle[0];
+  private static final String UNKNOWN = "unknown";
+  private static final String ERROR = "error";
+
+  private final int index;
+  private final String key;
+  private final MethodHandle[] path;
+  private final TagConverter<Object> converter;
+
+  private TagExtractor(final int index,
+                       final String key,
+                       final MethodHandle[] path,
+                       final TagConverter<Object> converter) {
+    this.index = index;
+    this.key = key;
+    this.path = path;
+    this.converter = converter;
+  }
+
+  /**
+   * Compile the extractor for the parameter.
+   *
+   * @param index     of the parameter.
+   * @param parameter the parameter.
+   * @param tag       its annotation.
+   * @return the extractor.
+   */
+  static TagExtractor of(final int index, final Parameter parameter, final Tag tag) {
+    final String key = tag.value().isEmpty() ? parameter.getName() : tag.value();
+    return new TagExtractor(index, key, path(parameter, tag.path()), converter(parameter, tag.converter()));
+  }
+
+  String key() {
+    return key;
+  }
+
+  /**
+   * The tag value for this call.
+   *
+   * @param args the arguments of the call.
+   * @return the value.
+   */
+  String extract(final Object[] args) {
+    if (path == UNRESOLVED) {
+      return UNKNOWN;
+    }
+    Object value = args[index];
+    try {
+      for (MethodHandle accessor : path) {
+        if (value == null) {
+          break;
+        }
+        value = (Object) accessor.invokeExact(value);
+      }
+      if (value == null) {
+        return "null";
+      }
+      return converter == null ? TagValues.render(value) : converter.convert(value);
+    } catch (Throwable t) {
+      LOGGER.warn("extract(): unable to read the tag {}", key, t);
+      return ERROR;
+    }
+  }
+
+  private static MethodHandle[] path(final Parameter parameter, final String path) {
+    if (path.isEmpty()) {
+      return NO_PATH;
+    }
+    final List<MethodHandle> accessors = new ArrayList<>();
+    Class<?> type = parameter.getType();
+    try {
+      for (String name : path.split("\\.")) {
+        final Method method = accessor(type, name);
+        if (method != null) {
+          accessors.add(MethodHandles.lookup().unreflect(accessible(method)).asType(ACCESSOR));
+          type = method.getReturnType();
+        } else {
+          final Field field = type.getField(name);
+          accessors.add(MethodHandles.lookup().unreflectGetter(accessible(field)).asType(ACCESSOR));
+          type = field.getType();
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Misconfigured tags should not break the method, but the whole parameter could be anything, so
+      // the tag is a fixed value instead.
+      LOGGER.error("path(): unable to resolve {} on {} for {}, tagging it '{}'",
+          path, parameter.getType().getName(), parameter, UNKNOWN, e);
+      return UNRESOLVED;
+    }
+    return accessors.toArray(NO_PATH);
+  }
+
+  private static Method accessor(final Class<?> type, final String name) {
+    final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    for (String candidate : new String[]{"get" + capitalized, "is" + capitalized, name}) {
+      try {
+        final Method method = type.getMethod(candidate);
+        if (method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())) {
+          return method;
+        }
+      } catch (NoSuchMethodException e) {
+        // try the next one.
+      }
+    }
+    return null;
+  }
+
+  private static <T extends AccessibleObject> T accessible(final T member) {
+    member.trySetAccessible(); // public members of classes that are not public.
+    return member;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static TagConverter<Object> converter(final Parameter parameter, final Class<? extends TagConverter> clazz) {
+    if (clazz == TagConverter.class) {
+      return null;
+    }
+    try {
+      return clazz.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      LOGGER.error("converter(): unable to create {} for {}, using the default rendering", clazz.getName(), parameter, e);
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
@@ -0,0 +1,69 @@
+package com.codeheadsystems.metrics.declarative;
+
+/**
+ * Renders tag values, reusing the strings for enums and small numbers so they are not built on
+ * every call. Anything else uses toString().
+ */
+final class TagValues {
+
+  private static final int SMALL_MIN = -128;
+  private static final int SMALL_MAX = 1023;
+  private static final String[] SMALL = new String[SMALL_MAX - SMALL_MIN + 1];
+  private static final ClassValue<String[]> ENUMS = new ClassValue<>() {
+    @Override
+    protected String[] computeValue(final Class<?> type) {
+      final Object[] constants = type.getEnumConstants();
+      final String[] names = new String[constants.length];
+      for (int i = 0; i < constants.length; i++) {
+        names[i] = constants[i].toString();
+      }
+      return names;
+    }
+  };
+
+  static {
+    for (int i = SMALL_MIN; i <= SMALL_MAX; i++) {
+      SMALL[i - SMALL_MIN] = Integer.toString(i);
+    }
+  }
+
+  private TagValues() {
+  }
+
+  /**
+   * Render the value.
+   *
+   * @param value to render.
+   * @return the string.
+   */
+  static String render(final Object value) {
+    if (value == null) {
+      return "null";
+    } else if (value instanceof String string) {
+      return string;
+    } else if (value instanceof Enum<?> anEnum) {
+      return ENUMS.get(anEnum.getDeclaringClass())[anEnum.ordinal()];
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return render(((Number) value).intValue());
+    } else if (value instanceof Long number && number >= SMALL_MIN && number <= SMALL_MAX) {
+      return SMALL[(int) (number - SMALL_MIN)];
+    } else if (value instanceof Boolean bool) {
+      return bool ? "true" : "false";
+    }
+    return value.toString();
+  }
+
+  /**
+   * Render the value.
+   *
+   * @param value to render.
+   * @return the string.
+   */
+  static String render(final int value) {
+    if (value >= SMALL_MIN && value <= SMALL_MAX) {
+      return SMALL[value - SMALL_MIN];
+    }
+    return Integer.toString(value);
+  }
+
+}
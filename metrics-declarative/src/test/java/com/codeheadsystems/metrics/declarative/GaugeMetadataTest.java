@@ -0,0 +1,114 @@
+package com.codeheadsystems.metrics.declarative;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.helper.GaugeRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * The type Gauge metadata test.
+ */
+@ExtendWith(MockitoExtension.class)
+class GaugeMetadataTest {
+
+  @Mock private Metrics metrics;
+
+  @Test
+  void of_skipsUnsupportedMembers() {
+    final GaugeMetadata[] gauges = GaugeMetadata.of(Sample.class);
+    assertThat(Arrays.stream(gauges).map(GaugeMetadata::metricName))
+        .containsExactlyInAnyOrder("Sample.queue", "sample.bytes", "Sample.open", "Sample.cache", "Sample.depth",
+            "Base.inherited");
+    assertThat(GaugeMetadata.of(Sample.class)).isSameAs(gauges);
+  }
+
+  @Test
+  void read() {
+    final Sample sample = new Sample();
+    assertThat(read(sample, "Sample.queue")).isEqualTo(2.0);
+    assertThat(read(sample, "sample.bytes")).isEqualTo(1024.0);
+    assertThat(read(sample, "Sample.open")).isEqualTo(1.0);
+    assertThat(read(sample, "Sample.cache")).isEqualTo(1.0);
+    assertThat(read(sample, "Sample.depth")).isEqualTo(7.0);
+    assertThat(read(sample, "Base.inherited")).isEqualTo(3.0);
+  }
+
+  @Test
+  void register() {
+    final GaugeRegistry gaugeRegistry = new GaugeRegistry(metrics, Tags.of("host", "a"), Duration.ofHours(1));
+    try {
+      assertThat(GaugeMetadata.register(gaugeRegistry, new Sample())).isEqualTo(6);
+      gaugeRegistry.poll();
+      verify(metrics).publishGauge("sample.bytes", 1024.0, Tags.of("host", "a", "unit", "bytes"));
+      verify(metrics).publishGauge("Sample.queue", 2.0, Tags.of("host", "a"));
+    } finally {
+      gaugeRegistry.close();
+    }
+  }
+
+  private double read(final Object owner, final String metricName) {
+    return Arrays.stream(GaugeMetadata.of(owner.getClass()))
+        .filter(gauge -> gauge.metricName().equals(metricName))
+        .findFirst()
+        .orElseThrow()
+        .read(owner);
+  }
+
+  /**
+   * A superclass with a gauge.
+   */
+  static class Base {
+
+    @Gauge
+    private final int inherited = 3;
+  }
+
+  /**
+   * Used for reflection.
+   */
+  static class Sample extends Base {
+
+    @Gauge
+    static int notStatic = 1;
+
+    @Gauge
+    private final List<String> queue = new ArrayList<>(List.of("one", "two"));
+
+    @Gauge(value = "sample.bytes", tags = {"unit", "bytes"})
+    private final AtomicLong bytes = new AtomicLong(1024);
+
+    @Gauge
+    private final Map<String, String> cache = Map.of("key", "value");
+
+    @Gauge
+    private final String notANumber = "value";
+
+    @Gauge
+    boolean open() {
+      return true;
+    }
+
+    @Gauge
+    public long depth() {
+      return 7;
+    }
+
+    @Gauge
+    public long notWithArguments(final int argument) {
+      return argument;
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+package com.codeheadsystems.metrics.declarative;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.codeheadsystems.metrics.Tags;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Method metadata test.
+ */
+class MethodMetadataTest {
+
+  @Test
+  void defaultName_noTags() throws NoSuchMethodException {
+    final MethodMetadata metadata = MethodMetadata.of(Sample.class.getMethod("noTags", String.class));
+    assertThat(metadata.metricName()).isEqualTo("Sample.noTags");
+    assertThat(metadata.hasTags()).isFalse();
+    assertThat(metadata.tags(new Object[]{"value"})).isEqualTo(Tags.empty());
+  }
+
+  @Test
+  void overriddenName_withTags() throws NoSuchMethodException {
+    final MethodMetadata metadata = MethodMetadata.of(
+        Sample.class.getMethod("withTags", String.class, int.class, Integer.class));
+    assertThat(metadata.metricName()).isEqualTo("overridden");
+    assertThat(metadata.hasTags()).isTrue();
+    assertThat(metadata.tags(new Object[]{"value", 1, 2})).isEqualTo(Tags.of("first", "value", "third", "2"));
+    assertThat(metadata.tags(new Object[]{null, 1, null})).isEqualTo(Tags.of("first", "null", "third", "null"));
+  }
+
+  @Test
+  void nameOnly() {
+    final MethodMetadata metadata = MethodMetadata.of("Sample.name");
+    assertThat(metadata.metricName()).isEqualTo("Sample.name");
+    assertThat(metadata.hasTags()).isFalse();
+  }
+
+  @Test
+  void async() throws NoSuchMethodException {
+    assertThat(MethodMetadata.of(Sample.class.getMethod("async")).isAsync()).isTrue();
+    assertThat(MethodMetadata.of(Sample.class.getMethod("noTags", String.class)).isAsync()).isFalse();
+  }
+
+  @Test
+  void counted() throws NoSuchMethodException {
+    final MethodMetadata metadata = MethodMetadata.of(Sample.class.getMethod("counted"));
+    assertThat(metadata.countedName()).isEqualTo("counted.name");
+    assertThat(metadata.exceptionCountedName()).isEqualTo("counted.name.exception");
+    assertThat(MethodMetadata.of(Sample.class.getMethod("async")).exceptionCountedName()).isNull();
+  }
+
+  @Test
+  void sampled() throws NoSuchMethodException {
+    assertThat(MethodMetadata.of(Sample.class.getMethod("neverSampled")).sampled()).isFalse();
+    assertThat(MethodMetadata.of(Sample.class.getMethod("async")).sampled()).isTrue();
+  }
+
+  @Test
+  void sampleRate_outOfRange_isClamped() throws NoSuchMethodException {
+    assertThat(MethodMetadata.of(Sample.class.getMethod("negativeRate")).sampleRate()).isZero();
+    assertThat(MethodMetadata.of(Sample.class.getMethod("negativeRate")).sampled()).isFalse();
+    assertThat(MethodMetadata.of(Sample.class.getMethod("rateAboveOne")).sampleRate()).isEqualTo(1.0);
+    assertThat(MethodMetadata.of(Sample.class.getMethod("rateNaN")).sampleRate()).isEqualTo(1.0);
+    assertThat(MethodMetadata.of(Sample.class.getMethod("rateNaN")).sampled()).isTrue();
+  }
+
+  /**
+   * Used for reflection.
+   */
+  static class Sample {
+
+    @Metrics
+    public void noTags(String value) {
+    }
+
+    @Metrics
+    public CompletableFuture<String> async() {
+      return CompletableFuture.completedFuture("done");
+    }
+
+    @Counted(value = "counted.name", exceptions = true)
+    public void counted() {
+    }
+
+    @Metrics(sampleRate = 0.0)
+    public void neverSampled() {
+    }
+
+    @Metrics(sampleRate = -0.5)
+    public void negativeRate() {
+    }
+
+    @Metrics(sampleRate = 1.5)
+    public void rateAboveOne() {
+    }
+
+    @Metrics(sampleRate = Double.NaN)
+    public void rateNaN() {
+    }
+
+    @Metrics("overridden")
+    public void withTags(@Tag("first") String first, int second, @Tag("third") Integer third) {
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+package com.codeheadsystems.metrics.declarative;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Tag extractor test.
+ */
+class TagExtractorTest {
+
+  private static final Customer CUSTOMER = new Customer(new Region("us-east"), Tier.GOLD, true);
+
+  @Test
+  void plain() throws NoSuchMethodException {
+    final TagExtractor extractor = extractor("plain", 0);
+    assertThat(extractor.key()).isEqualTo("customer");
+    assertThat(extractor.extract(new Object[]{Tier.GOLD})).isEqualTo("GOLD");
+    assertThat(extractor.extract(new Object[]{null})).isEqualTo("null");
+  }
+
+  @Test
+  void path() throws NoSuchMethodException {
+    final TagExtractor extractor = extractor("path", 0);
+    assertThat(extractor.key()).isEqualTo("region");
+    assertThat(extractor.extract(new Object[]{CUSTOMER})).isEqualTo("us-east");
+  }
+
+  @Test
+  void path_nullAlongTheWay() throws NoSuchMethodException {
+    final TagExtractor extractor = extractor("path", 0);
+    assertThat(extractor.extract(new Object[]{new Customer(null, Tier.GOLD, true)})).isEqualTo("null");
+    assertThat(extractor.extract(new Object[]{null})).isEqualTo("null");
+  }
+
+  @Test
+  void path_booleanAndRecordStyle() throws NoSuchMethodException {
+    assertThat(extractor("path", 1).extract(new Object[]{null, CUSTOMER})).isEqualTo("true");
+    assertThat(extractor("path", 2).extract(new Object[]{null, null, CUSTOMER})).isEqualTo("GOLD");
+  }
+
+  @Test
+  void path_unresolvable_unknown() throws NoSuchMethodException {
+    final TagExtractor extractor = extractor("unresolvable", 0);
+    assertThat(extractor.extract(new Object[]{"value"})).isEqualTo("unknown");
+    assertThat(extractor.extract(new Object[]{null})).isEqualTo("unknown");
+  }
+
+  @Test
+  void converter() throws NoSuchMethodException {
+    final TagExtractor extractor = extractor("converter", 0);
+    assertThat(extractor.extract(new Object[]{CUSTOMER})).isEqualTo("gold");
+    assertThat(extractor.extract(new Object[]{new Customer(null, null, false)})).isEqualTo("null");
+  }
+
+  @Test
+  void converter_throws_error() throws NoSuchMethodException {
+    final TagExtractor extractor = extractor("failing", 0);
+    assertThat(extractor.extract(new Object[]{Tier.GOLD})).isEqualTo("error");
+    assertThat(extractor.extract(new Object[]{null})).isEqualTo("null");
+  }
+
+  @Test
+  void render() {
+    assertThat(TagValues.render(Tier.SILVER)).isEqualTo("silver!");
+    assertThat(TagValues.render(Tier.SILVER)).isSameAs(TagValues.render(Tier.SILVER));
+    assertThat(TagValues.render(42)).isEqualTo("42").isSameAs(TagValues.render(42L));
+    assertThat(TagValues.render(-128)).isEqualTo("-128");
+    assertThat(TagValues.render(100_000)).isEqualTo("100000");
+    assertThat(TagValues.render(100_000L)).isEqualTo("100000");
+    assertThat(TagValues.render((short) 3)).isEqualTo("3");
+    assertThat(TagValues.render(false)).isEqualTo("false");
+    assertThat(TagValues.render(1.5)).isEqualTo("1.5");
+    assertThat(TagValues.render(null)).isEqualTo("null");
+  }
+
+  private TagExtractor extractor(final String methodName, final int index) throws NoSuchMethodException {
+    for (Method method : Sample.class.getMethods()) {
+      if (method.getName().equals(methodName)) {
+        final Parameter parameter = method.getParameters()[index];
+        return TagExtractor.of(index, parameter, parameter.getAnnotation(Tag.class));
+      }
+    }
+    throw new NoSuchMethodException(methodName);
+  }
+
+  /**
+   * The tier, with a toString() that differs from the name.
+   */
+  enum Tier {
+    GOLD,
+    SILVER {
+      @Override
+      public String toString() {
+        return "silver!";
+      }
+    }
+  }
+
+  /**
+   * Used for reflection.
+   */
+  public static class Sample {
+
+    public void plain(@Tag("customer") Tier tier) {
+    }
+
+    public void path(@Tag(value = "region", path = "region.code") Customer customer,
+                     @Tag(value = "active", path = "active") Customer active,
+                     @Tag(value = "tier", path = "tier") Customer tier) {
+    }
+
+    public void unresolvable(@Tag(value = "value", path = "nope") String value) {
+    }
+
+    public void converter(@Tag(value = "tier", path = "tier", converter = LowerCase.class) Customer customer) {
+    }
+
+    public void failing(@Tag(value = "tier", converter = Failing.class) Tier tier) {
+    }
+  }
+
+  /**
+   * A converter.
+   */
+  public static class LowerCase implements TagConverter<Tier> {
+
+    @Override
+    public String convert(final Tier value) {
+      return value.name().toLowerCase();
+    }
+  }
+
+  /**
+   * A converter that fails.
+   */
+  public static class Failing implements TagConverter<Tier> {
+
+    @Override
+    public String convert(final Tier value) {
+      throw new IllegalStateException("failing");
+    }
+  }
+
+  /**
+   * A value with a public field.
+   */
+  public static class Region {
+
+    public final String code;
+
+    Region(final String code) {
+      this.code = code;
+    }
+  }
+
+  /**
+   * A value with getters.
+   */
+  public static class Customer {
+
+    private final Region region;
+    private final Tier tier;
+    private final boolean active;
+
+    Customer(final Region region, final Tier tier, final boolean active) {
+      this.region = region;
+      this.tier = tier;
+      this.active = active;
+    }
+
+    public Region getRegion() {
+      return region;
+    }
+
+    public Tier tier() {
+      return tier;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+  }
+
+}
@@ -0,0 +1,195 @@
+package com.codeheadsystems.metrics.impl;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.histogram.HistogramSnapshot;
+import com.codeheadsystems.metrics.histogram.QuantileSketch;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes metrics as Java Flight Recorder events, so they can be read next to the GC, lock and I/O
+ * events of the same recording. Each event type can be enabled on its own in the recording
+ * settings. When JFR is not recording them, each call is a check of the event and a call to the
+ * delegate, and the tags are not rendered.
+ *
+ * <p>Time events begin when MetricsImpl starts the timed call and are committed when it ends, so the
+ * JFR start time and duration are those of the call. The time measured by the metrics clock is in the
+ * elapsed field, as JFR uses the name duration for its own timing. Times published without a call to
+ * begin(), like publishTime() or through a publisher that does not pass begin() on, are committed
+ * when published, with only the elapsed field set.
+ */
+public class JfrMetricsPublisher implements MetricPublisher {
+
+  private static final Logger log = LoggerFactory.getLogger(JfrMetricsPublisher.class);
+
+  private final MetricPublisher delegate;
+
+  /**
+   * Instantiates a new Jfr metrics publisher that only records events.
+   */
+  public JfrMetricsPublisher() {
+    this(new NullMetricsPublisher());
+  }
+
+  /**
+   * Instantiates a new Jfr metrics publisher that records events and then passes every call on.
+   *
+   * @param delegate to also publish to.
+   */
+  public JfrMetricsPublisher(final MetricPublisher delegate) {
+    log.info("JfrMetricsPublisher({})", delegate);
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void open() {
+    delegate.open();
+  }
+
+  @Override
+  public void close() throws Exception {
+    delegate.close();
+  }
+
+  @Override
+  public void increment(final String metricName, final long value, final Tags tags) {
+    final MetricIncrementEvent event = new MetricIncrementEvent();
+    if (event.isEnabled()) {
+      event.metricName = metricName;
+      event.value = value;
+      event.tags = render(tags);
+      event.commit();
+    }
+    delegate.increment(metricName, value, tags);
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags) {
+    final MetricTimeEvent event = new MetricTimeEvent();
+    if (event.isEnabled()) {
+      commit(event, metricName, duration, tags);
+    }
+    delegate.time(metricName, duration, tags);
+  }
+
+  @Override
+  public Object begin(final String metricName) {
+    final Object delegateBegun = delegate.begin(metricName);
+    final MetricTimeEvent event = new MetricTimeEvent();
+    if (!event.isEnabled()) {
+      return delegateBegun;
+    }
+    event.begin();
+    return delegateBegun == null ? event : new Begun(event, delegateBegun);
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags, final Object begun) {
+    final Object delegateBegun;
+    if (begun instanceof MetricTimeEvent) {
+      delegateBegun = null;
+      end((MetricTimeEvent) begun, metricName, duration, tags);
+    } else if (begun instanceof Begun) {
+      delegateBegun = ((Begun) begun).delegateBegun;
+      end(((Begun) begun).event, metricName, duration, tags);
+    } else {
+      // JFR was not recording this event when the call started, only the delegate began it.
+      delegateBegun = begun;
+      final MetricTimeEvent event = new MetricTimeEvent();
+      if (event.isEnabled()) {
+        commit(event, metricName, duration, tags);
+      }
+    }
+    if (delegateBegun == null) {
+      delegate.time(metricName, duration, tags);
+    } else {
+      delegate.time(metricName, duration, tags, delegateBegun);
+    }
+  }
+
+  @Override
+  public void gauge(final String metricName, final double value, final Tags tags) {
+    final MetricGaugeEvent event = new MetricGaugeEvent();
+    if (event.isEnabled()) {
+      event.metricName = metricName;
+      event.value = value;
+      event.tags = render(tags);
+      event.commit();
+    }
+    delegate.gauge(metricName, value, tags);
+  }
+
+  @Override
+  public void histogram(final String metricName, final HistogramSnapshot snapshot, final Tags tags) {
+    delegate.histogram(metricName, snapshot, tags);
+  }
+
+  @Override
+  public void sketch(final String metricName, final QuantileSketch sketch, final Tags tags) {
+    delegate.sketch(metricName, sketch, tags);
+  }
+
+  @Override
+  public long seriesCount() {
+    return delegate.seriesCount();
+  }
+
+  private static void end(final MetricTimeEvent event, final String metricName, final Duration duration,
+                          final Tags tags) {
+    event.end();
+    if (event.shouldCommit()) {
+      commit(event, metricName, duration, tags);
+    }
+  }
+
+  private static void commit(final MetricTimeEvent event, final String metricName, final Duration duration,
+                             final Tags tags) {
+    event.metricName = metricName;
+    event.elapsed = duration.toNanos();
+    event.tags = render(tags);
+    event.commit();
+  }
+
+  /**
+   * Renders the tags sorted by key, so the same tags always give the same string.
+   *
+   * @param tags to render.
+   * @return like a=1,b=2.
+   */
+  static String render(final Tags tags) {
+    final Map<String, String> map = tags.getTags();
+    if (map.isEmpty()) {
+      return "";
+    }
+    final StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, String> entry : (map.size() == 1 ? map : new TreeMap<>(map)).entrySet()) {
+      if (builder.length() > 0) {
+        builder.append(',');
+      }
+      builder.append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "JfrMetricsPublisher{" + delegate + '}';
+  }
+
+  /**
+   * A time event begun along with what the delegate began.
+   */
+  private static final class Begun {
+
+    private final MetricTimeEvent event;
+    private final Object delegateBegun;
+
+    private Begun(final MetricTimeEvent event, final Object delegateBegun) {
+      this.event = event;
+      this.delegateBegun = delegateBegun;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.codeheadsystems.metrics.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A gauge value published to the JFR metrics publisher.
+ */
+@Name(MetricGaugeEvent.NAME)
+@Label("Metric Gauge")
+@Category("Metrics")
+@Description("A gauge value from MetricPublisher.gauge()")
+@StackTrace(false)
+public final class MetricGaugeEvent extends Event {
+
+  /**
+   * The JFR event name.
+   */
+  public static final String NAME = "com.codeheadsystems.metrics.Gauge";
+
+  @Label("Metric Name")
+  String metricName;
+
+  @Label("Value")
+  double value;
+
+  @Label("Tags")
+  @Description("The tags, sorted by key, as key=value pairs separated by commas")
+  String tags;
+
+}
@@ -0,0 +1,35 @@
+package com.codeheadsystems.metrics.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An increment published to the JFR metrics publisher.
+ */
+@Name(MetricIncrementEvent.NAME)
+@Label("Metric Increment")
+@Category("Metrics")
+@Description("An increment from MetricPublisher.increment()")
+@StackTrace(false)
+public final class MetricIncrementEvent extends Event {
+
+  /**
+   * The JFR event name.
+   */
+  public static final String NAME = "com.codeheadsystems.metrics.Increment";
+
+  @Label("Metric Name")
+  String metricName;
+
+  @Label("Value")
+  long value;
+
+  @Label("Tags")
+  @Description("The tags, sorted by key, as key=value pairs separated by commas")
+  String tags;
+
+}
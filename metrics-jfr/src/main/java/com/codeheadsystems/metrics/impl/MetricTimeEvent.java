@@ -0,0 +1,38 @@
+package com.codeheadsystems.metrics.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A time published to the JFR metrics publisher. Begun when the timed call starts, if it was timed
+ * by MetricsImpl, and committed when it ends.
+ */
+@Name(MetricTimeEvent.NAME)
+@Label("Metric Time")
+@Category("Metrics")
+@Description("A time from MetricPublisher.time()")
+@StackTrace(false)
+public final class MetricTimeEvent extends Event {
+
+  /**
+   * The JFR event name.
+   */
+  public static final String NAME = "com.codeheadsystems.metrics.Time";
+
+  @Label("Metric Name")
+  String metricName;
+
+  @Label("Elapsed")
+  @Timespan(Timespan.NANOSECONDS)
+  long elapsed;
+
+  @Label("Tags")
+  @Description("The tags, sorted by key, as key=value pairs separated by commas")
+  String tags;
+
+}
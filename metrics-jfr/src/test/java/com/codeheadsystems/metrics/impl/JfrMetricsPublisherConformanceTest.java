@@ -0,0 +1,12 @@
+package com.codeheadsystems.metrics.impl;
+
+import com.codeheadsystems.metrics.test.MetricPublisherConformanceTest;
+
+class JfrMetricsPublisherConformanceTest extends MetricPublisherConformanceTest<JfrMetricsPublisher> {
+
+  @Override
+  protected JfrMetricsPublisher createPublisher() {
+    return new JfrMetricsPublisher();
+  }
+
+}
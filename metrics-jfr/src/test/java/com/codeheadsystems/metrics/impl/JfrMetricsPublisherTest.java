@@ -0,0 +1,115 @@
+package com.codeheadsystems.metrics.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Tags;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class JfrMetricsPublisherTest {
+
+  private static final Tags TAGS = Tags.of("region", "us", "a", "1");
+
+  @Mock private MetricPublisher delegate;
+  @TempDir Path tempDir;
+
+  @Test
+  void recording() throws Exception {
+    final JfrMetricsPublisher publisher = new JfrMetricsPublisher(delegate);
+    final Path file = tempDir.resolve("metrics.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(MetricTimeEvent.NAME);
+      recording.enable(MetricIncrementEvent.NAME);
+      recording.enable(MetricGaugeEvent.NAME);
+      recording.start();
+      publisher.time("timer", Duration.ofMillis(5), TAGS);
+      publisher.increment("counter", 3L, Tags.empty());
+      publisher.gauge("gauge", 1.5, TAGS);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    assertThat(events).hasSize(3);
+    final RecordedEvent time = event(events, MetricTimeEvent.NAME);
+    assertThat(time.getString("metricName")).isEqualTo("timer");
+    assertThat(time.getDuration("elapsed")).isEqualTo(Duration.ofMillis(5));
+    assertThat(time.getString("tags")).isEqualTo("a=1,region=us");
+    final RecordedEvent increment = event(events, MetricIncrementEvent.NAME);
+    assertThat(increment.getLong("value")).isEqualTo(3L);
+    assertThat(increment.getString("tags")).isEmpty();
+    assertThat(event(events, MetricGaugeEvent.NAME).getDouble("value")).isEqualTo(1.5);
+    verify(delegate).time("timer", Duration.ofMillis(5), TAGS);
+    verify(delegate).increment("counter", 3L, Tags.empty());
+    verify(delegate).gauge("gauge", 1.5, TAGS);
+  }
+
+  @Test
+  void recording_timedCall() throws Exception {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(new JfrMetricsPublisher(delegate))
+        .build();
+    final Path file = tempDir.resolve("timed.jfr");
+    final Instant[] called = new Instant[1];
+    try (Recording recording = new Recording()) {
+      recording.enable(MetricTimeEvent.NAME);
+      recording.start();
+      metricFactory.time("timer", () -> {
+        Thread.sleep(20);
+        called[0] = Instant.now();
+        return "done";
+      }, TAGS);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    final RecordedEvent time = event(RecordingFile.readAllEvents(file), MetricTimeEvent.NAME);
+    assertThat(time.getString("metricName")).isEqualTo("timer");
+    assertThat(time.getStartTime()).isBefore(called[0]);
+    assertThat(time.getDuration()).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+    assertThat(time.getDuration("elapsed")).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+    verify(delegate).time(eq("timer"), any(), eq(TAGS));
+  }
+
+  @Test
+  void begin_notRecording() {
+    final JfrMetricsPublisher publisher = new JfrMetricsPublisher(delegate);
+    assertThat(publisher.begin("timer")).isNull();
+    verify(delegate).begin("timer");
+  }
+
+  @Test
+  void notRecording() {
+    final JfrMetricsPublisher publisher = new JfrMetricsPublisher(delegate);
+    assertThat(new MetricTimeEvent().isEnabled()).isFalse();
+    publisher.time("timer", Duration.ofMillis(5), TAGS);
+    verify(delegate).time("timer", Duration.ofMillis(5), TAGS);
+  }
+
+  @Test
+  void render() {
+    assertThat(JfrMetricsPublisher.render(Tags.empty())).isEmpty();
+    assertThat(JfrMetricsPublisher.render(Tags.of("b", "2"))).isEqualTo("b=2");
+    assertThat(JfrMetricsPublisher.render(Tags.of("b", "2", "a", "1"))).isEqualTo("a=1,b=2");
+  }
+
+  private static RecordedEvent event(final List<RecordedEvent> events, final String name) {
+    return events.stream().filter(event -> event.getEventType().getName().equals(name)).findFirst().orElseThrow();
+  }
+
+}
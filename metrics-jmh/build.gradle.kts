@@ -0,0 +1,39 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+    // Only so the declarative benchmarks can compare the woven aspect with the generated decorators.
+    id("io.freefair.aspectj.post-compile-weaving") version "8.12.2.1"
+}
+
+
+dependencies {
+    implementation(project(":metrics"))
+    implementation(libs.slf4j.api)
+
+    jmhImplementation(project(":metrics-micrometer"))
+    jmhImplementation(libs.micrometer.core)
+
+    jmhImplementation(project(":metrics-declarative"))
+    jmhImplementation(libs.aspectjrt)
+    jmhAspect(project(":metrics-declarative"))
+    jmhAnnotationProcessor(project(":metrics-declarative-processor"))
+}
+
+// Benchmarks run on 21 so the scoped value context storage can be compared with the thread local.
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+// Run once with -Pjmh.threads=1 and once with the number of cores. Each run keeps its own results.
+val jmhThreads = providers.gradleProperty("jmh.threads").map(String::toInt).getOrElse(1)
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    threads = jmhThreads
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results-${jmhThreads}t.json")
+    profilers = listOf("gc")
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
+}
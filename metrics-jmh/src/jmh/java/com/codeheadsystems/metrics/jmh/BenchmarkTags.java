@@ -0,0 +1,26 @@
+package com.codeheadsystems.metrics.jmh;
+
+/**
+ * Tags of a given size for the benchmarks.
+ */
+final class BenchmarkTags {
+
+  private BenchmarkTags() {
+  }
+
+  /**
+   * Key and value pairs, like key0, value0, key1, value1.
+   *
+   * @param count how many tags.
+   * @return the pairs.
+   */
+  static String[] pairs(final int count) {
+    final String[] pairs = new String[count * 2];
+    for (int i = 0; i < count; i++) {
+      pairs[i * 2] = "key" + i;
+      pairs[i * 2 + 1] = "value" + i;
+    }
+    return pairs;
+  }
+
+}
@@ -0,0 +1,71 @@
+package com.codeheadsystems.metrics.jmh;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Metrics;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Context enter/exit with and without context pooling. Run with the gc profiler, the pooled
+ * version should report zero bytes per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextPoolingBenchmark {
+
+  private static final Function<Metrics, Metrics> IDENTITY = metrics -> metrics;
+
+  @Param({"false", "true"})
+  private boolean pooling;
+
+  private MetricFactory metricFactory;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    metricFactory = MetricFactory.builder()
+        .withContextPooling(pooling)
+        .withTags("host", "localhost")
+        .build();
+  }
+
+  /**
+   * Enter and exit a context with with().
+   *
+   * @return the metrics.
+   */
+  @Benchmark
+  public Object with() {
+    return metricFactory.with(IDENTITY);
+  }
+
+  /**
+   * Enter and exit a context manually.
+   *
+   * @return the context.
+   */
+  @Benchmark
+  public Object enableDisable() {
+    final MetricFactory.MetricsContext metricsContext = metricFactory.enableMetricsContext();
+    metricFactory.disableMetricsContext(metricsContext);
+    return metricsContext;
+  }
+
+}
@@ -0,0 +1,90 @@
+package com.codeheadsystems.metrics.jmh;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.impl.ContextStorage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-context creation cost of the thread local storage versus the scoped value storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextStorageBenchmark {
+
+  @Param({"threadLocal", "scopedValue"})
+  private String storage;
+
+  private MetricFactory metricFactory;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    final ContextStorage contextStorage = "scopedValue".equals(storage)
+        ? ContextStorage.scopedValue()
+        : ContextStorage.threadLocal();
+    metricFactory = MetricFactory.builder()
+        .withContextStorage(contextStorage)
+        .withTags("host", "localhost")
+        .build();
+  }
+
+  /**
+   * Enter and exit a context with with().
+   *
+   * @return the metrics.
+   */
+  @Benchmark
+  public Object with() {
+    return metricFactory.with(metrics -> metrics);
+  }
+
+  /**
+   * Enter and exit a nested context with with().
+   *
+   * @return the metrics.
+   */
+  @Benchmark
+  public Object withNested() {
+    return metricFactory.with(outer -> metricFactory.with(inner -> inner));
+  }
+
+  /**
+   * Enter and exit a context manually.
+   *
+   * @return the context.
+   */
+  @Benchmark
+  public Object enableDisable() {
+    final MetricFactory.MetricsContext metricsContext = metricFactory.enableMetricsContext();
+    metricFactory.disableMetricsContext(metricsContext);
+    return metricsContext;
+  }
+
+  /**
+   * Lookup of the current metrics from inside a context.
+   *
+   * @return the metrics.
+   */
+  @Benchmark
+  public Object lookup() {
+    return metricFactory.with(metrics -> metricFactory.metrics());
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.codeheadsystems.metrics.jmh;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calls on the metric factory outside of any context, compared with the same call inside one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextlessBenchmark {
+
+  private static final Tags TAGS = Tags.of("endpoint", "test");
+
+  private MetricFactory metricFactory;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    metricFactory = MetricFactory.builder()
+        .withTags("host", "localhost")
+        .build();
+  }
+
+  /**
+   * Increment with no context.
+   */
+  @Benchmark
+  public void increment() {
+    metricFactory.increment("counter", 1L, TAGS);
+  }
+
+  /**
+   * Time with no context.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public Object time() {
+    return metricFactory.time("timer", () -> TAGS, TAGS);
+  }
+
+  /**
+   * Increment inside a context, for comparison.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public Object incrementInContext() {
+    return metricFactory.with(metrics -> {
+      metrics.increment("counter", 1L, TAGS);
+      return metrics;
+    });
+  }
+
+}
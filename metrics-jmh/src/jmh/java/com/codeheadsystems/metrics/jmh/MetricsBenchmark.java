@@ -0,0 +1,117 @@
+package com.codeheadsystems.metrics.jmh;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * increment() and time() on a factory shared by all threads, with and without a context, by the
+ * number of tags passed in. The context is entered once per iteration so only the call is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+  @Param({"0", "3", "10"})
+  private int tagCount;
+
+  private MetricFactory metricFactory;
+  private Tags tags;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    metricFactory = MetricFactory.builder()
+        .withTags("host", "localhost")
+        .build();
+    tags = Tags.of(BenchmarkTags.pairs(tagCount));
+  }
+
+  /**
+   * Increment outside a context.
+   */
+  @Benchmark
+  public void increment() {
+    metricFactory.increment("counter", 1L, tags);
+  }
+
+  /**
+   * Increment inside a context.
+   *
+   * @param context the context of this thread.
+   */
+  @Benchmark
+  public void incrementInContext(final InContext context) {
+    metricFactory.increment("counter", 1L, tags);
+  }
+
+  /**
+   * Time outside a context.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public Object time() {
+    return metricFactory.time("timer", () -> tags, tags);
+  }
+
+  /**
+   * Time inside a context.
+   *
+   * @param context the context of this thread.
+   * @return the result.
+   */
+  @Benchmark
+  public Object timeInContext(final InContext context) {
+    return metricFactory.time("timer", () -> tags, tags);
+  }
+
+  /**
+   * Keeps a context open on the benchmark thread for the iteration.
+   */
+  @State(Scope.Thread)
+  public static class InContext {
+
+    private MetricFactory metricFactory;
+    private MetricFactory.MetricsContext metricsContext;
+
+    /**
+     * Enter the context.
+     *
+     * @param benchmark the benchmark.
+     */
+    @Setup(Level.Iteration)
+    public void enter(final MetricsBenchmark benchmark) {
+      metricFactory = benchmark.metricFactory;
+      metricsContext = metricFactory.enableMetricsContext();
+    }
+
+    /**
+     * Exit the context.
+     */
+    @TearDown(Level.Iteration)
+    public void exit() {
+      metricFactory.disableMetricsContext(metricsContext);
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.codeheadsystems.metrics.jmh;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MicrometerMetricsPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The record paths of the Micrometer publisher, shared by all threads, by the number of tags. The
+ * meters already exist, so this is the lookup and record cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MicrometerPublisherBenchmark {
+
+  private static final Duration DURATION = Duration.ofMillis(5);
+
+  @Param({"0", "3", "10"})
+  private int tagCount;
+
+  private MicrometerMetricsPublisher publisher;
+  private Tags tags;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    publisher = new MicrometerMetricsPublisher(new SimpleMeterRegistry());
+    tags = Tags.of(BenchmarkTags.pairs(tagCount));
+  }
+
+  /**
+   * Increment a counter.
+   */
+  @Benchmark
+  public void increment() {
+    publisher.increment("counter", 1L, tags);
+  }
+
+  /**
+   * Record a time.
+   */
+  @Benchmark
+  public void time() {
+    publisher.time("timer", DURATION, tags);
+  }
+
+  /**
+   * Set a gauge.
+   */
+  @Benchmark
+  public void gauge() {
+    publisher.gauge("gauge", 1.0, tags);
+  }
+
+}
@@ -0,0 +1,85 @@
+package com.codeheadsystems.metrics.jmh;
+
+import com.codeheadsystems.metrics.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Tags operations used on every metric, by the number of tags.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagsBenchmark {
+
+  @Param({"0", "3", "10"})
+  private int tagCount;
+
+  private String[] pairs;
+  private Tags base;
+  private Tags other;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    pairs = BenchmarkTags.pairs(tagCount);
+    base = Tags.of("host", "localhost", "service", "benchmark");
+    other = Tags.of(pairs);
+  }
+
+  /**
+   * Build tags from pairs.
+   *
+   * @return the tags.
+   */
+  @Benchmark
+  public Tags of() {
+    return Tags.of(pairs);
+  }
+
+  /**
+   * Combine two tags into a new one, as done for each metric published.
+   *
+   * @return the tags.
+   */
+  @Benchmark
+  public Tags from() {
+    return base.from(other);
+  }
+
+  /**
+   * Copy then add, since add() changes the tags.
+   *
+   * @return the tags.
+   */
+  @Benchmark
+  public Tags add() {
+    return Tags.of(base).add(pairs);
+  }
+
+  /**
+   * Hash code, used when publishers key meters by tags.
+   *
+   * @return the hash code.
+   */
+  @Benchmark
+  public int hashCodeOf() {
+    return other.hashCode();
+  }
+
+}
@@ -0,0 +1,98 @@
+package com.codeheadsystems.metrics.jmh;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.helper.TagsGeneratorRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups in a registry shared by all threads, for a class registered exactly, through a superclass,
+ * through an interface, and not at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagsGeneratorRegistryBenchmark {
+
+  private static final Tags RESULT_TAGS = Tags.of("result", "value");
+
+  private TagsGeneratorRegistry registry;
+  private Object result;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    registry = new TagsGeneratorRegistry();
+    registry.register(Integer.class, i -> RESULT_TAGS);
+    registry.register(Number.class, n -> RESULT_TAGS);
+    registry.register(CharSequence.class, c -> RESULT_TAGS);
+    result = 1;
+  }
+
+  /**
+   * Registered for the class.
+   *
+   * @return the generator.
+   */
+  @Benchmark
+  public Object resolveExact() {
+    return registry.resolve(Integer.class);
+  }
+
+  /**
+   * Registered for a superclass.
+   *
+   * @return the generator.
+   */
+  @Benchmark
+  public Object resolveSuperclass() {
+    return registry.resolve(Long.class);
+  }
+
+  /**
+   * Registered for an interface.
+   *
+   * @return the generator.
+   */
+  @Benchmark
+  public Object resolveInterface() {
+    return registry.resolve(String.class);
+  }
+
+  /**
+   * Not registered.
+   *
+   * @return the generator.
+   */
+  @Benchmark
+  public Object resolveMissing() {
+    return registry.resolve(Thread.class);
+  }
+
+  /**
+   * What time() does with each result.
+   *
+   * @return the tags.
+   */
+  @Benchmark
+  public Tags aggregateIfFound() {
+    final Tags tags = Tags.empty();
+    registry.aggregateIfFound(tags, result);
+    return tags;
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.codeheadsystems.metrics.jmh.declarative;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Tags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of a @Metrics method through the AspectJ aspect, through the generated decorator,
+ * and written by hand.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeclarativeBenchmark {
+
+  private MetricFactory metricFactory;
+  private PlainTimedService plain;
+  private TimedService decorator;
+  private WovenTimedService woven;
+  private String name;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setup() {
+    metricFactory = MetricFactory.builder().build();
+    plain = new PlainTimedService();
+    decorator = new TimedServiceMetricsDecorator(plain, metricFactory);
+    woven = new WovenTimedService();
+    woven.metricFactory(metricFactory);
+    name = "benchmark";
+  }
+
+  /**
+   * No metrics at all.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public int baseline() {
+    return plain.compute(name);
+  }
+
+  /**
+   * Time() called directly.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public int handWritten() {
+    return metricFactory.time("TimedService.compute", () -> plain.compute(name), Tags.of("name", name));
+  }
+
+  /**
+   * The generated decorator.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public int decorator() {
+    return decorator.compute(name);
+  }
+
+  /**
+   * The woven aspect.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public int aspect() {
+    return woven.compute(name);
+  }
+
+}
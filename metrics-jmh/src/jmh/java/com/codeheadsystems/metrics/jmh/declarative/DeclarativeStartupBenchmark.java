@@ -0,0 +1,47 @@
+package com.codeheadsystems.metrics.jmh.declarative;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the first call in a fresh JVM, which includes loading the AspectJ runtime and the aspect
+ * or just the generated decorator. Each fork measures one cold call.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class DeclarativeStartupBenchmark {
+
+  /**
+   * First call through the generated decorator.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public int decorator() {
+    final MetricFactory metricFactory = MetricFactory.builder().build();
+    return new TimedServiceMetricsDecorator(new PlainTimedService(), metricFactory).compute("startup");
+  }
+
+  /**
+   * First call through the woven aspect.
+   *
+   * @return the result.
+   */
+  @Benchmark
+  public int aspect() {
+    final WovenTimedService woven = new WovenTimedService();
+    woven.metricFactory(MetricFactory.builder().build());
+    return woven.compute("startup");
+  }
+
+}
@@ -0,0 +1,13 @@
+package com.codeheadsystems.metrics.jmh.declarative;
+
+/**
+ * The implementation wrapped by the generated TimedServiceMetricsDecorator.
+ */
+public class PlainTimedService implements TimedService {
+
+  @Override
+  public int compute(final String name) {
+    return name.length();
+  }
+
+}
@@ -0,0 +1,21 @@
+package com.codeheadsystems.metrics.jmh.declarative;
+
+import com.codeheadsystems.metrics.declarative.Metrics;
+import com.codeheadsystems.metrics.declarative.Tag;
+
+/**
+ * Decorated by the annotation processor. The annotations are on the interface, so the AspectJ
+ * pointcut never matches the implementation.
+ */
+public interface TimedService {
+
+  /**
+   * Compute int.
+   *
+   * @param name the name
+   * @return the int
+   */
+  @Metrics
+  int compute(@Tag("name") String name);
+
+}
@@ -0,0 +1,35 @@
+package com.codeheadsystems.metrics.jmh.declarative;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.declarative.DeclarativeFactory;
+import com.codeheadsystems.metrics.declarative.Metrics;
+import com.codeheadsystems.metrics.declarative.Tag;
+
+/**
+ * Timed by the AspectJ weaving of metrics-declarative.
+ */
+public class WovenTimedService {
+
+  /**
+   * Hands the factory to the aspect.
+   *
+   * @param metricFactory the metric factory
+   * @return the metric factory
+   */
+  @DeclarativeFactory
+  public MetricFactory metricFactory(final MetricFactory metricFactory) {
+    return metricFactory;
+  }
+
+  /**
+   * Compute int.
+   *
+   * @param name the name
+   * @return the int
+   */
+  @Metrics
+  public int compute(@Tag("name") final String name) {
+    return name.length();
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.codeheadsystems.metrics.jvm;
+
+import java.util.Arrays;
+
+/**
+ * Durations in nanoseconds, with 8 buckets per power of two so percentiles are within about 6%.
+ * Only used from the stream thread, so not thread safe.
+ */
+final class DurationHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final long[] counts = new long[64 * SUB_BUCKETS];
+  private long count;
+  private long total;
+  private long max;
+
+  void record(final long nanos) {
+    final long value = Math.max(0, nanos);
+    counts[index(value)]++;
+    count++;
+    total += value;
+    max = Math.max(max, value);
+  }
+
+  long count() {
+    return count;
+  }
+
+  long total() {
+    return total;
+  }
+
+  long max() {
+    return max;
+  }
+
+  /**
+   * The middle of the bucket holding the percentile, no more than the max. The top rank is the max.
+   *
+   * @param percentile from 0 to 100.
+   * @return the nanoseconds, or 0 if nothing was recorded.
+   */
+  long percentile(final double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    if (rank >= count) {
+      return max;
+    }
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(middle(i), max);
+      }
+    }
+    return max;
+  }
+
+  void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    total = 0;
+    max = 0;
+  }
+
+  private static int index(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long middle(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    final long width = 1L << (exponent - SUB_BUCKET_BITS);
+    final long lowest = (1L << exponent) + (index % SUB_BUCKETS) * width;
+    return lowest + width / 2;
+  }
+}
@@ -0,0 +1,424 @@
+package com.codeheadsystems.metrics.jvm;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.helper.GaugeRegistry;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import jdk.jfr.EventSettings;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns JVM runtime events from JFR into metrics, by streaming them from a recording in this
+ * process. Durations are aggregated per interval into a histogram, then published through the
+ * metric factory, so they get its initial tags, prefix and rules like any other metric:
+ *
+ * <ul>
+ *   <li>[name].count and [name].nanos are incremented by the events and their total duration.</li>
+ *   <li>[name].p50, [name].p99 and [name].max are gauges in milliseconds for the last interval.</li>
+ *   <li>[name].bytes is incremented by the bytes read or written, for I/O.</li>
+ *   <li>jvm.allocation.bytes is incremented by the estimated bytes allocated, and
+ *       jvm.allocation.rate is a gauge in bytes per second.</li>
+ *   <li>jvm.collector.cpu is a gauge of the CPU used by the stream thread, as a percent of one
+ *       processor.</li>
+ * </ul>
+ *
+ * <p>Everything is aggregated on the stream thread, so recording an event is a histogram update.
+ * The series are only touched by the stream thread until close() has waited for it to end.
+ * The cost of JFR itself depends on the thresholds, so keep them at or above the defaults for
+ * thread park and I/O events. Only events above the threshold are counted. The cpu gauge is only
+ * the stream thread: what JFR costs the application threads, timing and writing the events, and
+ * its own threads, is not in it.
+ */
+public class JvmCollector implements AutoCloseable {
+
+  /**
+   * The gauge of CPU used by the collector.
+   */
+  public static final String CPU_METRIC = "jvm.collector.cpu";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JvmCollector.class);
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+  private static final Duration TERMINATION_TIMEOUT = Duration.ofSeconds(10);
+  private static final String SAFEPOINT_END = "jdk.SafepointEnd";
+  private static final String SAFEPOINT_ID = "safepointId";
+  // begin or end events whose pair never came, as when JFR drops one, are forgotten past this.
+  private static final int MAX_UNPAIRED_SAFEPOINTS = 1024;
+
+  private final MetricFactory metricFactory;
+  private final GaugeRegistry gauges;
+  private final Duration interval;
+  private final Map<JvmEvent, Duration> thresholds;
+  private final String allocationThrottle;
+  private final double cpuWarningPercent;
+  private final Map<String, Series> series = new HashMap<>();
+  private final Map<Long, Long> safepointBegins = new HashMap<>();
+  private final Map<Long, Long> safepointEnds = new HashMap<>();
+  private final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+  private RecordingStream recordingStream;
+  private long allocated;
+  private long lastPublish;
+  private long lastCpu = -1;
+  private boolean warned;
+  private volatile double allocationRate;
+  private volatile double cpuPercent;
+
+  private JvmCollector(final Builder builder) {
+    this.metricFactory = builder.metricFactory;
+    this.gauges = metricFactory.gauges();
+    this.interval = builder.interval;
+    this.thresholds = builder.thresholds;
+    this.allocationThrottle = builder.allocationThrottle;
+    this.cpuWarningPercent = builder.cpuWarningPercent;
+    LOGGER.info("JvmCollector({},{},{})", metricFactory, interval, thresholds);
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Starts streaming the events on a background thread.
+   *
+   * @return this.
+   */
+  public synchronized JvmCollector start() {
+    if (recordingStream != null) {
+      return this;
+    }
+    LOGGER.info("start()");
+    final RecordingStream stream = new RecordingStream();
+    stream.setReuse(true);
+    stream.setOrdered(false);
+    for (Map.Entry<JvmEvent, Duration> entry : thresholds.entrySet()) {
+      final JvmEvent event = entry.getKey();
+      final EventSettings settings = stream.enable(event.eventName()).withoutStackTrace();
+      if (event == JvmEvent.ALLOCATION) {
+        settings.with("throttle", allocationThrottle);
+      } else if (event == JvmEvent.SAFEPOINT) {
+        // both halves are needed to pair them, so the threshold is applied to the pause after.
+        settings.withThreshold(Duration.ZERO);
+        stream.enable(SAFEPOINT_END).withoutStackTrace().withThreshold(Duration.ZERO);
+        stream.onEvent(SAFEPOINT_END, this::onSafepointEnd);
+      } else {
+        settings.withThreshold(entry.getValue());
+      }
+      stream.onEvent(event.eventName(), recordedEvent -> onEvent(event, recordedEvent));
+    }
+    if (thresholds.containsKey(JvmEvent.ALLOCATION)) {
+      register(JvmEvent.ALLOCATION.metricName() + ".rate", this, collector -> collector.allocationRate, Tags.empty());
+    }
+    register(CPU_METRIC, this, collector -> collector.cpuPercent, Tags.empty());
+    stream.onFlush(this::onFlush);
+    lastPublish = System.nanoTime();
+    stream.startAsync();
+    recordingStream = stream;
+    return this;
+  }
+
+  /**
+   * Stops streaming, waits for the stream thread to end, and removes the gauges of this collector.
+   * Gauges of the same names registered by others are left alone.
+   */
+  @Override
+  public synchronized void close() {
+    if (recordingStream == null) {
+      return;
+    }
+    LOGGER.info("close()");
+    recordingStream.close();
+    try {
+      recordingStream.awaitTermination(TERMINATION_TIMEOUT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    recordingStream = null;
+    gauges.unregister(this);
+    series.values().forEach(gauges::unregister);
+    series.clear();
+    safepointBegins.clear();
+    safepointEnds.clear();
+    // a later start() streams on a new thread, so nothing carries over from this one.
+    allocated = 0;
+    lastCpu = -1;
+    warned = false;
+    allocationRate = 0;
+    cpuPercent = 0;
+  }
+
+  private void onEvent(final JvmEvent event, final RecordedEvent recordedEvent) {
+    switch (event) {
+      case GC_PAUSE:
+        series(event, recordedEvent.getString("name"))
+            .record(recordedEvent.getDuration("sumOfPauses").toNanos(), 0);
+        break;
+      case FILE_READ:
+      case SOCKET_READ:
+        series(event, null).record(recordedEvent.getDuration().toNanos(), recordedEvent.getLong("bytesRead"));
+        break;
+      case FILE_WRITE:
+      case SOCKET_WRITE:
+        series(event, null).record(recordedEvent.getDuration().toNanos(), recordedEvent.getLong("bytesWritten"));
+        break;
+      case ALLOCATION:
+        allocated += recordedEvent.getLong("weight");
+        break;
+      case SAFEPOINT:
+        onSafepoint(recordedEvent.getLong(SAFEPOINT_ID), nanos(recordedEvent.getStartTime()), safepointBegins,
+            safepointEnds, true);
+        break;
+      default:
+        series(event, null).record(recordedEvent.getDuration().toNanos(), 0);
+    }
+  }
+
+  private void onSafepointEnd(final RecordedEvent recordedEvent) {
+    onSafepoint(recordedEvent.getLong(SAFEPOINT_ID), nanos(recordedEvent.getEndTime()), safepointEnds,
+        safepointBegins, false);
+  }
+
+  /**
+   * Records the pause once both the begin and the end of a safepoint were seen. The stream is not
+   * ordered, so either can come first, and the first waits for the other.
+   */
+  private void onSafepoint(final long safepointId, final long nanos, final Map<Long, Long> unpaired,
+                           final Map<Long, Long> others, final boolean begin) {
+    final Long other = others.remove(safepointId);
+    if (other == null) {
+      if (unpaired.size() >= MAX_UNPAIRED_SAFEPOINTS) {
+        unpaired.clear();
+      }
+      unpaired.put(safepointId, nanos);
+      return;
+    }
+    final long pause = begin ? other - nanos : nanos - other;
+    if (pause >= thresholds.get(JvmEvent.SAFEPOINT).toNanos()) {
+      series(JvmEvent.SAFEPOINT, null).record(pause, 0);
+    }
+  }
+
+  private static long nanos(final Instant instant) {
+    return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+  }
+
+  private Series series(final JvmEvent event, final String collector) {
+    final String key = collector == null ? event.metricName() : event.metricName() + '|' + collector;
+    Series result = series.get(key);
+    if (result == null) {
+      final Tags tags = collector == null ? Tags.empty() : Tags.of("gc", collector);
+      result = new Series(event.metricName(), tags);
+      series.put(key, result);
+      register(event.metricName() + ".p50", result, s -> s.p50, tags);
+      register(event.metricName() + ".p99", result, s -> s.p99, tags);
+      register(event.metricName() + ".max", result, s -> s.max, tags);
+    }
+    return result;
+  }
+
+  /**
+   * Registers a gauge. The owner is a series or this collector, both held until close(), which
+   * removes the gauges by their owner.
+   */
+  private <T> void register(final String metricName, final T owner, final ToDoubleFunction<T> function,
+                            final Tags tags) {
+    gauges.register(metricName, owner, function, tags);
+  }
+
+  private void onFlush() {
+    final long now = System.nanoTime();
+    final long elapsed = now - lastPublish;
+    if (elapsed < interval.toNanos()) {
+      return;
+    }
+    lastPublish = now;
+    publish(elapsed);
+  }
+
+  /**
+   * Publishes what was aggregated since the last call, and starts a new interval.
+   *
+   * @param elapsed nanoseconds since the last publish.
+   */
+  void publish(final long elapsed) {
+    for (Series s : series.values()) {
+      s.publish(metricFactory);
+    }
+    if (thresholds.containsKey(JvmEvent.ALLOCATION)) {
+      metricFactory.increment(JvmEvent.ALLOCATION.metricName() + ".bytes", allocated, Tags.empty());
+      allocationRate = allocated * 1_000_000_000.0 / Math.max(1, elapsed);
+      allocated = 0;
+    }
+    final long cpu = threadMxBean.isCurrentThreadCpuTimeSupported() ? threadMxBean.getCurrentThreadCpuTime() : -1;
+    if (cpu >= 0 && lastCpu >= 0) {
+      cpuPercent = (cpu - lastCpu) * 100.0 / Math.max(1, elapsed);
+      if (cpuPercent > cpuWarningPercent && !warned) {
+        warned = true;
+        LOGGER.warn("publish() - the collector used {}% of a CPU, raise the thresholds", cpuPercent);
+      }
+    }
+    lastCpu = cpu;
+  }
+
+  /**
+   * One metric and set of tags.
+   */
+  private static final class Series {
+
+    private final String metricName;
+    private final Tags tags;
+    private final DurationHistogram histogram = new DurationHistogram();
+    private long bytes;
+    private volatile double p50;
+    private volatile double p99;
+    private volatile double max;
+
+    private Series(final String metricName, final Tags tags) {
+      this.metricName = metricName;
+      this.tags = tags;
+    }
+
+    private void record(final long nanos, final long bytes) {
+      histogram.record(nanos);
+      if (bytes > 0) {
+        this.bytes += bytes;
+      }
+    }
+
+    private void publish(final MetricFactory metricFactory) {
+      p50 = histogram.percentile(50) / NANOS_PER_MILLI;
+      p99 = histogram.percentile(99) / NANOS_PER_MILLI;
+      max = histogram.max() / NANOS_PER_MILLI;
+      if (histogram.count() > 0) {
+        metricFactory.increment(metricName + ".count", histogram.count(), tags);
+        metricFactory.increment(metricName + ".nanos", histogram.total(), tags);
+      }
+      if (bytes > 0) {
+        metricFactory.increment(metricName + ".bytes", bytes, tags);
+        bytes = 0;
+      }
+      histogram.reset();
+    }
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Builder.class);
+
+    private final Map<JvmEvent, Duration> thresholds = new EnumMap<>(JvmEvent.class);
+    private MetricFactory metricFactory;
+    private Duration interval = Duration.ofSeconds(10);
+    private String allocationThrottle = "100/s";
+    private double cpuWarningPercent = 1.0;
+
+    private Builder() {
+      for (JvmEvent event : JvmEvent.values()) {
+        thresholds.put(event, event.defaultThreshold());
+      }
+    }
+
+    /**
+     * With metric factory builder. Required.
+     *
+     * @param metricFactory the metric factory
+     * @return the builder
+     */
+    public Builder withMetricFactory(final MetricFactory metricFactory) {
+      LOGGER.info("withMetricFactory({})", metricFactory);
+      this.metricFactory = metricFactory;
+      return this;
+    }
+
+    /**
+     * With interval builder. How often the aggregates are published. Defaults to 10 seconds. JFR
+     * streams events about once a second, so shorter intervals are not useful.
+     *
+     * @param interval the interval
+     * @return the builder
+     */
+    public Builder withInterval(final Duration interval) {
+      LOGGER.info("withInterval({})", interval);
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * With threshold builder. Events shorter than this are not recorded or counted.
+     *
+     * @param event     the event
+     * @param threshold the threshold
+     * @return the builder
+     */
+    public Builder withThreshold(final JvmEvent event, final Duration threshold) {
+      LOGGER.info("withThreshold({},{})", event, threshold);
+      thresholds.put(event, threshold);
+      return this;
+    }
+
+    /**
+     * Without event builder. The event is not recorded at all.
+     *
+     * @param event the event
+     * @return the builder
+     */
+    public Builder withoutEvent(final JvmEvent event) {
+      LOGGER.info("withoutEvent({})", event);
+      thresholds.remove(event);
+      return this;
+    }
+
+    /**
+     * With allocation throttle builder. How many allocation samples JFR takes, like 100/s, the
+     * default. The byte estimate is weighted, so fewer samples are less accurate but not low.
+     *
+     * @param allocationThrottle the allocation throttle
+     * @return the builder
+     */
+    public Builder withAllocationThrottle(final String allocationThrottle) {
+      LOGGER.info("withAllocationThrottle({})", allocationThrottle);
+      this.allocationThrottle = allocationThrottle;
+      return this;
+    }
+
+    /**
+     * With cpu warning percent builder. A warning is logged once if the stream thread uses more
+     * than this percent of a CPU. Defaults to 1.
+     *
+     * @param cpuWarningPercent the cpu warning percent
+     * @return the builder
+     */
+    public Builder withCpuWarningPercent(final double cpuWarningPercent) {
+      LOGGER.info("withCpuWarningPercent({})", cpuWarningPercent);
+      this.cpuWarningPercent = cpuWarningPercent;
+      return this;
+    }
+
+    /**
+     * Build jvm collector. Call start() on it to begin.
+     *
+     * @return the jvm collector
+     */
+    public JvmCollector build() {
+      if (metricFactory == null) {
+        throw new IllegalArgumentException("The metric factory is required");
+      }
+      return new JvmCollector(this);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.codeheadsystems.metrics.jvm;
+
+import java.time.Duration;
+
+/**
+ * The JFR events the collector can turn into metrics.
+ */
+public enum JvmEvent {
+
+  /**
+   * Total pause time of each collection, tagged with the collector name.
+   */
+  GC_PAUSE("jdk.GarbageCollection", "jvm.gc.pause", Duration.ZERO),
+
+  /**
+   * Each safepoint, from the request until threads are released. A jdk.SafepointBegin event only
+   * lasts until the threads reach the safepoint, so it is paired with the jdk.SafepointEnd of the
+   * same safepoint id, and the threshold applies to the whole pause.
+   */
+  SAFEPOINT("jdk.SafepointBegin", "jvm.safepoint", Duration.ZERO),
+
+  /**
+   * Threads parked, as in waiting on a lock or a queue, for longer than the threshold.
+   */
+  THREAD_PARK("jdk.ThreadPark", "jvm.thread.park", Duration.ofMillis(10)),
+
+  /**
+   * File reads slower than the threshold.
+   */
+  FILE_READ("jdk.FileRead", "jvm.file.read", Duration.ofMillis(10)),
+
+  /**
+   * File writes slower than the threshold.
+   */
+  FILE_WRITE("jdk.FileWrite", "jvm.file.write", Duration.ofMillis(10)),
+
+  /**
+   * Socket reads slower than the threshold.
+   */
+  SOCKET_READ("jdk.SocketRead", "jvm.socket.read", Duration.ofMillis(10)),
+
+  /**
+   * Socket writes slower than the threshold.
+   */
+  SOCKET_WRITE("jdk.SocketWrite", "jvm.socket.write", Duration.ofMillis(10)),
+
+  /**
+   * Sampled allocations, weighted so their sum estimates the bytes allocated.
+   */
+  ALLOCATION("jdk.ObjectAllocationSample", "jvm.allocation", null);
+
+  private final String eventName;
+  private final String metricName;
+  private final Duration defaultThreshold;
+
+  JvmEvent(final String eventName, final String metricName, final Duration defaultThreshold) {
+    this.eventName = eventName;
+    this.metricName = metricName;
+    this.defaultThreshold = defaultThreshold;
+  }
+
+  public String eventName() {
+    return eventName;
+  }
+
+  public String metricName() {
+    return metricName;
+  }
+
+  /**
+   * Events shorter than this are not recorded. Null for events without a duration.
+   *
+   * @return the duration
+   */
+  public Duration defaultThreshold() {
+    return defaultThreshold;
+  }
+}
@@ -0,0 +1,41 @@
+package com.codeheadsystems.metrics.jvm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class DurationHistogramTest {
+
+  @Test
+  void percentiles() {
+    final DurationHistogram histogram = new DurationHistogram();
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1_000_000);
+    }
+    assertThat(histogram.count()).isEqualTo(1000);
+    assertThat(histogram.total()).isEqualTo(500_500_000_000L);
+    assertThat(histogram.max()).isEqualTo(1_000_000_000L);
+    assertThat(histogram.percentile(50)).isBetween(470_000_000L, 530_000_000L);
+    assertThat(histogram.percentile(99)).isBetween(930_000_000L, 1_000_000_000L);
+    assertThat(histogram.percentile(100)).isEqualTo(1_000_000_000L);
+  }
+
+  @Test
+  void small() {
+    final DurationHistogram histogram = new DurationHistogram();
+    histogram.record(3);
+    histogram.record(-1);
+    assertThat(histogram.percentile(50)).isZero();
+    assertThat(histogram.percentile(100)).isEqualTo(3);
+  }
+
+  @Test
+  void reset() {
+    final DurationHistogram histogram = new DurationHistogram();
+    histogram.record(1_000);
+    histogram.reset();
+    assertThat(histogram.count()).isZero();
+    assertThat(histogram.max()).isZero();
+    assertThat(histogram.percentile(99)).isZero();
+  }
+}
@@ -0,0 +1,115 @@
+package com.codeheadsystems.metrics.jvm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class JvmCollectorTest {
+
+  private static final Tags HOST = Tags.of("host", "a");
+
+  @Mock private MetricPublisher metricPublisher;
+
+  @Test
+  void gcPauses() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(HOST)
+        .withGaugeInterval(Duration.ofHours(1))
+        .withMetricPublisher(metricPublisher)
+        .build();
+    try (JvmCollector collector = JvmCollector.builder()
+        .withMetricFactory(metricFactory)
+        .withInterval(Duration.ofMillis(100))
+        .withoutEvent(JvmEvent.THREAD_PARK)
+        .build()
+        .start()) {
+      metricFactory.gauges().register(JvmCollector.CPU_METRIC, () -> 1.0, Tags.empty());
+      System.gc();
+      verify(metricPublisher, timeout(15_000).atLeastOnce()).increment(eq("jvm.gc.pause.count"), anyLong(),
+          argThat(tags -> "a".equals(tags.getTags().get("host"))));
+      assertThat(metricFactory.gauges().size()).isGreaterThan(0);
+    }
+    // the gauges go with the collector, but not a gauge of the same name registered by others.
+    assertThat(metricFactory.gauges().size()).isEqualTo(1);
+    metricFactory.gauges().close();
+  }
+
+  @Test
+  void safepoints() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withGaugeInterval(Duration.ofHours(1))
+        .withMetricPublisher(metricPublisher)
+        .build();
+    try (JvmCollector collector = JvmCollector.builder()
+        .withMetricFactory(metricFactory)
+        .withInterval(Duration.ofMillis(100))
+        .withoutEvent(JvmEvent.THREAD_PARK)
+        .build()
+        .start()) {
+      // a full collection stops every thread at a safepoint.
+      System.gc();
+      verify(metricPublisher, timeout(15_000).atLeastOnce()).increment(eq("jvm.safepoint.count"), anyLong(),
+          argThat(tags -> true));
+    }
+    metricFactory.gauges().close();
+  }
+
+  @Test
+  void close_resetsForTheNextStart() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withGaugeInterval(Duration.ofHours(1))
+        .withMetricPublisher(metricPublisher)
+        .build();
+    final JvmCollector collector = JvmCollector.builder()
+        .withMetricFactory(metricFactory)
+        .withCpuWarningPercent(Double.MAX_VALUE)
+        .build();
+    // two publishes on this thread, so the cpu gauge has a value from this thread's cpu time.
+    collector.publish(1);
+    burn();
+    collector.publish(1);
+    collector.start().close();
+    collector.start();
+    try {
+      metricFactory.gauges().poll();
+      verify(metricPublisher).gauge(eq(JvmCollector.CPU_METRIC), eq(0.0), argThat(tags -> true));
+    } finally {
+      collector.close();
+      metricFactory.gauges().close();
+    }
+  }
+
+  @Test
+  void build_requiresFactory() {
+    assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> JvmCollector.builder().build());
+  }
+
+  private static void burn() {
+    final long end = System.nanoTime() + 10_000_000;
+    while (System.nanoTime() < end) {
+      Thread.onSpinWait();
+    }
+  }
+
+  @Test
+  void events() {
+    assertThat(JvmEvent.GC_PAUSE.eventName()).isEqualTo("jdk.GarbageCollection");
+    assertThat(JvmEvent.THREAD_PARK.defaultThreshold()).isEqualTo(Duration.ofMillis(10));
+    assertThat(JvmEvent.ALLOCATION.defaultThreshold()).isNull();
+  }
+
+}
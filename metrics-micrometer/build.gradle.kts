@@ -15,6 +15,7 @@ dependencies {
     implementation(libs.micrometer.core)
 
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation(project(":metrics-test"))
     testImplementation(libs.bundles.testing)
     testImplementation(libs.logback.classic)
 }
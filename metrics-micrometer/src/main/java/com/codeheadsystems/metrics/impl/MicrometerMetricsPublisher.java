@@ -10,6 +10,10 @@ import io.micrometer.core.instrument.dropwizard.DropwizardMeterRegistry;
 import io.micrometer.core.instrument.util.HierarchicalNameMapper;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +25,7 @@ public class MicrometerMetricsPublisher implements MetricPublisher {
 
   private static final Logger log = LoggerFactory.getLogger(MicrometerMetricsPublisher.class);
   private final MeterRegistry meterRegistry;
+  private final Map<GaugeKey, AtomicLong> gauges = new ConcurrentHashMap<>();
 
   /**
    * Constructor.
@@ -73,6 +78,30 @@ public class MicrometerMetricsPublisher implements MetricPublisher {
     meterRegistry.timer(metricName, convert(tags)).record(duration);
   }
 
+  /**
+   * Micrometer reads gauges when it reports, so this keeps the last value for each gauge and
+   * registers a gauge that reads it.
+   */
+  @Override
+  public void gauge(final String metricName, final double value, final Tags tags) {
+    log.trace("gauge({}, {}, {})", metricName, value, tags);
+    AtomicLong bits = gauges.get(new GaugeKey(metricName, tags));
+    if (bits == null) {
+      // tags can be changed by the caller, so the key keeps a copy.
+      bits = gauges.computeIfAbsent(new GaugeKey(metricName, Tags.of(tags)), key -> {
+        final AtomicLong holder = new AtomicLong();
+        meterRegistry.gauge(metricName, convert(key.tags), holder, h -> Double.longBitsToDouble(h.get()));
+        return holder;
+      });
+    }
+    bits.set(Double.doubleToRawLongBits(value));
+  }
+
+  @Override
+  public long seriesCount() {
+    return meterRegistry.getMeters().size();
+  }
+
   private io.micrometer.core.instrument.Tags convert(final Tags tags) {
     final List<Tag> list = tags.getTags().entrySet().stream()
         .map(entry -> Tag.of(entry.getKey(), entry.getValue()))
@@ -80,4 +109,32 @@ public class MicrometerMetricsPublisher implements MetricPublisher {
     return io.micrometer.core.instrument.Tags.of(list);
   }
 
+  private static final class GaugeKey {
+
+    private final String metricName;
+    private final Tags tags;
+
+    private GaugeKey(final String metricName, final Tags tags) {
+      this.metricName = metricName;
+      this.tags = tags;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GaugeKey)) {
+        return false;
+      }
+      final GaugeKey other = (GaugeKey) o;
+      return metricName.equals(other.metricName) && Objects.equals(tags, other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(metricName, tags);
+    }
+  }
+
 }
@@ -0,0 +1,33 @@
+package com.codeheadsystems.metrics.impl;
+
+import com.codeheadsystems.metrics.test.MetricPublisherConformanceTest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MicrometerMetricsPublisherConformanceTest extends MetricPublisherConformanceTest<MicrometerMetricsPublisher> {
+
+  private SimpleMeterRegistry registry;
+
+  @Override
+  protected MicrometerMetricsPublisher createPublisher() {
+    registry = new SimpleMeterRegistry();
+    return new MicrometerMetricsPublisher(registry);
+  }
+
+  @Override
+  protected void destroyPublisher(final MicrometerMetricsPublisher publisher) {
+    registry.close();
+  }
+
+  @Override
+  protected long incrementTotal(final MicrometerMetricsPublisher publisher, final String metricName) {
+    return (long) registry.find(metricName).counters().stream().mapToDouble(Counter::count).sum();
+  }
+
+  @Override
+  protected long timeCount(final MicrometerMetricsPublisher publisher, final String metricName) {
+    return registry.find(metricName).timers().stream().mapToLong(Timer::count).sum();
+  }
+
+}
@@ -9,6 +9,7 @@ import com.codeheadsystems.metrics.Tags;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.Clock;
 import java.time.Duration;
 import org.junit.jupiter.api.Test;
@@ -48,4 +49,28 @@ class MicrometerMetricsPublisherTest {
     verify(timer).record(duration);
   }
 
-}
\ No newline at end of file
+  @Test
+  void gauge() {
+    final MeterRegistry registry = new SimpleMeterRegistry();
+    publisher = new MicrometerMetricsPublisher(registry);
+
+    publisher.gauge("test", 1.5, Tags.of("a", "b"));
+    publisher.gauge("test", 2.5, Tags.of("a", "b"));
+    assertThat(registry.get("test").tag("a", "b").gauge().value()).isEqualTo(2.5);
+    assertThat(registry.getMeters()).hasSize(1);
+  }
+
+  @Test
+  void gauge_tagsChangedAfter() {
+    final MeterRegistry registry = new SimpleMeterRegistry();
+    publisher = new MicrometerMetricsPublisher(registry);
+
+    final Tags tags = Tags.of("a", "b");
+    publisher.gauge("test", 1.5, tags);
+    tags.add("c", "d");
+    publisher.gauge("test", 2.5, Tags.of("a", "b"));
+    assertThat(registry.get("test").tag("a", "b").gauge().value()).isEqualTo(2.5);
+    assertThat(registry.getMeters()).hasSize(1);
+  }
+
+}
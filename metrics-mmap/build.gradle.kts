@@ -0,0 +1,83 @@
+
+
+plugins {
+    `java-library`
+    `maven-publish`
+    signing
+    checkstyle
+}
+
+
+dependencies {
+    implementation(project(":metrics"))
+    implementation(libs.slf4j.api)
+
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation(project(":metrics-test"))
+    testImplementation(libs.bundles.testing)
+    testImplementation(libs.logback.classic)
+}
+
+// Apply a specific Java toolchain to ease working on different environments.
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(11)
+    }
+    withJavadocJar()
+    withSourcesJar()
+}
+
+tasks.named<Test>("test") {
+    // Use JUnit Platform for unit tests.
+    useJUnitPlatform()
+}
+
+publishing {
+    publications {
+        create<MavenPublication>("mavenJava") {
+            from(components["java"])
+            pom {
+                name = "Metrics-MMAP"
+                description = "Memory mapped counters publisher and reader"
+                url = "https://github.com/wolpert/metrics"
+                licenses {
+                    license {
+                        name = "The Apache License, Version 2.0"
+                        url = "http://www.apache.org/licenses/LICENSE-2.0.txt"
+                    }
+                }
+                developers {
+                    developer {
+                        id = "wolpert"
+                        name = "Ned Wolpert"
+                        email = "ned.wolpert@gmail.com"
+                    }
+                }
+                scm {
+                    connection = "scm:git:git://github.com/wolpert/metrics.git"
+                    developerConnection = "scm:git:ssh://github.com/wolpert/metrics.git"
+                    url = "https://github.com/wolpert/metrics/"
+                }
+            }
+
+        }
+    }
+    repositories {
+        maven {
+            val releasesRepoUrl = "https://oss.sonatype.org/service/local/staging/deploy/maven2"
+            val snapshotsRepoUrl = "https://oss.sonatype.org/content/repositories/snapshots"
+            url = uri(if (version.toString().endsWith("SNAPSHOT")) snapshotsRepoUrl else releasesRepoUrl)
+            name = "ossrh"
+            credentials(PasswordCredentials::class)
+        }
+    }
+}
+signing {
+    useGpgCmd()
+    sign(publishing.publications["mavenJava"])
+}
+tasks.javadoc {
+    if (JavaVersion.current().isJava9Compatible) {
+        (options as StandardJavadocDocletOptions).addBooleanOption("html5", true)
+    }
+}
@@ -0,0 +1,120 @@
+package com.codeheadsystems.metrics.mmap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The layout of a counters file, shared by the publisher and the reader. Everything is little endian,
+ * and every value is aligned to its size so it can be read and written atomically.
+ *
+ * <pre>
+ * Header, 128 bytes
+ *   0   int   magic 0x4D435452 ("MCTR"), written last once the header is complete
+ *   4   int   version, 1
+ *   8   int   max series, the number of slots
+ *   12  int   metadata length, the bytes of each metadata entry
+ *   16  long  pid of the writer
+ *   24  long  start time of the writer, epoch millis
+ *   32  long  events dropped since there was no slot for their series
+ *   40  long  slots allocated, slots below this are ready or being written
+ *
+ * Metadata region, at 128, one entry of metadata length for each slot
+ *   0   int   state, 0 free and 1 ready, written last once the entry is complete
+ *   4   int   type, 1 counter, 2 timer and 3 gauge
+ *   8   short name length, then the name in UTF-8
+ *       short tag count, then for each tag a short key length, the key, a short value length and
+ *             the value, all UTF-8 and sorted by key
+ *
+ * Values region, at 128 + max series * metadata length rounded up to a multiple of 64, one 64 byte
+ * slot for each series, so every slot is a cache line of its own
+ *   counter  0 long total
+ *   timer    0 long count, 8 long total nanoseconds, 16 long max nanoseconds
+ *   gauge    0 long the raw bits of the last double value
+ * </pre>
+ */
+public final class CountersLayout {
+
+  /**
+   * The magic at the start of the file.
+   */
+  public static final int MAGIC = 0x4D435452;
+
+  /**
+   * The version of the layout.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * The bytes of the header.
+   */
+  public static final int HEADER_LENGTH = 128;
+
+  /**
+   * The bytes of each values slot, a cache line.
+   */
+  public static final int SLOT_LENGTH = 64;
+
+  /**
+   * The bytes of each metadata entry unless set.
+   */
+  public static final int DEFAULT_METADATA_LENGTH = 256;
+
+  static final int MAGIC_OFFSET = 0;
+  static final int VERSION_OFFSET = 4;
+  static final int MAX_SERIES_OFFSET = 8;
+  static final int METADATA_LENGTH_OFFSET = 12;
+  static final int PID_OFFSET = 16;
+  static final int START_OFFSET = 24;
+  static final int DROPPED_OFFSET = 32;
+  static final int ALLOCATED_OFFSET = 40;
+
+  static final int STATE_OFFSET = 0;
+  static final int TYPE_OFFSET = 4;
+  static final int NAME_OFFSET = 8;
+
+  static final int STATE_READY = 1;
+
+  static final int COUNT_OFFSET = 0;
+  static final int TOTAL_OFFSET = 8;
+  static final int MAX_OFFSET = 16;
+
+  static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private CountersLayout() {
+  }
+
+  /**
+   * The bytes of a file.
+   *
+   * @param maxSeries      the max series.
+   * @param metadataLength the metadata length.
+   * @return the long
+   */
+  public static long fileLength(final int maxSeries, final int metadataLength) {
+    return valuesRegionOffset(maxSeries, metadataLength) + (long) maxSeries * SLOT_LENGTH;
+  }
+
+  /**
+   * Where the values region starts. The metadata region is padded to a multiple of the slot length,
+   * so the slots are cache aligned whatever the metadata length.
+   *
+   * @param maxSeries      the max series.
+   * @param metadataLength the metadata length.
+   * @return the long
+   */
+  public static long valuesRegionOffset(final int maxSeries, final int metadataLength) {
+    final long metadataEnd = HEADER_LENGTH + (long) maxSeries * metadataLength;
+    return (metadataEnd + SLOT_LENGTH - 1) / SLOT_LENGTH * SLOT_LENGTH;
+  }
+
+  static int metadataOffset(final int slot, final int metadataLength) {
+    return HEADER_LENGTH + slot * metadataLength;
+  }
+
+  static int valuesOffset(final int slot, final int maxSeries, final int metadataLength) {
+    return (int) valuesRegionOffset(maxSeries, metadataLength) + slot * SLOT_LENGTH;
+  }
+
+}
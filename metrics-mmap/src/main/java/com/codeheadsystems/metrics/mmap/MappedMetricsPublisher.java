@@ -0,0 +1,356 @@
+package com.codeheadsystems.metrics.mmap;
+
+import static com.codeheadsystems.metrics.mmap.CountersLayout.ALLOCATED_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.COUNT_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.DROPPED_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.INT;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.LONG;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAGIC;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAGIC_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAX_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAX_SERIES_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.METADATA_LENGTH_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.NAME_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.PID_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.START_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.STATE_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.STATE_READY;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.TOTAL_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.TYPE_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.VERSION;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.VERSION_OFFSET;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps counters, timers and gauges in a memory mapped file, laid out as described in
+ * {@link CountersLayout}, so another process can read them with {@link MappedMetricsReader} or its own
+ * code without any call into this JVM. Publishing is a map lookup and an atomic add, or an ordered
+ * write for gauges, into the mapped file. There are no system calls and nothing is serialized once a
+ * series has its slot.
+ *
+ * <p>The number of series is fixed when the file is created. Events for series past the maximum, or
+ * whose name and tags do not fit in a metadata entry, are only counted as dropped in the header.
+ * Series rejected for their length are remembered, up to the maximum series of them, so their events
+ * are dropped without taking the lock or encoding them again. The file is replaced when the publisher
+ * is built, by writing a new file and moving it over the old one, and left behind when the JVM exits
+ * so the last values can still be read.
+ */
+public class MappedMetricsPublisher implements MetricPublisher {
+
+  /**
+   * The most series unless set.
+   */
+  public static final int DEFAULT_MAX_SERIES = 1024;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedMetricsPublisher.class);
+  private static final Integer REJECTED = -1;
+
+  private final Path path;
+  private final int maxSeries;
+  private final int metadataLength;
+  private final MappedByteBuffer buffer;
+  private final Map<Series, Integer> slots = new ConcurrentHashMap<>();
+  private volatile int allocated;
+  private int rejected;
+
+  private MappedMetricsPublisher(final Builder builder) {
+    LOGGER.info("MappedMetricsPublisher({},{},{})", builder.path, builder.maxSeries, builder.metadataLength);
+    this.path = builder.path;
+    this.maxSeries = builder.maxSeries;
+    this.metadataLength = builder.metadataLength;
+    final long length = CountersLayout.fileLength(maxSeries, metadataLength);
+    // a new file is written beside the old one and moved over it, so readers of the old file keep
+    // their mapping of it and never see a file that is being truncated or is half written.
+    final Path temp = path.resolveSibling(path.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+    try {
+      try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw")) {
+        file.setLength(0);
+        file.setLength(length);
+        this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+      }
+      INT.set(buffer, VERSION_OFFSET, VERSION);
+      INT.set(buffer, MAX_SERIES_OFFSET, maxSeries);
+      INT.set(buffer, METADATA_LENGTH_OFFSET, metadataLength);
+      LONG.set(buffer, PID_OFFSET, ProcessHandle.current().pid());
+      LONG.set(buffer, START_OFFSET, System.currentTimeMillis());
+      INT.setRelease(buffer, MAGIC_OFFSET, MAGIC);
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException deleting) {
+        e.addSuppressed(deleting);
+      }
+      throw new UncheckedIOException("Unable to map " + path, e);
+    }
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  @Override
+  public void increment(final String metricName, final long value, final Tags tags) {
+    final int offset = valuesOffset(metricName, tags, SeriesType.COUNTER);
+    if (offset >= 0) {
+      LONG.getAndAdd(buffer, offset + COUNT_OFFSET, value);
+    }
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags) {
+    final int offset = valuesOffset(metricName, tags, SeriesType.TIMER);
+    if (offset >= 0) {
+      final long nanos = duration.toNanos();
+      LONG.getAndAdd(buffer, offset + COUNT_OFFSET, 1L);
+      LONG.getAndAdd(buffer, offset + TOTAL_OFFSET, nanos);
+      long max = (long) LONG.getOpaque(buffer, offset + MAX_OFFSET);
+      while (nanos > max && !LONG.weakCompareAndSetRelease(buffer, offset + MAX_OFFSET, max, nanos)) {
+        max = (long) LONG.getOpaque(buffer, offset + MAX_OFFSET);
+      }
+    }
+  }
+
+  @Override
+  public void gauge(final String metricName, final double value, final Tags tags) {
+    final int offset = valuesOffset(metricName, tags, SeriesType.GAUGE);
+    if (offset >= 0) {
+      LONG.setRelease(buffer, offset + COUNT_OFFSET, Double.doubleToRawLongBits(value));
+    }
+  }
+
+  @Override
+  public long seriesCount() {
+    return allocated;
+  }
+
+  /**
+   * Writes the values to the file on disk. Not needed for readers on the same host, who see the
+   * mapped memory itself.
+   */
+  public void force() {
+    buffer.force();
+  }
+
+  private int valuesOffset(final String metricName, final Tags tags, final SeriesType type) {
+    final Series series = new Series(metricName, tags == null ? Map.of() : tags.getTags(), type);
+    final Integer slot = slots.get(series);
+    if (slot != null) {
+      if (slot.equals(REJECTED)) {
+        return dropped();
+      }
+      return CountersLayout.valuesOffset(slot, maxSeries, metadataLength);
+    }
+    if (allocated >= maxSeries) {
+      return dropped();
+    }
+    return allocate(series);
+  }
+
+  private synchronized int allocate(final Series series) {
+    final Integer existing = slots.get(series);
+    if (existing != null) {
+      return existing.equals(REJECTED) ? dropped() : CountersLayout.valuesOffset(existing, maxSeries, metadataLength);
+    }
+    final int slot = allocated;
+    if (slot >= maxSeries) {
+      return dropped();
+    }
+    final byte[] metadata = series.encode();
+    if (NAME_OFFSET + metadata.length > metadataLength) {
+      // remembered so its next events are dropped without the lock, but no more of them than slots.
+      if (rejected < maxSeries) {
+        rejected++;
+        slots.put(series.copy(), REJECTED);
+      }
+      return dropped();
+    }
+    final int offset = CountersLayout.metadataOffset(slot, metadataLength);
+    final ByteBuffer entry = buffer.duplicate();
+    entry.position(offset + NAME_OFFSET);
+    entry.put(metadata);
+    INT.set(buffer, offset + TYPE_OFFSET, series.type.code());
+    INT.setRelease(buffer, offset + STATE_OFFSET, STATE_READY);
+    allocated = slot + 1;
+    LONG.setRelease(buffer, ALLOCATED_OFFSET, (long) slot + 1);
+    slots.put(series.copy(), slot);
+    return CountersLayout.valuesOffset(slot, maxSeries, metadataLength);
+  }
+
+  private int dropped() {
+    LONG.getAndAdd(buffer, DROPPED_OFFSET, 1L);
+    return -1;
+  }
+
+  private static final class Series {
+
+    private final String metricName;
+    private final Map<String, String> tags;
+    private final SeriesType type;
+    private final int hash;
+
+    private Series(final String metricName, final Map<String, String> tags, final SeriesType type) {
+      this.metricName = metricName;
+      this.tags = tags;
+      this.type = type;
+      this.hash = (31 * metricName.hashCode() + tags.hashCode()) * 31 + type.hashCode();
+    }
+
+    /**
+     * The series keeps its own copy of the tags, since the caller can change theirs.
+     */
+    private Series copy() {
+      return new Series(metricName, new TreeMap<>(tags), type);
+    }
+
+    private byte[] encode() {
+      final Map<String, String> sorted = new TreeMap<>(tags);
+      final List<byte[]> strings = new ArrayList<>(1 + 2 * sorted.size());
+      strings.add(utf8(metricName));
+      sorted.forEach((key, value) -> {
+        strings.add(utf8(key));
+        strings.add(utf8(String.valueOf(value)));
+      });
+      int length = Short.BYTES;
+      for (byte[] string : strings) {
+        length += Short.BYTES + string.length;
+      }
+      final ByteBuffer encoded = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+      putString(encoded, strings.get(0));
+      encoded.putShort((short) sorted.size());
+      for (int i = 1; i < strings.size(); i++) {
+        putString(encoded, strings.get(i));
+      }
+      return encoded.array();
+    }
+
+    private static byte[] utf8(final String string) {
+      final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      return bytes.length > Short.MAX_VALUE ? Arrays.copyOf(bytes, Short.MAX_VALUE) : bytes;
+    }
+
+    private static void putString(final ByteBuffer encoded, final byte[] bytes) {
+      encoded.putShort((short) bytes.length);
+      encoded.put(bytes);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Series)) {
+        return false;
+      }
+      final Series that = (Series) o;
+      return type == that.type && metricName.equals(that.metricName) && tags.equals(that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Builder.class);
+
+    private Path path;
+    private int maxSeries = DEFAULT_MAX_SERIES;
+    private int metadataLength = CountersLayout.DEFAULT_METADATA_LENGTH;
+
+    private Builder() {
+    }
+
+    /**
+     * With path builder. Required. A file on tmpfs, like /dev/shm, is never written to disk.
+     *
+     * @param path the path
+     * @return the builder
+     */
+    public Builder withPath(final Path path) {
+      LOGGER.info("withPath({})", path);
+      this.path = path;
+      return this;
+    }
+
+    /**
+     * With max series builder. The file takes this times 64 bytes and the metadata length.
+     *
+     * @param maxSeries the max series
+     * @return the builder
+     */
+    public Builder withMaxSeries(final int maxSeries) {
+      LOGGER.info("withMaxSeries({})", maxSeries);
+      this.maxSeries = maxSeries;
+      return this;
+    }
+
+    /**
+     * With metadata length builder. The bytes for the name and tags of each series, 256 unless set.
+     *
+     * @param metadataLength the metadata length
+     * @return the builder
+     */
+    public Builder withMetadataLength(final int metadataLength) {
+      LOGGER.info("withMetadataLength({})", metadataLength);
+      this.metadataLength = metadataLength;
+      return this;
+    }
+
+    /**
+     * Build mapped metrics publisher.
+     *
+     * @return the mapped metrics publisher
+     */
+    public MappedMetricsPublisher build() {
+      Objects.requireNonNull(path, "path");
+      if (maxSeries < 1) {
+        throw new IllegalArgumentException("maxSeries must be positive: " + maxSeries);
+      }
+      if (metadataLength < 16 || metadataLength % 8 != 0) {
+        throw new IllegalArgumentException("metadataLength must be a multiple of 8 of at least 16: " + metadataLength);
+      }
+      if (CountersLayout.fileLength(maxSeries, metadataLength) > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("The file would be over 2GB");
+      }
+      return new MappedMetricsPublisher(this);
+    }
+  }
+}
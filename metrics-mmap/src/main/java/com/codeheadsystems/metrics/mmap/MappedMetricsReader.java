@@ -0,0 +1,211 @@
+package com.codeheadsystems.metrics.mmap;
+
+import static com.codeheadsystems.metrics.mmap.CountersLayout.ALLOCATED_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.COUNT_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.DROPPED_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.INT;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.LONG;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAGIC;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAGIC_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAX_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.MAX_SERIES_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.METADATA_LENGTH_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.NAME_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.PID_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.START_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.STATE_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.STATE_READY;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.TOTAL_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.TYPE_OFFSET;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.VERSION;
+import static com.codeheadsystems.metrics.mmap.CountersLayout.VERSION_OFFSET;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Reads a counters file written by a {@link MappedMetricsPublisher}, in this or another process. The
+ * file is mapped read only, so reading is plain memory reads. The metadata of each series is decoded
+ * once, and after that a read only copies the values.
+ *
+ * <p>A new writer replaces the file rather than writing over it, so each read checks the file at the
+ * path is still the one mapped. If it was replaced, the new file is mapped, and if its pid or start
+ * time differ the series are decoded again, as the slots now hold the new writer's series.
+ */
+public class MappedMetricsReader {
+
+  private final Path path;
+  private final List<Metadata> metadata = new ArrayList<>();
+  private volatile MappedByteBuffer buffer;
+  private volatile int maxSeries;
+  private int metadataLength;
+  private Object fileKey;
+
+  private MappedMetricsReader(final Path path) throws IOException {
+    this.path = path;
+    map();
+  }
+
+  /**
+   * Maps the counters file.
+   *
+   * @param path the path.
+   * @return the reader.
+   * @throws IOException if the file cannot be read, or is not a counters file of a version this reads.
+   */
+  public static MappedMetricsReader open(final Path path) throws IOException {
+    return new MappedMetricsReader(path);
+  }
+
+  public int maxSeries() {
+    return maxSeries;
+  }
+
+  public long pid() {
+    return (long) LONG.get(buffer, PID_OFFSET);
+  }
+
+  /**
+   * When the writer started, epoch millis. Changes once a read sees the file was replaced by a new
+   * writer, and the counters start over from there.
+   *
+   * @return the long
+   */
+  public long startMillis() {
+    return (long) LONG.get(buffer, START_OFFSET);
+  }
+
+  /**
+   * The events dropped since there was no slot for their series.
+   *
+   * @return the long
+   */
+  public long dropped() {
+    return (long) LONG.getAcquire(buffer, DROPPED_OFFSET);
+  }
+
+  /**
+   * The current values of every series, from the file now at the path.
+   *
+   * @return the series, in the order they were first published.
+   * @throws UncheckedIOException if the file was replaced by one that cannot be read.
+   */
+  public synchronized List<MappedSeries> read() {
+    remapIfReplaced();
+    final long allocated = Math.min(maxSeries, (long) LONG.getAcquire(buffer, ALLOCATED_OFFSET));
+    while (metadata.size() < allocated) {
+      final int offset = CountersLayout.metadataOffset(metadata.size(), metadataLength);
+      if ((int) INT.getAcquire(buffer, offset + STATE_OFFSET) != STATE_READY) {
+        break;
+      }
+      metadata.add(decode(offset));
+    }
+    final List<MappedSeries> series = new ArrayList<>(metadata.size());
+    for (int slot = 0; slot < metadata.size(); slot++) {
+      final Metadata entry = metadata.get(slot);
+      final int offset = CountersLayout.valuesOffset(slot, maxSeries, metadataLength);
+      final long count = (long) LONG.getAcquire(buffer, offset + COUNT_OFFSET);
+      if (entry.type == SeriesType.GAUGE) {
+        series.add(new MappedSeries(entry.metricName, entry.tags, entry.type, 0, 0, 0,
+            Double.longBitsToDouble(count)));
+      } else if (entry.type == SeriesType.TIMER) {
+        series.add(new MappedSeries(entry.metricName, entry.tags, entry.type, count,
+            (long) LONG.getAcquire(buffer, offset + TOTAL_OFFSET), (long) LONG.getAcquire(buffer, offset + MAX_OFFSET), 0));
+      } else {
+        series.add(new MappedSeries(entry.metricName, entry.tags, entry.type, count, 0, 0, 0));
+      }
+    }
+    return series;
+  }
+
+  private void remapIfReplaced() {
+    try {
+      final Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+      // without file keys, as on some platforms, the file is mapped again for every read.
+      if (key != null && key.equals(fileKey)) {
+        return;
+      }
+      final long pid = pid();
+      final long startMillis = startMillis();
+      final Object previousKey = fileKey;
+      map();
+      if (!Objects.equals(previousKey, fileKey) || pid != pid() || startMillis != startMillis()) {
+        metadata.clear();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read " + path + " after it was replaced", e);
+    }
+  }
+
+  private void map() throws IOException {
+    final Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    final MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (mapped.capacity() < CountersLayout.HEADER_LENGTH || (int) INT.getAcquire(mapped, MAGIC_OFFSET) != MAGIC) {
+      throw new IOException("Not a counters file, or not written yet");
+    }
+    final int version = (int) INT.get(mapped, VERSION_OFFSET);
+    if (version != VERSION) {
+      throw new IOException("Cannot read counters file version " + version);
+    }
+    final int mappedMaxSeries = (int) INT.get(mapped, MAX_SERIES_OFFSET);
+    final int mappedMetadataLength = (int) INT.get(mapped, METADATA_LENGTH_OFFSET);
+    if (mapped.capacity() < CountersLayout.fileLength(mappedMaxSeries, mappedMetadataLength)) {
+      throw new IOException("Counters file is shorter than its header says");
+    }
+    this.metadataLength = mappedMetadataLength;
+    this.maxSeries = mappedMaxSeries;
+    this.buffer = mapped;
+    this.fileKey = key;
+  }
+
+  private Metadata decode(final int offset) {
+    final ByteBuffer entry = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    entry.position(offset + NAME_OFFSET);
+    final String metricName = getString(entry);
+    final int tagCount = entry.getShort();
+    final Map<String, String> tags = new TreeMap<>();
+    for (int i = 0; i < tagCount; i++) {
+      tags.put(getString(entry), getString(entry));
+    }
+    return new Metadata(metricName, Collections.unmodifiableMap(tags),
+        SeriesType.of((int) INT.get(buffer, offset + TYPE_OFFSET)));
+  }
+
+  private static String getString(final ByteBuffer entry) {
+    final byte[] bytes = new byte[entry.getShort()];
+    entry.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static final class Metadata {
+
+    private final String metricName;
+    private final Map<String, String> tags;
+    private final SeriesType type;
+
+    private Metadata(final String metricName, final Map<String, String> tags, final SeriesType type) {
+      this.metricName = metricName;
+      this.tags = tags;
+      this.type = type;
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+package com.codeheadsystems.metrics.mmap;
+
+import java.util.Map;
+
+/**
+ * The values of one series read from a counters file.
+ */
+public final class MappedSeries {
+
+  private final String metricName;
+  private final Map<String, String> tags;
+  private final SeriesType type;
+  private final long count;
+  private final long totalNanos;
+  private final long maxNanos;
+  private final double value;
+
+  /**
+   * Instantiates a new Mapped series.
+   *
+   * @param metricName the metric name.
+   * @param tags       the tags.
+   * @param type       the type.
+   * @param count      the counter total, or the number of times.
+   * @param totalNanos the total of the times.
+   * @param maxNanos   the longest time.
+   * @param value      the gauge value.
+   */
+  public MappedSeries(final String metricName,
+                      final Map<String, String> tags,
+                      final SeriesType type,
+                      final long count,
+                      final long totalNanos,
+                      final long maxNanos,
+                      final double value) {
+    this.metricName = metricName;
+    this.tags = tags;
+    this.type = type;
+    this.count = count;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+    this.value = value;
+  }
+
+  public String metricName() {
+    return metricName;
+  }
+
+  public Map<String, String> tags() {
+    return tags;
+  }
+
+  public SeriesType type() {
+    return type;
+  }
+
+  /**
+   * The total of a counter, or the number of times of a timer.
+   *
+   * @return the long
+   */
+  public long count() {
+    return count;
+  }
+
+  public long totalNanos() {
+    return totalNanos;
+  }
+
+  public long maxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * The last value of a gauge.
+   *
+   * @return the double
+   */
+  public double value() {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+      case COUNTER:
+        return metricName + tags + " count=" + count;
+      case TIMER:
+        return metricName + tags + " count=" + count + " totalNanos=" + totalNanos + " maxNanos=" + maxNanos;
+      default:
+        return metricName + tags + " value=" + value;
+    }
+  }
+}
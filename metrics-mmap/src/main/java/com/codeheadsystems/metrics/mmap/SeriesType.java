@@ -0,0 +1,46 @@
+package com.codeheadsystems.metrics.mmap;
+
+/**
+ * What a slot holds.
+ */
+public enum SeriesType {
+
+  /**
+   * The total of the increments.
+   */
+  COUNTER(1),
+
+  /**
+   * The count, total and max of the times.
+   */
+  TIMER(2),
+
+  /**
+   * The last value of a gauge.
+   */
+  GAUGE(3);
+
+  private final int code;
+
+  SeriesType(final int code) {
+    this.code = code;
+  }
+
+  /**
+   * The code in the metadata.
+   *
+   * @return the int
+   */
+  public int code() {
+    return code;
+  }
+
+  static SeriesType of(final int code) {
+    for (SeriesType type : values()) {
+      if (type.code == code) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown series type: " + code);
+  }
+}
@@ -0,0 +1,43 @@
+package com.codeheadsystems.metrics.mmap;
+
+import com.codeheadsystems.metrics.test.MetricPublisherConformanceTest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+class MappedMetricsPublisherConformanceTest extends MetricPublisherConformanceTest<MappedMetricsPublisher> {
+
+  @Override
+  protected MappedMetricsPublisher createPublisher() throws IOException {
+    return MappedMetricsPublisher.builder()
+        .withPath(Files.createTempFile("counters", ".mmap"))
+        .build();
+  }
+
+  @Override
+  protected void destroyPublisher(final MappedMetricsPublisher publisher) throws IOException {
+    Files.deleteIfExists(publisher.path());
+  }
+
+  @Override
+  protected long incrementTotal(final MappedMetricsPublisher publisher, final String metricName) {
+    return sum(publisher, metricName, SeriesType.COUNTER);
+  }
+
+  @Override
+  protected long timeCount(final MappedMetricsPublisher publisher, final String metricName) {
+    return sum(publisher, metricName, SeriesType.TIMER);
+  }
+
+  private long sum(final MappedMetricsPublisher publisher, final String metricName, final SeriesType type) {
+    try {
+      return MappedMetricsReader.open(publisher.path()).read().stream()
+          .filter(series -> series.type() == type && series.metricName().equals(metricName))
+          .mapToLong(MappedSeries::count)
+          .sum();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
@@ -0,0 +1,175 @@
+package com.codeheadsystems.metrics.mmap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.codeheadsystems.metrics.Tags;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedMetricsPublisherTest {
+
+  @TempDir Path directory;
+
+  private Path path;
+  private MappedMetricsPublisher publisher;
+
+  @BeforeEach
+  void setup() {
+    path = directory.resolve("counters");
+    publisher = MappedMetricsPublisher.builder()
+        .withPath(path)
+        .withMaxSeries(4)
+        .build();
+  }
+
+  @Test
+  void read_values() throws IOException {
+    publisher.increment("requests", 2, Tags.of("region", "us", "app", "a"));
+    publisher.increment("requests", 3, Tags.of("app", "a", "region", "us"));
+    publisher.time("latency", Duration.ofMillis(5), null);
+    publisher.time("latency", Duration.ofMillis(7), Tags.empty());
+    publisher.gauge("queue", 1.5, Tags.empty());
+    publisher.gauge("queue", 2.5, Tags.empty());
+
+    final MappedMetricsReader reader = MappedMetricsReader.open(path);
+    assertThat(reader.pid()).isEqualTo(ProcessHandle.current().pid());
+    assertThat(reader.maxSeries()).isEqualTo(4);
+    final List<MappedSeries> series = reader.read();
+    assertThat(series).hasSize(3);
+    assertThat(series.get(0).metricName()).isEqualTo("requests");
+    assertThat(series.get(0).type()).isEqualTo(SeriesType.COUNTER);
+    assertThat(series.get(0).tags()).isEqualTo(Map.of("app", "a", "region", "us"));
+    assertThat(series.get(0).count()).isEqualTo(5);
+    assertThat(series.get(1).type()).isEqualTo(SeriesType.TIMER);
+    assertThat(series.get(1).count()).isEqualTo(2);
+    assertThat(series.get(1).totalNanos()).isEqualTo(12_000_000);
+    assertThat(series.get(1).maxNanos()).isEqualTo(7_000_000);
+    assertThat(series.get(2).type()).isEqualTo(SeriesType.GAUGE);
+    assertThat(series.get(2).value()).isEqualTo(2.5);
+    assertThat(publisher.seriesCount()).isEqualTo(3);
+  }
+
+  @Test
+  void read_seesLaterValues() throws IOException {
+    final MappedMetricsReader reader = MappedMetricsReader.open(path);
+    assertThat(reader.read()).isEmpty();
+    publisher.increment("requests", 1, Tags.empty());
+    assertThat(reader.read()).extracting(MappedSeries::count).containsExactly(1L);
+    publisher.increment("requests", 1, Tags.empty());
+    assertThat(reader.read()).extracting(MappedSeries::count).containsExactly(2L);
+  }
+
+  @Test
+  void dropped_pastMaxSeries() throws IOException {
+    for (int i = 0; i < 6; i++) {
+      publisher.increment("requests" + i, 1, Tags.empty());
+    }
+    final MappedMetricsReader reader = MappedMetricsReader.open(path);
+    assertThat(reader.read()).hasSize(4);
+    assertThat(reader.dropped()).isEqualTo(2);
+  }
+
+  @Test
+  void dropped_metadataTooLong() throws IOException {
+    publisher.increment("requests", 1, Tags.of("big", "x".repeat(300)));
+    publisher.increment("requests", 1, Tags.empty());
+    final MappedMetricsReader reader = MappedMetricsReader.open(path);
+    assertThat(reader.read()).extracting(MappedSeries::metricName).containsExactly("requests");
+    assertThat(reader.dropped()).isEqualTo(1);
+  }
+
+  @Test
+  void dropped_metadataTooLong_remembered() throws IOException {
+    final Tags big = Tags.of("big", "x".repeat(300));
+    for (int i = 0; i < 3; i++) {
+      publisher.increment("requests", 1, big);
+    }
+    for (int i = 0; i < 6; i++) {
+      publisher.increment("requests" + i, 1, big);
+    }
+    publisher.increment("requests", 1, Tags.empty());
+    final MappedMetricsReader reader = MappedMetricsReader.open(path);
+    assertThat(reader.read()).extracting(MappedSeries::metricName).containsExactly("requests");
+    assertThat(reader.dropped()).isEqualTo(9);
+  }
+
+  @Test
+  void valuesRegion_cacheAligned() throws IOException {
+    publisher = MappedMetricsPublisher.builder()
+        .withPath(path)
+        .withMaxSeries(3)
+        .withMetadataLength(40)
+        .build();
+    assertThat(CountersLayout.valuesRegionOffset(3, 40)).isEqualTo(256);
+    for (int slot = 0; slot < 3; slot++) {
+      assertThat(CountersLayout.valuesOffset(slot, 3, 40) % CountersLayout.SLOT_LENGTH).isZero();
+    }
+    publisher.increment("a", 1, Tags.empty());
+    publisher.increment("b", 2, Tags.empty());
+    publisher.increment("c", 3, Tags.empty());
+    assertThat(Files.size(path)).isEqualTo(256 + 3 * 64);
+    assertThat(MappedMetricsReader.open(path).read()).extracting(MappedSeries::count).containsExactly(1L, 2L, 3L);
+  }
+
+  @Test
+  void open_notCountersFile() throws IOException {
+    final Path other = directory.resolve("other");
+    Files.write(other, new byte[256]);
+    assertThatExceptionOfType(IOException.class).isThrownBy(() -> MappedMetricsReader.open(other));
+  }
+
+  @Test
+  void build_replacesOldFile() throws IOException {
+    publisher.increment("requests", 1, Tags.empty());
+    MappedMetricsPublisher.builder().withPath(path).withMaxSeries(4).build();
+    assertThat(MappedMetricsReader.open(path).read()).isEmpty();
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.collect(Collectors.toList())).containsExactly(path);
+    }
+  }
+
+  @Test
+  void read_writerRestarted() throws Exception {
+    publisher.increment("requests", 5, Tags.empty());
+    final MappedMetricsReader reader = MappedMetricsReader.open(path);
+    assertThat(reader.read()).extracting(MappedSeries::count).containsExactly(5L);
+    final long startMillis = reader.startMillis();
+    Thread.sleep(5);
+
+    final MappedMetricsPublisher restarted = MappedMetricsPublisher.builder()
+        .withPath(path)
+        .withMaxSeries(8)
+        .build();
+    // the old writer still has the replaced file mapped, and must not change the new one.
+    publisher.increment("requests", 1, Tags.empty());
+    restarted.increment("queued", 2, Tags.empty());
+
+    final List<MappedSeries> series = reader.read();
+    assertThat(series).extracting(MappedSeries::metricName).containsExactly("queued");
+    assertThat(series).extracting(MappedSeries::count).containsExactly(2L);
+    assertThat(reader.maxSeries()).isEqualTo(8);
+    assertThat(reader.startMillis()).isGreaterThan(startMillis);
+  }
+
+  @Test
+  void read_replacedByOtherFile() throws IOException {
+    final MappedMetricsReader reader = MappedMetricsReader.open(path);
+    final Path other = directory.resolve("other");
+    Files.write(other, new byte[256]);
+    Files.move(other, path, StandardCopyOption.REPLACE_EXISTING);
+    assertThatExceptionOfType(UncheckedIOException.class).isThrownBy(reader::read);
+  }
+
+}
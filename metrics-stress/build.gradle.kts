@@ -0,0 +1,32 @@
+plugins {
+    application
+    checkstyle
+}
+
+dependencies {
+    implementation(project(":metrics"))
+    implementation(project(":metrics-micrometer"))
+    implementation(libs.micrometer.core)
+    implementation(libs.slf4j.api)
+    runtimeOnly(libs.logback.classic)
+
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation(libs.bundles.testing)
+}
+
+// Runs on 21 for virtual threads and the scoped value context storage.
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+application {
+    mainClass = "com.codeheadsystems.metrics.stress.StressRunner"
+    applicationDefaultJvmArgs = listOf("-Xmx512m", "-XX:+UseG1GC")
+}
+
+tasks.named<Test>("test") {
+    // Use JUnit Platform for unit tests.
+    useJUnitPlatform()
+}
@@ -0,0 +1,135 @@
+package com.codeheadsystems.metrics.stress;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.histogram.HistogramSnapshot;
+import com.codeheadsystems.metrics.histogram.QuantileSketch;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Counts every event before handing it to the publisher under test, so the counts can be checked
+ * against what the workers did. Events whose tags fail the check are counted as invalid.
+ */
+public class CountingPublisher implements MetricPublisher {
+
+  private final MetricPublisher delegate;
+  private final BiPredicate<String, Tags> tagsCheck;
+  private final Map<String, LongAdder> increments = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> times = new ConcurrentHashMap<>();
+  private final LongAdder opens = new LongAdder();
+  private final LongAdder closes = new LongAdder();
+  private final LongAdder invalid = new LongAdder();
+
+  /**
+   * Instantiates a new Counting publisher.
+   *
+   * @param delegate  the publisher under test.
+   * @param tagsCheck true if the tags are what the metric should have.
+   */
+  public CountingPublisher(final MetricPublisher delegate, final BiPredicate<String, Tags> tagsCheck) {
+    this.delegate = delegate;
+    this.tagsCheck = tagsCheck;
+  }
+
+  @Override
+  public void open() {
+    opens.increment();
+    delegate.open();
+  }
+
+  @Override
+  public void close() throws Exception {
+    closes.increment();
+    delegate.close();
+  }
+
+  @Override
+  public void increment(final String metricName, final long value, final Tags tags) {
+    check(metricName, tags);
+    increments.computeIfAbsent(metricName, name -> new LongAdder()).add(value);
+    delegate.increment(metricName, value, tags);
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags) {
+    check(metricName, tags);
+    times.computeIfAbsent(metricName, name -> new LongAdder()).increment();
+    delegate.time(metricName, duration, tags);
+  }
+
+  @Override
+  public Object begin(final String metricName) {
+    return delegate.begin(metricName);
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags, final Object begun) {
+    check(metricName, tags);
+    times.computeIfAbsent(metricName, name -> new LongAdder()).increment();
+    delegate.time(metricName, duration, tags, begun);
+  }
+
+  @Override
+  public void gauge(final String metricName, final double value, final Tags tags) {
+    delegate.gauge(metricName, value, tags);
+  }
+
+  @Override
+  public void histogram(final String metricName, final HistogramSnapshot snapshot, final Tags tags) {
+    delegate.histogram(metricName, snapshot, tags);
+  }
+
+  @Override
+  public void sketch(final String metricName, final QuantileSketch sketch, final Tags tags) {
+    delegate.sketch(metricName, sketch, tags);
+  }
+
+  /**
+   * The sum of the increments for the metric.
+   *
+   * @param metricName the metric name.
+   * @return the long
+   */
+  public long increments(final String metricName) {
+    final LongAdder adder = increments.get(metricName);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  /**
+   * The number of times published for the metric.
+   *
+   * @param metricName the metric name.
+   * @return the long
+   */
+  public long times(final String metricName) {
+    final LongAdder adder = times.get(metricName);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  public long opens() {
+    return opens.sum();
+  }
+
+  public long closes() {
+    return closes.sum();
+  }
+
+  public long invalid() {
+    return invalid.sum();
+  }
+
+  private void check(final String metricName, final Tags tags) {
+    if (!tagsCheck.test(metricName, tags)) {
+      invalid.increment();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "CountingPublisher{" + delegate + '}';
+  }
+}
@@ -0,0 +1,92 @@
+package com.codeheadsystems.metrics.stress;
+
+/**
+ * Latencies in nanoseconds, bucketed exactly up to 64 and then in 32 steps per power of two, so
+ * within about 3%. Not thread safe, each worker has its own and they are merged at the end.
+ */
+public class LatencyHistogram {
+
+  private static final int LINEAR = 64;
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = LINEAR + (63 - 6) * SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKETS];
+  private long count;
+  private long max;
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos the latency.
+   */
+  public void record(final long nanos) {
+    final long value = Math.max(0, nanos);
+    counts[index(value)]++;
+    count++;
+    if (value > max) {
+      max = value;
+    }
+  }
+
+  /**
+   * Add the other histogram into this one.
+   *
+   * @param other to add.
+   */
+  public void add(final LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    max = Math.max(max, other.max);
+  }
+
+  public long count() {
+    return count;
+  }
+
+  public long max() {
+    return max;
+  }
+
+  /**
+   * The latency at the percentile, as the lowest value of its bucket.
+   *
+   * @param percentile from 0 to 100.
+   * @return the nanoseconds.
+   */
+  public long percentile(final double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(lowest(i), max);
+      }
+    }
+    return max;
+  }
+
+  private static int index(final long value) {
+    if (value < LINEAR) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR + (exponent - 6) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long lowest(final int index) {
+    if (index < LINEAR) {
+      return index;
+    }
+    final int exponent = (index - LINEAR) / SUB_BUCKETS + 6;
+    final int subBucket = (index - LINEAR) % SUB_BUCKETS;
+    return (1L << exponent) + ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+  }
+
+}
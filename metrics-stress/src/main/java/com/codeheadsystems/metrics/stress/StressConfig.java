@@ -0,0 +1,291 @@
+package com.codeheadsystems.metrics.stress;
+
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * How to drive the metric factory.
+ */
+public class StressConfig {
+
+  private final int threads;
+  private final boolean virtualThreads;
+  private final int tagCardinality;
+  private final int nestingDepth;
+  private final Duration duration;
+  private final Duration reportInterval;
+  private final int batchSize;
+  private final boolean contextPooling;
+  private final boolean scopedValues;
+  private final boolean registryChurn;
+  private final boolean propagation;
+  private final MetricPublisher metricPublisher;
+
+  private StressConfig(final Builder builder) {
+    this.threads = builder.threads;
+    this.virtualThreads = builder.virtualThreads;
+    this.tagCardinality = builder.tagCardinality;
+    this.nestingDepth = builder.nestingDepth;
+    this.duration = builder.duration;
+    this.reportInterval = builder.reportInterval;
+    this.batchSize = builder.batchSize;
+    this.contextPooling = builder.contextPooling;
+    this.scopedValues = builder.scopedValues;
+    this.registryChurn = builder.registryChurn;
+    this.propagation = builder.propagation;
+    this.metricPublisher = builder.metricPublisher;
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int threads() {
+    return threads;
+  }
+
+  public boolean virtualThreads() {
+    return virtualThreads;
+  }
+
+  public int tagCardinality() {
+    return tagCardinality;
+  }
+
+  public int nestingDepth() {
+    return nestingDepth;
+  }
+
+  public Duration duration() {
+    return duration;
+  }
+
+  public Duration reportInterval() {
+    return reportInterval;
+  }
+
+  public int batchSize() {
+    return batchSize;
+  }
+
+  public boolean contextPooling() {
+    return contextPooling;
+  }
+
+  public boolean scopedValues() {
+    return scopedValues;
+  }
+
+  public boolean registryChurn() {
+    return registryChurn;
+  }
+
+  public boolean propagation() {
+    return propagation;
+  }
+
+  public MetricPublisher metricPublisher() {
+    return metricPublisher;
+  }
+
+  @Override
+  public String toString() {
+    return "StressConfig{" + "threads=" + threads + ", virtualThreads=" + virtualThreads
+        + ", tagCardinality=" + tagCardinality + ", nestingDepth=" + nestingDepth + ", duration=" + duration
+        + ", reportInterval=" + reportInterval + ", batchSize=" + batchSize + ", contextPooling=" + contextPooling
+        + ", scopedValues=" + scopedValues + ", registryChurn=" + registryChurn + ", propagation=" + propagation
+        + ", metricPublisher=" + metricPublisher + '}';
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Builder.class);
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads = false;
+    private int tagCardinality = 10;
+    private int nestingDepth = 2;
+    private Duration duration = Duration.ofSeconds(10);
+    private Duration reportInterval = null;
+    private int batchSize = 1_000;
+    private boolean contextPooling = false;
+    private boolean scopedValues = false;
+    private boolean registryChurn = false;
+    private boolean propagation = false;
+    private MetricPublisher metricPublisher = new NullMetricsPublisher();
+
+    private Builder() {
+    }
+
+    /**
+     * With threads builder. Defaults to the number of processors.
+     *
+     * @param threads the threads
+     * @return the builder
+     */
+    public Builder withThreads(final int threads) {
+      LOGGER.info("withThreads({})", threads);
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * With virtual threads builder. Each batch then runs on a new virtual thread, so thread locals
+     * are created and dropped all the time.
+     *
+     * @param virtualThreads the virtual threads
+     * @return the builder
+     */
+    public Builder withVirtualThreads(final boolean virtualThreads) {
+      LOGGER.info("withVirtualThreads({})", virtualThreads);
+      this.virtualThreads = virtualThreads;
+      return this;
+    }
+
+    /**
+     * With tag cardinality builder. How many values each tag can have.
+     *
+     * @param tagCardinality the tag cardinality
+     * @return the builder
+     */
+    public Builder withTagCardinality(final int tagCardinality) {
+      LOGGER.info("withTagCardinality({})", tagCardinality);
+      this.tagCardinality = tagCardinality;
+      return this;
+    }
+
+    /**
+     * With nesting depth builder. How many with() blocks are nested per operation.
+     *
+     * @param nestingDepth the nesting depth
+     * @return the builder
+     */
+    public Builder withNestingDepth(final int nestingDepth) {
+      LOGGER.info("withNestingDepth({})", nestingDepth);
+      this.nestingDepth = nestingDepth;
+      return this;
+    }
+
+    /**
+     * With duration builder.
+     *
+     * @param duration the duration
+     * @return the builder
+     */
+    public Builder withDuration(final Duration duration) {
+      LOGGER.info("withDuration({})", duration);
+      this.duration = duration;
+      return this;
+    }
+
+    /**
+     * With report interval builder. For soak tests, reports progress, GC and the heap left after the
+     * last collection at this interval. Off by default.
+     *
+     * @param reportInterval the report interval
+     * @return the builder
+     */
+    public Builder withReportInterval(final Duration reportInterval) {
+      LOGGER.info("withReportInterval({})", reportInterval);
+      this.reportInterval = reportInterval;
+      return this;
+    }
+
+    /**
+     * With batch size builder. Operations run between checks of the clock.
+     *
+     * @param batchSize the batch size
+     * @return the builder
+     */
+    public Builder withBatchSize(final int batchSize) {
+      LOGGER.info("withBatchSize({})", batchSize);
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * With context pooling builder.
+     *
+     * @param contextPooling the context pooling
+     * @return the builder
+     */
+    public Builder withContextPooling(final boolean contextPooling) {
+      LOGGER.info("withContextPooling({})", contextPooling);
+      this.contextPooling = contextPooling;
+      return this;
+    }
+
+    /**
+     * With scoped values builder. Uses the scoped value context storage instead of the thread local.
+     *
+     * @param scopedValues the scoped values
+     * @return the builder
+     */
+    public Builder withScopedValues(final boolean scopedValues) {
+      LOGGER.info("withScopedValues({})", scopedValues);
+      this.scopedValues = scopedValues;
+      return this;
+    }
+
+    /**
+     * With registry churn builder. A separate thread keeps registering and removing tags generators
+     * while the workers use the registry.
+     *
+     * @param registryChurn the registry churn
+     * @return the builder
+     */
+    public Builder withRegistryChurn(final boolean registryChurn) {
+      LOGGER.info("withRegistryChurn({})", registryChurn);
+      this.registryChurn = registryChurn;
+      return this;
+    }
+
+    /**
+     * With propagation builder. Each level also hands a task to a worker pool through the context
+     * propagator, and both the task and the submitting level add a tag while the task runs.
+     *
+     * @param propagation the propagation
+     * @return the builder
+     */
+    public Builder withPropagation(final boolean propagation) {
+      LOGGER.info("withPropagation({})", propagation);
+      this.propagation = propagation;
+      return this;
+    }
+
+    /**
+     * With metric publisher builder. The publisher under test.
+     *
+     * @param metricPublisher the metric publisher
+     * @return the builder
+     */
+    public Builder withMetricPublisher(final MetricPublisher metricPublisher) {
+      LOGGER.info("withMetricPublisher({})", metricPublisher);
+      this.metricPublisher = metricPublisher;
+      return this;
+    }
+
+    /**
+     * Build stress config.
+     *
+     * @return the stress config
+     */
+    public StressConfig build() {
+      if (threads < 1 || tagCardinality < 1 || nestingDepth < 1 || batchSize < 1) {
+        throw new IllegalArgumentException("threads, tag cardinality, nesting depth and batch size must be positive");
+      }
+      return new StressConfig(this);
+    }
+  }
+}
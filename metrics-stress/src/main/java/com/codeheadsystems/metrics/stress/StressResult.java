@@ -0,0 +1,104 @@
+package com.codeheadsystems.metrics.stress;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * What a stress run did, and what went wrong if anything.
+ */
+public class StressResult {
+
+  private final long operations;
+  private final Duration elapsed;
+  private final LatencyHistogram latencies;
+  private final long gcCount;
+  private final Duration gcTime;
+  private final List<String> failures;
+
+  /**
+   * Instantiates a new Stress result.
+   *
+   * @param operations the operations
+   * @param elapsed    the elapsed
+   * @param latencies  the latencies of the outer metrics calls
+   * @param gcCount    the gc count
+   * @param gcTime     the gc time
+   * @param failures   the failures, empty if the counts were exact.
+   */
+  public StressResult(final long operations,
+                      final Duration elapsed,
+                      final LatencyHistogram latencies,
+                      final long gcCount,
+                      final Duration gcTime,
+                      final List<String> failures) {
+    this.operations = operations;
+    this.elapsed = elapsed;
+    this.latencies = latencies;
+    this.gcCount = gcCount;
+    this.gcTime = gcTime;
+    this.failures = List.copyOf(failures);
+  }
+
+  public long operations() {
+    return operations;
+  }
+
+  public Duration elapsed() {
+    return elapsed;
+  }
+
+  public LatencyHistogram latencies() {
+    return latencies;
+  }
+
+  public long gcCount() {
+    return gcCount;
+  }
+
+  public Duration gcTime() {
+    return gcTime;
+  }
+
+  public List<String> failures() {
+    return failures;
+  }
+
+  public boolean ok() {
+    return failures.isEmpty();
+  }
+
+  /**
+   * Operations per second.
+   *
+   * @return the double
+   */
+  public double throughput() {
+    final long nanos = elapsed.toNanos();
+    return nanos == 0 ? 0 : operations * 1_000_000_000.0 / nanos;
+  }
+
+  /**
+   * The report to print.
+   *
+   * @return the string
+   */
+  public String report() {
+    final StringBuilder builder = new StringBuilder()
+        .append(String.format("operations: %,d in %s (%,.0f ops/s)%n", operations, elapsed, throughput()))
+        .append(String.format("latency ns: p50=%,d p90=%,d p99=%,d p99.9=%,d max=%,d%n",
+            latencies.percentile(50), latencies.percentile(90), latencies.percentile(99),
+            latencies.percentile(99.9), latencies.max()))
+        .append(String.format("gc: %,d collections, %s%n", gcCount, gcTime));
+    if (ok()) {
+      builder.append("counts: exact").append(System.lineSeparator());
+    } else {
+      failures.forEach(failure -> builder.append("FAILED: ").append(failure).append(System.lineSeparator()));
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "StressResult{" + "operations=" + operations + ", elapsed=" + elapsed + ", failures=" + failures + '}';
+  }
+}
@@ -0,0 +1,441 @@
+package com.codeheadsystems.metrics.stress;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.helper.TagsGeneratorRegistry;
+import com.codeheadsystems.metrics.impl.ContextStorage;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import com.codeheadsystems.metrics.impl.MicrometerMetricsPublisher;
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives a metric factory from many threads and checks the publisher saw exactly what was done.
+ * Each operation increments a metric outside of any context, then nests with() blocks to the
+ * configured depth. Each level adds a tag, increments a counter, times a call and increments
+ * another counter after the nested levels return, so tags leaking between levels or threads are
+ * caught as well as lost updates.
+ *
+ * <p>With propagation, each level also hands a task to a worker pool through the context
+ * propagator before its last counter. The task adds a tag and increments a counter while the
+ * level adds a tag of its own, so tags crossing between the submitter and the worker are caught.
+ */
+public class StressRunner {
+
+  static final String CONTEXTLESS = "stress.contextless";
+  static final String RESULT_KEY = "result";
+  static final String WORKER_KEY = "worker";
+  static final String SUBMITTER_KEY = "submitter";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StressRunner.class);
+  private static final Tags NO_TAGS = Tags.empty();
+  private static final Integer RESULT = 42;
+  private static final String[] HANDOFF_KEYS = {WORKER_KEY, SUBMITTER_KEY};
+
+  private final StressConfig config;
+  private final String[] levelKeys;
+  private final String[] tagValues;
+  private final String[] counterNames;
+  private final String[] afterNames;
+  private final String[] timerNames;
+  private final String[] workerNames;
+  private final String[] levelValues;
+  private final Map<String, Integer> levels = new HashMap<>();
+  private final Map<String, String> handoffKeys = new HashMap<>();
+  private final TagsGeneratorRegistry tagsGeneratorRegistry = new TagsGeneratorRegistry();
+  private final CountingPublisher publisher;
+  private final MetricFactory metricFactory;
+  private final ExecutorService handoff;
+  private final LongAdder operations = new LongAdder();
+  private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+  private volatile boolean stopped;
+
+  /**
+   * Instantiates a new Stress runner.
+   *
+   * @param config the config
+   */
+  public StressRunner(final StressConfig config) {
+    LOGGER.info("StressRunner({})", config);
+    this.config = config;
+    final int depth = config.nestingDepth();
+    this.levelKeys = new String[depth + 2];
+    this.counterNames = new String[depth + 1];
+    this.afterNames = new String[depth + 1];
+    this.timerNames = new String[depth + 1];
+    this.workerNames = new String[depth + 1];
+    this.levelValues = new String[depth + 1];
+    levels.put(CONTEXTLESS, 0);
+    for (int level = 1; level <= depth + 1; level++) {
+      levelKeys[level] = "level" + level;
+      if (level <= depth) {
+        counterNames[level] = "stress.level" + level + ".count";
+        afterNames[level] = "stress.level" + level + ".after";
+        timerNames[level] = "stress.level" + level + ".time";
+        workerNames[level] = "stress.level" + level + ".worker";
+        levelValues[level] = Integer.toString(level);
+        levels.put(counterNames[level], level);
+        levels.put(afterNames[level], level);
+        levels.put(timerNames[level], level);
+        levels.put(workerNames[level], level);
+        handoffKeys.put(workerNames[level], WORKER_KEY);
+        if (config.propagation()) {
+          handoffKeys.put(afterNames[level], SUBMITTER_KEY);
+        }
+      }
+    }
+    this.tagValues = new String[config.tagCardinality()];
+    for (int i = 0; i < tagValues.length; i++) {
+      tagValues[i] = "v" + i;
+    }
+    this.publisher = new CountingPublisher(config.metricPublisher(), this::validTags);
+    final MetricFactory.Builder builder = MetricFactory.builder()
+        .withMetricPublisher(publisher)
+        .withCloseAndOpenOnlyForInitial(true)
+        .withContextPooling(config.contextPooling())
+        .withTagsGeneratorRegistry(tagsGeneratorRegistry);
+    if (config.scopedValues()) {
+      builder.withContextStorage(ContextStorage.scopedValue());
+    }
+    this.metricFactory = builder.build();
+    if (config.propagation()) {
+      final ExecutorService executorService = config.virtualThreads()
+          ? Executors.newVirtualThreadPerTaskExecutor()
+          : Executors.newFixedThreadPool(config.threads(), Thread.ofPlatform().daemon().name("stress-handoff-", 0).factory());
+      this.handoff = metricFactory.contextPropagator().wrap(executorService);
+    } else {
+      this.handoff = null;
+    }
+  }
+
+  /**
+   * Runs the stress test from the command line. Exits with 1 if the counts were not exact.
+   * Options are --threads=N, --virtual, --cardinality=N, --depth=N, --duration=30s, --report=1m,
+   * --batch=N, --pooling, --scoped, --churn, --propagate and --publisher=null|micrometer|class name.
+   *
+   * @param args the input arguments
+   * @throws InterruptedException if interrupted.
+   */
+  public static void main(final String[] args) throws InterruptedException {
+    final StressResult result = new StressRunner(parse(args)).run();
+    System.out.print(result.report());
+    System.exit(result.ok() ? 0 : 1);
+  }
+
+  /**
+   * Reads the command line options.
+   *
+   * @param args the args
+   * @return the stress config
+   */
+  static StressConfig parse(final String... args) {
+    final StressConfig.Builder builder = StressConfig.builder();
+    for (String arg : args) {
+      final int equals = arg.indexOf('=');
+      final String name = equals < 0 ? arg : arg.substring(0, equals);
+      final String value = equals < 0 ? null : arg.substring(equals + 1);
+      switch (name) {
+        case "--threads" -> builder.withThreads(Integer.parseInt(value));
+        case "--virtual" -> builder.withVirtualThreads(true);
+        case "--cardinality" -> builder.withTagCardinality(Integer.parseInt(value));
+        case "--depth" -> builder.withNestingDepth(Integer.parseInt(value));
+        case "--duration" -> builder.withDuration(duration(value));
+        case "--report" -> builder.withReportInterval(duration(value));
+        case "--batch" -> builder.withBatchSize(Integer.parseInt(value));
+        case "--pooling" -> builder.withContextPooling(true);
+        case "--scoped" -> builder.withScopedValues(true);
+        case "--churn" -> builder.withRegistryChurn(true);
+        case "--propagate" -> builder.withPropagation(true);
+        case "--publisher" -> builder.withMetricPublisher(publisher(value));
+        default -> throw new IllegalArgumentException("Unknown option: " + arg);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reads 500ms, 30s, 10m, 2h or an ISO-8601 duration.
+   *
+   * @param value the value
+   * @return the duration
+   */
+  static Duration duration(final String value) {
+    if (value.startsWith("P") || value.startsWith("p")) {
+      return Duration.parse(value);
+    } else if (value.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+    }
+    final long amount = Long.parseLong(value.substring(0, value.length() - 1));
+    return switch (value.charAt(value.length() - 1)) {
+      case 's' -> Duration.ofSeconds(amount);
+      case 'm' -> Duration.ofMinutes(amount);
+      case 'h' -> Duration.ofHours(amount);
+      default -> throw new IllegalArgumentException("Unknown duration: " + value);
+    };
+  }
+
+  private static MetricPublisher publisher(final String value) {
+    switch (value) {
+      case "null":
+        return new NullMetricsPublisher();
+      case "micrometer":
+        return new MicrometerMetricsPublisher(new SimpleMeterRegistry());
+      default:
+        try {
+          return (MetricPublisher) Class.forName(value).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+          throw new IllegalArgumentException("Cannot create publisher " + value, e);
+        }
+    }
+  }
+
+  /**
+   * Runs the workers for the configured duration, then checks the counts.
+   *
+   * @return the stress result
+   * @throws InterruptedException if interrupted.
+   */
+  public StressResult run() throws InterruptedException {
+    final LatencyHistogram[] latencies = new LatencyHistogram[config.threads()];
+    final Thread[] workers = new Thread[config.threads()];
+    final Thread churn = config.registryChurn() ? Thread.ofPlatform().daemon().name("stress-churn").start(this::churn) : null;
+    final long gcCountBefore = gcCount();
+    final long gcMillisBefore = gcMillis();
+    final long start = System.nanoTime();
+    final long deadline = start + config.duration().toNanos();
+    for (int i = 0; i < workers.length; i++) {
+      final LatencyHistogram histogram = latencies[i] = new LatencyHistogram();
+      final Thread.Builder threadBuilder = config.virtualThreads() ? Thread.ofVirtual() : Thread.ofPlatform();
+      workers[i] = threadBuilder.name("stress-" + i).start(() -> work(histogram, deadline));
+    }
+    final Thread reporter = config.reportInterval() == null
+        ? null : Thread.ofPlatform().daemon().name("stress-report").start(() -> report(deadline));
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+    stopped = true;
+    if (churn != null) {
+      churn.join();
+    }
+    if (reporter != null) {
+      reporter.interrupt();
+      reporter.join();
+    }
+    if (handoff != null) {
+      handoff.shutdown();
+    }
+    final LatencyHistogram merged = new LatencyHistogram();
+    for (LatencyHistogram histogram : latencies) {
+      merged.add(histogram);
+    }
+    return new StressResult(operations.sum(), elapsed, merged,
+        gcCount() - gcCountBefore, Duration.ofMillis(gcMillis() - gcMillisBefore), check());
+  }
+
+  private void work(final LatencyHistogram histogram, final long deadline) {
+    while (!stopped && System.nanoTime() < deadline) {
+      if (config.virtualThreads()) {
+        // a new virtual thread each batch, so anything kept per thread has to be cleaned up.
+        final Thread batch = Thread.ofVirtual().start(() -> batch(histogram));
+        try {
+          batch.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      } else {
+        batch(histogram);
+      }
+    }
+  }
+
+  private void batch(final LatencyHistogram histogram) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    int done = 0;
+    try {
+      for (; done < config.batchSize(); done++) {
+        final long start = System.nanoTime();
+        metricFactory.increment(CONTEXTLESS, 1L, NO_TAGS);
+        metricFactory.with(metrics -> level(metrics, 1, random));
+        histogram.record(System.nanoTime() - start);
+      }
+    } catch (RuntimeException e) {
+      errors.add(Thread.currentThread() + ": " + e);
+      stopped = true;
+    } finally {
+      operations.add(done);
+    }
+  }
+
+  private Integer level(final Metrics metrics, final int level, final ThreadLocalRandom random) {
+    metrics.and(levelKeys[level], tagValues[random.nextInt(tagValues.length)]);
+    metrics.increment(counterNames[level], 1L, NO_TAGS);
+    final Integer result = metrics.time(timerNames[level], () -> RESULT, NO_TAGS);
+    if (level < config.nestingDepth()) {
+      metricFactory.with(nested -> level(nested, level + 1, random));
+    }
+    if (handoff != null) {
+      handOff(metrics, level);
+    }
+    metrics.increment(afterNames[level], 1L, NO_TAGS);
+    return result;
+  }
+
+  /**
+   * The task gets a copy of the tags at submission. It adds a tag while this level adds another,
+   * and neither may show up on the other side.
+   */
+  private void handOff(final Metrics metrics, final int level) {
+    final Future<?> task = handoff.submit(() -> {
+      metricFactory.and(WORKER_KEY, levelValues[level]);
+      metricFactory.increment(workerNames[level], 1L, NO_TAGS);
+    });
+    metrics.and(SUBMITTER_KEY, levelValues[level]);
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void churn() {
+    final Tags resultTags = Tags.of(RESULT_KEY, RESULT.toString());
+    while (!stopped) {
+      tagsGeneratorRegistry.register(Integer.class, value -> resultTags);
+      LockSupport.parkNanos(50_000);
+      tagsGeneratorRegistry.deregister(Integer.class);
+      LockSupport.parkNanos(50_000);
+    }
+  }
+
+  private void report(final long deadline) {
+    final long interval = config.reportInterval().toNanos();
+    long last = operations.sum();
+    long lastTime = System.nanoTime();
+    long next = lastTime + interval;
+    while (!stopped && next < deadline) {
+      LockSupport.parkNanos(next - System.nanoTime());
+      if (Thread.interrupted()) {
+        return;
+      }
+      final long now = System.nanoTime();
+      final long total = operations.sum();
+      LOGGER.info("operations={} ops/s={} heapAfterGc={}MB threads={} gcCount={} invalidTags={}",
+          total, (total - last) * 1_000_000_000L / Math.max(1, now - lastTime), heapAfterGc() >> 20,
+          ManagementFactory.getThreadMXBean().getThreadCount(), gcCount(), publisher.invalid());
+      last = total;
+      lastTime = now;
+      next += interval;
+    }
+  }
+
+  private List<String> check() {
+    final List<String> failures = new ArrayList<>(errors);
+    final long expected = operations.sum();
+    expect(failures, CONTEXTLESS + " increments", expected, publisher.increments(CONTEXTLESS));
+    for (int level = 1; level <= config.nestingDepth(); level++) {
+      expect(failures, counterNames[level] + " increments", expected, publisher.increments(counterNames[level]));
+      expect(failures, afterNames[level] + " increments", expected, publisher.increments(afterNames[level]));
+      expect(failures, timerNames[level] + " times", expected, publisher.times(timerNames[level]));
+      if (config.propagation()) {
+        expect(failures, workerNames[level] + " increments", expected, publisher.increments(workerNames[level]));
+      }
+    }
+    expect(failures, "opens", expected, publisher.opens());
+    expect(failures, "closes", expected, publisher.closes());
+    expect(failures, "events with the wrong tags", 0, publisher.invalid());
+    return failures;
+  }
+
+  /**
+   * The heap used after the last collection of each pool, so the workers are not paused by a forced
+   * GC that would also be counted as theirs.
+   */
+  private static long heapAfterGc() {
+    long used = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      final MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+      if (usage != null) {
+        used += usage.getUsed();
+      }
+    }
+    return used;
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+  }
+
+  private static long gcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+  }
+
+  private static void expect(final List<String> failures, final String what, final long expected, final long actual) {
+    if (expected != actual) {
+      failures.add(String.format("%s: expected %,d but was %,d", what, expected, actual));
+    }
+  }
+
+  /**
+   * Metrics at a level must have the tags of that level and the ones above it, and none from below.
+   * The worker tag is only on the worker counter, and the submitter tag only on the counter the
+   * level increments after handing off.
+   */
+  private boolean validTags(final String metricName, final Tags tags) {
+    final Integer level = levels.get(metricName);
+    if (level == null) {
+      return false;
+    }
+    final Map<String, String> map = tags.getTags();
+    int expected = level;
+    for (int i = 1; i < levelKeys.length; i++) {
+      final String value = map.get(levelKeys[i]);
+      if (i <= level ? value == null || !value.startsWith("v") : value != null) {
+        return false;
+      }
+    }
+    final String handoffKey = handoffKeys.get(metricName);
+    for (String key : HANDOFF_KEYS) {
+      final String value = map.get(key);
+      if (key.equals(handoffKey) ? !levelValues[level].equals(value) : value != null) {
+        return false;
+      }
+    }
+    if (handoffKey != null) {
+      expected++;
+    }
+    if (map.containsKey(RESULT_KEY)) {
+      expected++;
+    }
+    return map.size() == expected;
+  }
+
+}
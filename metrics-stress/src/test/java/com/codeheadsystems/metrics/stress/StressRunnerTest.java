@@ -0,0 +1,95 @@
+package com.codeheadsystems.metrics.stress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class StressRunnerTest {
+
+  private static final Duration DURATION = Duration.ofMillis(300);
+
+  @Test
+  void platformThreads() throws InterruptedException {
+    final StressResult result = new StressRunner(StressConfig.builder()
+        .withThreads(4).withNestingDepth(3).withBatchSize(100).withDuration(DURATION).build()).run();
+    assertThat(result.failures()).isEmpty();
+    assertThat(result.operations()).isPositive();
+    assertThat(result.latencies().count()).isEqualTo(result.operations());
+  }
+
+  @Test
+  void virtualThreadsWithPoolingAndChurn() throws InterruptedException {
+    final StressResult result = new StressRunner(StressConfig.builder()
+        .withThreads(8).withVirtualThreads(true).withContextPooling(true).withRegistryChurn(true)
+        .withBatchSize(100).withDuration(DURATION).build()).run();
+    assertThat(result.failures()).isEmpty();
+    assertThat(result.operations()).isPositive();
+  }
+
+  @Test
+  void scopedValuesWithReports() throws InterruptedException {
+    final StressResult result = new StressRunner(StressConfig.builder()
+        .withThreads(2).withScopedValues(true).withReportInterval(Duration.ofMillis(100))
+        .withBatchSize(100).withDuration(DURATION).build()).run();
+    assertThat(result.ok()).isTrue();
+    assertThat(result.report()).contains("counts: exact");
+  }
+
+  @Test
+  void propagation() throws InterruptedException {
+    final StressResult result = new StressRunner(StressConfig.builder()
+        .withThreads(4).withNestingDepth(3).withPropagation(true).withContextPooling(true)
+        .withBatchSize(100).withDuration(DURATION).build()).run();
+    assertThat(result.failures()).isEmpty();
+    assertThat(result.operations()).isPositive();
+  }
+
+  @Test
+  void propagationWithVirtualThreadsAndScopedValues() throws InterruptedException {
+    final StressResult result = new StressRunner(StressConfig.builder()
+        .withThreads(8).withVirtualThreads(true).withScopedValues(true).withPropagation(true)
+        .withBatchSize(100).withDuration(DURATION).build()).run();
+    assertThat(result.failures()).isEmpty();
+    assertThat(result.operations()).isPositive();
+  }
+
+  @Test
+  void countingPublisher_invalidTags() {
+    final CountingPublisher publisher = new CountingPublisher(new NullMetricsPublisher(),
+        (name, tags) -> tags.getTags().isEmpty());
+    publisher.increment("a", 2L, Tags.empty());
+    publisher.increment("a", 3L, Tags.of("k", "v"));
+    publisher.time("b", Duration.ZERO, Tags.empty());
+    assertThat(publisher.increments("a")).isEqualTo(5);
+    assertThat(publisher.times("b")).isEqualTo(1);
+    assertThat(publisher.invalid()).isEqualTo(1);
+  }
+
+  @Test
+  void parse() {
+    final StressConfig config = StressRunner.parse("--threads=3", "--virtual", "--depth=4", "--duration=2m",
+        "--report=PT30S", "--propagate", "--publisher=null");
+    assertThat(config.threads()).isEqualTo(3);
+    assertThat(config.virtualThreads()).isTrue();
+    assertThat(config.nestingDepth()).isEqualTo(4);
+    assertThat(config.duration()).isEqualTo(Duration.ofMinutes(2));
+    assertThat(config.reportInterval()).isEqualTo(Duration.ofSeconds(30));
+    assertThat(config.propagation()).isTrue();
+    assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> StressRunner.parse("--nope"));
+  }
+
+  @Test
+  void latencyHistogram() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertThat(histogram.percentile(50)).isBetween(485_000L, 500_000L);
+    assertThat(histogram.percentile(99)).isBetween(960_000L, 990_000L);
+    assertThat(histogram.max()).isEqualTo(1_000_000L);
+  }
+}
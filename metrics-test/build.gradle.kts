@@ -13,6 +13,8 @@ dependencies {
     implementation(libs.bundles.testing)
     implementation(libs.metrics.core)
     implementation(libs.slf4j.api)
+
+    testRuntimeOnly(libs.junit.platform.launcher)
 }
 
 // Apply a specific Java toolchain to ease working on different environments.
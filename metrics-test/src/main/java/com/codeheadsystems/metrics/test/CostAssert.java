@@ -0,0 +1,111 @@
+package com.codeheadsystems.metrics.test;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.assertj.core.api.AbstractAssert;
+
+/**
+ * Assertions on the cost of an operation, like
+ * {@code assertThatCost(CostMeter.measure(10_000, () -> metrics.increment("name", tags))).allocatesAtMost(64)}.
+ * Allocation budgets are skipped, not failed, on JVMs that cannot measure allocations.
+ *
+ * <p>Time budgets depend on the machine running the tests, so keep them loose and prefer the cpu
+ * time, which is less affected by other work on the machine.
+ */
+public class CostAssert extends AbstractAssert<CostAssert, OperationCost> {
+
+  /**
+   * Instantiates a new Cost assert.
+   *
+   * @param actual the cost.
+   */
+  protected CostAssert(final OperationCost actual) {
+    super(actual, CostAssert.class);
+  }
+
+  /**
+   * Assert on the cost.
+   *
+   * @param actual the cost.
+   * @return the assert.
+   */
+  public static CostAssert assertThatCost(final OperationCost actual) {
+    return new CostAssert(actual);
+  }
+
+  /**
+   * Measure the operation and assert on the cost.
+   *
+   * @param operations how many times to run it.
+   * @param operation  to run.
+   * @return the assert.
+   */
+  public static CostAssert assertThatCost(final int operations, final Runnable operation) {
+    return new CostAssert(CostMeter.measure(operations, operation));
+  }
+
+  /**
+   * The operation allocates no more than this per run, on average.
+   *
+   * @param bytesPerOperation the budget.
+   * @return this.
+   */
+  public CostAssert allocatesAtMost(final long bytesPerOperation) {
+    isNotNull();
+    assumeTrue(actual.allocationsMeasured(), "This JVM cannot measure allocations per thread");
+    if (actual.bytesPerOperation() > bytesPerOperation) {
+      failWithMessage("Expected at most <%d> bytes per operation but was <%.1f>: %s",
+          bytesPerOperation, actual.bytesPerOperation(), actual);
+    }
+    return this;
+  }
+
+  /**
+   * The operation allocates nothing, allowing for less than a byte per run of noise.
+   *
+   * @return this.
+   */
+  public CostAssert allocatesNothing() {
+    isNotNull();
+    assumeTrue(actual.allocationsMeasured(), "This JVM cannot measure allocations per thread");
+    if (actual.bytesPerOperation() >= 1.0) {
+      failWithMessage("Expected no allocations but was <%.1f> bytes per operation: %s",
+          actual.bytesPerOperation(), actual);
+    }
+    return this;
+  }
+
+  /**
+   * The operation takes no more than this elapsed time per run, on average.
+   *
+   * @param nanosPerOperation the budget.
+   * @return this.
+   */
+  public CostAssert takesAtMostNanos(final long nanosPerOperation) {
+    isNotNull();
+    if (actual.nanosPerOperation() > nanosPerOperation) {
+      failWithMessage("Expected at most <%d> ns per operation but was <%.1f>: %s",
+          nanosPerOperation, actual.nanosPerOperation(), actual);
+    }
+    return this;
+  }
+
+  /**
+   * The operation takes no more than this thread cpu time per run, on average. Falls back to the
+   * elapsed time when cpu time is not available.
+   *
+   * @param nanosPerOperation the budget.
+   * @return this.
+   */
+  public CostAssert takesAtMostCpuNanos(final long nanosPerOperation) {
+    isNotNull();
+    final double cpu = actual.cpuNanosPerOperation() == OperationCost.UNKNOWN
+        ? actual.nanosPerOperation()
+        : actual.cpuNanosPerOperation();
+    if (cpu > nanosPerOperation) {
+      failWithMessage("Expected at most <%d> cpu ns per operation but was <%.1f>: %s", nanosPerOperation, cpu, actual);
+    }
+    return this;
+  }
+
+}
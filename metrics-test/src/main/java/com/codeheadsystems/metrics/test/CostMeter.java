@@ -0,0 +1,104 @@
+package com.codeheadsystems.metrics.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated and the time spent by an operation on the current thread, using the
+ * HotSpot ThreadMXBean. Lighter than a JMH run, so it can be used in ordinary unit tests to catch
+ * allocation regressions.
+ *
+ * <p>The operation is run first to warm up, so class loading and the first calls are not counted,
+ * and the JIT can remove allocations that do not escape as it would in production. The cost of the
+ * measurement itself is taken off.
+ */
+public final class CostMeter {
+
+  /**
+   * Runs to warm up unless set.
+   */
+  public static final int DEFAULT_WARMUP = 20_000;
+
+  private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+  private CostMeter() {
+  }
+
+  /**
+   * If this JVM can measure allocations per thread.
+   *
+   * @return the boolean
+   */
+  public static boolean isSupported() {
+    return THREADS != null;
+  }
+
+  /**
+   * Measure the operation, after the default warmup.
+   *
+   * @param operations how many times to run it.
+   * @param operation  to run.
+   * @return the cost.
+   */
+  public static OperationCost measure(final int operations, final Runnable operation) {
+    return measure(DEFAULT_WARMUP, operations, operation);
+  }
+
+  /**
+   * Measure the operation.
+   *
+   * @param warmup     how many times to run it first.
+   * @param operations how many times to run it while measuring.
+   * @param operation  to run.
+   * @return the cost.
+   */
+  public static OperationCost measure(final int warmup, final int operations, final Runnable operation) {
+    if (operations <= 0) {
+      throw new IllegalArgumentException("operations must be positive: " + operations);
+    }
+    for (int i = 0; i < warmup; i++) {
+      operation.run();
+    }
+    final long overhead = allocatedBytes() - allocatedBytes();
+    final long startBytes = allocatedBytes();
+    final long startCpu = cpuNanos();
+    final long start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      operation.run();
+    }
+    final long nanos = System.nanoTime() - start;
+    final long endCpu = cpuNanos();
+    final long endBytes = allocatedBytes();
+    final long bytes = startBytes == OperationCost.UNKNOWN
+        ? OperationCost.UNKNOWN
+        : Math.max(0, endBytes - startBytes + overhead);
+    final long cpu = startCpu == OperationCost.UNKNOWN ? OperationCost.UNKNOWN : endCpu - startCpu;
+    return new OperationCost(operations, bytes, nanos, cpu);
+  }
+
+  private static long allocatedBytes() {
+    return THREADS == null ? OperationCost.UNKNOWN : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static long cpuNanos() {
+    return THREADS == null || !THREADS.isCurrentThreadCpuTimeSupported()
+        ? OperationCost.UNKNOWN
+        : THREADS.getCurrentThreadCpuTime();
+  }
+
+  private static com.sun.management.ThreadMXBean threads() {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    if (!threads.isThreadAllocatedMemorySupported()) {
+      return null;
+    }
+    if (!threads.isThreadAllocatedMemoryEnabled()) {
+      threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    return threads;
+  }
+
+}
@@ -0,0 +1,316 @@
+package com.codeheadsystems.metrics.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extend this to check a publisher does what the library expects of it: nested open() and close()
+ * calls from the factory, calls from many threads at once, and empty or null tags. It also measures
+ * throughput from many threads and fails below a floor, which can be set with the
+ * {@value #MIN_EVENTS_PER_SECOND_PROPERTY} system property or by overriding
+ * {@link #minimumEventsPerSecond()}.
+ *
+ * <p>If the publisher can be read back, override {@link #incrementTotal(MetricPublisher, String)}
+ * and {@link #timeCount(MetricPublisher, String)} and the counts are checked to be exact too.
+ *
+ * @param <P> the type of publisher.
+ */
+public abstract class MetricPublisherConformanceTest<P extends MetricPublisher> {
+
+  /**
+   * System property for the throughput floor, in events per second.
+   */
+  public static final String MIN_EVENTS_PER_SECOND_PROPERTY = "metrics.conformance.minEventsPerSecond";
+
+  /**
+   * Returned when the publisher cannot be read back.
+   */
+  protected static final long UNKNOWN = -1;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricPublisherConformanceTest.class);
+  private static final int TAG_VALUES = 10;
+
+  /**
+   * The publisher under test.
+   */
+  protected P publisher;
+
+  private Tags[] tags;
+
+  /**
+   * Create the publisher to test. Called before each test.
+   *
+   * @return the publisher.
+   * @throws Exception if it cannot be created.
+   */
+  protected abstract P createPublisher() throws Exception;
+
+  /**
+   * Release anything the publisher holds. Called after each test. Note close() on the publisher is
+   * the end of a context, not a shutdown, so it is not called here.
+   *
+   * @param publisher to release.
+   * @throws Exception if it fails.
+   */
+  protected void destroyPublisher(final P publisher) throws Exception {
+  }
+
+  /**
+   * The sum of the increments recorded for the metric, over all tags.
+   *
+   * @param publisher  the publisher.
+   * @param metricName the metric name.
+   * @return the total, or UNKNOWN if the publisher cannot be read back.
+   */
+  protected long incrementTotal(final P publisher, final String metricName) {
+    return UNKNOWN;
+  }
+
+  /**
+   * The number of times recorded for the metric, over all tags.
+   *
+   * @param publisher  the publisher.
+   * @param metricName the metric name.
+   * @return the count, or UNKNOWN if the publisher cannot be read back.
+   */
+  protected long timeCount(final P publisher, final String metricName) {
+    return UNKNOWN;
+  }
+
+  /**
+   * Threads used for the concurrency and throughput tests.
+   *
+   * @return the int
+   */
+  protected int threads() {
+    return 8;
+  }
+
+  /**
+   * Calls made by each thread in the concurrency tests.
+   *
+   * @return the int
+   */
+  protected int eventsPerThread() {
+    return 10_000;
+  }
+
+  /**
+   * How long the throughput test runs.
+   *
+   * @return the duration
+   */
+  protected Duration throughputDuration() {
+    return Duration.ofMillis(500);
+  }
+
+  /**
+   * The lowest acceptable throughput, in events per second over all threads.
+   *
+   * @return the long
+   */
+  protected long minimumEventsPerSecond() {
+    return Long.getLong(MIN_EVENTS_PER_SECOND_PROPERTY, 100_000L);
+  }
+
+  /**
+   * Sets up the publisher.
+   *
+   * @throws Exception if the publisher cannot be created.
+   */
+  @BeforeEach
+  protected void setupPublisher() throws Exception {
+    publisher = createPublisher();
+    tags = new Tags[TAG_VALUES];
+    for (int i = 0; i < TAG_VALUES; i++) {
+      tags[i] = Tags.of("conformance", "value" + i, "shard", Integer.toString(i % 3), "zone", "z");
+    }
+  }
+
+  /**
+   * Tears down the publisher.
+   *
+   * @throws Exception if the publisher fails.
+   */
+  @AfterEach
+  protected void tearDownPublisher() throws Exception {
+    destroyPublisher(publisher);
+  }
+
+  @Test
+  void conformance_emptyTags() {
+    assertThatCode(() -> {
+      publisher.increment("conformance.empty.count", 2L, Tags.empty());
+      publisher.time("conformance.empty.time", Duration.ofMillis(1), Tags.empty());
+      publisher.gauge("conformance.empty.gauge", 1.5, Tags.empty());
+    }).doesNotThrowAnyException();
+    assertExact("conformance.empty.count", 2L, "conformance.empty.time", 1L);
+  }
+
+  @Test
+  void conformance_nullTagsThroughTheFactory() {
+    final MetricFactory metricFactory = MetricFactory.builder().withMetricPublisher(publisher).build();
+    assertThatCode(() -> {
+      metricFactory.increment("conformance.null.count", 1L, (Tags) null);
+      metricFactory.with(metrics -> {
+        metrics.and((Tags) null);
+        metrics.increment("conformance.null.count", 1L, (Tags) null);
+        metrics.publishTime("conformance.null.time", Duration.ofMillis(1), null);
+        return metrics.time("conformance.null.time", () -> "result", (Tags) null);
+      });
+    }).doesNotThrowAnyException();
+    assertExact("conformance.null.count", 2L, "conformance.null.time", 2L);
+  }
+
+  @Test
+  void conformance_nestedOpenAndClose() throws Exception {
+    publisher.open();
+    publisher.open();
+    publisher.increment("conformance.nested.count", 1L, tags[0]);
+    publisher.close();
+    publisher.increment("conformance.nested.count", 1L, tags[1]);
+    publisher.close();
+
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(publisher)
+        .withCloseAndOpenOnlyForInitial(false)
+        .build();
+    metricFactory.with(outer -> {
+      outer.and("level", "1");
+      outer.increment("conformance.nested.count", 1L, tags[2]);
+      return metricFactory.with(inner -> {
+        inner.and("level", "2");
+        inner.increment("conformance.nested.count", 1L, tags[3]);
+        return inner.time("conformance.nested.time", () -> metricFactory.with(innermost ->
+            innermost.time("conformance.nested.time", () -> "result", tags[4])), tags[5]);
+      });
+    });
+    assertExact("conformance.nested.count", 4L, "conformance.nested.time", 2L);
+  }
+
+  @Test
+  void conformance_contextsOnManyThreads() throws Exception {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(publisher)
+        .withCloseAndOpenOnlyForInitial(false)
+        .build();
+    concurrently(thread -> {
+      for (int i = 0; i < eventsPerThread(); i++) {
+        final Tags eventTags = tags[(thread + i) % TAG_VALUES];
+        metricFactory.with(metrics -> {
+          metrics.increment("conformance.contexts.count", 1L, eventTags);
+          return metricFactory.with(nested -> nested.time("conformance.contexts.time", () -> "result", eventTags));
+        });
+      }
+    });
+    final long expected = (long) threads() * eventsPerThread();
+    assertExact("conformance.contexts.count", expected, "conformance.contexts.time", expected);
+  }
+
+  @Test
+  void conformance_directCallsOnManyThreads() throws Exception {
+    concurrently(thread -> {
+      final Duration duration = Duration.ofNanos(1_000 + thread);
+      for (int i = 0; i < eventsPerThread(); i++) {
+        final Tags eventTags = tags[(thread + i) % TAG_VALUES];
+        publisher.increment("conformance.direct.count", 1L, eventTags);
+        publisher.time("conformance.direct.time", duration, eventTags);
+        publisher.gauge("conformance.direct.gauge", i, eventTags);
+      }
+    });
+    final long expected = (long) threads() * eventsPerThread();
+    assertExact("conformance.direct.count", expected, "conformance.direct.time", expected);
+  }
+
+  @Test
+  void conformance_throughput() throws Exception {
+    final long deadline = System.nanoTime() + throughputDuration().toNanos();
+    final long[] events = new long[threads()];
+    final long start = System.nanoTime();
+    concurrently(thread -> {
+      final Duration duration = Duration.ofNanos(1_000);
+      long count = 0;
+      while (System.nanoTime() < deadline) {
+        for (int i = 0; i < 100; i++) {
+          final Tags eventTags = tags[i % TAG_VALUES];
+          publisher.increment("conformance.throughput.count", 1L, eventTags);
+          publisher.time("conformance.throughput.time", duration, eventTags);
+        }
+        count += 200;
+      }
+      events[thread] = count;
+    });
+    final long elapsed = System.nanoTime() - start;
+    long total = 0;
+    for (long count : events) {
+      total += count;
+    }
+    final long eventsPerSecond = total * 1_000_000_000L / Math.max(1, elapsed);
+    LOGGER.info("{}: {} events/s on {} threads", publisher.getClass().getSimpleName(), eventsPerSecond, threads());
+    assertThat(eventsPerSecond)
+        .as("events per second for %s, the floor is set by %s", publisher, MIN_EVENTS_PER_SECOND_PROPERTY)
+        .isGreaterThanOrEqualTo(minimumEventsPerSecond());
+  }
+
+  private void assertExact(final String countName, final long increments,
+                           final String timeName, final long times) {
+    final long incrementTotal = incrementTotal(publisher, countName);
+    if (incrementTotal != UNKNOWN) {
+      assertThat(incrementTotal).as("increments of %s", countName).isEqualTo(increments);
+    }
+    final long timeCount = timeCount(publisher, timeName);
+    if (timeCount != UNKNOWN) {
+      assertThat(timeCount).as("times of %s", timeName).isEqualTo(times);
+    }
+  }
+
+  /**
+   * Runs the body on every thread at once, and rethrows the first failure.
+   */
+  private void concurrently(final ThreadBody body) throws Exception {
+    final int threads = threads();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        final int thread = i;
+        final Callable<Void> callable = () -> {
+          start.await();
+          body.run(thread);
+          return null;
+        };
+        futures.add(executor.submit(callable));
+      }
+      start.countDown();
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @FunctionalInterface
+  private interface ThreadBody {
+    void run(int thread) throws Exception;
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.codeheadsystems.metrics.test;
+
+/**
+ * What an operation cost on the thread that ran it, averaged over many runs.
+ */
+public final class OperationCost {
+
+  /**
+   * Used for the bytes when the JVM cannot measure allocations.
+   */
+  public static final long UNKNOWN = -1;
+
+  private final long operations;
+  private final long bytes;
+  private final long nanos;
+  private final long cpuNanos;
+
+  /**
+   * Instantiates a new Operation cost.
+   *
+   * @param operations how many times the operation ran.
+   * @param bytes      allocated in total, or UNKNOWN.
+   * @param nanos      elapsed in total.
+   * @param cpuNanos   of thread cpu time in total, or UNKNOWN.
+   */
+  public OperationCost(final long operations, final long bytes, final long nanos, final long cpuNanos) {
+    this.operations = operations;
+    this.bytes = bytes;
+    this.nanos = nanos;
+    this.cpuNanos = cpuNanos;
+  }
+
+  /**
+   * How many times the operation ran.
+   *
+   * @return the long
+   */
+  public long operations() {
+    return operations;
+  }
+
+  /**
+   * If allocations were measured.
+   *
+   * @return the boolean
+   */
+  public boolean allocationsMeasured() {
+    return bytes != UNKNOWN;
+  }
+
+  /**
+   * Bytes allocated by all runs, or UNKNOWN.
+   *
+   * @return the long
+   */
+  public long totalBytes() {
+    return bytes;
+  }
+
+  /**
+   * Bytes allocated per operation, or UNKNOWN.
+   *
+   * @return the double
+   */
+  public double bytesPerOperation() {
+    return bytes == UNKNOWN ? UNKNOWN : (double) bytes / operations;
+  }
+
+  /**
+   * Elapsed nanoseconds per operation.
+   *
+   * @return the double
+   */
+  public double nanosPerOperation() {
+    return (double) nanos / operations;
+  }
+
+  /**
+   * Thread cpu nanoseconds per operation, or UNKNOWN. Less noisy than the elapsed time when the
+   * machine is busy.
+   *
+   * @return the double
+   */
+  public double cpuNanosPerOperation() {
+    return cpuNanos == UNKNOWN ? UNKNOWN : (double) cpuNanos / operations;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("OperationCost{operations=%d, bytes/op=%.1f, ns/op=%.1f, cpu ns/op=%.1f}",
+        operations, bytesPerOperation(), nanosPerOperation(), cpuNanosPerOperation());
+  }
+}
@@ -0,0 +1,52 @@
+package com.codeheadsystems.metrics.test;
+
+import static com.codeheadsystems.metrics.test.CostAssert.assertThatCost;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CostMeterTest {
+
+  private static volatile Object sink;
+
+  @Test
+  void measure_nothing() {
+    assertThatCost(10_000, () -> {
+    }).allocatesNothing();
+  }
+
+  @Test
+  void measure_allocations() {
+    assumeTrue(CostMeter.isSupported());
+    final OperationCost cost = CostMeter.measure(1_000, () -> sink = new byte[1024]);
+    assertThat(cost.operations()).isEqualTo(1_000);
+    assertThat(cost.bytesPerOperation()).isBetween(1024.0, 1024.0 + 64);
+    assertThat(cost.nanosPerOperation()).isPositive();
+  }
+
+  @Test
+  void allocatesAtMost_fails() {
+    assumeTrue(CostMeter.isSupported());
+    assertThatExceptionOfType(AssertionError.class)
+        .isThrownBy(() -> assertThatCost(1_000, () -> sink = new byte[1024]).allocatesAtMost(512))
+        .withMessageContaining("at most <512> bytes");
+  }
+
+  @Test
+  void takesAtMostNanos() {
+    final OperationCost cost = new OperationCost(10, 0, 1_000, OperationCost.UNKNOWN);
+    assertThatCost(cost).takesAtMostNanos(100).takesAtMostCpuNanos(100);
+    assertThatExceptionOfType(AssertionError.class)
+        .isThrownBy(() -> assertThatCost(cost).takesAtMostNanos(99));
+  }
+
+  @Test
+  void measure_noOperations() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> CostMeter.measure(0, () -> {
+        }));
+  }
+
+}
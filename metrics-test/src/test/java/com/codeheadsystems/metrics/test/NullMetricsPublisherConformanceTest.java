@@ -0,0 +1,12 @@
+package com.codeheadsystems.metrics.test;
+
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+
+class NullMetricsPublisherConformanceTest extends MetricPublisherConformanceTest<NullMetricsPublisher> {
+
+  @Override
+  protected NullMetricsPublisher createPublisher() {
+    return new NullMetricsPublisher();
+  }
+
+}
@@ -0,0 +1,399 @@
+package com.codeheadsystems.metrics.uds;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends every event to a local aggregator over a Unix domain socket, so aggregating and shipping
+ * metrics happens outside this JVM. Events are encoded on the calling thread and offered to a
+ * bounded queue, and one daemon thread sends them in batches. The calling thread never waits on the
+ * socket: when the queue is full, because the aggregator is slow or gone, the event is dropped and
+ * counted.
+ *
+ * <p>The sender writes without blocking. If the aggregator stops reading for longer than the write
+ * timeout, or the connection fails, the batch is dropped and the sender connects again after the
+ * reconnect interval. Events queued meanwhile are sent once connected.
+ */
+public class UdsMetricsPublisher implements MetricPublisher {
+
+  /**
+   * The most events queued unless set.
+   */
+  public static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+
+  /**
+   * The largest batch unless set.
+   */
+  public static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+
+  /**
+   * The longest an event waits for a batch to fill unless set.
+   */
+  public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(100);
+
+  /**
+   * How long to wait before connecting again unless set.
+   */
+  public static final Duration DEFAULT_RECONNECT_INTERVAL = Duration.ofSeconds(1);
+
+  /**
+   * How long the aggregator can stop reading before the connection is dropped unless set.
+   */
+  public static final Duration DEFAULT_WRITE_TIMEOUT = Duration.ofSeconds(1);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UdsMetricsPublisher.class);
+  private static final int DRAIN_LENGTH = 1024;
+
+  private final UnixDomainSocketAddress address;
+  private final BlockingQueue<byte[]> queue;
+  private final int maxBatchBytes;
+  private final long flushNanos;
+  private final long reconnectNanos;
+  private final long writeTimeoutNanos;
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder reconnects = new LongAdder();
+  private final Thread sender;
+  private volatile boolean running = true;
+  private volatile boolean connected;
+
+  private UdsMetricsPublisher(final Builder builder) {
+    LOGGER.info("UdsMetricsPublisher({},{},{},{})", builder.path, builder.queueCapacity, builder.maxBatchBytes,
+        builder.flushInterval);
+    this.address = UnixDomainSocketAddress.of(builder.path);
+    this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+    this.maxBatchBytes = builder.maxBatchBytes;
+    this.flushNanos = builder.flushInterval.toNanos();
+    this.reconnectNanos = builder.reconnectInterval.toNanos();
+    this.writeTimeoutNanos = builder.writeTimeout.toNanos();
+    this.sender = new Thread(this::send, "metrics-uds-sender");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public void increment(final String metricName, final long value, final Tags tags) {
+    offer(WireFormat.increment(metricName, value, tags));
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags) {
+    offer(WireFormat.time(metricName, duration.toNanos(), tags));
+  }
+
+  @Override
+  public void gauge(final String metricName, final double value, final Tags tags) {
+    offer(WireFormat.gauge(metricName, value, tags));
+  }
+
+  /**
+   * The events sent to the aggregator.
+   *
+   * @return the long
+   */
+  public long sent() {
+    return sent.sum();
+  }
+
+  /**
+   * The events dropped, since the queue was full or the connection failed with them in a batch.
+   *
+   * @return the long
+   */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * The times the connection was lost.
+   *
+   * @return the long
+   */
+  public long reconnects() {
+    return reconnects.sum();
+  }
+
+  public boolean connected() {
+    return connected;
+  }
+
+  /**
+   * Sends what is queued, if connected, and stops the sender. Waits at most the flush interval and
+   * write timeout.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public void shutdown() throws InterruptedException {
+    LOGGER.info("shutdown()");
+    running = false;
+    sender.join(TimeUnit.NANOSECONDS.toMillis(flushNanos + writeTimeoutNanos) + 1000);
+  }
+
+  private void offer(final byte[] event) {
+    if (!queue.offer(event)) {
+      dropped.increment();
+    }
+  }
+
+  private void send() {
+    final ByteBuffer batch = ByteBuffer.allocateDirect(maxBatchBytes);
+    // taken from the queue a chunk at a time, so the queue lock is not taken for every event.
+    final Deque<byte[]> pending = new ArrayDeque<>(DRAIN_LENGTH);
+    SocketChannel channel = null;
+    long connectAt = 0;
+    while (running || !pending.isEmpty() || !queue.isEmpty()) {
+      if (channel == null) {
+        if (running && System.nanoTime() < connectAt) {
+          LockSupport.parkNanos(Math.min(flushNanos, connectAt - System.nanoTime()));
+          continue;
+        }
+        channel = connect();
+        if (channel == null) {
+          if (!running) {
+            // one last try when stopping, then what is left is dropped.
+            break;
+          }
+          connectAt = System.nanoTime() + reconnectNanos;
+          continue;
+        }
+      }
+      final int count = fill(batch, pending);
+      if (count == 0) {
+        continue;
+      }
+      try {
+        write(channel, batch);
+        sent.add(count);
+      } catch (IOException e) {
+        LOGGER.warn("send(): dropping {} events, connection failed: {}", count, e.getMessage());
+        dropped.add(count);
+        reconnects.increment();
+        close(channel);
+        channel = null;
+        connectAt = System.nanoTime() + reconnectNanos;
+      }
+    }
+    if (channel != null) {
+      close(channel);
+    }
+    dropped.add(queue.size() + pending.size());
+    queue.clear();
+  }
+
+  /**
+   * Fills the batch until it is full, or the flush interval has passed since its first event.
+   */
+  private int fill(final ByteBuffer batch, final Deque<byte[]> pending) {
+    batch.clear();
+    batch.putInt(0).put(WireFormat.VERSION).putInt(0);
+    int count = 0;
+    long deadline = System.nanoTime() + flushNanos;
+    try {
+      while (true) {
+        if (pending.isEmpty() && queue.drainTo(pending, DRAIN_LENGTH) == 0) {
+          final long wait = deadline - System.nanoTime();
+          final byte[] event = running && wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+          if (event == null) {
+            break;
+          }
+          pending.add(event);
+        }
+        final byte[] event = pending.peek();
+        if (event.length > batch.remaining()) {
+          if (count > 0) {
+            break;
+          }
+          // too big for any batch.
+          pending.poll();
+          dropped.increment();
+          continue;
+        }
+        if (count == 0) {
+          deadline = System.nanoTime() + flushNanos;
+        }
+        batch.put(pending.poll());
+        count++;
+      }
+    } catch (InterruptedException e) {
+      running = false;
+    }
+    batch.putInt(0, batch.position() - Integer.BYTES).putInt(5, count).flip();
+    return count;
+  }
+
+  private SocketChannel connect() {
+    try {
+      final SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+      try {
+        channel.connect(address);
+        channel.configureBlocking(false);
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+      LOGGER.info("connect(): connected to {}", address);
+      connected = true;
+      return channel;
+    } catch (IOException e) {
+      LOGGER.debug("connect(): unable to connect to {}: {}", address, e.getMessage());
+      return null;
+    }
+  }
+
+  private void write(final SocketChannel channel, final ByteBuffer batch) throws IOException {
+    final long start = System.nanoTime();
+    while (batch.hasRemaining()) {
+      if (channel.write(batch) == 0) {
+        if (System.nanoTime() - start > writeTimeoutNanos) {
+          throw new IOException("Aggregator not reading");
+        }
+        LockSupport.parkNanos(100_000);
+      }
+    }
+  }
+
+  private void close(final SocketChannel channel) {
+    connected = false;
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOGGER.debug("close(): {}", e.getMessage());
+    }
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Builder.class);
+
+    private Path path;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+    private Duration flushInterval = DEFAULT_FLUSH_INTERVAL;
+    private Duration reconnectInterval = DEFAULT_RECONNECT_INTERVAL;
+    private Duration writeTimeout = DEFAULT_WRITE_TIMEOUT;
+
+    private Builder() {
+    }
+
+    /**
+     * With path builder. Required, the socket the aggregator listens on.
+     *
+     * @param path the path
+     * @return the builder
+     */
+    public Builder withPath(final Path path) {
+      LOGGER.info("withPath({})", path);
+      this.path = path;
+      return this;
+    }
+
+    /**
+     * With queue capacity builder. The most events waiting to be sent before new ones are dropped.
+     *
+     * @param queueCapacity the queue capacity
+     * @return the builder
+     */
+    public Builder withQueueCapacity(final int queueCapacity) {
+      LOGGER.info("withQueueCapacity({})", queueCapacity);
+      this.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    /**
+     * With max batch bytes builder.
+     *
+     * @param maxBatchBytes the max batch bytes
+     * @return the builder
+     */
+    public Builder withMaxBatchBytes(final int maxBatchBytes) {
+      LOGGER.info("withMaxBatchBytes({})", maxBatchBytes);
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
+    /**
+     * With flush interval builder. The longest an event waits for its batch to fill.
+     *
+     * @param flushInterval the flush interval
+     * @return the builder
+     */
+    public Builder withFlushInterval(final Duration flushInterval) {
+      LOGGER.info("withFlushInterval({})", flushInterval);
+      this.flushInterval = flushInterval;
+      return this;
+    }
+
+    /**
+     * With reconnect interval builder.
+     *
+     * @param reconnectInterval the reconnect interval
+     * @return the builder
+     */
+    public Builder withReconnectInterval(final Duration reconnectInterval) {
+      LOGGER.info("withReconnectInterval({})", reconnectInterval);
+      this.reconnectInterval = reconnectInterval;
+      return this;
+    }
+
+    /**
+     * With write timeout builder. How long the aggregator can stop reading before the connection is
+     * dropped.
+     *
+     * @param writeTimeout the write timeout
+     * @return the builder
+     */
+    public Builder withWriteTimeout(final Duration writeTimeout) {
+      LOGGER.info("withWriteTimeout({})", writeTimeout);
+      this.writeTimeout = writeTimeout;
+      return this;
+    }
+
+    /**
+     * Build uds metrics publisher.
+     *
+     * @return the uds metrics publisher
+     */
+    public UdsMetricsPublisher build() {
+      Objects.requireNonNull(path, "path");
+      if (queueCapacity < 1) {
+        throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+      }
+      if (maxBatchBytes <= WireFormat.FRAME_HEADER_LENGTH || maxBatchBytes > WireFormat.MAX_FRAME_LENGTH) {
+        throw new IllegalArgumentException("maxBatchBytes out of range: " + maxBatchBytes);
+      }
+      if (flushInterval.isZero() || flushInterval.isNegative()) {
+        throw new IllegalArgumentException("flushInterval must be positive: " + flushInterval);
+      }
+      return new UdsMetricsPublisher(this);
+    }
+  }
+}
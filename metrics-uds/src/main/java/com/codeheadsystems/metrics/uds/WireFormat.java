@@ -0,0 +1,273 @@
+package com.codeheadsystems.metrics.uds;
+
+import com.codeheadsystems.metrics.Tags;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The binary form of the batches sent to the aggregator. A connection is a stream of frames, each a
+ * batch of events. Big endian:
+ *
+ * <pre>
+ * frame
+ *   int     length of the rest of the frame
+ *   byte    version, 1
+ *   int     event count
+ *   events
+ *
+ * event
+ *   byte    type, 1 increment, 2 time and 3 gauge
+ *   string  metric name
+ *   varint  tag count, then a string key and string value for each tag
+ *   value   increment: zigzag varlong, time: varlong nanoseconds, gauge: 8 byte double
+ *
+ * string
+ *   varint  length, then the UTF-8 bytes
+ * </pre>
+ * Varints are unsigned LEB128, 7 bits a byte with the high bit set on all but the last.
+ */
+public final class WireFormat {
+
+  /**
+   * The version of the frames written.
+   */
+  public static final byte VERSION = 1;
+
+  /**
+   * The bytes before the events of a frame.
+   */
+  public static final int FRAME_HEADER_LENGTH = 9;
+
+  /**
+   * The largest frame read, so a bad length cannot use all the memory of the reader.
+   */
+  public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+  static final byte INCREMENT = 1;
+  static final byte TIME = 2;
+  static final byte GAUGE = 3;
+
+  private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+  private WireFormat() {
+  }
+
+  /**
+   * Encodes an increment.
+   *
+   * @param metricName the metric name.
+   * @param value      the value.
+   * @param tags       the tags, or null.
+   * @return the event.
+   */
+  public static byte[] increment(final String metricName, final long value, final Tags tags) {
+    return ENCODER.get().start(INCREMENT, metricName, tags).varLong((value << 1) ^ (value >> 63)).bytes();
+  }
+
+  /**
+   * Encodes a time.
+   *
+   * @param metricName the metric name.
+   * @param nanos      the time in nanoseconds.
+   * @param tags       the tags, or null.
+   * @return the event.
+   */
+  public static byte[] time(final String metricName, final long nanos, final Tags tags) {
+    return ENCODER.get().start(TIME, metricName, tags).varLong(Math.max(0, nanos)).bytes();
+  }
+
+  /**
+   * Encodes a gauge.
+   *
+   * @param metricName the metric name.
+   * @param value      the value.
+   * @param tags       the tags, or null.
+   * @return the event.
+   */
+  public static byte[] gauge(final String metricName, final double value, final Tags tags) {
+    return ENCODER.get().start(GAUGE, metricName, tags).doubleBits(Double.doubleToRawLongBits(value)).bytes();
+  }
+
+  /**
+   * Decodes the events of a frame, after its length.
+   *
+   * @param frame   the frame from its version to its end.
+   * @param handler gets each event.
+   * @return the number of events.
+   * @throws IllegalArgumentException if the frame is not valid.
+   */
+  public static int decode(final ByteBuffer frame, final EventHandler handler) {
+    try {
+      final byte version = frame.get();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Cannot read frame version " + version);
+      }
+      final int count = frame.getInt();
+      if (count < 0 || count > frame.remaining()) {
+        throw new IllegalArgumentException("More events than the frame holds: " + count);
+      }
+      for (int i = 0; i < count; i++) {
+        final byte type = frame.get();
+        final String metricName = string(frame);
+        final long tagCount = varLong(frame);
+        if (tagCount < 0 || tagCount > frame.remaining()) {
+          throw new IllegalArgumentException("More tags than the frame holds: " + tagCount);
+        }
+        final Map<String, String> tags;
+        if (tagCount == 0) {
+          tags = Collections.emptyMap();
+        } else {
+          tags = new HashMap<>((int) tagCount * 2);
+          for (int tag = 0; tag < tagCount; tag++) {
+            tags.put(string(frame), string(frame));
+          }
+        }
+        switch (type) {
+          case INCREMENT:
+            final long zigzag = varLong(frame);
+            handler.increment(metricName, tags, (zigzag >>> 1) ^ -(zigzag & 1));
+            break;
+          case TIME:
+            handler.time(metricName, tags, varLong(frame));
+            break;
+          case GAUGE:
+            handler.gauge(metricName, tags, Double.longBitsToDouble(frame.getLong()));
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown event type " + type);
+        }
+      }
+      return count;
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Frame ended in an event", e);
+    }
+  }
+
+  private static String string(final ByteBuffer frame) {
+    final int length = (int) varLong(frame);
+    if (length < 0 || length > frame.remaining()) {
+      throw new IllegalArgumentException("String longer than the frame: " + length);
+    }
+    if (frame.hasArray()) {
+      final String string = new String(frame.array(), frame.arrayOffset() + frame.position(), length,
+          StandardCharsets.UTF_8);
+      frame.position(frame.position() + length);
+      return string;
+    }
+    final byte[] bytes = new byte[length];
+    frame.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long varLong(final ByteBuffer frame) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int next = frame.get() & 0xFF;
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Varint too long");
+  }
+
+  /**
+   * Gets the decoded events.
+   */
+  public interface EventHandler {
+
+    /**
+     * An increment.
+     *
+     * @param metricName the metric name.
+     * @param tags       the tags.
+     * @param value      the value.
+     */
+    void increment(String metricName, Map<String, String> tags, long value);
+
+    /**
+     * A time.
+     *
+     * @param metricName the metric name.
+     * @param tags       the tags.
+     * @param nanos      the time in nanoseconds.
+     */
+    void time(String metricName, Map<String, String> tags, long nanos);
+
+    /**
+     * A gauge.
+     *
+     * @param metricName the metric name.
+     * @param tags       the tags.
+     * @param value      the value.
+     */
+    void gauge(String metricName, Map<String, String> tags, double value);
+  }
+
+  /**
+   * Encodes into a buffer kept per thread, so only the event itself is allocated.
+   */
+  private static final class Encoder {
+
+    private byte[] buffer = new byte[256];
+    private int position;
+
+    private Encoder start(final byte type, final String metricName, final Tags tags) {
+      position = 0;
+      ensure(1);
+      buffer[position++] = type;
+      string(metricName);
+      final Map<String, String> map = tags == null ? Collections.emptyMap() : tags.getTags();
+      varLong(map.size());
+      map.forEach((key, value) -> {
+        string(key);
+        string(String.valueOf(value));
+      });
+      return this;
+    }
+
+    private Encoder string(final String string) {
+      final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      varLong(bytes.length);
+      ensure(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+      return this;
+    }
+
+    private Encoder varLong(final long value) {
+      ensure(10);
+      long remaining = value;
+      while ((remaining & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+        remaining >>>= 7;
+      }
+      buffer[position++] = (byte) remaining;
+      return this;
+    }
+
+    private Encoder doubleBits(final long bits) {
+      ensure(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (bits >>> shift);
+      }
+      return this;
+    }
+
+    private byte[] bytes() {
+      return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensure(final int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+      }
+    }
+  }
+
+}
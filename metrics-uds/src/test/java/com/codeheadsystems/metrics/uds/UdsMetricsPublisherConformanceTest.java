@@ -0,0 +1,28 @@
+package com.codeheadsystems.metrics.uds;
+
+import com.codeheadsystems.metrics.test.MetricPublisherConformanceTest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * With no aggregator listening, so every event is queued then dropped without the callers waiting.
+ */
+class UdsMetricsPublisherConformanceTest extends MetricPublisherConformanceTest<UdsMetricsPublisher> {
+
+  private Path directory;
+
+  @Override
+  protected UdsMetricsPublisher createPublisher() throws Exception {
+    directory = Files.createTempDirectory("uds");
+    return UdsMetricsPublisher.builder()
+        .withPath(directory.resolve("missing.sock"))
+        .build();
+  }
+
+  @Override
+  protected void destroyPublisher(final UdsMetricsPublisher publisher) throws Exception {
+    publisher.shutdown();
+    Files.deleteIfExists(directory);
+  }
+
+}
@@ -0,0 +1,186 @@
+package com.codeheadsystems.metrics.uds;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.codeheadsystems.metrics.Tags;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UdsMetricsPublisherTest {
+
+  @TempDir Path directory;
+
+  private UdsMetricsPublisher publisher;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    if (publisher != null) {
+      publisher.shutdown();
+    }
+  }
+
+  @Test
+  void sendsBatches() throws IOException {
+    final Path path = directory.resolve("aggregator.sock");
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(path));
+      publisher = UdsMetricsPublisher.builder()
+          .withPath(path)
+          .withMaxBatchBytes(64)
+          .withFlushInterval(Duration.ofMillis(10))
+          .build();
+      for (int i = 0; i < 10; i++) {
+        publisher.increment("requests", 1, Tags.of("region", "us"));
+      }
+      publisher.time("latency", Duration.ofMillis(5), null);
+      publisher.gauge("queue", 2.5, Tags.empty());
+
+      try (SocketChannel channel = server.accept()) {
+        final List<String> events = read(channel, 12);
+        assertThat(events).hasSize(12)
+            .contains("increment requests{region=us} 1", "time latency{} 5000000", "gauge queue{} 2.5");
+      }
+    }
+    assertThat(publisher.sent()).isEqualTo(12);
+    assertThat(publisher.dropped()).isZero();
+  }
+
+  @Test
+  void dropsWithoutAnAggregator() throws InterruptedException {
+    publisher = UdsMetricsPublisher.builder()
+        .withPath(directory.resolve("missing.sock"))
+        .withQueueCapacity(4)
+        .build();
+
+    for (int i = 0; i < 10; i++) {
+      publisher.increment("requests", 1, null);
+    }
+    assertThat(publisher.connected()).isFalse();
+    assertThat(publisher.dropped()).isEqualTo(6);
+
+    publisher.shutdown();
+    assertThat(publisher.dropped()).isEqualTo(10);
+    assertThat(publisher.sent()).isZero();
+  }
+
+  @Test
+  void sendsWhatWasQueuedOnceConnected() throws IOException {
+    final Path path = directory.resolve("aggregator.sock");
+    publisher = UdsMetricsPublisher.builder()
+        .withPath(path)
+        .withFlushInterval(Duration.ofMillis(10))
+        .withReconnectInterval(Duration.ofMillis(10))
+        .build();
+    publisher.increment("before", 1, null);
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(path));
+      publisher.increment("after", 1, null);
+      try (SocketChannel channel = server.accept()) {
+        assertThat(read(channel, 2)).containsExactly("increment before{} 1", "increment after{} 1");
+      }
+    }
+  }
+
+  @Test
+  void reconnectsAfterTheAggregatorRestarts() throws Exception {
+    final Path path = directory.resolve("aggregator.sock");
+    publisher = UdsMetricsPublisher.builder()
+        .withPath(path)
+        .withFlushInterval(Duration.ofMillis(10))
+        .withReconnectInterval(Duration.ofMillis(10))
+        .build();
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(path));
+      publisher.increment("first", 1, null);
+      try (SocketChannel channel = server.accept()) {
+        assertThat(read(channel, 1)).containsExactly("increment first{} 1");
+      }
+    }
+    Files.delete(path);
+    final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (publisher.reconnects() == 0 && System.nanoTime() < deadline) {
+      publisher.increment("lost", 1, null);
+      Thread.sleep(5);
+    }
+    assertThat(publisher.reconnects()).isEqualTo(1);
+    assertThat(publisher.connected()).isFalse();
+
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(path));
+      publisher.increment("second", 1, null);
+      try (SocketChannel channel = server.accept()) {
+        final List<String> events = new ArrayList<>();
+        while (!events.contains("increment second{} 1")) {
+          events.addAll(read(channel, 1));
+        }
+      }
+    }
+    assertThat(publisher.dropped()).isPositive();
+  }
+
+  @Test
+  void build_withoutPath() {
+    assertThatExceptionOfType(NullPointerException.class)
+        .isThrownBy(() -> UdsMetricsPublisher.builder().build());
+  }
+
+  @Test
+  void build_batchTooSmall() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> UdsMetricsPublisher.builder()
+            .withPath(directory.resolve("aggregator.sock"))
+            .withMaxBatchBytes(WireFormat.FRAME_HEADER_LENGTH)
+            .build());
+  }
+
+  private static List<String> read(final SocketChannel channel, final int events) throws IOException {
+    final List<String> result = new ArrayList<>();
+    final WireFormat.EventHandler handler = new WireFormat.EventHandler() {
+      @Override
+      public void increment(final String metricName, final Map<String, String> tags, final long value) {
+        result.add("increment " + metricName + tags + " " + value);
+      }
+
+      @Override
+      public void time(final String metricName, final Map<String, String> tags, final long nanos) {
+        result.add("time " + metricName + tags + " " + nanos);
+      }
+
+      @Override
+      public void gauge(final String metricName, final Map<String, String> tags, final double value) {
+        result.add("gauge " + metricName + tags + " " + value);
+      }
+    };
+    final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+    while (result.size() < events) {
+      length.clear();
+      readFully(channel, length);
+      final ByteBuffer frame = ByteBuffer.allocate(length.flip().getInt());
+      readFully(channel, frame);
+      WireFormat.decode(frame.flip(), handler);
+    }
+    return result;
+  }
+
+  private static void readFully(final SocketChannel channel, final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Closed");
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.codeheadsystems.metrics.uds;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.codeheadsystems.metrics.Tags;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class WireFormatTest {
+
+  private final List<String> events = new ArrayList<>();
+  private final WireFormat.EventHandler handler = new WireFormat.EventHandler() {
+    @Override
+    public void increment(final String metricName, final Map<String, String> tags, final long value) {
+      events.add("increment " + metricName + tags + " " + value);
+    }
+
+    @Override
+    public void time(final String metricName, final Map<String, String> tags, final long nanos) {
+      events.add("time " + metricName + tags + " " + nanos);
+    }
+
+    @Override
+    public void gauge(final String metricName, final Map<String, String> tags, final double value) {
+      events.add("gauge " + metricName + tags + " " + value);
+    }
+  };
+
+  @Test
+  void roundTrip() {
+    final ByteBuffer frame = frame(
+        WireFormat.increment("requests", 3, Tags.of("region", "us")),
+        WireFormat.increment("requests", -2, null),
+        WireFormat.time("latency", 1_500_000_000L, Tags.empty()),
+        WireFormat.gauge("queue", 2.5, Tags.of("name", "é")));
+
+    assertThat(WireFormat.decode(frame, handler)).isEqualTo(4);
+    assertThat(events).containsExactly(
+        "increment requests{region=us} 3",
+        "increment requests{} -2",
+        "time latency{} 1500000000",
+        "gauge queue{name=é} 2.5");
+    assertThat(frame.hasRemaining()).isFalse();
+  }
+
+  @Test
+  void unknownVersion() {
+    final ByteBuffer frame = frame(WireFormat.increment("requests", 1, null));
+    frame.put(0, (byte) 9);
+
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> WireFormat.decode(frame, handler))
+        .withMessageContaining("version");
+  }
+
+  @Test
+  void truncated() {
+    final ByteBuffer frame = frame(WireFormat.gauge("queue", 1, null));
+    frame.limit(frame.limit() - 3);
+
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> WireFormat.decode(frame, handler));
+    assertThat(events).isEmpty();
+  }
+
+  @Test
+  void unknownType() {
+    final ByteBuffer frame = frame(WireFormat.increment("requests", 1, null));
+    frame.put(5, (byte) 7);
+
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> WireFormat.decode(frame, handler))
+        .withMessageContaining("type");
+  }
+
+  private static ByteBuffer frame(final byte[]... events) {
+    final ByteBuffer frame = ByteBuffer.allocate(1024);
+    frame.put(WireFormat.VERSION).putInt(events.length);
+    for (byte[] event : events) {
+      frame.put(event);
+    }
+    return frame.flip();
+  }
+}
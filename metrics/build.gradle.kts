@@ -11,6 +11,7 @@ dependencies {
     implementation(libs.slf4j.api)
 
     testImplementation(libs.bundles.testing)
+    testImplementation(project(":metrics-test"))
     testRuntimeOnly(libs.junit.platform.launcher)
 }
 
@@ -28,6 +29,59 @@ tasks.named<Test>("test") {
     useJUnitPlatform()
 }
 
+// The library targets 11, where ScopedValue does not exist and the scoped value storage falls back to the
+// thread local. These tests compile and run on 21 so the scoped value binding and fork inheritance are tested.
+val java21Test: SourceSet = sourceSets.create("java21Test") {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations["java21TestImplementation"].extendsFrom(configurations.testImplementation.get())
+configurations["java21TestRuntimeOnly"].extendsFrom(configurations.testRuntimeOnly.get())
+
+tasks.named<JavaCompile>(java21Test.compileJavaTaskName) {
+    javaCompiler = javaToolchains.compilerFor { languageVersion = JavaLanguageVersion.of(21) }
+    options.release = 21
+    // StructuredTaskScope is a preview API in 21.
+    options.compilerArgs.add("--enable-preview")
+}
+
+val java21TestTask = tasks.register<Test>("java21Test") {
+    description = "Runs the tests that need JDK 21."
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    testClassesDirs = java21Test.output.classesDirs
+    classpath = java21Test.runtimeClasspath
+    javaLauncher = javaToolchains.launcherFor { languageVersion = JavaLanguageVersion.of(21) }
+    jvmArgs("--enable-preview")
+    useJUnitPlatform()
+}
+
+// ScopedValue is final in 25, with no preview flag. These tests run the scoped value storage there, since the
+// final API differs from the 21 preview. StructuredTaskScope is still a preview API in 25, so forks are not used.
+val java25Test: SourceSet = sourceSets.create("java25Test") {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations["java25TestImplementation"].extendsFrom(configurations.testImplementation.get())
+configurations["java25TestRuntimeOnly"].extendsFrom(configurations.testRuntimeOnly.get())
+
+tasks.named<JavaCompile>(java25Test.compileJavaTaskName) {
+    javaCompiler = javaToolchains.compilerFor { languageVersion = JavaLanguageVersion.of(25) }
+    options.release = 25
+}
+
+val java25TestTask = tasks.register<Test>("java25Test") {
+    description = "Runs the tests that need JDK 25."
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    testClassesDirs = java25Test.output.classesDirs
+    classpath = java25Test.runtimeClasspath
+    javaLauncher = javaToolchains.launcherFor { languageVersion = JavaLanguageVersion.of(25) }
+    useJUnitPlatform()
+}
+
+tasks.named("check") {
+    dependsOn(java21TestTask, java25TestTask)
+}
+
 publishing {
     publications {
         create<MavenPublication>("mavenJava") {
@@ -0,0 +1,102 @@
+package com.codeheadsystems.metrics.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import java.util.concurrent.StructuredTaskScope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Runs on 21, so the scoped value storage is the one under test and not the thread local fallback.
+ */
+@ExtendWith(MockitoExtension.class)
+class ScopedValueContextStorageTest {
+
+  private static final Tags BASE_TAGS = Tags.of("a", "1");
+
+  @Mock private MetricPublisher metricPublisher;
+
+  private MetricFactory metricFactory;
+
+  @BeforeEach
+  void setup() {
+    metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withContextStorage(ContextStorage.scopedValue())
+        .withContextPooling(true)
+        .withMetricPublisher(metricPublisher)
+        .build();
+  }
+
+  @Test
+  void scopedValueSelected() {
+    assertThat(ScopedValueContextStorage.isSupported()).isTrue();
+    assertThat(ContextStorage.scopedValue()).isInstanceOf(ScopedValueContextStorage.class);
+  }
+
+  @Test
+  void with_bindsTheScopedValue() {
+    final ContextStorage storage = ContextStorage.scopedValue();
+    final MetricsImpl metrics = new MetricsImpl(null, metricPublisher, null, null, Tags.empty(), name -> name);
+    final MetricsImpl[] other = new MetricsImpl[]{metrics};
+    final MetricsImpl seen = storage.call(metrics, m -> {
+      final Thread thread = new Thread(() -> other[0] = storage.get());
+      thread.start();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return storage.get();
+    });
+    assertThat(seen).isSameAs(metrics);
+    assertThat(other[0]).isNull();
+    assertThat(storage.get()).isNull();
+  }
+
+  @Test
+  void fork_inheritsTheContext() {
+    final Metrics[] forked = new Metrics[1];
+    final Metrics current = metricFactory.with(metrics -> {
+      metrics.and("request", "1");
+      try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+        scope.fork(() -> {
+          forked[0] = metricFactory.metrics();
+          metricFactory.increment("forked", 1L, Tags.empty());
+          return null;
+        });
+        scope.join().throwIfFailed();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      return metrics;
+    });
+    assertThat(forked[0]).isSameAs(current);
+    verify(metricPublisher).increment("forked", 1L, Tags.of("a", "1", "request", "1"));
+  }
+
+  @Test
+  void fork_contextNotPooled() {
+    final Metrics first = metricFactory.with(metrics -> {
+      try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+        scope.fork(metricFactory::metrics);
+        scope.join().throwIfFailed();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      return metrics;
+    });
+    assertThat(((MetricsImpl) first).escaped()).isTrue();
+    final Metrics second = metricFactory.with(metrics -> metrics);
+    assertThat(second).isNotSameAs(first);
+    assertThat(metricFactory.with(metrics -> metrics)).isSameAs(second);
+  }
+
+}
@@ -0,0 +1,70 @@
+package com.codeheadsystems.metrics.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Runs on 25 without preview, where ScopedValue is final and orElse(null) throws.
+ */
+@ExtendWith(MockitoExtension.class)
+class FinalScopedValueContextStorageTest {
+
+  private static final Tags BASE_TAGS = Tags.of("a", "1");
+
+  @Mock private MetricPublisher metricPublisher;
+
+  private MetricFactory metricFactory;
+
+  @BeforeEach
+  void setup() {
+    metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withContextStorage(ContextStorage.scopedValue())
+        .withMetricPublisher(metricPublisher)
+        .build();
+  }
+
+  @Test
+  void scopedValueSelected() {
+    assertThat(ScopedValueContextStorage.isSupported()).isTrue();
+    assertThat(ContextStorage.scopedValue()).isInstanceOf(ScopedValueContextStorage.class);
+  }
+
+  @Test
+  void get_unbound() {
+    assertThat(new ScopedValueContextStorage().get()).isNull();
+  }
+
+  @Test
+  void noContext() {
+    assertThat(metricFactory.metrics()).isNotNull();
+    metricFactory.increment("count", 1L, Tags.empty());
+    assertThat(metricFactory.time("time", () -> "done", Tags.empty())).isEqualTo("done");
+    verify(metricPublisher).increment("count", 1L, BASE_TAGS);
+    verify(metricPublisher).time(eq("time"), any(), eq(BASE_TAGS));
+  }
+
+  @Test
+  void with_bindsTheContext() {
+    final Metrics current = metricFactory.with(metrics -> {
+      metrics.and("request", "1");
+      assertThat(metricFactory.metrics()).isSameAs(metrics);
+      metricFactory.increment("count", 1L, Tags.empty());
+      return metrics;
+    });
+    assertThat(metricFactory.metrics()).isNotSameAs(current);
+    verify(metricPublisher).increment("count", 1L, Tags.of("a", "1", "request", "1"));
+  }
+
+}
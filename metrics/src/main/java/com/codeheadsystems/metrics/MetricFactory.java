@@ -1,13 +1,20 @@
 package com.codeheadsystems.metrics;
 
+import com.codeheadsystems.metrics.config.MetricsConfigurationHolder;
+import com.codeheadsystems.metrics.helper.ContextPropagator;
+import com.codeheadsystems.metrics.helper.ExceptionClassifier;
+import com.codeheadsystems.metrics.helper.GaugeRegistry;
+import com.codeheadsystems.metrics.helper.MetricsStats;
 import com.codeheadsystems.metrics.helper.TagsGeneratorRegistry;
+import com.codeheadsystems.metrics.impl.ContextStorage;
 import com.codeheadsystems.metrics.impl.MetricPublisher;
 import com.codeheadsystems.metrics.impl.MetricsImpl;
 import com.codeheadsystems.metrics.impl.NullMetricsImpl;
 import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
 import java.time.Clock;
 import java.time.Duration;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,20 +33,36 @@ public class MetricFactory implements Metrics {
   private final TagsGenerator<Throwable> defaultTagsGeneratorForThrowable;
   private final TagsGeneratorRegistry tagsGeneratorRegistry;
   private final Boolean closeAndOpenOnlyForInitial;
-  private final ThreadLocal<MetricsImpl> metricsImplThreadLocal;
+  private final ContextStorage contextStorage;
+  private final ContextPropagator contextPropagator;
+  private final ThreadLocal<MetricsContextPool> metricsContextPool;
+  private final AtomicBoolean loggedNoMetrics;
+  private final MetricsConfigurationHolder configurationHolder;
+  private final MetricsImpl contextlessMetrics;
   private final Function<String, String> metricsName;
+  private final GaugeRegistry gaugeRegistry;
+  private final MetricsStats stats;
 
   private MetricFactory(final Builder builder) {
     this.clock = builder.clock;
-    this.metricPublisher = builder.metricPublisher;
+    this.stats = builder.statsName == null ? null : new MetricsStats().register(builder.statsName);
+    this.metricPublisher = stats == null ? builder.metricPublisher : stats.instrument(builder.metricPublisher);
     this.initialTags = builder.tags;
     this.defaultTagsGeneratorForThrowable = builder.defaultTagsGeneratorForThrowable;
     this.tagsGeneratorRegistry = builder.tagsGeneratorRegistry;
     this.closeAndOpenOnlyForInitial = builder.closeAndOpenOnlyForInitial;
-    this.metricsImplThreadLocal = new ThreadLocal<>();
+    this.contextStorage = builder.contextStorage;
+    this.contextPropagator = new ContextPropagator(contextStorage);
+    this.metricsContextPool = builder.contextPooling ? ThreadLocal.withInitial(MetricsContextPool::new) : null;
+    this.loggedNoMetrics = new AtomicBoolean(false);
+    this.configurationHolder = builder.configurationHolder;
     this.metricsName = builder.prefix == null ? Function.identity() : s -> builder.prefix + s;
-    LOGGER.info("MetricFactory({},{},{},{},{})",
-        clock, metricPublisher, initialTags, defaultTagsGeneratorForThrowable, tagsGeneratorRegistry);
+    // Used by increment() and time() outside a context. Shared by all threads, so only its read paths are used.
+    this.contextlessMetrics = createMetrics(initialTags);
+    this.gaugeRegistry = new GaugeRegistry(contextlessMetrics, initialTags, builder.gaugeInterval);
+    LOGGER.info("MetricFactory({},{},{},{},{},{},{})",
+        clock, metricPublisher, initialTags, defaultTagsGeneratorForThrowable, tagsGeneratorRegistry, contextStorage,
+        builder.contextPooling);
   }
 
   /**
@@ -53,21 +76,68 @@ public class MetricFactory implements Metrics {
 
   /**
    * Returns this thread's instance.HOWEVER, if there is no instance, will return a null metrics to not blow up. Will
-   * create a log message under info that a null was used.
+   * create a log message under info the first time a null was used, and under trace after that.
    *
    * @return the metrics
    */
   public Metrics metrics() {
-    final MetricsImpl metrics = metricsImplThreadLocal.get();
+    final MetricsImpl metrics = contextStorage.get();
     if (metrics == null) {
-      LOGGER.info("No metrics found, returning a null metrics");
+      if (loggedNoMetrics.compareAndSet(false, true)) {
+        LOGGER.info("No metrics found, returning a null metrics. Further occurrences are logged at trace.");
+      } else {
+        LOGGER.trace("No metrics found, returning a null metrics");
+      }
       return NULL_METRICS;
     }
     return metrics;
   }
 
+  /**
+   * Gives you wrappers for executors, runnables and futures that carry the current metrics to the
+   * thread running the work.
+   *
+   * @return the context propagator
+   */
+  public ContextPropagator contextPropagator() {
+    return contextPropagator;
+  }
+
+  /**
+   * The gauges of this factory. They are polled on a shared background thread, and published with
+   * the initial tags, outside any context.
+   *
+   * @return the gauge registry
+   */
+  public GaugeRegistry gauges() {
+    return gaugeRegistry;
+  }
+
+  /**
+   * The self instrumentation stats of this factory, if enabled with withStats() on the builder.
+   *
+   * @return the stats, or null if not enabled.
+   */
+  public MetricsStats stats() {
+    return stats;
+  }
+
+  /**
+   * Stops polling the gauges and unregisters the stats from JMX, if enabled. For factories that are
+   * replaced while the JVM keeps running, so they do not leave a polling task or an MXBean behind.
+   * Events can still be published through the factory afterwards.
+   */
+  public void close() {
+    LOGGER.info("close()");
+    gaugeRegistry.close();
+    if (stats != null) {
+      stats.unregister();
+    }
+  }
+
   private MetricsImpl createMetrics(final Tags tags) {
-    return new MetricsImpl(clock, metricPublisher, defaultTagsGeneratorForThrowable, tagsGeneratorRegistry, tags, metricsName);
+    return new MetricsImpl(clock, metricPublisher, defaultTagsGeneratorForThrowable, tagsGeneratorRegistry, tags, metricsName,
+        configurationHolder, stats);
   }
 
   /**
@@ -77,32 +147,68 @@ public class MetricFactory implements Metrics {
    * @return the metrics context
    */
   public MetricsContext enableMetricsContext() {
-    final MetricsImpl oldMetrics = metricsImplThreadLocal.get();
-    final Tags oldTags = oldMetrics == null ? initialTags : oldMetrics.getTags();
-    final MetricsImpl metrics = createMetrics(Tags.of(oldTags));
-    metricsImplThreadLocal.set(metrics);
+    final MetricsContext metricsContext = openMetricsContext();
+    metricsContext.previous = contextStorage.set(metricsContext.currentMetrics);
+    return metricsContext;
+  }
+
+  private MetricsContext openMetricsContext() {
+    final MetricsImpl oldMetrics = contextStorage.get();
+    final MetricsContext metricsContext;
+    if (metricsContextPool == null) {
+      final Tags oldTags = oldMetrics == null ? initialTags : oldMetrics.getTags();
+      metricsContext = new MetricsContext(oldMetrics, createMetrics(Tags.of(oldTags)));
+    } else {
+      metricsContext = metricsContextPool.get().acquire(this);
+      if (oldMetrics == null) {
+        metricsContext.currentMetrics.reset(initialTags);
+      } else {
+        metricsContext.currentMetrics.reset(oldMetrics);
+      }
+      metricsContext.reset(oldMetrics);
+    }
     if (!closeAndOpenOnlyForInitial || oldMetrics == null) {
-      metrics.open();
+      metricsContext.currentMetrics.open();
+    }
+    if (stats != null) {
+      stats.contextOpened();
+    }
+    return metricsContext;
+  }
+
+  private void closeMetricsContext(final MetricsContext metricsContext) {
+    metricsContext.released = true;
+    if (stats != null) {
+      stats.contextClosed();
+    }
+    if (!closeAndOpenOnlyForInitial || metricsContext.oldMetrics == null) {
+      metricsContext.currentMetrics.close();
+    }
+    // a context another thread has seen could still be in use there, so it is left to the garbage collector.
+    if (metricsContextPool != null && !metricsContext.currentMetrics.escaped()) {
+      metricsContext.currentMetrics.reset(initialTags);
+      metricsContext.clear();
+      metricsContextPool.get().release(metricsContext);
     }
-    return new MetricsContext(oldMetrics, metrics);
   }
 
   /**
    * Disables the metrics context. This closes up a metrics resetting the current thread context.
    * It is used internally to manage
    * the metric from within the with() method. If you use it, it is vital you close it. It is not thread safe.
+   * Disabling a context that was already disabled is ignored.
    *
    * @param metricsContext the metrics context
    */
   public void disableMetricsContext(final MetricsContext metricsContext) {
-    if (!closeAndOpenOnlyForInitial || metricsContext.oldMetrics == null) {
-      metricsContext.currentMetrics.close();
-    }
-    if (metricsContext.oldMetrics == null) {
-      metricsImplThreadLocal.remove();
-    } else {
-      metricsImplThreadLocal.set(metricsContext.oldMetrics);
+    if (metricsContext.released) {
+      LOGGER.warn("disableMetricsContext(): the context was already disabled, ignoring");
+      return;
     }
+    final MetricsImpl previous = metricsContext.previous;
+    metricsContext.previous = null;
+    contextStorage.restore(previous);
+    closeMetricsContext(metricsContext);
   }
 
   /**
@@ -113,29 +219,28 @@ public class MetricFactory implements Metrics {
    * @return the r
    */
   public <R> R with(final Function<Metrics, R> function) {
-    final MetricsContext metricsContext = enableMetricsContext();
+    final MetricsContext metricsContext = openMetricsContext();
+    final MetricsImpl metrics = metricsContext.currentMetrics;
     try {
-      return function.apply(metricsContext.currentMetrics);
+      return contextStorage.call(metrics, function);
     } finally {
-      disableMetricsContext(metricsContext);
+      closeMetricsContext(metricsContext);
     }
   }
 
   @Override
   public void increment(final String metricName, final long value, final Tags tags) {
-    if (metricsImplThreadLocal.get() != null) {
-      metrics().increment(metricName, value, tags);
+    final MetricsImpl metrics = contextStorage.get();
+    if (metrics != null) {
+      metrics.increment(metricName, value, tags);
     } else {
-      with(metrics -> {
-        metrics.increment(metricName, value, tags);
-        return null;
-      });
+      contextlessMetrics.increment(metricName, value, tags);
     }
   }
 
   @Override
   public Tags and(final Tags overrideTags) {
-    if (metricsImplThreadLocal.get() != null) {
+    if (contextStorage.get() != null) {
       return metrics().and(overrideTags);
     } else {
       return Tags.empty();
@@ -144,7 +249,7 @@ public class MetricFactory implements Metrics {
 
   @Override
   public Tags and(final String... overrideTags) {
-    if (metricsImplThreadLocal.get() != null) {
+    if (contextStorage.get() != null) {
       return metrics().and(overrideTags);
     } else {
       return Tags.empty();
@@ -157,24 +262,23 @@ public class MetricFactory implements Metrics {
                                          final TagsGenerator<R> tagsGeneratorForResult,
                                          final TagsGenerator<Throwable> tagsGeneratorForThrowable,
                                          final Tags tags) throws E {
-    if (metricsImplThreadLocal.get() != null) {
-      return metrics().time(metricName, supplier, tagsGeneratorForResult, tagsGeneratorForThrowable, tags);
+    final MetricsImpl metrics = contextStorage.get();
+    if (metrics != null) {
+      return metrics.time(metricName, supplier, tagsGeneratorForResult, tagsGeneratorForThrowable, tags);
     } else {
-      final AtomicReference<E> atomicReference = new AtomicReference<>();
-      final R r = with(metrics -> {
-        try {
-          return metrics.time(metricName, supplier, tagsGeneratorForResult, tagsGeneratorForThrowable, tags);
-        } catch (RuntimeException re) {
-          throw re; // Don't wrap runtime exceptions
-        } catch (Exception e) {
-          atomicReference.set((E) e); // it cannot really be anything else.
-          return null;
-        }
-      });
-      if (atomicReference.get() != null) {
-        throw atomicReference.get();
-      }
-      return r;
+      return contextlessMetrics.time(metricName, supplier, tagsGeneratorForResult, tagsGeneratorForThrowable, tags);
+    }
+  }
+
+  @Override
+  public <R extends CompletionStage<?>, E extends Exception> R timeAsync(final String metricName,
+                                                                        final CheckedSupplier<R, E> supplier,
+                                                                        final Tags tags) throws E {
+    final MetricsImpl metrics = contextStorage.get();
+    if (metrics != null) {
+      return metrics.timeAsync(metricName, supplier, tags);
+    } else {
+      return contextlessMetrics.timeAsync(metricName, supplier, tags);
     }
   }
 
@@ -183,14 +287,21 @@ public class MetricFactory implements Metrics {
     metrics().publishTime(metricName, duration, tags);
   }
 
+  @Override
+  public void publishGauge(final String metricName, final double value, final Tags tags) {
+    contextlessMetrics.publishGauge(metricName, value, tags);
+  }
+
   /**
    * Used to store the metrics for the current thread.
    */
   public static class MetricsContext {
 
-    private final MetricsImpl oldMetrics;
     private final MetricsImpl currentMetrics;
-    private final long start;
+    private MetricsImpl oldMetrics;
+    private long start;
+    private MetricsImpl previous;
+    private boolean released;
 
     /**
      * Instantiates a new Metrics context.
@@ -213,6 +324,43 @@ public class MetricFactory implements Metrics {
     public Duration duration() {
       return Duration.ofMillis(currentMetrics.clock().millis() - start);
     }
+
+    private void reset(final MetricsImpl oldMetrics) {
+      this.oldMetrics = oldMetrics;
+      this.start = currentMetrics.clock().millis();
+      this.released = false;
+    }
+
+    private void clear() {
+      this.oldMetrics = null;
+      this.previous = null;
+    }
+  }
+
+  /**
+   * Per-thread pool of contexts so entering and exiting a context does not allocate once warmed up.
+   */
+  private static final class MetricsContextPool {
+
+    private static final int MAX_POOLED = 16;
+
+    private final MetricsContext[] free = new MetricsContext[MAX_POOLED];
+    private int size = 0;
+
+    private MetricsContext acquire(final MetricFactory metricFactory) {
+      if (size == 0) {
+        return new MetricsContext(null, metricFactory.createMetrics(metricFactory.initialTags));
+      }
+      final MetricsContext metricsContext = free[--size];
+      free[size] = null;
+      return metricsContext;
+    }
+
+    private void release(final MetricsContext metricsContext) {
+      if (size < MAX_POOLED) {
+        free[size++] = metricsContext;
+      }
+    }
   }
 
   /**
@@ -231,6 +379,11 @@ public class MetricFactory implements Metrics {
     private TagsGeneratorRegistry tagsGeneratorRegistry = new TagsGeneratorRegistry();
     private Boolean closeAndOpenOnlyForInitial = true;
     private String prefix = null;
+    private ContextStorage contextStorage = ContextStorage.threadLocal();
+    private Boolean contextPooling = false;
+    private MetricsConfigurationHolder configurationHolder = null;
+    private Duration gaugeInterval = GaugeRegistry.DEFAULT_INTERVAL;
+    private String statsName = null;
 
     private Builder() {
     }
@@ -257,6 +410,20 @@ public class MetricFactory implements Metrics {
       return this;
     }
 
+    /**
+     * With stats builder. Counts and times what the library does, and registers the stats as an
+     * MXBean named com.codeheadsystems.metrics:type=MetricsStats,name=[statsName]. Off by default,
+     * since timing each publisher call costs two clock reads.
+     *
+     * @param statsName the name to register the stats under, or null for none.
+     * @return the builder
+     */
+    public Builder withStats(final String statsName) {
+      LOGGER.info("withStats({})", statsName);
+      this.statsName = statsName;
+      return this;
+    }
+
     /**
      * With clock builder.
      *
@@ -269,6 +436,61 @@ public class MetricFactory implements Metrics {
       return this;
     }
 
+    /**
+     * With context storage builder. Use ContextStorage.scopedValue() for virtual threads and
+     * structured concurrency. Defaults to ContextStorage.threadLocal().
+     *
+     * @param contextStorage the context storage
+     * @return the builder
+     */
+    public Builder withContextStorage(final ContextStorage contextStorage) {
+      LOGGER.info("withContextStorage({})", contextStorage);
+      this.contextStorage = contextStorage;
+      return this;
+    }
+
+    /**
+     * With context pooling builder. When enabled, each thread reuses its metrics instances across
+     * contexts, so entering and exiting a context does not allocate once warmed up. Do not hold on
+     * to the metrics instance after its context exits. Work handed to the context propagator gets
+     * its own copy, and a context seen by another thread, like a StructuredTaskScope fork, is not
+     * reused. Defaults to false.
+     *
+     * @param contextPooling the context pooling
+     * @return the builder
+     */
+    public Builder withContextPooling(final Boolean contextPooling) {
+      LOGGER.info("withContextPooling({})", contextPooling);
+      this.contextPooling = contextPooling;
+      return this;
+    }
+
+    /**
+     * With runtime configuration builder. The configuration in the holder is checked for every event,
+     * so it can be changed without rebuilding the factory. See MetricsConfigurationWatcher to reload it
+     * from a file.
+     *
+     * @param configurationHolder the configuration holder
+     * @return the builder
+     */
+    public Builder withConfiguration(final MetricsConfigurationHolder configurationHolder) {
+      LOGGER.info("withConfiguration({})", configurationHolder);
+      this.configurationHolder = configurationHolder;
+      return this;
+    }
+
+    /**
+     * With gauge interval builder. How often the gauges are polled. Defaults to 10 seconds.
+     *
+     * @param gaugeInterval the gauge interval
+     * @return the builder
+     */
+    public Builder withGaugeInterval(final Duration gaugeInterval) {
+      LOGGER.info("withGaugeInterval({})", gaugeInterval);
+      this.gaugeInterval = gaugeInterval;
+      return this;
+    }
+
     /**
      * With clock builder.
      *
@@ -330,6 +552,19 @@ public class MetricFactory implements Metrics {
       return this;
     }
 
+    /**
+     * With exception classifier builder. Sets the default tags generator for throwable to the classifier,
+     * which tags failures from precomputed tags per exception class.
+     *
+     * @param exceptionClassifier the exception classifier
+     * @return the builder
+     */
+    public Builder withExceptionClassifier(final ExceptionClassifier exceptionClassifier) {
+      LOGGER.info("withExceptionClassifier({})", exceptionClassifier);
+      this.defaultTagsGeneratorForThrowable = exceptionClassifier;
+      return this;
+    }
+
     /**
      * With tags generator registry builder.
      *
@@ -1,6 +1,7 @@
 package com.codeheadsystems.metrics;
 
 import java.time.Duration;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Metric interface.
@@ -154,6 +155,26 @@ public interface Metrics {
     return time(metricName, supplier, Tags.of(tags));
   }
 
+  /**
+   * Times an asynchronous action. The time is recorded when the returned stage completes, not when
+   * the supplier returns it. The tags, including the ones in the current context, are taken when this
+   * is called since the stage may complete on another thread. The default implementation only times
+   * the supplier.
+   *
+   * @param metricName to store the time.
+   * @param supplier   which is called to get the stage.
+   * @param tags       optional tags you may want to include.
+   * @param <R>        the type of stage from the supplier.
+   * @param <E>        the exception the supplier can throw.
+   * @return the stage from the supplier, unchanged.
+   * @throws E if the supplier throws an exception.
+   */
+  default <R extends CompletionStage<?>, E extends Exception> R timeAsync(String metricName,
+                                                                         CheckedSupplier<R, E> supplier,
+                                                                         Tags tags) throws E {
+    return time(metricName, supplier, tags);
+  }
+
   /**
    * Allows to set the time metric manually instead of using the helpers.
    *
@@ -163,5 +184,15 @@ public interface Metrics {
    */
   void publishTime(String metricName, Duration duration, Tags tags);
 
+  /**
+   * Publish the value of a gauge. Normally done for you by the gauge registry of the MetricFactory.
+   *
+   * @param metricName of the gauge.
+   * @param value      the value.
+   * @param tags       the tags, used as is.
+   */
+  default void publishGauge(String metricName, double value, Tags tags) {
+  }
+
 
 }
@@ -69,12 +69,15 @@ public class Tags {
   }
 
   /**
-   * Adds the tags into this tags. Changes this object.
+   * Adds the tags into this tags. Changes this object. Null is the same as no tags.
    *
    * @param tags to add.
    * @return this.
    */
   public Tags add(final String... tags) {
+    if (tags == null) {
+      return this;
+    }
     if (tags.length % 2 != 0) {
       throw new IllegalArgumentException("Tags must be in key value pairs");
     }
@@ -85,12 +88,15 @@ public class Tags {
   }
 
   /**
-   * Adds the tags into this tags. Changes this object.
+   * Adds the tags into this tags. Changes this object. Null is the same as no tags.
    *
    * @param tags to add.
    * @return this.
    */
   public Tags add(final Tags tags) {
+    if (tags == null) {
+      return this;
+    }
     this.tags.putAll(tags.getTags());
     return this;
   }
@@ -0,0 +1,141 @@
+package com.codeheadsystems.metrics.config;
+
+import com.codeheadsystems.metrics.Tags;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable runtime rule for a metric: if it is enabled, how often it is sampled, and which tags
+ * it can publish.
+ */
+public class MetricRule {
+
+  /**
+   * Publishes everything.
+   */
+  public static final MetricRule DEFAULT = new MetricRule(true, 1.0, Set.of(), Set.of());
+
+  private final boolean enabled;
+  private final double sampleRate;
+  private final Set<String> allowedTags;
+  private final Set<String> deniedTags;
+  private final boolean filterTags;
+
+  /**
+   * Instantiates a new Metric rule.
+   *
+   * @param enabled     if the metric is published at all.
+   * @param sampleRate  between 0.0 and 1.0, the fraction of events published.
+   * @param allowedTags if not empty, only these tag keys are published.
+   * @param deniedTags  tag keys never published.
+   */
+  public MetricRule(final boolean enabled,
+                    final double sampleRate,
+                    final Set<String> allowedTags,
+                    final Set<String> deniedTags) {
+    if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+      throw new IllegalArgumentException("sampleRate must be between 0.0 and 1.0: " + sampleRate);
+    }
+    this.enabled = enabled;
+    this.sampleRate = sampleRate;
+    this.allowedTags = Set.copyOf(allowedTags);
+    this.deniedTags = Set.copyOf(deniedTags);
+    this.filterTags = !this.allowedTags.isEmpty() || !this.deniedTags.isEmpty();
+  }
+
+  /**
+   * True if this event should be published, taking the enabled flag and sample rate into account.
+   *
+   * @return the boolean.
+   */
+  public boolean shouldPublish() {
+    if (!enabled) {
+      return false;
+    }
+    return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * Applies the allow and deny lists to the tags. Returns the same tags if there is nothing to filter.
+   *
+   * @param tags to filter.
+   * @return the filtered tags.
+   */
+  public Tags filter(final Tags tags) {
+    if (!filterTags || tags == null) {
+      return tags;
+    }
+    final Tags filtered = Tags.empty();
+    for (Map.Entry<String, String> entry : tags.getTags().entrySet()) {
+      final String key = entry.getKey();
+      if ((allowedTags.isEmpty() || allowedTags.contains(key)) && !deniedTags.contains(key)) {
+        filtered.add(key, entry.getValue());
+      }
+    }
+    return filtered;
+  }
+
+  /**
+   * Is enabled boolean.
+   *
+   * @return the boolean
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets sample rate.
+   *
+   * @return the sample rate
+   */
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Gets allowed tags.
+   *
+   * @return the allowed tags
+   */
+  public Set<String> getAllowedTags() {
+    return allowedTags;
+  }
+
+  /**
+   * Gets denied tags.
+   *
+   * @return the denied tags
+   */
+  public Set<String> getDeniedTags() {
+    return deniedTags;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final MetricRule that = (MetricRule) o;
+    return enabled == that.enabled
+        && Double.compare(that.sampleRate, sampleRate) == 0
+        && allowedTags.equals(that.allowedTags)
+        && deniedTags.equals(that.deniedTags);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(enabled, sampleRate, allowedTags, deniedTags);
+  }
+
+  @Override
+  public String toString() {
+    return "MetricRule{" + "enabled=" + enabled + ", sampleRate=" + sampleRate
+        + ", allowedTags=" + allowedTags + ", deniedTags=" + deniedTags + '}';
+  }
+}
@@ -0,0 +1,151 @@
+package com.codeheadsystems.metrics.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, compiled runtime configuration. Looking up the rule for a metric is a single hash lookup.
+ * The properties format is:
+ * <pre>
+ * prefix=myservice.
+ * default.enabled=true
+ * default.sampleRate=1.0
+ * default.tags.deny=requestId
+ * metric.some.noisy.metric.enabled=false
+ * metric.another.metric.sampleRate=0.1
+ * metric.another.metric.tags.allow=region,status
+ * </pre>
+ * Metric settings not given use the default ones. Metric names are before the prefix is applied.
+ */
+public class MetricsConfiguration {
+
+  /**
+   * Configuration that publishes everything and does not change names.
+   */
+  public static final MetricsConfiguration EMPTY = new MetricsConfiguration(null, MetricRule.DEFAULT, Map.of());
+
+  private static final String PREFIX = "prefix";
+  private static final String DEFAULT = "default";
+  private static final String METRIC = "metric.";
+  private static final String ENABLED = ".enabled";
+  private static final String SAMPLE_RATE = ".sampleRate";
+  private static final String TAGS_ALLOW = ".tags.allow";
+  private static final String TAGS_DENY = ".tags.deny";
+  private static final String[] SUFFIXES = {ENABLED, SAMPLE_RATE, TAGS_ALLOW, TAGS_DENY};
+
+  private final String prefix;
+  private final MetricRule defaultRule;
+  private final Map<String, MetricRule> rules;
+
+  /**
+   * Instantiates a new Metrics configuration.
+   *
+   * @param prefix      to put in front of all metric names, or null to use the factory one.
+   * @param defaultRule the rule for metrics without their own.
+   * @param rules       the rules by metric name.
+   */
+  public MetricsConfiguration(final String prefix,
+                              final MetricRule defaultRule,
+                              final Map<String, MetricRule> rules) {
+    this.prefix = prefix;
+    this.defaultRule = defaultRule;
+    this.rules = Map.copyOf(rules);
+  }
+
+  /**
+   * Reads the configuration from the properties format.
+   *
+   * @param reader to read from.
+   * @return the configuration.
+   * @throws IOException if the reader fails.
+   */
+  public static MetricsConfiguration parse(final Reader reader) throws IOException {
+    final Properties properties = new Properties();
+    properties.load(reader);
+    return parse(properties);
+  }
+
+  /**
+   * Compiles the configuration from properties.
+   *
+   * @param properties to compile.
+   * @return the configuration.
+   */
+  public static MetricsConfiguration parse(final Properties properties) {
+    final MetricRule defaultRule = rule(properties, DEFAULT, MetricRule.DEFAULT);
+    final Map<String, MetricRule> rules = new HashMap<>();
+    for (String key : properties.stringPropertyNames()) {
+      if (key.startsWith(METRIC)) {
+        final String name = metricName(key);
+        if (name == null) {
+          throw new IllegalArgumentException("Unknown metric setting: " + key);
+        }
+        rules.computeIfAbsent(name, n -> rule(properties, METRIC + n, defaultRule));
+      } else if (!key.equals(PREFIX) && !key.startsWith(DEFAULT + ".")) {
+        throw new IllegalArgumentException("Unknown setting: " + key);
+      }
+    }
+    final String prefix = properties.getProperty(PREFIX);
+    return new MetricsConfiguration(prefix == null || prefix.isEmpty() ? null : prefix, defaultRule, rules);
+  }
+
+  private static String metricName(final String key) {
+    for (String suffix : SUFFIXES) {
+      if (key.endsWith(suffix) && key.length() > METRIC.length() + suffix.length()) {
+        return key.substring(METRIC.length(), key.length() - suffix.length());
+      }
+    }
+    return null;
+  }
+
+  private static MetricRule rule(final Properties properties, final String base, final MetricRule parent) {
+    final String enabled = properties.getProperty(base + ENABLED);
+    final String sampleRate = properties.getProperty(base + SAMPLE_RATE);
+    final String allow = properties.getProperty(base + TAGS_ALLOW);
+    final String deny = properties.getProperty(base + TAGS_DENY);
+    return new MetricRule(
+        enabled == null ? parent.isEnabled() : Boolean.parseBoolean(enabled.trim()),
+        sampleRate == null ? parent.getSampleRate() : Double.parseDouble(sampleRate.trim()),
+        allow == null ? parent.getAllowedTags() : split(allow),
+        deny == null ? parent.getDeniedTags() : split(deny));
+  }
+
+  private static Set<String> split(final String value) {
+    return Arrays.stream(value.split(","))
+        .map(String::trim)
+        .filter(s -> !s.isEmpty())
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Gets the rule for the metric.
+   *
+   * @param metricName the metric name, before any prefix.
+   * @return the rule, never null.
+   */
+  public MetricRule rule(final String metricName) {
+    final MetricRule rule = rules.get(metricName);
+    return rule == null ? defaultRule : rule;
+  }
+
+  /**
+   * Gets prefix.
+   *
+   * @return the prefix, or null if the factory one is used.
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  @Override
+  public String toString() {
+    return "MetricsConfiguration{" + "prefix='" + prefix + '\'' + ", defaultRule=" + defaultRule
+        + ", rules=" + rules + '}';
+  }
+}
@@ -0,0 +1,49 @@
+package com.codeheadsystems.metrics.config;
+
+/**
+ * Holds the active runtime configuration. The configuration is swapped as a whole, so readers
+ * see either the old or the new one with a single volatile read.
+ */
+public class MetricsConfigurationHolder {
+
+  private volatile MetricsConfiguration configuration;
+
+  /**
+   * Instantiates a new holder with the empty configuration.
+   */
+  public MetricsConfigurationHolder() {
+    this(MetricsConfiguration.EMPTY);
+  }
+
+  /**
+   * Instantiates a new holder.
+   *
+   * @param configuration to start with.
+   */
+  public MetricsConfigurationHolder(final MetricsConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Gets the active configuration.
+   *
+   * @return the configuration.
+   */
+  public MetricsConfiguration get() {
+    return configuration;
+  }
+
+  /**
+   * Replaces the active configuration.
+   *
+   * @param configuration the new configuration.
+   */
+  public void set(final MetricsConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public String toString() {
+    return "MetricsConfigurationHolder{" + "configuration=" + configuration + '}';
+  }
+}
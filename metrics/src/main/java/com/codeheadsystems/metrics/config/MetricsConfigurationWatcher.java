@@ -0,0 +1,102 @@
+package com.codeheadsystems.metrics.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a configuration file and swaps the compiled configuration into the holder whenever the
+ * file changes. If the file is missing or fails to parse, the previous configuration stays active.
+ */
+public class MetricsConfigurationWatcher implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsConfigurationWatcher.class);
+
+  private final Path file;
+  private final MetricsConfigurationHolder holder;
+  private final WatchService watchService;
+  private final Thread thread;
+
+  /**
+   * Loads the file into the holder and starts watching it.
+   *
+   * @param file   the properties file, see MetricsConfiguration for the format.
+   * @param holder to update.
+   * @throws IOException if the directory cannot be watched.
+   */
+  public MetricsConfigurationWatcher(final Path file, final MetricsConfigurationHolder holder) throws IOException {
+    LOGGER.info("MetricsConfigurationWatcher({},{})", file, holder);
+    this.file = file.toAbsolutePath();
+    this.holder = holder;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.file.getParent().register(watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+    reload();
+    this.thread = new Thread(this::watch, "metrics-config-watcher");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Reads the file and swaps it in if it parses.
+   *
+   * @return true if the configuration was replaced.
+   */
+  public boolean reload() {
+    if (!Files.isRegularFile(file)) {
+      LOGGER.warn("reload(): {} does not exist, keeping the current configuration", file);
+      return false;
+    }
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      final MetricsConfiguration configuration = MetricsConfiguration.parse(reader);
+      holder.set(configuration);
+      LOGGER.info("reload(): {}", configuration);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("reload(): unable to load {}, keeping the current configuration", file, e);
+      return false;
+    }
+  }
+
+  private void watch() {
+    final Path fileName = file.getFileName();
+    try {
+      while (true) {
+        final WatchKey key = watchService.take();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (fileName.equals(event.context()) || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            changed = true;
+          }
+        }
+        if (changed) {
+          reload();
+        }
+        if (!key.reset()) {
+          LOGGER.warn("watch(): {} is no longer watchable", file.getParent());
+          return;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      LOGGER.debug("watch(): stopped");
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    LOGGER.info("close()");
+    watchService.close();
+    thread.interrupt();
+  }
+}
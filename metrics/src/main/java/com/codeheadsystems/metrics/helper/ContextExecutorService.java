@@ -0,0 +1,117 @@
+package com.codeheadsystems.metrics.helper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Executor service that runs tasks with the metrics context that was current when they were submitted.
+ */
+public class ContextExecutorService implements ExecutorService {
+
+  /**
+   * Used to wrap the tasks.
+   */
+  protected final ContextPropagator contextPropagator;
+  private final ExecutorService delegate;
+
+  /**
+   * Instantiates a new Context executor service.
+   *
+   * @param contextPropagator to wrap the tasks.
+   * @param delegate          the executor service that runs the tasks.
+   */
+  public ContextExecutorService(final ContextPropagator contextPropagator, final ExecutorService delegate) {
+    this.contextPropagator = contextPropagator;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    delegate.execute(contextPropagator.wrap(command));
+  }
+
+  @Override
+  public <T> Future<T> submit(final Callable<T> task) {
+    return delegate.submit(contextPropagator.wrap(task));
+  }
+
+  @Override
+  public <T> Future<T> submit(final Runnable task, final T result) {
+    return delegate.submit(contextPropagator.wrap(task), result);
+  }
+
+  @Override
+  public Future<?> submit(final Runnable task) {
+    return delegate.submit(contextPropagator.wrap(task));
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) throws InterruptedException {
+    return delegate.invokeAll(wrap(tasks));
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks,
+                                       final long timeout,
+                                       final TimeUnit unit) throws InterruptedException {
+    return delegate.invokeAll(wrap(tasks), timeout, unit);
+  }
+
+  @Override
+  public <T> T invokeAny(final Collection<? extends Callable<T>> tasks)
+      throws InterruptedException, ExecutionException {
+    return delegate.invokeAny(wrap(tasks));
+  }
+
+  @Override
+  public <T> T invokeAny(final Collection<? extends Callable<T>> tasks,
+                         final long timeout,
+                         final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    return delegate.invokeAny(wrap(tasks), timeout, unit);
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+
+  private <T> List<Callable<T>> wrap(final Collection<? extends Callable<T>> tasks) {
+    final List<Callable<T>> wrapped = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      wrapped.add(contextPropagator.wrap(task));
+    }
+    return wrapped;
+  }
+
+  @Override
+  public String toString() {
+    return "ContextExecutorService{" + "delegate=" + delegate + '}';
+  }
+}
@@ -0,0 +1,222 @@
+package com.codeheadsystems.metrics.helper;
+
+import com.codeheadsystems.metrics.impl.ContextStorage;
+import com.codeheadsystems.metrics.impl.MetricsImpl;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Captures the current metrics when work is submitted, and makes it current on the thread that
+ * runs the work. If there is no current metrics at submission, the task is returned as is.
+ *
+ * <p>The worker gets its own metrics with the tags at submission, so tags added by the worker are
+ * not seen by the submitting thread, and tags the submitting thread adds after submission are not
+ * seen by the worker. The tags are only copied by the side that changes them first, so wrapping
+ * allocates the worker's metrics and the wrapper, not a copy of the tags. The submitting context still owns the open/close of the
+ * publisher, so work that outlives it will publish after the context was closed.
+ */
+public class ContextPropagator {
+
+  private final ContextStorage contextStorage;
+
+  /**
+   * Instantiates a new Context propagator.
+   *
+   * @param contextStorage where the current metrics are kept.
+   */
+  public ContextPropagator(final ContextStorage contextStorage) {
+    this.contextStorage = contextStorage;
+  }
+
+  /**
+   * Wrap a runnable with the current context.
+   *
+   * @param runnable to wrap.
+   * @return the runnable.
+   */
+  public Runnable wrap(final Runnable runnable) {
+    final MetricsImpl metrics = contextStorage.get();
+    return metrics == null ? runnable : new ContextRunnable(contextStorage, metrics.child(), runnable);
+  }
+
+  /**
+   * Wrap a callable with the current context.
+   *
+   * @param callable to wrap.
+   * @param <T>      the result type.
+   * @return the callable.
+   */
+  public <T> Callable<T> wrap(final Callable<T> callable) {
+    final MetricsImpl metrics = contextStorage.get();
+    return metrics == null ? callable : new ContextCallable<>(contextStorage, metrics.child(), callable);
+  }
+
+  /**
+   * Wrap a supplier with the current context.
+   *
+   * @param supplier to wrap.
+   * @param <T>      the result type.
+   * @return the supplier.
+   */
+  public <T> Supplier<T> wrapSupplier(final Supplier<T> supplier) {
+    final MetricsImpl metrics = contextStorage.get();
+    return metrics == null ? supplier : new ContextSupplier<>(contextStorage, metrics.child(), supplier);
+  }
+
+  /**
+   * Wrap an executor so tasks run with the context current at submission.
+   *
+   * @param executor to wrap.
+   * @return the executor.
+   */
+  public Executor wrap(final Executor executor) {
+    return command -> executor.execute(wrap(command));
+  }
+
+  /**
+   * Wrap an executor service so tasks run with the context current at submission.
+   *
+   * @param executorService to wrap.
+   * @return the executor service.
+   */
+  public ExecutorService wrap(final ExecutorService executorService) {
+    return new ContextExecutorService(this, executorService);
+  }
+
+  /**
+   * Wrap a scheduled executor service so tasks run with the context current at submission.
+   *
+   * @param scheduledExecutorService to wrap.
+   * @return the scheduled executor service.
+   */
+  public ScheduledExecutorService wrap(final ScheduledExecutorService scheduledExecutorService) {
+    return new ContextScheduledExecutorService(this, scheduledExecutorService);
+  }
+
+  /**
+   * Same as CompletableFuture.supplyAsync() but with the current context.
+   *
+   * @param supplier to call.
+   * @param <T>      the result type.
+   * @return the future.
+   */
+  public <T> CompletableFuture<T> supplyAsync(final Supplier<T> supplier) {
+    return CompletableFuture.supplyAsync(wrapSupplier(supplier));
+  }
+
+  /**
+   * Same as CompletableFuture.supplyAsync() but with the current context.
+   *
+   * @param supplier to call.
+   * @param executor to run in.
+   * @param <T>      the result type.
+   * @return the future.
+   */
+  public <T> CompletableFuture<T> supplyAsync(final Supplier<T> supplier, final Executor executor) {
+    return CompletableFuture.supplyAsync(wrapSupplier(supplier), executor);
+  }
+
+  /**
+   * Same as CompletableFuture.runAsync() but with the current context.
+   *
+   * @param runnable to run.
+   * @return the future.
+   */
+  public CompletableFuture<Void> runAsync(final Runnable runnable) {
+    return CompletableFuture.runAsync(wrap(runnable));
+  }
+
+  /**
+   * Same as CompletableFuture.runAsync() but with the current context.
+   *
+   * @param runnable to run.
+   * @param executor to run in.
+   * @return the future.
+   */
+  public CompletableFuture<Void> runAsync(final Runnable runnable, final Executor executor) {
+    return CompletableFuture.runAsync(wrap(runnable), executor);
+  }
+
+  /**
+   * Runnable that makes the captured copy of the metrics current.
+   */
+  static final class ContextRunnable implements Runnable {
+
+    private final ContextStorage contextStorage;
+    private final MetricsImpl metrics;
+    private final Runnable delegate;
+
+    ContextRunnable(final ContextStorage contextStorage, final MetricsImpl metrics, final Runnable delegate) {
+      this.contextStorage = contextStorage;
+      this.metrics = metrics;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void run() {
+      final MetricsImpl previous = contextStorage.set(metrics);
+      try {
+        delegate.run();
+      } finally {
+        contextStorage.restore(previous);
+      }
+    }
+  }
+
+  /**
+   * Callable that makes the captured copy of the metrics current.
+   */
+  static final class ContextCallable<T> implements Callable<T> {
+
+    private final ContextStorage contextStorage;
+    private final MetricsImpl metrics;
+    private final Callable<T> delegate;
+
+    ContextCallable(final ContextStorage contextStorage, final MetricsImpl metrics, final Callable<T> delegate) {
+      this.contextStorage = contextStorage;
+      this.metrics = metrics;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public T call() throws Exception {
+      final MetricsImpl previous = contextStorage.set(metrics);
+      try {
+        return delegate.call();
+      } finally {
+        contextStorage.restore(previous);
+      }
+    }
+  }
+
+  /**
+   * Supplier that makes the captured copy of the metrics current.
+   */
+  static final class ContextSupplier<T> implements Supplier<T> {
+
+    private final ContextStorage contextStorage;
+    private final MetricsImpl metrics;
+    private final Supplier<T> delegate;
+
+    ContextSupplier(final ContextStorage contextStorage, final MetricsImpl metrics, final Supplier<T> delegate) {
+      this.contextStorage = contextStorage;
+      this.metrics = metrics;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public T get() {
+      final MetricsImpl previous = contextStorage.set(metrics);
+      try {
+        return delegate.get();
+      } finally {
+        contextStorage.restore(previous);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,54 @@
+package com.codeheadsystems.metrics.helper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled executor service that runs tasks with the metrics context that was current when they
+ * were scheduled. Periodic tasks reuse that context for every run.
+ */
+public class ContextScheduledExecutorService extends ContextExecutorService implements ScheduledExecutorService {
+
+  private final ScheduledExecutorService delegate;
+
+  /**
+   * Instantiates a new Context scheduled executor service.
+   *
+   * @param contextPropagator to wrap the tasks.
+   * @param delegate          the scheduled executor service that runs the tasks.
+   */
+  public ContextScheduledExecutorService(final ContextPropagator contextPropagator,
+                                         final ScheduledExecutorService delegate) {
+    super(contextPropagator, delegate);
+    this.delegate = delegate;
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
+    return delegate.schedule(contextPropagator.wrap(command), delay, unit);
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit) {
+    return delegate.schedule(contextPropagator.wrap(callable), delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command,
+                                                final long initialDelay,
+                                                final long period,
+                                                final TimeUnit unit) {
+    return delegate.scheduleAtFixedRate(contextPropagator.wrap(command), initialDelay, period, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command,
+                                                   final long initialDelay,
+                                                   final long delay,
+                                                   final TimeUnit unit) {
+    return delegate.scheduleWithFixedDelay(contextPropagator.wrap(command), initialDelay, delay, unit);
+  }
+
+}
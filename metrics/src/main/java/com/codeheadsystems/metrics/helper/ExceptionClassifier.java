@@ -0,0 +1,159 @@
+package com.codeheadsystems.metrics.helper;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.TagsGenerator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tags generator for exceptions that maps exception types to tags computed up front. The exception
+ * and its causes are checked, outermost first, up to the max depth. The first one whose class (or a
+ * superclass) is mapped wins. If none are mapped, the simple class name of the outermost exception
+ * is used. Results are cached per class, so classifying only allocates the tags returned, which
+ * are the caller's to change.
+ */
+public class ExceptionClassifier implements TagsGenerator<Throwable> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExceptionClassifier.class);
+  // its own instance, so a class mapped to no tags is not mistaken for an unmapped one.
+  private static final Map<String, String> NONE = Collections.unmodifiableMap(new HashMap<>());
+
+  private final Map<Class<? extends Throwable>, Map<String, String>> mappings;
+  private final int maxDepth;
+  private final String classNameTag;
+  private final ClassValue<Map<String, String>> mapped;
+  private final ClassValue<Map<String, String>> unmapped;
+
+  private ExceptionClassifier(final Builder builder) {
+    this.mappings = Map.copyOf(builder.mappings);
+    this.maxDepth = builder.maxDepth;
+    this.classNameTag = builder.classNameTag;
+    this.mapped = new ClassValue<>() {
+      @Override
+      protected Map<String, String> computeValue(final Class<?> type) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+          final Map<String, String> tags = mappings.get(clazz);
+          if (tags != null) {
+            return tags;
+          }
+        }
+        return NONE;
+      }
+    };
+    this.unmapped = new ClassValue<>() {
+      @Override
+      protected Map<String, String> computeValue(final Class<?> type) {
+        return classNameTag == null ? NONE : Map.of(classNameTag, type.getSimpleName());
+      }
+    };
+    LOGGER.info("ExceptionClassifier({},{},{})", mappings, maxDepth, classNameTag);
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public Tags from(final Throwable throwable) {
+    if (throwable == null) {
+      return Tags.empty();
+    }
+    Throwable current = throwable;
+    for (int depth = 0; current != null && depth <= maxDepth; depth++) {
+      final Map<String, String> tags = mapped.get(current.getClass());
+      if (tags != NONE) {
+        return new Tags(tags);
+      }
+      final Throwable cause = current.getCause();
+      current = cause == current ? null : cause;
+    }
+    return new Tags(unmapped.get(throwable.getClass()));
+  }
+
+  @Override
+  public String toString() {
+    return "ExceptionClassifier{" + "mappings=" + mappings + ", maxDepth=" + maxDepth
+        + ", classNameTag='" + classNameTag + '\'' + '}';
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private final Map<Class<? extends Throwable>, Map<String, String>> mappings = new HashMap<>();
+    private int maxDepth = 5;
+    private String classNameTag = "exception";
+
+    private Builder() {
+    }
+
+    /**
+     * With mapping builder. The tags are used for this class and its subclasses.
+     *
+     * @param clazz the exception class
+     * @param tags  the tags
+     * @return the builder
+     */
+    public Builder withMapping(final Class<? extends Throwable> clazz, final Tags tags) {
+      this.mappings.put(clazz, Map.copyOf(tags.getTags()));
+      return this;
+    }
+
+    /**
+     * With mapping builder. The tags are used for this class and its subclasses.
+     *
+     * @param clazz the exception class
+     * @param tags  the tags
+     * @return the builder
+     */
+    public Builder withMapping(final Class<? extends Throwable> clazz, final String... tags) {
+      this.mappings.put(clazz, Map.copyOf(Tags.of(tags).getTags()));
+      return this;
+    }
+
+    /**
+     * With max depth builder. How many causes are checked after the exception itself. Defaults to 5.
+     *
+     * @param maxDepth the max depth
+     * @return the builder
+     */
+    public Builder withMaxDepth(final int maxDepth) {
+      if (maxDepth < 0) {
+        throw new IllegalArgumentException("maxDepth cannot be negative: " + maxDepth);
+      }
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * With class name tag builder. The tag key used with the simple class name when nothing is mapped.
+     * Defaults to 'exception'. Set to null for no tags.
+     *
+     * @param classNameTag the class name tag
+     * @return the builder
+     */
+    public Builder withClassNameTag(final String classNameTag) {
+      this.classNameTag = classNameTag;
+      return this;
+    }
+
+    /**
+     * Build exception classifier.
+     *
+     * @return the exception classifier
+     */
+    public ExceptionClassifier build() {
+      return new ExceptionClassifier(this);
+    }
+  }
+
+}
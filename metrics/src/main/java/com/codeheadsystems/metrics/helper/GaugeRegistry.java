@@ -0,0 +1,231 @@
+package com.codeheadsystems.metrics.helper;
+
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls gauges and publishes their values. All registries share one daemon thread, and polling
+ * starts with the first gauge registered.
+ *
+ * <p>Gauges registered with an owner only hold it weakly, so they are dropped once the owner is
+ * garbage collected. The tags of each gauge are worked out when it is registered, so a poll is just
+ * a call to each gauge function and the publisher.
+ */
+public class GaugeRegistry implements AutoCloseable {
+
+  /**
+   * How often gauges are polled unless set.
+   */
+  public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GaugeRegistry.class);
+  private static final Gauge[] NO_GAUGES = new Gauge[0];
+
+  private final Metrics metrics;
+  private final Tags baseTags;
+  private final Duration interval;
+  private volatile Gauge[] gauges = NO_GAUGES;
+  private ScheduledFuture<?> polling;
+
+  /**
+   * Instantiates a new Gauge registry.
+   *
+   * @param metrics  to publish the gauges with.
+   * @param baseTags added to the tags of every gauge.
+   * @param interval how often to poll.
+   */
+  public GaugeRegistry(final Metrics metrics, final Tags baseTags, final Duration interval) {
+    LOGGER.info("GaugeRegistry({},{},{})", metrics, baseTags, interval);
+    this.metrics = metrics;
+    this.baseTags = baseTags;
+    this.interval = interval;
+  }
+
+  /**
+   * Register a gauge read from the owner, which is only held weakly. Do not capture the owner in the
+   * function, or it will never be collected.
+   *
+   * @param <T>        the type of owner.
+   * @param metricName of the gauge.
+   * @param owner      to read from.
+   * @param function   reads the value from the owner.
+   * @param tags       for the gauge.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> void register(final String metricName, final T owner, final ToDoubleFunction<T> function, final Tags tags) {
+    LOGGER.info("register({},{},{})", metricName, owner, tags);
+    add(new Gauge(metricName, new WeakReference<>(owner), null, (ToDoubleFunction<Object>) function, tags(tags)));
+  }
+
+  /**
+   * Register a gauge that lasts until it is removed or the registry is closed.
+   *
+   * @param metricName of the gauge.
+   * @param supplier   of the value, held strongly.
+   * @param tags       for the gauge.
+   */
+  public void register(final String metricName, final DoubleSupplier supplier, final Tags tags) {
+    LOGGER.info("register({},{})", metricName, tags);
+    add(new Gauge(metricName, null, supplier, owner -> ((DoubleSupplier) owner).getAsDouble(), tags(tags)));
+  }
+
+  /**
+   * Remove all gauges with the name.
+   *
+   * @param metricName of the gauges.
+   */
+  public void remove(final String metricName) {
+    LOGGER.info("remove({})", metricName);
+    removeIf(gauge -> gauge.metricName.equals(metricName));
+  }
+
+  /**
+   * Remove the gauges registered with the owner, leaving gauges of the same name from other owners.
+   *
+   * @param owner the gauges were registered with.
+   */
+  public void unregister(final Object owner) {
+    LOGGER.info("unregister({})", owner);
+    removeIf(gauge -> gauge.owner() == owner);
+  }
+
+  /**
+   * The number of gauges registered, including any whose owners were collected since the last poll.
+   *
+   * @return the int
+   */
+  public int size() {
+    return gauges.length;
+  }
+
+  /**
+   * Publishes the value of every gauge now. Normally called by the polling thread.
+   */
+  public void poll() {
+    boolean collected = false;
+    for (Gauge gauge : gauges) {
+      final Object owner = gauge.owner();
+      if (owner == null) {
+        collected = true;
+        continue;
+      }
+      final double value;
+      try {
+        value = gauge.function.applyAsDouble(owner);
+      } catch (RuntimeException e) {
+        if (!gauge.failed) {
+          gauge.failed = true;
+          LOGGER.warn("poll(): gauge {} failed, further failures are logged at trace", gauge.metricName, e);
+        } else {
+          LOGGER.trace("poll(): gauge {} failed", gauge.metricName, e);
+        }
+        continue;
+      }
+      metrics.publishGauge(gauge.metricName, value, gauge.tags);
+    }
+    if (collected) {
+      removeIf(gauge -> gauge.owner() == null);
+    }
+  }
+
+  /**
+   * Stops polling and removes all gauges.
+   */
+  @Override
+  public synchronized void close() {
+    LOGGER.info("close()");
+    if (polling != null) {
+      polling.cancel(false);
+      polling = null;
+    }
+    gauges = NO_GAUGES;
+  }
+
+  private Tags tags(final Tags tags) {
+    return tags == null ? Tags.of(baseTags) : Tags.of(baseTags).add(tags);
+  }
+
+  private synchronized void add(final Gauge gauge) {
+    final Gauge[] current = gauges;
+    final Gauge[] updated = new Gauge[current.length + 1];
+    System.arraycopy(current, 0, updated, 0, current.length);
+    updated[current.length] = gauge;
+    gauges = updated;
+    if (polling == null) {
+      final long nanos = interval.toNanos();
+      polling = Scheduler.INSTANCE.scheduleAtFixedRate(this::pollSafely, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private synchronized void removeIf(final Predicate<Gauge> predicate) {
+    final List<Gauge> kept = new ArrayList<>();
+    for (Gauge gauge : gauges) {
+      if (!predicate.test(gauge)) {
+        kept.add(gauge);
+      }
+    }
+    gauges = kept.toArray(NO_GAUGES);
+  }
+
+  private void pollSafely() {
+    try {
+      poll();
+    } catch (RuntimeException e) {
+      // an exception would cancel the polling, so a bad publisher only loses this poll.
+      LOGGER.error("pollSafely(): unable to publish gauges", e);
+    }
+  }
+
+  /**
+   * The one thread shared by all registries, started when first used.
+   */
+  private static final class Scheduler {
+
+    private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "metrics-gauges");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  }
+
+  private static final class Gauge {
+
+    private final String metricName;
+    private final WeakReference<Object> weakOwner;
+    private final Object strongOwner;
+    private final ToDoubleFunction<Object> function;
+    private final Tags tags;
+    private boolean failed;
+
+    private Gauge(final String metricName,
+                  final WeakReference<Object> weakOwner,
+                  final Object strongOwner,
+                  final ToDoubleFunction<Object> function,
+                  final Tags tags) {
+      this.metricName = metricName;
+      this.weakOwner = weakOwner;
+      this.strongOwner = strongOwner;
+      this.function = function;
+      this.tags = tags;
+    }
+
+    private Object owner() {
+      return strongOwner != null ? strongOwner : weakOwner.get();
+    }
+  }
+
+}
@@ -0,0 +1,423 @@
+package com.codeheadsystems.metrics.helper;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.histogram.HistogramSnapshot;
+import com.codeheadsystems.metrics.histogram.QuantileSketch;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts what the metrics library itself does. Every counter is a LongAdder, so threads recording
+ * stats do not contend with each other, and reading them over JMX does not block the recording.
+ * Only used when enabled on the factory, so there is no cost otherwise.
+ */
+public class MetricsStats implements MetricsStatsMXBean {
+
+  /**
+   * The JMX domain the stats are registered under.
+   */
+  public static final String DOMAIN = "com.codeheadsystems.metrics";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsStats.class);
+  // which stats hold each name, so stats that were replaced do not unregister their replacement.
+  private static final Map<ObjectName, MetricsStats> REGISTERED = new HashMap<>();
+
+  private final LongAdder contextsOpened = new LongAdder();
+  private final LongAdder contextsClosed = new LongAdder();
+  private final LongAdder increments = new LongAdder();
+  private final LongAdder times = new LongAdder();
+  private final LongAdder gauges = new LongAdder();
+  private final LongAdder publisherCalls = new LongAdder();
+  private final LongAdder publisherNanos = new LongAdder();
+  private final LongAccumulator publisherMaxNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder publisherErrors = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder sampledOut = new LongAdder();
+  private final LongAdder tagGenerationNanos = new LongAdder();
+  private volatile MetricPublisher metricPublisher;
+  private volatile long since = System.nanoTime();
+  private ObjectName objectName;
+
+  /**
+   * Wraps the publisher so each call to it is counted and timed.
+   *
+   * @param metricPublisher to wrap.
+   * @return the wrapped publisher.
+   */
+  public MetricPublisher instrument(final MetricPublisher metricPublisher) {
+    this.metricPublisher = metricPublisher;
+    return new InstrumentedPublisher(metricPublisher);
+  }
+
+  /**
+   * Registers these stats with the platform MBean server, as
+   * com.codeheadsystems.metrics:type=MetricsStats,name=[name]. Stats already registered with the same
+   * name are replaced, and are no longer registered as far as they are concerned.
+   *
+   * @param name to register as.
+   * @return this.
+   */
+  public MetricsStats register(final String name) {
+    LOGGER.info("register({})", name);
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    synchronized (REGISTERED) {
+      unregister();
+      try {
+        final ObjectName newName = new ObjectName(DOMAIN + ":type=MetricsStats,name=" + ObjectName.quote(name));
+        try {
+          server.registerMBean(this, newName);
+        } catch (InstanceAlreadyExistsException e) {
+          LOGGER.warn("register({}) - replacing the stats already registered", name);
+          server.unregisterMBean(newName);
+          server.registerMBean(this, newName);
+        }
+        final MetricsStats replaced = REGISTERED.put(newName, this);
+        if (replaced != null) {
+          replaced.objectName = null;
+        }
+        objectName = newName;
+      } catch (JMException e) {
+        LOGGER.error("register({}) - unable to register the stats", name, e);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Removes these stats from the platform MBean server, if they are registered. Does nothing if other
+   * stats have since been registered with the same name.
+   */
+  public void unregister() {
+    synchronized (REGISTERED) {
+      if (objectName == null) {
+        return;
+      }
+      if (REGISTERED.remove(objectName, this)) {
+        try {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+          LOGGER.warn("unregister() - unable to unregister {}", objectName, e);
+        }
+      }
+      objectName = null;
+    }
+  }
+
+  /**
+   * The name registered with JMX, or null if not registered.
+   *
+   * @return the object name
+   */
+  public ObjectName objectName() {
+    synchronized (REGISTERED) {
+      return objectName;
+    }
+  }
+
+  /**
+   * Records a context opened by the factory.
+   */
+  public void contextOpened() {
+    contextsOpened.increment();
+  }
+
+  /**
+   * Records a context closed by the factory.
+   */
+  public void contextClosed() {
+    contextsClosed.increment();
+  }
+
+  /**
+   * Records an event disabled by a rule.
+   */
+  public void dropped() {
+    dropped.increment();
+  }
+
+  /**
+   * Records an event that was not sampled.
+   */
+  public void sampledOut() {
+    sampledOut.increment();
+  }
+
+  /**
+   * Records time spent generating tags.
+   *
+   * @param nanos spent.
+   */
+  public void tagGeneration(final long nanos) {
+    tagGenerationNanos.add(nanos);
+  }
+
+  @Override
+  public long getContextsOpened() {
+    return contextsOpened.sum();
+  }
+
+  @Override
+  public long getContextsClosed() {
+    return contextsClosed.sum();
+  }
+
+  @Override
+  public long getContextsActive() {
+    return contextsOpened.sum() - contextsClosed.sum();
+  }
+
+  @Override
+  public long getIncrementsPublished() {
+    return increments.sum();
+  }
+
+  @Override
+  public long getTimesPublished() {
+    return times.sum();
+  }
+
+  @Override
+  public long getGaugesPublished() {
+    return gauges.sum();
+  }
+
+  @Override
+  public long getPublisherCalls() {
+    return publisherCalls.sum();
+  }
+
+  @Override
+  public long getPublisherNanos() {
+    return publisherNanos.sum();
+  }
+
+  @Override
+  public long getPublisherMeanNanos() {
+    final long calls = publisherCalls.sum();
+    return calls == 0 ? 0 : publisherNanos.sum() / calls;
+  }
+
+  @Override
+  public long getPublisherMaxNanos() {
+    return publisherMaxNanos.get();
+  }
+
+  @Override
+  public long getPublisherErrors() {
+    return publisherErrors.sum();
+  }
+
+  @Override
+  public long getDroppedEvents() {
+    return dropped.sum();
+  }
+
+  @Override
+  public long getSampledOutEvents() {
+    return sampledOut.sum();
+  }
+
+  @Override
+  public long getActiveSeries() {
+    final MetricPublisher publisher = metricPublisher;
+    return publisher == null ? -1 : publisher.seriesCount();
+  }
+
+  @Override
+  public long getTagGenerationNanos() {
+    return tagGenerationNanos.sum();
+  }
+
+  @Override
+  public long getMetricsNanos() {
+    return publisherNanos.sum() + tagGenerationNanos.sum();
+  }
+
+  @Override
+  public double getMetricsTimePercent() {
+    final long available = (System.nanoTime() - since) * Runtime.getRuntime().availableProcessors();
+    return available <= 0 ? 0.0 : getMetricsNanos() * 100.0 / available;
+  }
+
+  @Override
+  public long getUptimeMillis() {
+    return Duration.ofNanos(System.nanoTime() - since).toMillis();
+  }
+
+  @Override
+  public void reset() {
+    LOGGER.info("reset()");
+    contextsOpened.reset();
+    contextsClosed.reset();
+    increments.reset();
+    times.reset();
+    gauges.reset();
+    publisherCalls.reset();
+    publisherNanos.reset();
+    publisherMaxNanos.reset();
+    publisherErrors.reset();
+    dropped.reset();
+    sampledOut.reset();
+    tagGenerationNanos.reset();
+    since = System.nanoTime();
+  }
+
+  private void publisherCall(final long start) {
+    final long nanos = System.nanoTime() - start;
+    publisherCalls.increment();
+    publisherNanos.add(nanos);
+    publisherMaxNanos.accumulate(nanos);
+  }
+
+  @Override
+  public String toString() {
+    return "MetricsStats{" + "objectName=" + objectName + '}';
+  }
+
+  /**
+   * Counts and times each call before passing it on.
+   */
+  private final class InstrumentedPublisher implements MetricPublisher {
+
+    private final MetricPublisher delegate;
+
+    private InstrumentedPublisher(final MetricPublisher delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void open() {
+      final long start = System.nanoTime();
+      try {
+        delegate.open();
+      } catch (RuntimeException e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public void close() throws Exception {
+      final long start = System.nanoTime();
+      try {
+        delegate.close();
+      } catch (Exception e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public void increment(final String metricName, final long value, final Tags tags) {
+      final long start = System.nanoTime();
+      try {
+        delegate.increment(metricName, value, tags);
+        increments.increment();
+      } catch (RuntimeException e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public void time(final String metricName, final Duration duration, final Tags tags) {
+      final long start = System.nanoTime();
+      try {
+        delegate.time(metricName, duration, tags);
+        times.increment();
+      } catch (RuntimeException e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public Object begin(final String metricName) {
+      return delegate.begin(metricName);
+    }
+
+    @Override
+    public void time(final String metricName, final Duration duration, final Tags tags, final Object begun) {
+      final long start = System.nanoTime();
+      try {
+        delegate.time(metricName, duration, tags, begun);
+        times.increment();
+      } catch (RuntimeException e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public void gauge(final String metricName, final double value, final Tags tags) {
+      final long start = System.nanoTime();
+      try {
+        delegate.gauge(metricName, value, tags);
+        gauges.increment();
+      } catch (RuntimeException e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public void histogram(final String metricName, final HistogramSnapshot snapshot, final Tags tags) {
+      final long start = System.nanoTime();
+      try {
+        delegate.histogram(metricName, snapshot, tags);
+      } catch (RuntimeException e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public void sketch(final String metricName, final QuantileSketch sketch, final Tags tags) {
+      final long start = System.nanoTime();
+      try {
+        delegate.sketch(metricName, sketch, tags);
+      } catch (RuntimeException e) {
+        publisherErrors.increment();
+        throw e;
+      } finally {
+        publisherCall(start);
+      }
+    }
+
+    @Override
+    public long seriesCount() {
+      return delegate.seriesCount();
+    }
+
+    @Override
+    public String toString() {
+      return "InstrumentedPublisher{" + delegate + '}';
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.codeheadsystems.metrics.helper;
+
+/**
+ * What the metrics library costs, as seen over JMX. Counts are since the factory was built or the
+ * last reset. Times are wall clock nanoseconds spent in the publisher and tag generators on the
+ * calling threads.
+ */
+public interface MetricsStatsMXBean {
+
+  long getContextsOpened();
+
+  long getContextsClosed();
+
+  /**
+   * Contexts opened and not yet closed.
+   *
+   * @return the long
+   */
+  long getContextsActive();
+
+  long getIncrementsPublished();
+
+  long getTimesPublished();
+
+  long getGaugesPublished();
+
+  /**
+   * Calls to the publisher, including open() and close().
+   *
+   * @return the long
+   */
+  long getPublisherCalls();
+
+  long getPublisherNanos();
+
+  long getPublisherMeanNanos();
+
+  long getPublisherMaxNanos();
+
+  /**
+   * Publisher calls that threw. They are logged and otherwise ignored.
+   *
+   * @return the long
+   */
+  long getPublisherErrors();
+
+  /**
+   * Events not published because their metric was disabled by a rule.
+   *
+   * @return the long
+   */
+  long getDroppedEvents();
+
+  /**
+   * Events not published because they were not sampled.
+   *
+   * @return the long
+   */
+  long getSampledOutEvents();
+
+  /**
+   * The number of series the publisher holds, or -1 if it does not say.
+   *
+   * @return the long
+   */
+  long getActiveSeries();
+
+  long getTagGenerationNanos();
+
+  /**
+   * Nanoseconds spent in the publisher and tag generators.
+   *
+   * @return the long
+   */
+  long getMetricsNanos();
+
+  /**
+   * The metrics nanoseconds as a percent of the wall clock time on all processors since the last
+   * reset. This is elapsed time, not CPU: it includes time a publisher spends blocked, and leaves out
+   * opening contexts and the work of the metrics themselves outside the publisher.
+   *
+   * @return the double
+   */
+  double getMetricsTimePercent();
+
+  long getUptimeMillis();
+
+  /**
+   * Sets everything back to zero.
+   */
+  void reset();
+
+}
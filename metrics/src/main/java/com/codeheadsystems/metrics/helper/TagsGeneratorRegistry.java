@@ -2,33 +2,46 @@ package com.codeheadsystems.metrics.helper;
 
 import com.codeheadsystems.metrics.Tags;
 import com.codeheadsystems.metrics.TagsGenerator;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gives you the ability to register generators for tags. Note that null objects will not generate
- * any tags.
+ * any tags. Safe to use from many threads.
+ *
+ * <p>Objects use the generator registered for their class, or else the closest superclass, or else
+ * the first interface found breadth first. This is resolved once per class and cached until the
+ * registrations change.
  */
 public class TagsGeneratorRegistry {
 
+  private static final TagsGenerator<Object> NONE = object -> null;
+
   private final Map<Class<?>, TagsGenerator<?>> tagsGeneratorMap;
+  private volatile ClassValue<TagsGenerator<?>> resolved;
 
   /**
    * Default Constructor.
    */
   public TagsGeneratorRegistry() {
-    this.tagsGeneratorMap = new HashMap<>();
+    this.tagsGeneratorMap = new ConcurrentHashMap<>();
+    this.resolved = newCache();
   }
 
   /**
-   * Register a class with a tags generator.
+   * Register a class with a tags generator. It is also used for subclasses and implementations
+   * without their own.
    *
    * @param clazz         for the generator.
    * @param tagsGenerator for the class.
    */
   public <R> void register(final Class<R> clazz, final TagsGenerator<R> tagsGenerator) {
     tagsGeneratorMap.put(clazz, tagsGenerator);
+    resolved = newCache();
   }
 
   /**
@@ -38,10 +51,11 @@ public class TagsGeneratorRegistry {
    */
   public <R> void deregister(final Class<R> clazz) {
     tagsGeneratorMap.remove(clazz);
+    resolved = newCache();
   }
 
   /**
-   * Get the tags generator for the class.
+   * Get the tags generator registered for exactly this class.
    *
    * @param clazz for the generator.
    * @param <R>   the type.
@@ -52,6 +66,19 @@ public class TagsGeneratorRegistry {
     return (TagsGenerator<R>) tagsGeneratorMap.get(clazz);
   }
 
+  /**
+   * Get the tags generator to use for this class, looking at superclasses and interfaces too.
+   *
+   * @param clazz for the generator.
+   * @param <R>   the type.
+   * @return tags generator, or null if none applies.
+   */
+  @SuppressWarnings("unchecked")
+  public <R> TagsGenerator<? super R> resolve(final Class<R> clazz) {
+    final TagsGenerator<?> tagsGenerator = resolved.get(clazz);
+    return tagsGenerator == NONE ? null : (TagsGenerator<? super R>) tagsGenerator;
+  }
+
   /**
    * Helper method to aggregate tags if they exist in the registry.
    * If the object is null, this won't do anything.
@@ -60,16 +87,15 @@ public class TagsGeneratorRegistry {
    * @param object       to get the tags from.
    * @param <R>          the type.
    */
+  @SuppressWarnings("unchecked")
   public <R> void aggregateIfFound(final Tags existingTags, final R object) {
     if (object == null) {
       return;
     }
-    Class<R> clazz = (Class<R>) object.getClass();
-    if (tagsGeneratorMap.containsKey(clazz)) {
-      TagsGenerator<R> tagsGenerator = get(clazz);
-      existingTags.add(tagsGenerator.from(object));
+    final TagsGenerator<?> tagsGenerator = resolved.get(object.getClass());
+    if (tagsGenerator != NONE) {
+      existingTags.add(((TagsGenerator<R>) tagsGenerator).from(object));
     }
-
   }
 
   /**
@@ -81,4 +107,43 @@ public class TagsGeneratorRegistry {
     return tagsGeneratorMap.keySet();
   }
 
+  private ClassValue<TagsGenerator<?>> newCache() {
+    return new ClassValue<>() {
+      @Override
+      protected TagsGenerator<?> computeValue(final Class<?> type) {
+        final TagsGenerator<?> tagsGenerator = find(type);
+        return tagsGenerator == null ? NONE : tagsGenerator;
+      }
+    };
+  }
+
+  private TagsGenerator<?> find(final Class<?> type) {
+    for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+      final TagsGenerator<?> tagsGenerator = tagsGeneratorMap.get(clazz);
+      if (tagsGenerator != null) {
+        return tagsGenerator;
+      }
+    }
+    final Deque<Class<?>> queue = new ArrayDeque<>();
+    final Set<Class<?>> seen = new HashSet<>();
+    for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+      for (Class<?> anInterface : clazz.getInterfaces()) {
+        queue.add(anInterface);
+      }
+    }
+    while (!queue.isEmpty()) {
+      final Class<?> anInterface = queue.poll();
+      if (seen.add(anInterface)) {
+        final TagsGenerator<?> tagsGenerator = tagsGeneratorMap.get(anInterface);
+        if (tagsGenerator != null) {
+          return tagsGenerator;
+        }
+        for (Class<?> parent : anInterface.getInterfaces()) {
+          queue.add(parent);
+        }
+      }
+    }
+    return null;
+  }
+
 }
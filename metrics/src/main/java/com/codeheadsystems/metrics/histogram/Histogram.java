@@ -0,0 +1,69 @@
+package com.codeheadsystems.metrics.histogram;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram. Recording is one atomic increment of a bucket, and taking a snapshot
+ * empties the buckets one at a time, so a value recorded during a snapshot is in this snapshot or
+ * the next, never lost.
+ */
+public final class Histogram {
+
+  private final HistogramLayout layout;
+  private final AtomicLongArray counts;
+  private long intervalStart;
+
+  /**
+   * Instantiates a new Histogram.
+   *
+   * @param layout the layout
+   */
+  public Histogram(final HistogramLayout layout) {
+    this.layout = layout;
+    this.counts = new AtomicLongArray(layout.bucketCount());
+    this.intervalStart = System.currentTimeMillis();
+  }
+
+  public HistogramLayout layout() {
+    return layout;
+  }
+
+  /**
+   * Record a value.
+   *
+   * @param value the value, in nanoseconds for durations.
+   */
+  public void record(final long value) {
+    counts.getAndIncrement(layout.index(value));
+  }
+
+  /**
+   * Takes what was recorded since the last snapshot and starts a new interval. Only one thread should
+   * take snapshots.
+   *
+   * @return the snapshot.
+   */
+  public HistogramSnapshot snapshot() {
+    final long now = System.currentTimeMillis();
+    final long[] taken = new long[counts.length()];
+    int lowest = -1;
+    int highest = -1;
+    for (int i = 0; i < taken.length; i++) {
+      if (counts.get(i) != 0) {
+        taken[i] = counts.getAndSet(i, 0);
+        if (taken[i] != 0) {
+          lowest = lowest < 0 ? i : lowest;
+          highest = i;
+        }
+      }
+    }
+    final HistogramSnapshot snapshot = lowest < 0
+        ? new HistogramSnapshot(layout, 0, new long[0], intervalStart, now)
+        : new HistogramSnapshot(layout, lowest, Arrays.copyOfRange(taken, lowest, highest + 1),
+            intervalStart, now);
+    intervalStart = now;
+    return snapshot;
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.codeheadsystems.metrics.histogram;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * How values are bucketed: exactly below 2^precision, then 2^precision buckets for each power of two
+ * up to the highest value. Each bucket is at most 2^-precision of its lowest value wide, so values
+ * read back from the middle of a bucket are within half that of what was recorded. The bucket count,
+ * and so the memory of each histogram, is fixed by the layout.
+ */
+public final class HistogramLayout {
+
+  /**
+   * About 3% buckets, for durations up to an hour. 1,205 buckets, under 10KB per histogram.
+   */
+  public static final HistogramLayout DEFAULT = new HistogramLayout(5, Duration.ofHours(1).toNanos());
+
+  private final int precision;
+  private final long highestValue;
+  private final int subBuckets;
+  private final int bucketCount;
+
+  private HistogramLayout(final int precision, final long highestValue) {
+    if (precision < 1 || precision > 16) {
+      throw new IllegalArgumentException("precision must be between 1 and 16: " + precision);
+    }
+    if (highestValue < 1L << precision) {
+      throw new IllegalArgumentException("highestValue must be at least 2^precision: " + highestValue);
+    }
+    this.precision = precision;
+    this.highestValue = highestValue;
+    this.subBuckets = 1 << precision;
+    this.bucketCount = index(highestValue) + 1;
+  }
+
+  /**
+   * A layout with buckets 2^-precision wide, up to the highest value. Higher values are counted in
+   * the last bucket.
+   *
+   * @param precision    from 1 to 16, 5 is about 3% and 7 under 1%.
+   * @param highestValue the highest value, in nanoseconds for durations.
+   * @return the layout.
+   */
+  public static HistogramLayout of(final int precision, final long highestValue) {
+    return new HistogramLayout(precision, highestValue);
+  }
+
+  public int precision() {
+    return precision;
+  }
+
+  public long highestValue() {
+    return highestValue;
+  }
+
+  public int bucketCount() {
+    return bucketCount;
+  }
+
+  /**
+   * The bytes of counts in each histogram with this layout.
+   *
+   * @return the long
+   */
+  public long memoryBytes() {
+    return (long) bucketCount * Long.BYTES;
+  }
+
+  /**
+   * The largest error of a value read back from a bucket, relative to the value.
+   *
+   * @return the double
+   */
+  public double relativeError() {
+    return 1.0 / (subBuckets * 2);
+  }
+
+  /**
+   * The bucket for the value. Negative values are counted as zero, values over the highest in the
+   * last bucket.
+   *
+   * @param value the value
+   * @return the index
+   */
+  public int index(final long value) {
+    if (value < subBuckets) {
+      return value < 0 ? 0 : (int) value;
+    }
+    if (value > highestValue && bucketCount > 0) {
+      return bucketCount - 1;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - precision)) & (subBuckets - 1);
+    return (exponent - precision + 1) * subBuckets + subBucket;
+  }
+
+  /**
+   * The lowest value counted in the bucket.
+   *
+   * @param index the index
+   * @return the long
+   */
+  public long lowestValue(final int index) {
+    if (index < subBuckets) {
+      return index;
+    }
+    final int exponent = index / subBuckets + precision - 1;
+    return (1L << exponent) + ((long) (index % subBuckets) << (exponent - precision));
+  }
+
+  /**
+   * The value read back for the bucket, its middle.
+   *
+   * @param index the index
+   * @return the long
+   */
+  public long value(final int index) {
+    if (index < subBuckets) {
+      return index;
+    }
+    final int exponent = index / subBuckets + precision - 1;
+    return lowestValue(index) + (1L << (exponent - precision)) / 2;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof HistogramLayout)) {
+      return false;
+    }
+    final HistogramLayout that = (HistogramLayout) o;
+    return precision == that.precision && highestValue == that.highestValue;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(precision, highestValue);
+  }
+
+  @Override
+  public String toString() {
+    return "HistogramLayout{" + "precision=" + precision + ", highestValue=" + highestValue
+        + ", bucketCount=" + bucketCount + '}';
+  }
+}
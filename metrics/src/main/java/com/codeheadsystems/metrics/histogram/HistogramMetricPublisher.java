@@ -0,0 +1,148 @@
+package com.codeheadsystems.metrics.histogram;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+import java.time.Duration;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records every time into a histogram for its series, a metric name and set of tags, and passes the
+ * snapshot of each series to the delegate as a histogram once per interval. The time itself is
+ * passed to the delegate too, so this can wrap any publisher.
+ *
+ * <p>Recording is a map lookup and one atomic increment. Memory is fixed: each series takes
+ * {@link HistogramLayout#memoryBytes()}, and once there are as many series as the maximum, times
+ * for new series are only passed to the delegate. Series are never removed, so keep tags bounded.
+ */
+public class HistogramMetricPublisher extends SeriesMetricPublisher<Histogram> {
+
+  /**
+   * How often snapshots are taken unless set.
+   */
+  public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+  /**
+   * The most series recorded unless set.
+   */
+  public static final int DEFAULT_MAX_SERIES = 1000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HistogramMetricPublisher.class);
+
+  private final HistogramLayout layout;
+
+  private HistogramMetricPublisher(final Builder builder) {
+    super(builder.delegate, builder.interval, builder.maxSeries);
+    LOGGER.info("HistogramMetricPublisher({},{},{},{})",
+        builder.delegate, builder.layout, builder.interval, builder.maxSeries);
+    this.layout = builder.layout;
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  Histogram create() {
+    return new Histogram(layout);
+  }
+
+  @Override
+  void record(final Histogram histogram, final long nanos) {
+    histogram.record(nanos);
+  }
+
+  @Override
+  void publish(final MetricPublisher delegate, final String metricName, final Tags tags,
+               final Histogram histogram) {
+    final HistogramSnapshot snapshot = histogram.snapshot();
+    if (!snapshot.isEmpty()) {
+      delegate.histogram(metricName, snapshot, tags);
+    }
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Builder.class);
+
+    private MetricPublisher delegate = new NullMetricsPublisher();
+    private HistogramLayout layout = HistogramLayout.DEFAULT;
+    private Duration interval = DEFAULT_INTERVAL;
+    private int maxSeries = DEFAULT_MAX_SERIES;
+
+    private Builder() {
+    }
+
+    /**
+     * With delegate builder. Gets every call, and the histograms.
+     *
+     * @param delegate the delegate
+     * @return the builder
+     */
+    public Builder withDelegate(final MetricPublisher delegate) {
+      LOGGER.info("withDelegate({})", delegate);
+      this.delegate = delegate;
+      return this;
+    }
+
+    /**
+     * With layout builder.
+     *
+     * @param layout the layout
+     * @return the builder
+     */
+    public Builder withLayout(final HistogramLayout layout) {
+      LOGGER.info("withLayout({})", layout);
+      this.layout = layout;
+      return this;
+    }
+
+    /**
+     * With interval builder. How often snapshots are taken and published.
+     *
+     * @param interval the interval
+     * @return the builder
+     */
+    public Builder withInterval(final Duration interval) {
+      LOGGER.info("withInterval({})", interval);
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * With max series builder. Memory used is at most this times the memory of the layout.
+     *
+     * @param maxSeries the max series
+     * @return the builder
+     */
+    public Builder withMaxSeries(final int maxSeries) {
+      LOGGER.info("withMaxSeries({})", maxSeries);
+      this.maxSeries = maxSeries;
+      return this;
+    }
+
+    /**
+     * Build histogram metric publisher.
+     *
+     * @return the histogram metric publisher
+     */
+    public HistogramMetricPublisher build() {
+      Objects.requireNonNull(delegate, "delegate");
+      Objects.requireNonNull(layout, "layout");
+      if (interval.isZero() || interval.isNegative()) {
+        throw new IllegalArgumentException("interval must be positive: " + interval);
+      }
+      return new HistogramMetricPublisher(this);
+    }
+  }
+}
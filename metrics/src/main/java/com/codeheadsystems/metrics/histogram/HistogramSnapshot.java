@@ -0,0 +1,134 @@
+package com.codeheadsystems.metrics.histogram;
+
+import java.util.Arrays;
+
+/**
+ * What a histogram recorded in one interval. The counts are only kept from the lowest to the highest
+ * bucket used, so a snapshot of values close together is small.
+ */
+public final class HistogramSnapshot {
+
+  private final HistogramLayout layout;
+  private final int offset;
+  private final long[] counts;
+  private final long count;
+  private final long startMillis;
+  private final long endMillis;
+
+  /**
+   * Instantiates a new Histogram snapshot.
+   *
+   * @param layout      the layout of the histogram.
+   * @param offset      the index of the first count.
+   * @param counts      the counts of the buckets from the offset.
+   * @param startMillis when the interval started.
+   * @param endMillis   when the interval ended.
+   */
+  public HistogramSnapshot(final HistogramLayout layout,
+                           final int offset,
+                           final long[] counts,
+                           final long startMillis,
+                           final long endMillis) {
+    this.layout = layout;
+    this.offset = offset;
+    this.counts = counts;
+    this.startMillis = startMillis;
+    this.endMillis = endMillis;
+    long total = 0;
+    for (long bucket : counts) {
+      total += bucket;
+    }
+    this.count = total;
+  }
+
+  public HistogramLayout layout() {
+    return layout;
+  }
+
+  /**
+   * The bucket index of the first count.
+   *
+   * @return the int
+   */
+  public int offset() {
+    return offset;
+  }
+
+  /**
+   * The counts from the offset to the highest bucket used. Use the layout to turn an index, the offset
+   * plus the position, into a value.
+   *
+   * @return a copy of the counts.
+   */
+  public long[] counts() {
+    return counts.clone();
+  }
+
+  public long count() {
+    return count;
+  }
+
+  public long startMillis() {
+    return startMillis;
+  }
+
+  public long endMillis() {
+    return endMillis;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * The value at the percentile, within the relative error of the layout.
+   *
+   * @param percentile from 0 to 100.
+   * @return the value, or 0 if empty.
+   */
+  public long percentile(final double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return layout.value(offset + i);
+      }
+    }
+    return max();
+  }
+
+  public long p50() {
+    return percentile(50);
+  }
+
+  public long p90() {
+    return percentile(90);
+  }
+
+  public long p99() {
+    return percentile(99);
+  }
+
+  public long p999() {
+    return percentile(99.9);
+  }
+
+  /**
+   * The highest value, within the relative error of the layout.
+   *
+   * @return the long
+   */
+  public long max() {
+    return count == 0 ? 0 : layout.value(offset + counts.length - 1);
+  }
+
+  @Override
+  public String toString() {
+    return "HistogramSnapshot{" + "count=" + count + ", p50=" + p50() + ", p99=" + p99() + ", max=" + max()
+        + ", counts=" + Arrays.toString(counts) + ", offset=" + offset + '}';
+  }
+}
@@ -0,0 +1,464 @@
+package com.codeheadsystems.metrics.histogram;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * A mergeable quantile sketch with relative error, in the style of DDSketch. Values are counted in
+ * buckets growing by a factor of (1 + a) / (1 - a), so any quantile read back is within a relative
+ * accuracy a of the value at that rank. Sketches with the same accuracy merge without losing
+ * anything, so the p99 of sketches from many hosts is the true p99 of all of them, unlike an average
+ * of each host's p99.
+ *
+ * <p>Values below 1, including negatives, are counted as zero. Only the buckets between the lowest
+ * and highest used are stored, and at most maxBins of them: past that the lowest buckets are merged,
+ * so only the low quantiles lose accuracy. At 1% accuracy, 2048 buckets cover nanoseconds to days.
+ *
+ * <p>Methods are synchronized, so a sketch can be recorded from many threads.
+ *
+ * <p>The binary form, version 1, is big endian:
+ * <pre>
+ *   int     magic 0x4444534B ("DDSK")
+ *   byte    version, 1
+ *   double  relative accuracy
+ *   varint  max bins
+ *   varlong count of zeros
+ *   double  min, max and sum, of all values
+ *   zigzag varint  index of the first bucket
+ *   varint  number of buckets
+ *   varlong count of each bucket, from the first
+ * </pre>
+ * Varints are unsigned LEB128, 7 bits a byte with the high bit set on all but the last.
+ */
+public final class QuantileSketch {
+
+  /**
+   * The relative accuracy unless set, 1%.
+   */
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+  /**
+   * The most buckets stored unless set.
+   */
+  public static final int DEFAULT_MAX_BINS = 2048;
+
+  /**
+   * The start of every serialized sketch.
+   */
+  public static final int MAGIC = 0x4444534B;
+
+  /**
+   * The version of the binary form written.
+   */
+  public static final byte VERSION = 1;
+
+  private static final long[] NO_BINS = new long[0];
+
+  private final double relativeAccuracy;
+  private final int maxBins;
+  private final double gamma;
+  private final double multiplier;
+  private long[] bins = NO_BINS;
+  private int offset;
+  private int minIndex = Integer.MAX_VALUE;
+  private int maxIndex = Integer.MIN_VALUE;
+  private long zeroCount;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private double sum;
+
+  /**
+   * Instantiates a new Quantile sketch with 1% accuracy.
+   */
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BINS);
+  }
+
+  /**
+   * Instantiates a new Quantile sketch.
+   *
+   * @param relativeAccuracy between 0 and 1, exclusive. Only sketches with the same accuracy merge.
+   * @param maxBins          the most buckets stored.
+   */
+  public QuantileSketch(final double relativeAccuracy, final int maxBins) {
+    if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+      throw new IllegalArgumentException("relativeAccuracy must be between 0 and 1: " + relativeAccuracy);
+    }
+    if (maxBins < 1) {
+      throw new IllegalArgumentException("maxBins must be positive: " + maxBins);
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    this.maxBins = maxBins;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.multiplier = 1 / Math.log(gamma);
+  }
+
+  public double relativeAccuracy() {
+    return relativeAccuracy;
+  }
+
+  public int maxBins() {
+    return maxBins;
+  }
+
+  public synchronized long count() {
+    return count;
+  }
+
+  public synchronized boolean isEmpty() {
+    return count == 0;
+  }
+
+  public synchronized double sum() {
+    return sum;
+  }
+
+  /**
+   * The lowest value added, exactly.
+   *
+   * @return the value, or 0 if empty.
+   */
+  public synchronized double min() {
+    return count == 0 ? 0 : min;
+  }
+
+  /**
+   * The highest value added, exactly.
+   *
+   * @return the value, or 0 if empty.
+   */
+  public synchronized double max() {
+    return count == 0 ? 0 : max;
+  }
+
+  /**
+   * Add a value.
+   *
+   * @param value the value, in nanoseconds for durations.
+   */
+  public synchronized void add(final double value) {
+    if (value >= 1) {
+      addToBin(index(value), 1);
+    } else {
+      zeroCount++;
+    }
+    count++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Add everything in the other sketch to this one.
+   *
+   * @param other a sketch with the same relative accuracy.
+   */
+  public void merge(final QuantileSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy) {
+      throw new IllegalArgumentException("Cannot merge sketches with accuracy "
+          + other.relativeAccuracy + " into " + relativeAccuracy);
+    }
+    final QuantileSketch copy = other.copy();
+    synchronized (this) {
+      if (copy.count == 0) {
+        return;
+      }
+      if (copy.maxIndex >= copy.minIndex) {
+        addToBin(copy.maxIndex, 0);
+        addToBin(copy.minIndex, 0);
+        for (int index = copy.minIndex; index <= copy.maxIndex; index++) {
+          final long binCount = copy.bins[index - copy.offset];
+          if (binCount != 0) {
+            addToBin(index, binCount);
+          }
+        }
+      }
+      zeroCount += copy.zeroCount;
+      count += copy.count;
+      sum += copy.sum;
+      min = Math.min(min, copy.min);
+      max = Math.max(max, copy.max);
+    }
+  }
+
+  /**
+   * The value at the quantile, within the relative accuracy. The lowest and highest quantiles are
+   * the exact min and max.
+   *
+   * @param quantile from 0 to 1.
+   * @return the value, or 0 if empty.
+   */
+  public synchronized double quantile(final double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    // the ends are tracked exactly, where their buckets may have been merged or counted as zero.
+    if (quantile == 0) {
+      return min;
+    }
+    if (quantile == 1) {
+      return max;
+    }
+    final double rank = quantile * (count - 1);
+    long seen = zeroCount;
+    if (seen > rank) {
+      return Math.max(min, 0);
+    }
+    for (int index = minIndex; index <= maxIndex; index++) {
+      seen += bins[index - offset];
+      if (seen > rank) {
+        return Math.max(min, Math.min(max, value(index)));
+      }
+    }
+    return max;
+  }
+
+  /**
+   * A copy of this sketch.
+   *
+   * @return the copy.
+   */
+  public synchronized QuantileSketch copy() {
+    final QuantileSketch copy = new QuantileSketch(relativeAccuracy, maxBins);
+    copy.bins = bins.clone();
+    copy.offset = offset;
+    copy.minIndex = minIndex;
+    copy.maxIndex = maxIndex;
+    copy.zeroCount = zeroCount;
+    copy.count = count;
+    copy.min = min;
+    copy.max = max;
+    copy.sum = sum;
+    return copy;
+  }
+
+  /**
+   * Takes what was added so far, leaving this sketch empty. A value added during the call is in the
+   * copy or stays in this sketch, never lost.
+   *
+   * @return a sketch of what was added.
+   */
+  public synchronized QuantileSketch snapshot() {
+    final QuantileSketch snapshot = copy();
+    bins = NO_BINS;
+    offset = 0;
+    minIndex = Integer.MAX_VALUE;
+    maxIndex = Integer.MIN_VALUE;
+    zeroCount = 0;
+    count = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    sum = 0;
+    return snapshot;
+  }
+
+  /**
+   * The binary form of this sketch.
+   *
+   * @return the bytes.
+   */
+  public byte[] toBytes() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      writeTo(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes the binary form of this sketch. Sketches can be written one after another to the same
+   * stream.
+   *
+   * @param outputStream to write to, which is not closed.
+   * @throws IOException if the stream fails.
+   */
+  public void writeTo(final OutputStream outputStream) throws IOException {
+    final QuantileSketch copy = copy();
+    final DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeDouble(copy.relativeAccuracy);
+    writeVarLong(out, copy.maxBins);
+    writeVarLong(out, copy.zeroCount);
+    out.writeDouble(copy.min());
+    out.writeDouble(copy.max());
+    out.writeDouble(copy.sum);
+    if (copy.maxIndex < copy.minIndex) {
+      writeVarLong(out, 0);
+      writeVarLong(out, 0);
+    } else {
+      writeVarLong(out, ((copy.minIndex << 1) ^ (copy.minIndex >> 31)) & 0xFFFFFFFFL);
+      writeVarLong(out, copy.maxIndex - copy.minIndex + 1);
+      for (int index = copy.minIndex; index <= copy.maxIndex; index++) {
+        writeVarLong(out, copy.bins[index - copy.offset]);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads a sketch from its binary form.
+   *
+   * @param bytes the bytes.
+   * @return the sketch.
+   */
+  public static QuantileSketch fromBytes(final byte[] bytes) {
+    try {
+      return readFrom(new ByteArrayInputStream(bytes));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Not a valid sketch", e);
+    }
+  }
+
+  /**
+   * Reads the next sketch from the stream.
+   *
+   * @param inputStream to read from, which is not closed.
+   * @return the sketch, or null if the stream has already ended.
+   * @throws IOException if the stream fails or is not a sketch of a version that can be read.
+   */
+  public static QuantileSketch readFrom(final InputStream inputStream) throws IOException {
+    final DataInputStream in = new DataInputStream(inputStream);
+    final int start = in.read();
+    if (start < 0) {
+      return null;
+    }
+    final int magic = (start << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+    if (magic != MAGIC) {
+      throw new IOException("Not a sketch, magic was " + Integer.toHexString(magic));
+    }
+    final byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Cannot read sketch version " + version);
+    }
+    final QuantileSketch sketch;
+    try {
+      sketch = new QuantileSketch(in.readDouble(), (int) readVarLong(in));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Not a valid sketch", e);
+    }
+    sketch.zeroCount = readVarLong(in);
+    final double min = in.readDouble();
+    final double max = in.readDouble();
+    sketch.sum = in.readDouble();
+    final long zigzag = readVarLong(in);
+    final int first = (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+    final int length = (int) readVarLong(in);
+    if (length < 0 || length > sketch.maxBins) {
+      throw new IOException("Sketch has " + length + " buckets, more than " + sketch.maxBins);
+    }
+    sketch.count = sketch.zeroCount;
+    if (length > 0) {
+      sketch.bins = new long[length];
+      sketch.offset = first;
+      sketch.minIndex = first;
+      sketch.maxIndex = first + length - 1;
+      for (int i = 0; i < length; i++) {
+        sketch.bins[i] = readVarLong(in);
+        sketch.count += sketch.bins[i];
+      }
+    }
+    if (sketch.count > 0) {
+      sketch.min = min;
+      sketch.max = max;
+    }
+    return sketch;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "QuantileSketch{" + "relativeAccuracy=" + relativeAccuracy + ", count=" + count
+        + ", min=" + min() + ", max=" + max() + ", zeroCount=" + zeroCount + ", minIndex=" + minIndex
+        + ", bins=" + (maxIndex < minIndex ? "[]" : Arrays.toString(
+        Arrays.copyOfRange(bins, minIndex - offset, maxIndex - offset + 1))) + '}';
+  }
+
+  private int index(final double value) {
+    return (int) Math.ceil(Math.log(value) * multiplier);
+  }
+
+  private double value(final int index) {
+    return 2 * Math.pow(gamma, index) / (gamma + 1);
+  }
+
+  private void addToBin(final int requested, final long binCount) {
+    int index = requested;
+    if (index < minIndex || index > maxIndex) {
+      int lowest = Math.min(index, minIndex);
+      final int highest = Math.max(index, maxIndex);
+      if ((long) highest - lowest + 1 > maxBins) {
+        lowest = highest - maxBins + 1;
+        index = Math.max(index, lowest);
+      }
+      extend(lowest, highest);
+    }
+    bins[index - offset] += binCount;
+  }
+
+  private void extend(final int lowest, final int highest) {
+    long collapsed = 0;
+    if (maxIndex >= minIndex && lowest > minIndex) {
+      // past the most buckets, so the lowest are merged into the lowest kept.
+      final int end = Math.min(lowest - 1, maxIndex);
+      for (int index = minIndex; index <= end; index++) {
+        collapsed += bins[index - offset];
+        bins[index - offset] = 0;
+      }
+      if (lowest > maxIndex) {
+        minIndex = Integer.MAX_VALUE;
+        maxIndex = Integer.MIN_VALUE;
+      } else {
+        minIndex = lowest;
+      }
+    }
+    if (lowest < offset || highest >= offset + bins.length) {
+      final int needed = highest - lowest + 1;
+      final int length = Math.min(maxBins, Math.max(needed + 32, bins.length * 2));
+      final int newOffset = lowest - (length - needed) / 2;
+      final long[] grown = new long[length];
+      if (maxIndex >= minIndex) {
+        System.arraycopy(bins, minIndex - offset, grown, minIndex - newOffset, maxIndex - minIndex + 1);
+      }
+      bins = grown;
+      offset = newOffset;
+    }
+    minIndex = Math.min(lowest, minIndex);
+    maxIndex = Math.max(highest, maxIndex);
+    bins[lowest - offset] += collapsed;
+  }
+
+  private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+    long remaining = value;
+    while ((remaining & ~0x7FL) != 0) {
+      out.writeByte((int) (remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.writeByte((int) remaining);
+  }
+
+  private static long readVarLong(final DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int next = in.readUnsignedByte();
+      value |= (long) (next & 0x7F) << shift;
+      if ((next & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Varint too long");
+  }
+
+}
@@ -0,0 +1,20 @@
+package com.codeheadsystems.metrics.histogram;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * The one thread shared by all histogram and sketch publishers, started when first used.
+ */
+final class Scheduler {
+
+  static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "metrics-histograms");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private Scheduler() {
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.codeheadsystems.metrics.histogram;
+
+import com.codeheadsystems.metrics.Tags;
+import java.util.Objects;
+
+/**
+ * A metric name and set of tags, the key of each histogram or sketch.
+ */
+final class Series {
+
+  private final String metricName;
+  private final Tags tags;
+  private final int hash;
+
+  Series(final String metricName, final Tags tags) {
+    this.metricName = metricName;
+    this.tags = tags;
+    this.hash = 31 * metricName.hashCode() + tags.hashCode();
+  }
+
+  String metricName() {
+    return metricName;
+  }
+
+  Tags tags() {
+    return tags;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Series)) {
+      return false;
+    }
+    final Series that = (Series) o;
+    return metricName.equals(that.metricName) && Objects.equals(tags, that.tags);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
@@ -0,0 +1,183 @@
+package com.codeheadsystems.metrics.histogram;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records every time into a recorder for its series, a metric name and set of tags, and passes what
+ * each series recorded to the delegate once per interval. Every call, the time included, is passed to
+ * the delegate too, so this can wrap any publisher. The base of the {@link HistogramMetricPublisher}
+ * and {@link SketchMetricPublisher}, which choose the recorder.
+ *
+ * <p>Once there are as many series as the maximum, times for new series are only passed to the
+ * delegate. Series are never removed, so keep tags bounded.
+ *
+ * @param <R> the recorder of each series.
+ */
+public abstract class SeriesMetricPublisher<R> implements MetricPublisher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SeriesMetricPublisher.class);
+
+  private final MetricPublisher delegate;
+  private final int maxSeries;
+  private final Map<Series, R> recorders = new ConcurrentHashMap<>();
+  private final LongAdder overflow = new LongAdder();
+  private final ScheduledFuture<?> flushing;
+
+  SeriesMetricPublisher(final MetricPublisher delegate, final Duration interval, final int maxSeries) {
+    this.delegate = delegate;
+    this.maxSeries = maxSeries;
+    final long nanos = interval.toNanos();
+    this.flushing = Scheduler.INSTANCE.scheduleAtFixedRate(this::flushSafely, nanos, nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * A new, empty recorder for a series.
+   *
+   * @return the recorder
+   */
+  abstract R create();
+
+  /**
+   * Records a time into the recorder of its series.
+   *
+   * @param recorder the recorder
+   * @param nanos    the time
+   */
+  abstract void record(R recorder, long nanos);
+
+  /**
+   * Passes what the recorder of a series holds to the delegate, if it recorded something.
+   *
+   * @param delegate   the delegate
+   * @param metricName the metric name
+   * @param tags       the tags
+   * @param recorder   the recorder
+   */
+  abstract void publish(MetricPublisher delegate, String metricName, Tags tags, R recorder);
+
+  @Override
+  public void open() {
+    delegate.open();
+  }
+
+  @Override
+  public void close() throws Exception {
+    delegate.close();
+  }
+
+  @Override
+  public void increment(final String metricName, final long value, final Tags tags) {
+    delegate.increment(metricName, value, tags);
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags) {
+    final R recorder = recorder(metricName, tags);
+    if (recorder != null) {
+      record(recorder, duration.toNanos());
+    }
+    delegate.time(metricName, duration, tags);
+  }
+
+  @Override
+  public Object begin(final String metricName) {
+    return delegate.begin(metricName);
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags, final Object begun) {
+    final R recorder = recorder(metricName, tags);
+    if (recorder != null) {
+      record(recorder, duration.toNanos());
+    }
+    delegate.time(metricName, duration, tags, begun);
+  }
+
+  @Override
+  public void gauge(final String metricName, final double value, final Tags tags) {
+    delegate.gauge(metricName, value, tags);
+  }
+
+  @Override
+  public void histogram(final String metricName, final HistogramSnapshot snapshot, final Tags tags) {
+    delegate.histogram(metricName, snapshot, tags);
+  }
+
+  @Override
+  public void sketch(final String metricName, final QuantileSketch sketch, final Tags tags) {
+    delegate.sketch(metricName, sketch, tags);
+  }
+
+  @Override
+  public long seriesCount() {
+    return delegate.seriesCount();
+  }
+
+  /**
+   * The number of series recorded.
+   *
+   * @return the int
+   */
+  public int size() {
+    return recorders.size();
+  }
+
+  /**
+   * The number of times not recorded since there were already the most series.
+   *
+   * @return the long
+   */
+  public long overflow() {
+    return overflow.sum();
+  }
+
+  /**
+   * Passes what every series recorded to the delegate. Called every interval, but can be called
+   * directly, for example before shutting down.
+   */
+  public synchronized void flush() {
+    recorders.forEach((series, recorder) -> publish(delegate, series.metricName(), series.tags(), recorder));
+  }
+
+  /**
+   * Stops publishing every interval. Call flush() after to deliver what was recorded since the last one.
+   */
+  public void shutdown() {
+    LOGGER.info("shutdown()");
+    flushing.cancel(false);
+  }
+
+  private R recorder(final String metricName, final Tags tags) {
+    final Tags seriesTags = tags == null ? Tags.empty() : tags;
+    final R recorder = recorders.get(new Series(metricName, seriesTags));
+    if (recorder != null) {
+      return recorder;
+    }
+    if (recorders.size() >= maxSeries) {
+      overflow.increment();
+      return null;
+    }
+    // tags can be changed by the caller, so the series keeps a copy.
+    final R created = create();
+    final R existing = recorders.putIfAbsent(new Series(metricName, Tags.of(seriesTags)), created);
+    return existing != null ? existing : created;
+  }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      // an exception would cancel the flushing, so a bad publisher only loses this interval.
+      LOGGER.error("flushSafely(): unable to publish", e);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.codeheadsystems.metrics.histogram;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+import java.time.Duration;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records every time into a quantile sketch for its series, a metric name and set of tags, and
+ * passes the sketch of each series to the delegate once per interval. Unlike percentiles, sketches
+ * from many hosts can be merged, so the delegate can send them on for fleet wide percentiles. The
+ * time itself is passed to the delegate too, so this can wrap any publisher.
+ *
+ * <p>Recording takes the lock of the series' sketch, so series hot on many threads contend more than
+ * with a {@link HistogramMetricPublisher}. Each series takes at most maxBins longs, and once there
+ * are as many series as the maximum, times for new series are only passed to the delegate.
+ */
+public class SketchMetricPublisher extends SeriesMetricPublisher<QuantileSketch> {
+
+  /**
+   * How often sketches are published unless set.
+   */
+  public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+  /**
+   * The most series recorded unless set.
+   */
+  public static final int DEFAULT_MAX_SERIES = 1000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SketchMetricPublisher.class);
+
+  private final double relativeAccuracy;
+  private final int maxBins;
+
+  private SketchMetricPublisher(final Builder builder) {
+    super(builder.delegate, builder.interval, builder.maxSeries);
+    LOGGER.info("SketchMetricPublisher({},{},{},{},{})", builder.delegate, builder.relativeAccuracy,
+        builder.maxBins, builder.interval, builder.maxSeries);
+    this.relativeAccuracy = builder.relativeAccuracy;
+    this.maxBins = builder.maxBins;
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  QuantileSketch create() {
+    return new QuantileSketch(relativeAccuracy, maxBins);
+  }
+
+  @Override
+  void record(final QuantileSketch sketch, final long nanos) {
+    sketch.add(nanos);
+  }
+
+  @Override
+  void publish(final MetricPublisher delegate, final String metricName, final Tags tags,
+               final QuantileSketch sketch) {
+    final QuantileSketch snapshot = sketch.snapshot();
+    if (!snapshot.isEmpty()) {
+      delegate.sketch(metricName, snapshot, tags);
+    }
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Builder.class);
+
+    private MetricPublisher delegate = new NullMetricsPublisher();
+    private double relativeAccuracy = QuantileSketch.DEFAULT_RELATIVE_ACCURACY;
+    private int maxBins = QuantileSketch.DEFAULT_MAX_BINS;
+    private Duration interval = DEFAULT_INTERVAL;
+    private int maxSeries = DEFAULT_MAX_SERIES;
+
+    private Builder() {
+    }
+
+    /**
+     * With delegate builder. Gets every call, and the sketches.
+     *
+     * @param delegate the delegate
+     * @return the builder
+     */
+    public Builder withDelegate(final MetricPublisher delegate) {
+      LOGGER.info("withDelegate({})", delegate);
+      this.delegate = delegate;
+      return this;
+    }
+
+    /**
+     * With relative accuracy builder. Every host should use the same, or their sketches cannot be
+     * merged.
+     *
+     * @param relativeAccuracy the relative accuracy
+     * @return the builder
+     */
+    public Builder withRelativeAccuracy(final double relativeAccuracy) {
+      LOGGER.info("withRelativeAccuracy({})", relativeAccuracy);
+      this.relativeAccuracy = relativeAccuracy;
+      return this;
+    }
+
+    /**
+     * With max bins builder. The most buckets in each sketch.
+     *
+     * @param maxBins the max bins
+     * @return the builder
+     */
+    public Builder withMaxBins(final int maxBins) {
+      LOGGER.info("withMaxBins({})", maxBins);
+      this.maxBins = maxBins;
+      return this;
+    }
+
+    /**
+     * With interval builder. How often sketches are published.
+     *
+     * @param interval the interval
+     * @return the builder
+     */
+    public Builder withInterval(final Duration interval) {
+      LOGGER.info("withInterval({})", interval);
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * With max series builder.
+     *
+     * @param maxSeries the max series
+     * @return the builder
+     */
+    public Builder withMaxSeries(final int maxSeries) {
+      LOGGER.info("withMaxSeries({})", maxSeries);
+      this.maxSeries = maxSeries;
+      return this;
+    }
+
+    /**
+     * Build sketch metric publisher.
+     *
+     * @return the sketch metric publisher
+     */
+    public SketchMetricPublisher build() {
+      Objects.requireNonNull(delegate, "delegate");
+      // fails early on a bad accuracy or max bins.
+      new QuantileSketch(relativeAccuracy, maxBins);
+      if (interval.isZero() || interval.isNegative()) {
+        throw new IllegalArgumentException("interval must be positive: " + interval);
+      }
+      return new SketchMetricPublisher(this);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package com.codeheadsystems.metrics.histogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Merges sketch files, from many hosts or intervals, and reports the percentiles of all of them.
+ * Each file holds one or more sketches written one after another with
+ * {@link QuantileSketch#writeTo(OutputStream)}.
+ *
+ * <pre>
+ *   java -cp metrics.jar com.codeheadsystems.metrics.histogram.SketchTool \
+ *       [--quantiles=0.5,0.9,0.99,0.999] [--unit=ns|us|ms|s] [--out=merged.sketch] file...
+ * </pre>
+ */
+public final class SketchTool {
+
+  private static final double[] DEFAULT_QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private SketchTool() {
+  }
+
+  /**
+   * The entry point. Exits with 1 if the options or a file are bad.
+   *
+   * @param args the args
+   */
+  public static void main(final String[] args) {
+    System.exit(run(System.out, args));
+  }
+
+  /**
+   * Merges the files and prints the report.
+   *
+   * @param out  where the report goes.
+   * @param args the options and files.
+   * @return 0 if it worked.
+   */
+  static int run(final PrintStream out, final String... args) {
+    double[] quantiles = DEFAULT_QUANTILES;
+    String unit = "ns";
+    Path output = null;
+    final List<Path> files = new ArrayList<>();
+    try {
+      for (String arg : args) {
+        final int equals = arg.indexOf('=');
+        final String name = equals < 0 ? arg : arg.substring(0, equals);
+        final String value = equals < 0 ? null : arg.substring(equals + 1);
+        if (name.startsWith("--") && value == null) {
+          throw new IllegalArgumentException("Missing value: " + arg);
+        } else if (name.equals("--quantiles")) {
+          quantiles = quantiles(value);
+        } else if (name.equals("--unit")) {
+          divisor(value);
+          unit = value;
+        } else if (name.equals("--out")) {
+          output = Paths.get(value);
+        } else if (name.startsWith("--")) {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        } else {
+          files.add(Paths.get(arg));
+        }
+      }
+      if (files.isEmpty()) {
+        throw new IllegalArgumentException("No sketch files given");
+      }
+    } catch (RuntimeException e) {
+      out.println(e.getMessage());
+      out.println("Usage: SketchTool [--quantiles=0.5,0.9,0.99,0.999] [--unit=ns|us|ms|s] [--out=merged.sketch] file...");
+      return 1;
+    }
+    QuantileSketch merged = null;
+    int sketches = 0;
+    for (Path file : files) {
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+        QuantileSketch sketch;
+        while ((sketch = QuantileSketch.readFrom(in)) != null) {
+          if (merged == null) {
+            merged = new QuantileSketch(sketch.relativeAccuracy(), sketch.maxBins());
+          }
+          merged.merge(sketch);
+          sketches++;
+        }
+      } catch (IOException | IllegalArgumentException e) {
+        out.println(file + ": " + e.getMessage());
+        return 1;
+      }
+    }
+    if (merged == null) {
+      merged = new QuantileSketch();
+    }
+    if (output != null) {
+      try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(output))) {
+        merged.writeTo(stream);
+      } catch (IOException e) {
+        out.println(output + ": " + e.getMessage());
+        return 1;
+      }
+    }
+    out.print(report(merged, files.size(), sketches, quantiles, unit));
+    return 0;
+  }
+
+  /**
+   * The report of the merged sketch.
+   *
+   * @param sketch    the merged sketch.
+   * @param files     how many files were read.
+   * @param sketches  how many sketches were in them.
+   * @param quantiles to report.
+   * @param unit      to report values in.
+   * @return the report.
+   */
+  static String report(final QuantileSketch sketch,
+                       final int files,
+                       final int sketches,
+                       final double[] quantiles,
+                       final String unit) {
+    final double divisor = divisor(unit);
+    final StringBuilder report = new StringBuilder();
+    report.append(String.format(Locale.ROOT, "files     %d%n", files));
+    report.append(String.format(Locale.ROOT, "sketches  %d%n", sketches));
+    report.append(String.format(Locale.ROOT, "accuracy  %.2f%%%n", sketch.relativeAccuracy() * 100));
+    report.append(String.format(Locale.ROOT, "count     %d%n", sketch.count()));
+    if (!sketch.isEmpty()) {
+      report.append(String.format(Locale.ROOT, "min       %.3f %s%n", sketch.min() / divisor, unit));
+      report.append(String.format(Locale.ROOT, "mean      %.3f %s%n",
+          sketch.sum() / sketch.count() / divisor, unit));
+      for (double quantile : quantiles) {
+        report.append(String.format(Locale.ROOT, "%-9s %.3f %s%n",
+            label(quantile), sketch.quantile(quantile) / divisor, unit));
+      }
+      report.append(String.format(Locale.ROOT, "max       %.3f %s%n", sketch.max() / divisor, unit));
+    }
+    return report.toString();
+  }
+
+  private static String label(final double quantile) {
+    return "p" + new BigDecimal(Double.toString(quantile)).movePointRight(2).stripTrailingZeros().toPlainString();
+  }
+
+  private static double[] quantiles(final String value) {
+    final String[] parts = value.split(",");
+    final double[] quantiles = new double[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      quantiles[i] = Double.parseDouble(parts[i].trim());
+      if (quantiles[i] < 0 || quantiles[i] > 1) {
+        throw new IllegalArgumentException("Quantiles must be between 0 and 1: " + parts[i]);
+      }
+    }
+    return quantiles;
+  }
+
+  private static double divisor(final String unit) {
+    switch (String.valueOf(unit)) {
+      case "ns":
+        return 1;
+      case "us":
+        return 1_000;
+      case "ms":
+        return 1_000_000;
+      case "s":
+        return 1_000_000_000;
+      default:
+        throw new IllegalArgumentException("Unknown unit: " + unit);
+    }
+  }
+
+}
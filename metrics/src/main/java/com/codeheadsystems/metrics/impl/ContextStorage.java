@@ -0,0 +1,73 @@
+package com.codeheadsystems.metrics.impl;
+
+import com.codeheadsystems.metrics.Metrics;
+import java.util.function.Function;
+
+/**
+ * Where the MetricFactory keeps the current metrics for the running thread. The default is
+ * a thread local, but you can use scoped values when the JDK supports them.
+ */
+public interface ContextStorage {
+
+  /**
+   * Storage backed by a thread local. This is the default.
+   *
+   * @return the context storage.
+   */
+  static ContextStorage threadLocal() {
+    return new ThreadLocalContextStorage();
+  }
+
+  /**
+   * Storage backed by a ScopedValue if the JDK supports it, so virtual threads and structured
+   * child tasks see the context without a thread local. Falls back to the thread local otherwise.
+   *
+   * @return the context storage.
+   */
+  static ContextStorage scopedValue() {
+    return ScopedValueContextStorage.isSupported()
+        ? new ScopedValueContextStorage()
+        : new ThreadLocalContextStorage();
+  }
+
+  /**
+   * Gets the current metrics for this thread.
+   *
+   * @return the metrics, or null if there is none.
+   */
+  MetricsImpl get();
+
+  /**
+   * Sets the metrics for this thread until restore is called. Used when the context is
+   * managed manually.
+   *
+   * @param metrics to set.
+   * @return the value to hand back to restore().
+   */
+  MetricsImpl set(MetricsImpl metrics);
+
+  /**
+   * Restores the value returned from set().
+   *
+   * @param previous the value set() returned.
+   */
+  void restore(MetricsImpl previous);
+
+  /**
+   * Makes the metrics current only for the duration of the function, which is given the metrics.
+   *
+   * @param metrics  to make current.
+   * @param function to call.
+   * @param <R>      the result type.
+   * @return the result from the function.
+   */
+  default <R> R call(final MetricsImpl metrics, final Function<Metrics, R> function) {
+    final MetricsImpl previous = set(metrics);
+    try {
+      return function.apply(metrics);
+    } finally {
+      restore(previous);
+    }
+  }
+
+}
@@ -1,6 +1,8 @@
 package com.codeheadsystems.metrics.impl;
 
 import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.histogram.HistogramSnapshot;
+import com.codeheadsystems.metrics.histogram.QuantileSketch;
 import java.time.Duration;
 
 /**
@@ -39,4 +41,75 @@ public interface MetricPublisher extends AutoCloseable {
    */
   void time(String metricName, Duration duration, Tags tags);
 
+  /**
+   * Called before a timed call starts, for publishers that time the call themselves. What is
+   * returned is handed back to time() when the call ends. Publishers that wrap another should pass
+   * this on, so the one they wrap can time the call.
+   *
+   * @param metricName to time.
+   * @return anything the publisher needs when the call ends, or null.
+   */
+  default Object begin(String metricName) {
+    return null;
+  }
+
+  /**
+   * Store the execute time for a method that begin() returned something for. Called from the thread
+   * the call ended on, which for an async call is not always the thread begin() was called from.
+   *
+   * @param metricName to time.
+   * @param duration   how long it lasted.
+   * @param tags       to aad to the metric.
+   * @param begun      what begin() returned.
+   */
+  default void time(String metricName, Duration duration, Tags tags, Object begun) {
+    time(metricName, duration, tags);
+  }
+
+  /**
+   * Store the current value of a gauge. Called from the gauge polling thread, once per gauge for
+   * every poll. Publishers that do not support gauges can ignore them.
+   *
+   * @param metricName of the gauge.
+   * @param value      the value sampled.
+   * @param tags       to add to the metric.
+   */
+  default void gauge(String metricName, double value, Tags tags) {
+  }
+
+  /**
+   * Store what a timer recorded over an interval. Called from the histogram flushing thread, once per
+   * series that recorded something in the interval. Publishers that do not support histograms can
+   * ignore them.
+   *
+   * @param metricName of the timer.
+   * @param snapshot   the buckets recorded, in nanoseconds.
+   * @param tags       to add to the metric.
+   */
+  default void histogram(String metricName, HistogramSnapshot snapshot, Tags tags) {
+  }
+
+  /**
+   * Store the sketch of what a timer recorded over an interval. Called from the histogram flushing
+   * thread, once per series that recorded something in the interval. Sketches from many hosts can be
+   * merged, so publishers can send them on with toBytes() for a downstream aggregator. Publishers
+   * that do not support sketches can ignore them.
+   *
+   * @param metricName of the timer.
+   * @param sketch     the values recorded, in nanoseconds. Owned by the publisher once passed.
+   * @param tags       to add to the metric.
+   */
+  default void sketch(String metricName, QuantileSketch sketch, Tags tags) {
+  }
+
+  /**
+   * The number of series this publisher holds, a series being a metric name and set of tags. Only
+   * used for the self instrumentation stats.
+   *
+   * @return the count, or -1 if not known.
+   */
+  default long seriesCount() {
+    return -1;
+  }
+
 }
@@ -20,9 +20,15 @@ import com.codeheadsystems.metrics.CheckedSupplier;
 import com.codeheadsystems.metrics.Metrics;
 import com.codeheadsystems.metrics.Tags;
 import com.codeheadsystems.metrics.TagsGenerator;
+import com.codeheadsystems.metrics.config.MetricRule;
+import com.codeheadsystems.metrics.config.MetricsConfiguration;
+import com.codeheadsystems.metrics.config.MetricsConfigurationHolder;
+import com.codeheadsystems.metrics.helper.MetricsStats;
 import com.codeheadsystems.metrics.helper.TagsGeneratorRegistry;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,8 +45,14 @@ public class MetricsImpl implements AutoCloseable, Metrics {
   private final MetricPublisher metricPublisher;
   private final TagsGenerator<Throwable> defaultTagsGeneratorForThrowable;
   private final TagsGeneratorRegistry tagsGeneratorRegistry;
-  private final Tags tags;
   private final Function<String, String> name;
+  private final MetricsConfigurationHolder configurationHolder;
+  private final MetricsStats stats;
+  private final Thread owner;
+  // volatile since StructuredTaskScope forks can read them from other threads.
+  private volatile Tags tags;
+  private volatile boolean sharedTags;
+  private volatile boolean escaped;
 
   /**
    * Default constructor.
@@ -57,13 +69,106 @@ public class MetricsImpl implements AutoCloseable, Metrics {
                      final TagsGeneratorRegistry tagsGeneratorRegistry,
                      final Tags tags,
                      final Function<String, String> name) {
-    LOGGER.info("MetricsImpl({},{})", metricPublisher, tags);
+    this(clock, metricPublisher, defaultTagsGeneratorForThrowable, tagsGeneratorRegistry, tags, name, null);
+  }
+
+  /**
+   * Constructor with runtime configuration.
+   *
+   * @param clock                            the clock to use.
+   * @param metricPublisher                  the metric implementation.
+   * @param defaultTagsGeneratorForThrowable to use for exceptions, optional.
+   * @param tagsGeneratorRegistry            to help with tags.
+   * @param name                             function to convert a name to a metric name.
+   * @param configurationHolder              runtime configuration checked for every event, optional.
+   */
+  public MetricsImpl(final Clock clock,
+                     final MetricPublisher metricPublisher,
+                     final TagsGenerator<Throwable> defaultTagsGeneratorForThrowable,
+                     final TagsGeneratorRegistry tagsGeneratorRegistry,
+                     final Tags tags,
+                     final Function<String, String> name,
+                     final MetricsConfigurationHolder configurationHolder) {
+    this(clock, metricPublisher, defaultTagsGeneratorForThrowable, tagsGeneratorRegistry, tags, name,
+        configurationHolder, null);
+  }
+
+  /**
+   * Constructor with runtime configuration and self instrumentation.
+   *
+   * @param clock                            the clock to use.
+   * @param metricPublisher                  the metric implementation.
+   * @param defaultTagsGeneratorForThrowable to use for exceptions, optional.
+   * @param tagsGeneratorRegistry            to help with tags.
+   * @param name                             function to convert a name to a metric name.
+   * @param configurationHolder              runtime configuration checked for every event, optional.
+   * @param stats                            records dropped events and tag generation time, optional.
+   */
+  public MetricsImpl(final Clock clock,
+                     final MetricPublisher metricPublisher,
+                     final TagsGenerator<Throwable> defaultTagsGeneratorForThrowable,
+                     final TagsGeneratorRegistry tagsGeneratorRegistry,
+                     final Tags tags,
+                     final Function<String, String> name,
+                     final MetricsConfigurationHolder configurationHolder,
+                     final MetricsStats stats) {
+    LOGGER.trace("MetricsImpl({},{})", metricPublisher, tags);
     this.clock = clock;
     this.tagsGeneratorRegistry = tagsGeneratorRegistry;
     this.metricPublisher = metricPublisher;
     this.tags = tags;
+    this.sharedTags = false;
     this.defaultTagsGeneratorForThrowable = defaultTagsGeneratorForThrowable;
     this.name = name;
+    this.configurationHolder = configurationHolder;
+    this.stats = stats;
+    this.owner = Thread.currentThread();
+  }
+
+  /**
+   * Resets this instance so it can be reused for a new context. The tags are shared with the caller
+   * until they are changed on this instance, at which point they are copied.
+   *
+   * @param parentTags the tags to start with.
+   */
+  public void reset(final Tags parentTags) {
+    this.tags = parentTags;
+    this.sharedTags = true;
+  }
+
+  /**
+   * Resets this instance so it can be reused for a new context nested in the parent. The parent tags
+   * are shared until they are changed on either, at which point the one changing them copies them.
+   *
+   * @param parent the metrics of the enclosing context.
+   */
+  public void reset(final MetricsImpl parent) {
+    reset(parent.shareTags());
+  }
+
+  /**
+   * A metrics for work handed to another thread. It publishes to the same publisher with the same
+   * configuration. The tags are shared until they are changed on either side, at which point the
+   * side changing them copies them first, so tags added on either side afterwards are not seen by
+   * the other. It does not open or close the publisher.
+   *
+   * @return the metrics.
+   */
+  public MetricsImpl child() {
+    final MetricsImpl child = new MetricsImpl(clock, metricPublisher, defaultTagsGeneratorForThrowable,
+        tagsGeneratorRegistry, shareTags(), name, configurationHolder, stats);
+    child.sharedTags = true;
+    return child;
+  }
+
+  /**
+   * Our tags, which we copy before we next change them, since someone else now has them too.
+   */
+  private Tags shareTags() {
+    synchronized (this) {
+      sharedTags = true;
+      return tags;
+    }
   }
 
   /**
@@ -101,25 +206,57 @@ public class MetricsImpl implements AutoCloseable, Metrics {
    * @return tags. tags
    */
   public Tags getTags() {
+    if (sharedTags) {
+      synchronized (this) {
+        if (sharedTags) {
+          tags = Tags.of(tags);
+          sharedTags = false;
+        }
+      }
+    }
     return tags;
   }
 
+  /**
+   * Notes the thread using this metrics. Once used by a thread other than the one that created it,
+   * it is never reused for another context.
+   *
+   * @param thread the thread using it.
+   */
+  public void usedBy(final Thread thread) {
+    if (thread != owner && !escaped) {
+      escaped = true;
+    }
+  }
+
+  /**
+   * True if this metrics was used by a thread other than the one that created it.
+   *
+   * @return the boolean.
+   */
+  public boolean escaped() {
+    return escaped;
+  }
+
   @Override
   public Tags and(final Tags overrideTags) {
-    getTags().add(overrideTags);
-    return tags;
+    return getTags().add(overrideTags);
   }
 
   @Override
   public Tags and(final String... overrideTags) {
-    getTags().add(overrideTags);
-    return tags;
+    return getTags().add(overrideTags);
   }
 
   @Override
   public void increment(final String metricName, final long value, final Tags tags) {
-    final Tags aggregateTags = getTags().from(tags);
-    metricPublisher.increment(name.apply(metricName), value, aggregateTags);
+    final MetricsConfiguration configuration = configuration();
+    final MetricRule rule = configuration == null ? null : configuration.rule(metricName);
+    if (!shouldPublish(rule)) {
+      return;
+    }
+    final Tags aggregateTags = this.tags.from(tags);
+    metricPublisher.increment(metricName(configuration, metricName), value, filter(rule, aggregateTags));
   }
 
   /**
@@ -142,36 +279,173 @@ public class MetricsImpl implements AutoCloseable, Metrics {
                                          final TagsGenerator<R> tagsGeneratorForResult,
                                          final TagsGenerator<Throwable> tagsGeneratorForThrowable,
                                          final Tags tags) throws E {
+    final MetricsConfiguration configuration = configuration();
+    final MetricRule rule = configuration == null ? null : configuration.rule(metricName);
+    if (!shouldPublish(rule)) {
+      return supplier.get();
+    }
     final Tags executedTags = Tags.empty();
+    final String publishedName = metricName(configuration, metricName);
+    final Object begun = metricPublisher.begin(publishedName);
     final long start = clock.millis();
     long endDuration = 0;
     try {
       final R r = supplier.get();
       endDuration = clock.millis();
+      final long tagStart = stats == null ? 0 : System.nanoTime();
       if (tagsGeneratorForResult != null) {
         executedTags.add(tagsGeneratorForResult.from(r));
       } else if (tagsGeneratorRegistry != null) {
         tagsGeneratorRegistry.aggregateIfFound(executedTags, r);
       }
+      tagGeneration(tagStart);
       return r;
     } catch (final Throwable e) {
       endDuration = clock.millis();
+      final long tagStart = stats == null ? 0 : System.nanoTime();
       if (tagsGeneratorForThrowable != null) {
         executedTags.add(tagsGeneratorForThrowable.from(e));
       } else if (defaultTagsGeneratorForThrowable != null) {
         executedTags.add(defaultTagsGeneratorForThrowable.from(e));
       }
+      tagGeneration(tagStart);
       throw e;
     } finally {
       final long duration = endDuration - start;
-      final Tags finalTags = getTags().from(tags).add(executedTags);
-      metricPublisher.time(name.apply(metricName), Duration.ofMillis(duration), finalTags);
+      final Tags finalTags = this.tags.from(tags).add(executedTags);
+      publishTime(publishedName, Duration.ofMillis(duration), filter(rule, finalTags), begun);
+    }
+  }
+
+  /**
+   * Times the stage until it completes. The tags are combined with ours now, so this context may
+   * be closed or reused by the time the stage completes.
+   *
+   * @param metricName to store the time.
+   * @param supplier   which is called to get the stage.
+   * @param tags       optional tags you may want to include.
+   * @param <R>        the type of stage from the supplier.
+   * @param <E>        the exception the supplier can throw.
+   * @return the stage from the supplier, unchanged.
+   * @throws E if the supplier throws an exception.
+   */
+  @Override
+  public <R extends CompletionStage<?>, E extends Exception> R timeAsync(final String metricName,
+                                                                        final CheckedSupplier<R, E> supplier,
+                                                                        final Tags tags) throws E {
+    final MetricsConfiguration configuration = configuration();
+    final MetricRule rule = configuration == null ? null : configuration.rule(metricName);
+    if (!shouldPublish(rule)) {
+      return supplier.get();
+    }
+    final Tags callTags = this.tags.from(tags);
+    final String publishedName = metricName(configuration, metricName);
+    final Object begun = metricPublisher.begin(publishedName);
+    final long start = clock.millis();
+    final R stage;
+    try {
+      stage = supplier.get();
+    } catch (final Throwable e) {
+      publishCompleted(rule, publishedName, begun, start, callTags, null, e);
+      throw e;
+    }
+    if (stage == null) {
+      publishCompleted(rule, publishedName, begun, start, callTags, null, null);
+    } else {
+      stage.whenComplete((result, throwable) ->
+          publishCompleted(rule, publishedName, begun, start, callTags, result, throwable));
+    }
+    return stage;
+  }
+
+  private void publishCompleted(final MetricRule rule,
+                                final String publishedName,
+                                final Object begun,
+                                final long start,
+                                final Tags callTags,
+                                final Object result,
+                                final Throwable throwable) {
+    final long duration = clock.millis() - start;
+    final long tagStart = stats == null ? 0 : System.nanoTime();
+    if (throwable != null) {
+      final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+          ? throwable.getCause()
+          : throwable;
+      if (defaultTagsGeneratorForThrowable != null) {
+        callTags.add(defaultTagsGeneratorForThrowable.from(cause));
+      }
+    } else if (tagsGeneratorRegistry != null) {
+      tagsGeneratorRegistry.aggregateIfFound(callTags, result);
+    }
+    tagGeneration(tagStart);
+    publishTime(publishedName, Duration.ofMillis(duration), filter(rule, callTags), begun);
+  }
+
+  private void publishTime(final String publishedName, final Duration duration, final Tags tags, final Object begun) {
+    // only publishers that began something get it back, the rest keep the plain call.
+    if (begun == null) {
+      metricPublisher.time(publishedName, duration, tags);
+    } else {
+      metricPublisher.time(publishedName, duration, tags, begun);
     }
   }
 
   @Override
   public void publishTime(final String metricName, final Duration duration, final Tags tags) {
-    metricPublisher.time(name.apply(metricName), duration, tags);
+    final MetricsConfiguration configuration = configuration();
+    final MetricRule rule = configuration == null ? null : configuration.rule(metricName);
+    if (!shouldPublish(rule)) {
+      return;
+    }
+    metricPublisher.time(metricName(configuration, metricName), duration, filter(rule, tags));
+  }
+
+  @Override
+  public void publishGauge(final String metricName, final double value, final Tags tags) {
+    final MetricsConfiguration configuration = configuration();
+    final MetricRule rule = configuration == null ? null : configuration.rule(metricName);
+    if (!shouldPublish(rule)) {
+      return;
+    }
+    metricPublisher.gauge(metricName(configuration, metricName), value, filter(rule, tags));
+  }
+
+  private MetricsConfiguration configuration() {
+    return configurationHolder == null ? null : configurationHolder.get();
+  }
+
+  private String metricName(final MetricsConfiguration configuration, final String metricName) {
+    if (configuration == null || configuration.getPrefix() == null) {
+      return name.apply(metricName);
+    }
+    return configuration.getPrefix() + metricName;
+  }
+
+  private boolean shouldPublish(final MetricRule rule) {
+    if (rule == null || rule.shouldPublish()) {
+      return true;
+    }
+    if (stats != null) {
+      if (rule.isEnabled()) {
+        stats.sampledOut();
+      } else {
+        stats.dropped();
+      }
+    }
+    return false;
+  }
+
+  private void tagGeneration(final long start) {
+    if (stats != null) {
+      stats.tagGeneration(System.nanoTime() - start);
+    }
+  }
+
+  private static Tags filter(final MetricRule rule, final Tags tags) {
+    if (tags == null) {
+      return Tags.empty(); // publishers never see null tags.
+    }
+    return rule == null ? tags : rule.filter(tags);
   }
 
 }
\ No newline at end of file
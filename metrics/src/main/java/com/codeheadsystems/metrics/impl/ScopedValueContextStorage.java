@@ -0,0 +1,184 @@
+package com.codeheadsystems.metrics.impl;
+
+import com.codeheadsystems.metrics.Metrics;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the current metrics in a java.lang.ScopedValue. This library is built for java 11, so the
+ * ScopedValue API is bound through method handles once when the class loads. Contexts created with
+ * MetricFactory.with() are bound to the scoped value and are inherited by StructuredTaskScope forks.
+ * Contexts managed manually with enableMetricsContext() cannot be expressed as a scope, so those use
+ * a thread local that takes precedence while it is set, and are not inherited.
+ *
+ * <p>Only methods that are the same in the 21 preview and the final API of 25 are used. Binding and
+ * reading a value is tried once when the class loads, so isSupported() is false on a JDK where the
+ * API differs.
+ */
+public class ScopedValueContextStorage implements ContextStorage {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ScopedValueContextStorage.class);
+
+  private static final MethodHandle NEW_INSTANCE;
+  private static final MethodHandle WHERE;
+  private static final MethodHandle RUN;
+  private static final MethodHandle IS_BOUND;
+  private static final MethodHandle GET;
+
+  static {
+    MethodHandle newInstance = null;
+    MethodHandle where = null;
+    MethodHandle run = null;
+    MethodHandle isBound = null;
+    MethodHandle get = null;
+    try {
+      final Class<?> scopedValue = Class.forName("java.lang.ScopedValue");
+      final Class<?> carrier = Class.forName("java.lang.ScopedValue$Carrier");
+      final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      newInstance = lookup.findStatic(scopedValue, "newInstance", MethodType.methodType(scopedValue));
+      where = lookup.findStatic(scopedValue, "where", MethodType.methodType(carrier, scopedValue, Object.class));
+      run = lookup.findVirtual(carrier, "run", MethodType.methodType(void.class, Runnable.class));
+      // orElse(null) is not used: the final API rejects null.
+      isBound = lookup.findVirtual(scopedValue, "isBound", MethodType.methodType(boolean.class));
+      get = lookup.findVirtual(scopedValue, "get", MethodType.methodType(Object.class));
+      probe(newInstance, where, run, isBound, get); // make sure it is usable, not just present.
+    } catch (Throwable t) {
+      LOGGER.info("ScopedValue is not available in this JDK: {}", t.toString());
+      newInstance = null;
+    }
+    NEW_INSTANCE = newInstance;
+    WHERE = where;
+    RUN = run;
+    IS_BOUND = isBound;
+    GET = get;
+  }
+
+  private final Object scopedValue;
+  private final ThreadLocal<MetricsImpl> manualThreadLocal;
+
+  /**
+   * Default constructor. Check isSupported() first.
+   */
+  public ScopedValueContextStorage() {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("ScopedValue is not available in this JDK");
+    }
+    this.scopedValue = invoke(NEW_INSTANCE);
+    this.manualThreadLocal = new ThreadLocal<>();
+  }
+
+  /**
+   * Returns true if this JDK has a usable ScopedValue.
+   *
+   * @return the boolean.
+   */
+  public static boolean isSupported() {
+    return NEW_INSTANCE != null;
+  }
+
+  @Override
+  public MetricsImpl get() {
+    final MetricsImpl manual = manualThreadLocal.get();
+    if (manual != null) {
+      return manual;
+    }
+    final MetricsImpl metrics;
+    try {
+      metrics = (boolean) IS_BOUND.invoke(scopedValue) ? (MetricsImpl) GET.invoke(scopedValue) : null;
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+    if (metrics != null) {
+      // forks see the metrics of the thread that bound it, so it must not go back to that thread's pool.
+      metrics.usedBy(Thread.currentThread());
+    }
+    return metrics;
+  }
+
+  @Override
+  public MetricsImpl set(final MetricsImpl metrics) {
+    final MetricsImpl previous = manualThreadLocal.get();
+    manualThreadLocal.set(metrics);
+    return previous;
+  }
+
+  @Override
+  public void restore(final MetricsImpl previous) {
+    if (previous == null) {
+      manualThreadLocal.remove();
+    } else {
+      manualThreadLocal.set(previous);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <R> R call(final MetricsImpl metrics, final Function<Metrics, R> function) {
+    // a manual context would hide the one we bind, so step out of it for the duration.
+    final MetricsImpl manual = manualThreadLocal.get();
+    if (manual != null) {
+      manualThreadLocal.remove();
+    }
+    try {
+      final Object[] result = new Object[1];
+      final Runnable runnable = () -> result[0] = function.apply(metrics);
+      RUN.invoke(WHERE.invoke(scopedValue, (Object) metrics), runnable);
+      return (R) result[0];
+    } catch (Throwable t) {
+      throw rethrow(t);
+    } finally {
+      if (manual != null) {
+        manualThreadLocal.set(manual);
+      }
+    }
+  }
+
+  private static void probe(final MethodHandle newInstance,
+                            final MethodHandle where,
+                            final MethodHandle run,
+                            final MethodHandle isBound,
+                            final MethodHandle get) throws Throwable {
+    final Object scopedValue = newInstance.invoke();
+    final Object bound = new Object();
+    final Object[] seen = new Object[2];
+    final Runnable runnable = () -> {
+      try {
+        seen[0] = get.invoke(scopedValue);
+      } catch (Throwable t) {
+        seen[1] = t;
+      }
+    };
+    if ((boolean) isBound.invoke(scopedValue)) {
+      throw new IllegalStateException("A new ScopedValue is bound");
+    }
+    run.invoke(where.invoke(scopedValue, bound), runnable);
+    if (seen[1] != null) {
+      throw (Throwable) seen[1];
+    }
+    if (seen[0] != bound) {
+      throw new IllegalStateException("ScopedValue did not read back what was bound");
+    }
+  }
+
+  private static Object invoke(final MethodHandle methodHandle) {
+    try {
+      return methodHandle.invoke();
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  private static RuntimeException rethrow(final Throwable t) {
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new IllegalStateException(t);
+  }
+
+}
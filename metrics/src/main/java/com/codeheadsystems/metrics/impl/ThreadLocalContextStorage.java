@@ -0,0 +1,28 @@
+package com.codeheadsystems.metrics.impl;
+
+/**
+ * Keeps the current metrics in a thread local.
+ */
+public class ThreadLocalContextStorage implements ContextStorage {
+
+  private final ThreadLocal<MetricsImpl> metricsImplThreadLocal = new ThreadLocal<>();
+
+  @Override
+  public MetricsImpl get() {
+    return metricsImplThreadLocal.get();
+  }
+
+  @Override
+  public MetricsImpl set(final MetricsImpl metrics) {
+    final MetricsImpl previous = metricsImplThreadLocal.get();
+    metricsImplThreadLocal.set(metrics);
+    return previous;
+  }
+
+  @Override
+  public void restore(final MetricsImpl previous) {
+    // set(null) instead of remove() keeps the thread local entry, so the next context does not allocate one.
+    metricsImplThreadLocal.set(previous);
+  }
+
+}
@@ -0,0 +1,70 @@
+package com.codeheadsystems.metrics.topk;
+
+import java.util.Objects;
+
+/**
+ * A value and how much of the weight it had, as estimated by a {@link SpaceSaving}. The estimate is
+ * never lower than the true weight, and at most the error over it.
+ */
+public final class HeavyHitter {
+
+  private final String value;
+  private final long estimate;
+  private final long error;
+
+  /**
+   * Instantiates a new Heavy hitter.
+   *
+   * @param value    the tag value.
+   * @param estimate the estimated weight.
+   * @param error    the most the estimate can be over.
+   */
+  public HeavyHitter(final String value, final long estimate, final long error) {
+    this.value = value;
+    this.estimate = estimate;
+    this.error = error;
+  }
+
+  public String value() {
+    return value;
+  }
+
+  public long estimate() {
+    return estimate;
+  }
+
+  public long error() {
+    return error;
+  }
+
+  /**
+   * The weight the value had at least.
+   *
+   * @return the long
+   */
+  public long guaranteed() {
+    return estimate - error;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof HeavyHitter)) {
+      return false;
+    }
+    final HeavyHitter that = (HeavyHitter) o;
+    return estimate == that.estimate && error == that.error && Objects.equals(value, that.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(value, estimate, error);
+  }
+
+  @Override
+  public String toString() {
+    return "HeavyHitter{" + "value='" + value + '\'' + ", estimate=" + estimate + ", error=" + error + '}';
+  }
+}
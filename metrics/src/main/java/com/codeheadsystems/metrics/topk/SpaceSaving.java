@@ -0,0 +1,156 @@
+package com.codeheadsystems.metrics.topk;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the values with the most weight using the Space-Saving algorithm, in fixed memory. It keeps
+ * a counter for at most capacity values. A value already counted adds its weight, and a new value
+ * takes over the counter with the least weight, starting from that weight. Any value with more than
+ * total / capacity of the weight is sure to be counted, and no estimate is more than total / capacity
+ * over.
+ *
+ * <p>Updates are lock free: a counted value is one atomic add, and a new one a scan for the smallest
+ * counter and a compare and set. A weight added to a counter at the moment it is taken over is lost,
+ * which only makes the estimates lower than Space-Saving promises.
+ */
+public final class SpaceSaving {
+
+  private static final int MAX_ATTEMPTS = 8;
+
+  private final int capacity;
+  private final AtomicReferenceArray<Counter> slots;
+  private final Map<String, Counter> counters;
+  private final LongAdder total = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * Instantiates a new Space saving.
+   *
+   * @param capacity the most values counted.
+   */
+  public SpaceSaving(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.counters = new ConcurrentHashMap<>(capacity * 2);
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * The weight of every value added.
+   *
+   * @return the long
+   */
+  public long total() {
+    return total.sum();
+  }
+
+  /**
+   * The number of adds not counted for a value since other threads kept taking the counter first.
+   * They are still in the total.
+   *
+   * @return the long
+   */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Add weight to the value.
+   *
+   * @param value  the value.
+   * @param weight the weight, not negative.
+   */
+  public void add(final String value, final long weight) {
+    total.add(weight);
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      final Counter counter = counters.get(value);
+      if (counter != null) {
+        counter.weight.addAndGet(weight);
+        return;
+      }
+      if (replaceSmallest(value, weight)) {
+        return;
+      }
+    }
+    dropped.increment();
+  }
+
+  /**
+   * The values with the most weight, most first.
+   *
+   * @param k how many.
+   * @return at most k values.
+   */
+  public List<HeavyHitter> top(final int k) {
+    final List<HeavyHitter> hitters = new ArrayList<>(capacity);
+    for (int i = 0; i < capacity; i++) {
+      final Counter counter = slots.get(i);
+      if (counter != null) {
+        hitters.add(new HeavyHitter(counter.value, counter.weight.get(), counter.error));
+      }
+    }
+    hitters.sort(Comparator.comparingLong(HeavyHitter::estimate).reversed());
+    return hitters.size() > k ? new ArrayList<>(hitters.subList(0, k)) : hitters;
+  }
+
+  private boolean replaceSmallest(final String value, final long weight) {
+    int smallestSlot = 0;
+    Counter smallest = null;
+    long smallestWeight = Long.MAX_VALUE;
+    for (int i = 0; i < capacity; i++) {
+      final Counter counter = slots.get(i);
+      if (counter == null) {
+        smallestSlot = i;
+        smallest = null;
+        smallestWeight = 0;
+        break;
+      }
+      final long counterWeight = counter.weight.get();
+      if (counterWeight < smallestWeight) {
+        smallestSlot = i;
+        smallest = counter;
+        smallestWeight = counterWeight;
+      }
+    }
+    final Counter created = new Counter(value, smallestWeight + weight, smallestWeight);
+    if (counters.putIfAbsent(value, created) != null) {
+      // another thread added the value, so add to its counter instead.
+      return false;
+    }
+    if (!slots.compareAndSet(smallestSlot, smallest, created)) {
+      counters.remove(value, created);
+      return false;
+    }
+    if (smallest != null) {
+      counters.remove(smallest.value, smallest);
+    }
+    return true;
+  }
+
+  private static final class Counter {
+
+    private final String value;
+    private final AtomicLong weight;
+    private final long error;
+
+    private Counter(final String value, final long weight, final long error) {
+      this.value = value;
+      this.weight = new AtomicLong(weight);
+      this.error = error;
+    }
+  }
+
+}
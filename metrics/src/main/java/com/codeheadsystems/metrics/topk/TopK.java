@@ -0,0 +1,63 @@
+package com.codeheadsystems.metrics.topk;
+
+import java.util.List;
+
+/**
+ * The heaviest values of one tag key over an interval, by the number of events and by the total time
+ * of the timed ones.
+ */
+public final class TopK {
+
+  private final String tagKey;
+  private final List<HeavyHitter> byCount;
+  private final List<HeavyHitter> byTime;
+  private final long totalCount;
+  private final long totalNanos;
+
+  /**
+   * Instantiates a new Top k.
+   *
+   * @param tagKey     the tag key.
+   * @param byCount    the values with the most events, most first.
+   * @param byTime     the values with the most time in nanoseconds, most first.
+   * @param totalCount the events with the tag key.
+   * @param totalNanos the time of the timed events with the tag key.
+   */
+  public TopK(final String tagKey,
+              final List<HeavyHitter> byCount,
+              final List<HeavyHitter> byTime,
+              final long totalCount,
+              final long totalNanos) {
+    this.tagKey = tagKey;
+    this.byCount = List.copyOf(byCount);
+    this.byTime = List.copyOf(byTime);
+    this.totalCount = totalCount;
+    this.totalNanos = totalNanos;
+  }
+
+  public String tagKey() {
+    return tagKey;
+  }
+
+  public List<HeavyHitter> byCount() {
+    return byCount;
+  }
+
+  public List<HeavyHitter> byTime() {
+    return byTime;
+  }
+
+  public long totalCount() {
+    return totalCount;
+  }
+
+  public long totalNanos() {
+    return totalNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "TopK{" + "tagKey='" + tagKey + '\'' + ", byCount=" + byCount + ", byTime=" + byTime
+        + ", totalCount=" + totalCount + ", totalNanos=" + totalNanos + '}';
+  }
+}
@@ -0,0 +1,387 @@
+package com.codeheadsystems.metrics.topk;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.histogram.HistogramSnapshot;
+import com.codeheadsystems.metrics.histogram.QuantileSketch;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the heaviest values of chosen tag keys, like customer, without publishing a series for every
+ * value. Each increment and time with one of the tag keys is counted for its value in a
+ * {@link SpaceSaving}, by events and by time, so memory stays fixed however many values there are.
+ * Every interval the top values are kept for {@link #top(String)} and logged at debug, and their
+ * estimates are published as gauges, [prefix].[tagKey].count and [prefix].[tagKey].nanos, tagged
+ * only with the rank. The values are not tags, so there are always top k series for each gauge
+ * however many values come and go. Ranks with no value this interval are published as 0.
+ *
+ * <p>Which value holds each rank is published as an info gauge, [prefix].[tagKey].count.info and
+ * [prefix].[tagKey].nanos.info, tagged with the rank and the tag key set to the value, at 1. When
+ * another value takes the rank, the one it replaced is published once at 0 and then no more. So each
+ * interval there are at most two info gauges per rank, and a value is only published while it is in
+ * the top k and once after.
+ *
+ * <p>The tag keys are removed before the delegate gets the events unless kept with the builder, so
+ * the delegate does not get a series for every value.
+ *
+ * <p>Events are counted without locking. An event counted by another thread while the interval ends
+ * can land in the interval that just ended after its top values were taken, and is then lost.
+ */
+public class TopKMetricPublisher implements MetricPublisher {
+
+  /**
+   * How often the top values are published unless set.
+   */
+  public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(1);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TopKMetricPublisher.class);
+
+  private final MetricPublisher delegate;
+  private final Set<String> tagKeys;
+  private final String[] tagKeyArray;
+  private final int topK;
+  private final int capacity;
+  private final String prefix;
+  private final boolean keepTags;
+  private final ScheduledFuture<?> flushing;
+  private volatile Map<String, Tracker> trackers;
+  private volatile Map<String, TopK> last = Map.of();
+  // the value published at each rank of each info gauge last interval, only used while flushing.
+  private final Map<String, String[]> ranked = new HashMap<>();
+
+  private TopKMetricPublisher(final Builder builder) {
+    LOGGER.info("TopKMetricPublisher({},{},{},{},{},{})", builder.delegate, builder.tagKeys, builder.topK,
+        builder.capacity, builder.interval, builder.keepTags);
+    this.delegate = builder.delegate;
+    this.tagKeys = new LinkedHashSet<>(builder.tagKeys);
+    this.tagKeyArray = tagKeys.toArray(new String[0]);
+    this.topK = builder.topK;
+    this.capacity = builder.capacity;
+    this.prefix = builder.prefix;
+    this.keepTags = builder.keepTags;
+    this.trackers = trackers();
+    final long nanos = builder.interval.toNanos();
+    this.flushing = Scheduler.INSTANCE.scheduleAtFixedRate(this::flushSafely, nanos, nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Builder builder.
+   *
+   * @return the builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public void open() {
+    delegate.open();
+  }
+
+  @Override
+  public void close() throws Exception {
+    delegate.close();
+  }
+
+  @Override
+  public void increment(final String metricName, final long value, final Tags tags) {
+    delegate.increment(metricName, value, track(tags, -1));
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags) {
+    delegate.time(metricName, duration, track(tags, duration.toNanos()));
+  }
+
+  @Override
+  public Object begin(final String metricName) {
+    return delegate.begin(metricName);
+  }
+
+  @Override
+  public void time(final String metricName, final Duration duration, final Tags tags, final Object begun) {
+    delegate.time(metricName, duration, track(tags, duration.toNanos()), begun);
+  }
+
+  @Override
+  public void gauge(final String metricName, final double value, final Tags tags) {
+    delegate.gauge(metricName, value, tags);
+  }
+
+  @Override
+  public void histogram(final String metricName, final HistogramSnapshot snapshot, final Tags tags) {
+    delegate.histogram(metricName, snapshot, tags);
+  }
+
+  @Override
+  public void sketch(final String metricName, final QuantileSketch sketch, final Tags tags) {
+    delegate.sketch(metricName, sketch, tags);
+  }
+
+  @Override
+  public long seriesCount() {
+    return delegate.seriesCount();
+  }
+
+  /**
+   * The top values of the tag key in the last interval.
+   *
+   * @param tagKey one of the tag keys tracked.
+   * @return the top values, or null if the key is not tracked or no interval has ended.
+   */
+  public TopK top(final String tagKey) {
+    return last.get(tagKey);
+  }
+
+  /**
+   * Ends the interval, publishing the top values of each tag key and starting over. Called every
+   * interval, but can be called directly. Events counted by other threads while this runs can be
+   * lost, see the class comment.
+   */
+  public synchronized void flush() {
+    final Map<String, Tracker> ended = trackers;
+    trackers = trackers();
+    final Map<String, TopK> tops = new HashMap<>();
+    ended.forEach((tagKey, tracker) -> {
+      final TopK top = new TopK(tagKey, tracker.byCount.top(topK), tracker.byTime.top(topK),
+          tracker.byCount.total(), tracker.byTime.total());
+      tops.put(tagKey, top);
+      LOGGER.debug("flush(): {} by count {}, by time {}", tagKey, top.byCount(), top.byTime());
+      publish(tagKey, ".count", top.byCount());
+      publish(tagKey, ".nanos", top.byTime());
+    });
+    last = Map.copyOf(tops);
+  }
+
+  /**
+   * Stops publishing the top values.
+   */
+  public void shutdown() {
+    LOGGER.info("shutdown()");
+    flushing.cancel(false);
+  }
+
+  private Tags track(final Tags tags, final long nanos) {
+    if (tags == null) {
+      return null;
+    }
+    final Map<String, String> map = tags.getTags();
+    final Map<String, Tracker> current = trackers;
+    boolean found = false;
+    for (String tagKey : tagKeyArray) {
+      if (map.containsKey(tagKey)) {
+        found = true;
+        final String value = String.valueOf(map.get(tagKey));
+        final Tracker tracker = current.get(tagKey);
+        tracker.byCount.add(value, 1);
+        if (nanos >= 0) {
+          tracker.byTime.add(value, nanos);
+        }
+      }
+    }
+    if (!found || keepTags) {
+      return tags;
+    }
+    final Map<String, String> kept = new HashMap<>(map);
+    kept.keySet().removeAll(tagKeys);
+    return new Tags(kept);
+  }
+
+  private void publish(final String tagKey, final String suffix, final List<HeavyHitter> hitters) {
+    final String metricName = prefix + "." + tagKey + suffix;
+    final String infoName = metricName + ".info";
+    final String[] previous = ranked.computeIfAbsent(infoName, name -> new String[topK]);
+    for (int rank = 0; rank < topK; rank++) {
+      final String rankName = String.valueOf(rank + 1);
+      final String value = rank < hitters.size() ? hitters.get(rank).value() : null;
+      delegate.gauge(metricName, rank < hitters.size() ? hitters.get(rank).estimate() : 0, Tags.of("rank", rankName));
+      if (previous[rank] != null && !previous[rank].equals(value)) {
+        delegate.gauge(infoName, 0, Tags.of("rank", rankName, tagKey, previous[rank]));
+      }
+      if (value != null) {
+        delegate.gauge(infoName, 1, Tags.of("rank", rankName, tagKey, value));
+      }
+      previous[rank] = value;
+    }
+  }
+
+  private Map<String, Tracker> trackers() {
+    final Map<String, Tracker> map = new LinkedHashMap<>();
+    for (String tagKey : tagKeyArray) {
+      map.put(tagKey, new Tracker(capacity));
+    }
+    return map;
+  }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      // an exception would cancel the flushing, so a bad publisher only loses this interval.
+      LOGGER.error("flushSafely(): unable to publish top values", e);
+    }
+  }
+
+  /**
+   * The one thread shared by all top k publishers, started when first used.
+   */
+  private static final class Scheduler {
+
+    private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "metrics-topk");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  }
+
+  private static final class Tracker {
+
+    private final SpaceSaving byCount;
+    private final SpaceSaving byTime;
+
+    private Tracker(final int capacity) {
+      this.byCount = new SpaceSaving(capacity);
+      this.byTime = new SpaceSaving(capacity);
+    }
+  }
+
+  /**
+   * The type Builder.
+   */
+  public static class Builder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Builder.class);
+
+    private MetricPublisher delegate = new NullMetricsPublisher();
+    private List<String> tagKeys = List.of();
+    private int topK = 10;
+    private int capacity = 100;
+    private Duration interval = DEFAULT_INTERVAL;
+    private String prefix = "topk";
+    private boolean keepTags = false;
+
+    private Builder() {
+    }
+
+    /**
+     * With delegate builder.
+     *
+     * @param delegate the delegate
+     * @return the builder
+     */
+    public Builder withDelegate(final MetricPublisher delegate) {
+      LOGGER.info("withDelegate({})", delegate);
+      this.delegate = delegate;
+      return this;
+    }
+
+    /**
+     * With tag keys builder. The tag keys whose values are tracked.
+     *
+     * @param tagKeys the tag keys
+     * @return the builder
+     */
+    public Builder withTagKeys(final String... tagKeys) {
+      LOGGER.info("withTagKeys({})", (Object) tagKeys);
+      this.tagKeys = List.of(tagKeys);
+      return this;
+    }
+
+    /**
+     * With top k builder. How many values are published for each tag key, 10 unless set.
+     *
+     * @param topK the top k
+     * @return the builder
+     */
+    public Builder withTopK(final int topK) {
+      LOGGER.info("withTopK({})", topK);
+      this.topK = topK;
+      return this;
+    }
+
+    /**
+     * With capacity builder. How many values are counted for each tag key, 100 unless set. Values
+     * with more than 1 / capacity of the events are sure to be counted, and a larger capacity makes
+     * each new value slower to count.
+     *
+     * @param capacity the capacity
+     * @return the builder
+     */
+    public Builder withCapacity(final int capacity) {
+      LOGGER.info("withCapacity({})", capacity);
+      this.capacity = capacity;
+      return this;
+    }
+
+    /**
+     * With interval builder.
+     *
+     * @param interval the interval
+     * @return the builder
+     */
+    public Builder withInterval(final Duration interval) {
+      LOGGER.info("withInterval({})", interval);
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * With prefix builder. The start of the gauge names, topk unless set.
+     *
+     * @param prefix the prefix
+     * @return the builder
+     */
+    public Builder withPrefix(final String prefix) {
+      LOGGER.info("withPrefix({})", prefix);
+      this.prefix = prefix;
+      return this;
+    }
+
+    /**
+     * With keep tags builder. If true the delegate still gets the tracked tag keys.
+     *
+     * @param keepTags the keep tags
+     * @return the builder
+     */
+    public Builder withKeepTags(final boolean keepTags) {
+      LOGGER.info("withKeepTags({})", keepTags);
+      this.keepTags = keepTags;
+      return this;
+    }
+
+    /**
+     * Build top k metric publisher.
+     *
+     * @return the top k metric publisher
+     */
+    public TopKMetricPublisher build() {
+      Objects.requireNonNull(delegate, "delegate");
+      Objects.requireNonNull(prefix, "prefix");
+      if (tagKeys.isEmpty()) {
+        throw new IllegalArgumentException("No tag keys to track");
+      }
+      if (topK < 1 || capacity < topK) {
+        throw new IllegalArgumentException("topK must be positive and no more than capacity: " + topK + "," + capacity);
+      }
+      if (interval.isZero() || interval.isNegative()) {
+        throw new IllegalArgumentException("interval must be positive: " + interval);
+      }
+      return new TopKMetricPublisher(this);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.codeheadsystems.metrics;
+
+import static com.codeheadsystems.metrics.test.CostAssert.assertThatCost;
+
+import com.codeheadsystems.metrics.impl.NullMetricsPublisher;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Allocation budgets for the paths used on every request, to catch regressions without a JMH run.
+ * The budgets are loose, they only need to catch something new allocating on every call.
+ */
+class MetricFactoryCostTest {
+
+  private static final int OPERATIONS = 10_000;
+  private static final Function<Metrics, Metrics> IDENTITY = metrics -> metrics;
+  private static final Tags TAGS = Tags.of("endpoint", "test");
+  private static final Runnable RUNNABLE = () -> {
+  };
+
+  private static volatile Object sink;
+
+  @Test
+  void with_pooled_allocatesNothing() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(new NullMetricsPublisher())
+        .withContextPooling(true)
+        .build();
+    assertThatCost(OPERATIONS, () -> metricFactory.with(IDENTITY)).allocatesNothing();
+  }
+
+  @Test
+  void increment_noContext() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(new NullMetricsPublisher())
+        .withTags("host", "localhost")
+        .build();
+    assertThatCost(OPERATIONS, () -> metricFactory.increment("counter", 1L, TAGS)).allocatesAtMost(512);
+  }
+
+  @Test
+  void time_inContext() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(new NullMetricsPublisher())
+        .withContextPooling(true)
+        .build();
+    final MetricFactory.MetricsContext metricsContext = metricFactory.enableMetricsContext();
+    try {
+      assertThatCost(OPERATIONS, () -> metricFactory.time("timer", () -> TAGS, TAGS)).allocatesAtMost(1024);
+    } finally {
+      metricFactory.disableMetricsContext(metricsContext);
+    }
+  }
+
+  @Test
+  void contextPropagator_wrap() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(new NullMetricsPublisher())
+        .withTags("host", "localhost")
+        .withContextPooling(true)
+        .build();
+    final MetricFactory.MetricsContext metricsContext = metricFactory.enableMetricsContext();
+    try {
+      metricFactory.and(TAGS);
+      // the worker's metrics and the wrapper, the tags are not copied.
+      assertThatCost(OPERATIONS, () -> sink = metricFactory.contextPropagator().wrap(RUNNABLE)).allocatesAtMost(128);
+    } finally {
+      metricFactory.disableMetricsContext(metricsContext);
+    }
+  }
+
+}
@@ -1,12 +1,16 @@
 package com.codeheadsystems.metrics;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.codeheadsystems.metrics.helper.MetricsStats;
 import com.codeheadsystems.metrics.helper.TagsGeneratorRegistry;
+import com.codeheadsystems.metrics.impl.ContextStorage;
 import com.codeheadsystems.metrics.impl.MetricPublisher;
 import com.codeheadsystems.metrics.impl.MetricsImpl;
 import java.time.Clock;
@@ -105,6 +109,179 @@ class MetricFactoryTest {
     testNestedMetrics(metricFactory, 2);
   }
 
+  @Test
+  void testWithNester_scopedValueStorage() throws Exception {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(Tags.empty())
+        .withContextStorage(ContextStorage.scopedValue())
+        .withMetricPublisher(metricPublisher).build();
+    testNestedMetrics(metricFactory, 1);
+    assertThat(metricFactory.metrics()).isNotInstanceOf(MetricsImpl.class);
+  }
+
+  @Test
+  void testEnableMetricsContext_scopedValueStorage() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withContextStorage(ContextStorage.scopedValue())
+        .withMetricPublisher(metricPublisher).build();
+    final MetricFactory.MetricsContext context = metricFactory.enableMetricsContext();
+    try {
+      metricFactory.increment("manual", 1L, THIRD_TAGS);
+      final Boolean nested = metricFactory.with(metrics -> metricFactory.metrics() == metrics);
+      assertThat(nested).isTrue();
+      assertThat(metricFactory.metrics()).isInstanceOf(MetricsImpl.class);
+    } finally {
+      metricFactory.disableMetricsContext(context);
+    }
+    assertThat(metricFactory.metrics()).isNotInstanceOf(MetricsImpl.class);
+    verify(metricPublisher).increment("manual", 1L, BASE_TAGS.from(THIRD_TAGS));
+  }
+
+  @Test
+  void testWithNester_contextPooling() throws Exception {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(Tags.empty())
+        .withContextPooling(true)
+        .withMetricPublisher(metricPublisher).build();
+    testNestedMetrics(metricFactory, 1);
+  }
+
+  @Test
+  void testWith_contextPooling_reusesAndResets() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withContextPooling(true)
+        .withMetricPublisher(metricPublisher).build();
+    final Metrics first = metricFactory.with(metrics -> {
+      metrics.and(ADDED_TAGS);
+      final Tags inner = metricFactory.with(innerMetrics -> ((MetricsImpl) innerMetrics).getTags());
+      assertThat(inner).isEqualTo(COMBINED_TAGS);
+      return metrics;
+    });
+    final Metrics second = metricFactory.with(metrics -> {
+      assertThat(((MetricsImpl) metrics).getTags()).isEqualTo(BASE_TAGS);
+      return metrics;
+    });
+    assertThat(second).isSameAs(first);
+    assertThat(metricFactory.metrics()).isNotInstanceOf(MetricsImpl.class);
+    assertThat(BASE_TAGS).isEqualTo(new Tags("a", "1", "b", "2"));
+  }
+
+  @Test
+  void testDisableMetricsContext_twice_contextPooling() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withContextPooling(true)
+        .withMetricPublisher(metricPublisher).build();
+    final MetricFactory.MetricsContext context = metricFactory.enableMetricsContext();
+    metricFactory.disableMetricsContext(context);
+    metricFactory.disableMetricsContext(context);
+
+    final MetricFactory.MetricsContext first = metricFactory.enableMetricsContext();
+    final MetricFactory.MetricsContext second = metricFactory.enableMetricsContext();
+    assertThat(second).isNotSameAs(first);
+    assertThat(metricFactory.metrics()).isInstanceOf(MetricsImpl.class);
+    metricFactory.disableMetricsContext(second);
+    metricFactory.disableMetricsContext(first);
+    assertThat(metricFactory.metrics()).isNotInstanceOf(MetricsImpl.class);
+    verify(metricPublisher, times(2)).close();
+  }
+
+  @Test
+  void testWith_contextPooling_escapedNotReused() throws Exception {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withContextPooling(true)
+        .withMetricPublisher(metricPublisher).build();
+    final Metrics first = metricFactory.with(metrics -> {
+      final Thread thread = new Thread(() -> ((MetricsImpl) metrics).usedBy(Thread.currentThread()));
+      thread.start();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return metrics;
+    });
+    final Metrics second = metricFactory.with(metrics -> metrics);
+    final Metrics third = metricFactory.with(metrics -> metrics);
+    assertThat(second).isNotSameAs(first);
+    assertThat(third).isSameAs(second);
+  }
+
+  @Test
+  void testIncrement_noContext() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withMetricPublisher(metricPublisher).build();
+    metricFactory.increment("contextless", 1L, THIRD_TAGS);
+    verify(metricPublisher).increment("contextless", 1L, BASE_TAGS.from(THIRD_TAGS));
+    verify(metricPublisher, never()).open();
+    verify(metricPublisher, never()).close();
+    assertThat(metricFactory.metrics()).isNotInstanceOf(MetricsImpl.class);
+  }
+
+  @Test
+  void testStats() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withStats("factory-test")
+        .withMetricPublisher(metricPublisher).build();
+    final MetricsStats stats = metricFactory.stats();
+    try {
+      metricFactory.with(metrics -> {
+        metrics.increment("counter", BASE_TAGS);
+        return metricFactory.with(nested -> nested.time("timer", () -> "result", THIRD_TAGS));
+      });
+      verify(metricPublisher).increment("counter", 1L, BASE_TAGS);
+      assertThat(stats.getContextsOpened()).isEqualTo(2);
+      assertThat(stats.getContextsActive()).isZero();
+      assertThat(stats.getIncrementsPublished()).isEqualTo(1);
+      assertThat(stats.getTimesPublished()).isEqualTo(1);
+      assertThat(stats.getPublisherCalls()).isEqualTo(4); // with open and close
+      assertThat(stats.objectName()).isNotNull();
+      assertThat(MetricFactory.builder().build().stats()).isNull();
+    } finally {
+      metricFactory.close();
+    }
+    assertThat(stats.objectName()).isNull();
+  }
+
+  @Test
+  void testGauges() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withPrefix("prefix.")
+        .withMetricPublisher(metricPublisher).build();
+    try {
+      metricFactory.gauges().register("gauge", () -> 3.0, THIRD_TAGS);
+      metricFactory.gauges().poll();
+      verify(metricPublisher).gauge("prefix.gauge", 3.0, BASE_TAGS.from(THIRD_TAGS));
+    } finally {
+      metricFactory.gauges().close();
+    }
+  }
+
+  @Test
+  void testTime_noContext() throws Exception {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withMetricPublisher(metricPublisher).build();
+    final String result = metricFactory.time("contextless", () -> "result", THIRD_TAGS);
+    assertThat(result).isEqualTo("result");
+    verify(metricPublisher).time(eq("contextless"), any(), eq(BASE_TAGS.from(THIRD_TAGS)));
+    verify(metricPublisher, never()).open();
+    assertThat(metricFactory.metrics()).isNotInstanceOf(MetricsImpl.class);
+  }
+
+  @Test
+  void testTime_noContext_checkedException() {
+    final MetricFactory metricFactory = MetricFactory.builder()
+        .withMetricPublisher(metricPublisher).build();
+    final Exception exception = new Exception("boom");
+    assertThatThrownBy(() -> metricFactory.time("contextless", () -> {
+      throw exception;
+    })).isSameAs(exception);
+  }
+
   void testNestedMetrics(MetricFactory metricFactory, int expectedTimes) throws Exception {
     metricFactory.with(metrics -> { // outer
       metrics.time("outer", () -> {
@@ -54,4 +54,12 @@ class TagsTest {
     assertThat(from.getTags()).isEqualTo(COMBINED_MAP);
   }
 
-}
\ No newline at end of file
+  @Test
+  void testAddNull() {
+    Tags tags = new Tags(DEFAULT_ARRAY);
+    tags.add((Tags) null).add((String[]) null);
+    assertThat(tags.getTags()).isEqualTo(DEFAULT_MAP);
+    assertThat(tags.from((Tags) null).getTags()).isEqualTo(DEFAULT_MAP);
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.codeheadsystems.metrics.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.codeheadsystems.metrics.Tags;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class MetricsConfigurationTest {
+
+  private static final String CONFIG = String.join("\n",
+      "prefix=service.",
+      "default.tags.deny=requestId",
+      "metric.noisy.metric.enabled=false",
+      "metric.sampled.sampleRate=0.0",
+      "metric.filtered.tags.allow=region,status");
+
+  @Test
+  void parse() throws IOException {
+    final MetricsConfiguration configuration = MetricsConfiguration.parse(new StringReader(CONFIG));
+    assertThat(configuration.getPrefix()).isEqualTo("service.");
+    assertThat(configuration.rule("noisy.metric").isEnabled()).isFalse();
+    assertThat(configuration.rule("noisy.metric").getDeniedTags()).containsExactly("requestId");
+    assertThat(configuration.rule("sampled").getSampleRate()).isEqualTo(0.0);
+    assertThat(configuration.rule("filtered").getAllowedTags()).containsExactlyInAnyOrder("region", "status");
+    assertThat(configuration.rule("other"))
+        .isEqualTo(new MetricRule(true, 1.0, Set.of(), Set.of("requestId")));
+  }
+
+  @Test
+  void parse_empty() throws IOException {
+    final MetricsConfiguration configuration = MetricsConfiguration.parse(new StringReader(""));
+    assertThat(configuration.getPrefix()).isNull();
+    assertThat(configuration.rule("anything")).isEqualTo(MetricRule.DEFAULT);
+  }
+
+  @Test
+  void parse_unknownSetting() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> MetricsConfiguration.parse(new StringReader("metric.name.color=blue")));
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> MetricsConfiguration.parse(new StringReader("other=blue")));
+  }
+
+  @Test
+  void parse_badSampleRate() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> MetricsConfiguration.parse(new StringReader("default.sampleRate=2")));
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> MetricsConfiguration.parse(new StringReader("default.sampleRate=NaN")));
+  }
+
+  @Test
+  void rule_shouldPublish() {
+    assertThat(MetricRule.DEFAULT.shouldPublish()).isTrue();
+    assertThat(new MetricRule(false, 1.0, Set.of(), Set.of()).shouldPublish()).isFalse();
+    assertThat(new MetricRule(true, 0.0, Set.of(), Set.of()).shouldPublish()).isFalse();
+  }
+
+  @Test
+  void rule_filter() {
+    final Tags tags = Tags.of("region", "us", "status", "200", "requestId", "abc");
+    assertThat(MetricRule.DEFAULT.filter(tags)).isSameAs(tags);
+    assertThat(new MetricRule(true, 1.0, Set.of("region", "requestId"), Set.of("requestId")).filter(tags))
+        .isEqualTo(Tags.of("region", "us"));
+    assertThat(new MetricRule(true, 1.0, Set.of(), Set.of("requestId")).filter(tags))
+        .isEqualTo(Tags.of("region", "us", "status", "200"));
+  }
+
+}
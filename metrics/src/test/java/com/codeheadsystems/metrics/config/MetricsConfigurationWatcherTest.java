@@ -0,0 +1,51 @@
+package com.codeheadsystems.metrics.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MetricsConfigurationWatcherTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void reloadsOnChange() throws Exception {
+    final Path file = tempDir.resolve("metrics.properties");
+    Files.writeString(file, "metric.test.enabled=true");
+    final MetricsConfigurationHolder holder = new MetricsConfigurationHolder();
+    try (MetricsConfigurationWatcher watcher = new MetricsConfigurationWatcher(file, holder)) {
+      assertThat(holder.get().rule("test").isEnabled()).isTrue();
+      Files.writeString(file, "metric.test.enabled=false");
+      final long deadline = System.currentTimeMillis() + 30_000;
+      while (holder.get().rule("test").isEnabled() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertThat(holder.get().rule("test").isEnabled()).isFalse();
+    }
+  }
+
+  @Test
+  void keepsConfigurationOnBadFile() throws Exception {
+    final Path file = tempDir.resolve("metrics.properties");
+    Files.writeString(file, "metric.test.enabled=false");
+    final MetricsConfigurationHolder holder = new MetricsConfigurationHolder();
+    try (MetricsConfigurationWatcher watcher = new MetricsConfigurationWatcher(file, holder)) {
+      final MetricsConfiguration loaded = holder.get();
+      Files.writeString(file, "metric.test.sampleRate=lots");
+      assertThat(watcher.reload()).isFalse();
+      assertThat(holder.get()).isSameAs(loaded);
+    }
+  }
+
+  @Test
+  void missingFile() throws Exception {
+    final MetricsConfigurationHolder holder = new MetricsConfigurationHolder();
+    try (MetricsConfigurationWatcher watcher = new MetricsConfigurationWatcher(tempDir.resolve("nope"), holder)) {
+      assertThat(holder.get()).isSameAs(MetricsConfiguration.EMPTY);
+    }
+  }
+
+}
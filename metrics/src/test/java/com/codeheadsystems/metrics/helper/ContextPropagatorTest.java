@@ -0,0 +1,157 @@
+package com.codeheadsystems.metrics.helper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.MetricFactory;
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import com.codeheadsystems.metrics.impl.MetricsImpl;
+import com.codeheadsystems.metrics.impl.NullMetricsImpl;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ContextPropagatorTest {
+
+  private static final Tags BASE_TAGS = Tags.of("a", "1");
+
+  @Mock private MetricPublisher metricPublisher;
+
+  private MetricFactory metricFactory;
+  private ScheduledExecutorService executor;
+
+  @BeforeEach
+  void setup() {
+    metricFactory = MetricFactory.builder()
+        .withTags(BASE_TAGS)
+        .withMetricPublisher(metricPublisher)
+        .build();
+    executor = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void noContext_returnsSameTask() {
+    final Runnable runnable = () -> {
+    };
+    assertThat(metricFactory.contextPropagator().wrap(runnable)).isSameAs(runnable);
+  }
+
+  @Test
+  void executorService_submit() throws Exception {
+    final ExecutorService wrapped = metricFactory.contextPropagator().wrap((ExecutorService) executor);
+    final Metrics worker = metricFactory.with(metrics ->
+        get(wrapped.submit(() -> metricFactory.metrics())));
+    assertThat(worker).isInstanceOf(MetricsImpl.class);
+    final Metrics unwrapped = metricFactory.with(metrics ->
+        get(executor.submit(() -> metricFactory.metrics())));
+    assertThat(unwrapped).isInstanceOf(NullMetricsImpl.class);
+  }
+
+  @Test
+  void executorService_invokeAll() throws Exception {
+    final ExecutorService wrapped = metricFactory.contextPropagator().wrap((ExecutorService) executor);
+    final Callable<Tags> callable = () -> metricFactory.and("b", "2");
+    final Tags tags = metricFactory.with(metrics -> {
+      try {
+        return wrapped.invokeAll(List.of(callable)).get(0).get();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertThat(tags).isEqualTo(Tags.of("a", "1", "b", "2"));
+  }
+
+  @Test
+  void scheduledExecutorService_schedule() {
+    final ScheduledExecutorService wrapped = metricFactory.contextPropagator().wrap(executor);
+    metricFactory.with(metrics -> get(wrapped.schedule(() -> {
+      metricFactory.increment("scheduled", 1L, Tags.empty());
+      return null;
+    }, 1, TimeUnit.MILLISECONDS)));
+    verify(metricPublisher).increment("scheduled", 1L, BASE_TAGS);
+  }
+
+  @Test
+  void executor() {
+    final Runnable[] ran = new Runnable[1];
+    metricFactory.with(metrics -> {
+      metricFactory.contextPropagator().wrap((Executor) runnable -> ran[0] = runnable)
+          .execute(() -> metricFactory.increment("executor", 1L, Tags.empty()));
+      return null;
+    });
+    ran[0].run();
+    verify(metricPublisher).increment("executor", 1L, BASE_TAGS);
+  }
+
+  @Test
+  void completableFuture() {
+    final String result = metricFactory.with(metrics ->
+        metricFactory.contextPropagator().supplyAsync(() -> {
+          metricFactory.increment("future", 1L, Tags.empty());
+          return "done";
+        }, executor).join());
+    assertThat(result).isEqualTo("done");
+    verify(metricPublisher).increment("future", 1L, BASE_TAGS);
+  }
+
+  @Test
+  void tagsIsolatedBothWays() {
+    final ExecutorService wrapped = metricFactory.contextPropagator().wrap((ExecutorService) executor);
+    metricFactory.with(metrics -> {
+      metrics.and("request", "1");
+      final Future<?> future = wrapped.submit(() -> {
+        metricFactory.and("worker", "yes");
+        metricFactory.increment("worker", 1L, Tags.empty());
+      });
+      metrics.and("late", "added-after-submit");
+      get(future);
+      metricFactory.increment("submitter", 1L, Tags.empty());
+      return null;
+    });
+    verify(metricPublisher).increment("worker", 1L, Tags.of("a", "1", "request", "1", "worker", "yes"));
+    verify(metricPublisher).increment("submitter", 1L,
+        Tags.of("a", "1", "request", "1", "late", "added-after-submit"));
+  }
+
+  @Test
+  void tagsCopiedAtSubmission() {
+    final Runnable[] ran = new Runnable[1];
+    metricFactory.with(metrics -> {
+      metrics.and("request", "1");
+      metricFactory.contextPropagator().wrap((Executor) runnable -> ran[0] = runnable)
+          .execute(() -> metricFactory.increment("executor", 1L, Tags.empty()));
+      metrics.and("request", "2");
+      return null;
+    });
+    ran[0].run();
+    verify(metricPublisher).increment("executor", 1L, Tags.of("a", "1", "request", "1"));
+  }
+
+  private <T> T get(final Future<T> future) {
+    try {
+      return future.get();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
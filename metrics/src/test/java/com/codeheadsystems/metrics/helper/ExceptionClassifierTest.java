@@ -0,0 +1,72 @@
+package com.codeheadsystems.metrics.helper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.codeheadsystems.metrics.Tags;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+class ExceptionClassifierTest {
+
+  private static final Tags IO_TAGS = Tags.of("error", "io");
+  private static final Tags ARGUMENT_TAGS = Tags.of("error", "argument");
+
+  private final ExceptionClassifier classifier = ExceptionClassifier.builder()
+      .withMapping(IOException.class, IO_TAGS)
+      .withMapping(IllegalArgumentException.class, "error", "argument")
+      .withMaxDepth(2)
+      .build();
+
+  @Test
+  void mapped() {
+    assertThat(classifier.from(new IOException())).isEqualTo(IO_TAGS);
+    assertThat(classifier.from(new IllegalArgumentException())).isEqualTo(ARGUMENT_TAGS);
+  }
+
+  @Test
+  void mapped_subclass() {
+    assertThat(classifier.from(new FileNotFoundException())).isEqualTo(IO_TAGS);
+    assertThat(classifier.from(new NumberFormatException())).isEqualTo(ARGUMENT_TAGS);
+  }
+
+  @Test
+  void mapped_callerCanChange() {
+    classifier.from(new IOException()).add("error", "changed");
+    classifier.from(new IllegalStateException()).add("exception", "changed");
+    assertThat(classifier.from(new IOException())).isEqualTo(IO_TAGS);
+    assertThat(classifier.from(new IllegalStateException())).isEqualTo(Tags.of("exception", "IllegalStateException"));
+  }
+
+  @Test
+  void cause() {
+    assertThat(classifier.from(new ExecutionException(new FileNotFoundException()))).isEqualTo(IO_TAGS);
+    assertThat(classifier.from(new UncheckedIOException(new IOException()))).isEqualTo(IO_TAGS);
+  }
+
+  @Test
+  void cause_outermostWins() {
+    assertThat(classifier.from(new IllegalArgumentException(new IOException()))).isEqualTo(ARGUMENT_TAGS);
+  }
+
+  @Test
+  void cause_tooDeep() {
+    final Exception exception = new RuntimeException(new RuntimeException(new RuntimeException(new IOException())));
+    assertThat(classifier.from(exception)).isEqualTo(Tags.of("exception", "RuntimeException"));
+  }
+
+  @Test
+  void unmapped() {
+    assertThat(classifier.from(new IllegalStateException())).isEqualTo(Tags.of("exception", "IllegalStateException"));
+    assertThat(ExceptionClassifier.builder().withClassNameTag(null).build().from(new IllegalStateException()))
+        .isEqualTo(Tags.empty());
+  }
+
+  @Test
+  void nullThrowable() {
+    assertThat(classifier.from(null)).isEqualTo(Tags.empty());
+  }
+
+}
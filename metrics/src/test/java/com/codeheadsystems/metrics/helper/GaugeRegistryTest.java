@@ -0,0 +1,125 @@
+package com.codeheadsystems.metrics.helper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.Metrics;
+import com.codeheadsystems.metrics.Tags;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GaugeRegistryTest {
+
+  private static final Tags BASE_TAGS = Tags.of("host", "a");
+
+  @Mock private Metrics metrics;
+
+  private GaugeRegistry gaugeRegistry;
+
+  @BeforeEach
+  void setup() {
+    gaugeRegistry = new GaugeRegistry(metrics, BASE_TAGS, Duration.ofHours(1));
+  }
+
+  @AfterEach
+  void close() {
+    gaugeRegistry.close();
+  }
+
+  @Test
+  void poll_owner() {
+    final List<String> queue = new ArrayList<>(List.of("one", "two"));
+    gaugeRegistry.register("queue.size", queue, List::size, Tags.of("queue", "q"));
+
+    gaugeRegistry.poll();
+    verify(metrics).publishGauge("queue.size", 2.0, Tags.of("host", "a", "queue", "q"));
+
+    queue.add("three");
+    gaugeRegistry.poll();
+    verify(metrics).publishGauge("queue.size", 3.0, Tags.of("host", "a", "queue", "q"));
+  }
+
+  @Test
+  void poll_supplier() {
+    gaugeRegistry.register("answer", () -> 42.0, null);
+    gaugeRegistry.poll();
+    verify(metrics).publishGauge("answer", 42.0, BASE_TAGS);
+  }
+
+  @Test
+  void poll_failingGauge_isSkipped() {
+    gaugeRegistry.register("fails", () -> {
+      throw new IllegalStateException("fails");
+    }, Tags.empty());
+    gaugeRegistry.register("works", () -> 1.0, Tags.empty());
+
+    gaugeRegistry.poll();
+    gaugeRegistry.poll();
+    verify(metrics, never()).publishGauge(eq("fails"), anyDouble(), eq(BASE_TAGS));
+    verify(metrics, times(2)).publishGauge("works", 1.0, BASE_TAGS);
+  }
+
+  @Test
+  void poll_collectedOwner_isRemoved() throws InterruptedException {
+    registerGarbage();
+    gaugeRegistry.register("kept", () -> 1.0, Tags.empty());
+    for (int i = 0; i < 20 && gaugeRegistry.size() > 1; i++) {
+      System.gc();
+      Thread.sleep(10);
+      gaugeRegistry.poll();
+    }
+    assertThat(gaugeRegistry.size()).isEqualTo(1);
+  }
+
+  @Test
+  void remove() {
+    gaugeRegistry.register("removed", () -> 1.0, Tags.empty());
+    gaugeRegistry.remove("removed");
+    gaugeRegistry.poll();
+    assertThat(gaugeRegistry.size()).isZero();
+    verify(metrics, never()).publishGauge(eq("removed"), anyDouble(), eq(BASE_TAGS));
+  }
+
+  @Test
+  void unregister_onlyTheOwner() {
+    final List<String> mine = new ArrayList<>(List.of("one"));
+    final List<String> theirs = new ArrayList<>(List.of("one", "two"));
+    gaugeRegistry.register("size", mine, List::size, Tags.of("owner", "mine"));
+    gaugeRegistry.register("size", theirs, List::size, Tags.of("owner", "theirs"));
+    gaugeRegistry.unregister(mine);
+    gaugeRegistry.poll();
+    assertThat(gaugeRegistry.size()).isEqualTo(1);
+    verify(metrics).publishGauge("size", 2.0, Tags.of("host", "a", "owner", "theirs"));
+    verify(metrics, never()).publishGauge("size", 1.0, Tags.of("host", "a", "owner", "mine"));
+  }
+
+  @Test
+  void polledInTheBackground() {
+    final GaugeRegistry fast = new GaugeRegistry(metrics, BASE_TAGS, Duration.ofMillis(10));
+    try {
+      fast.register("background", () -> 1.0, Tags.empty());
+      verify(metrics, timeout(1000).atLeastOnce()).publishGauge("background", 1.0, BASE_TAGS);
+    } finally {
+      fast.close();
+    }
+  }
+
+  private void registerGarbage() {
+    gaugeRegistry.register("garbage", new AtomicInteger(5), AtomicInteger::get, Tags.empty());
+  }
+
+}
@@ -0,0 +1,114 @@
+package com.codeheadsystems.metrics.helper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsStatsTest {
+
+  private static final Tags TAGS = Tags.of("a", "b");
+
+  @Mock private MetricPublisher metricPublisher;
+
+  private MetricsStats stats;
+  private MetricPublisher instrumented;
+
+  @BeforeEach
+  void setup() {
+    stats = new MetricsStats();
+    instrumented = stats.instrument(metricPublisher);
+  }
+
+  @AfterEach
+  void unregister() {
+    stats.unregister();
+  }
+
+  @Test
+  void instrument() throws Exception {
+    instrumented.open();
+    instrumented.increment("count", 2L, TAGS);
+    instrumented.time("time", Duration.ofMillis(1), TAGS);
+    instrumented.gauge("gauge", 1.5, TAGS);
+    instrumented.close();
+
+    verify(metricPublisher).increment("count", 2L, TAGS);
+    verify(metricPublisher).time("time", Duration.ofMillis(1), TAGS);
+    verify(metricPublisher).gauge("gauge", 1.5, TAGS);
+    assertThat(stats.getIncrementsPublished()).isEqualTo(1);
+    assertThat(stats.getTimesPublished()).isEqualTo(1);
+    assertThat(stats.getGaugesPublished()).isEqualTo(1);
+    assertThat(stats.getPublisherCalls()).isEqualTo(5);
+    assertThat(stats.getPublisherMaxNanos()).isLessThanOrEqualTo(stats.getPublisherNanos());
+    assertThat(stats.getMetricsNanos()).isEqualTo(stats.getPublisherNanos());
+    assertThat(stats.getPublisherErrors()).isZero();
+  }
+
+  @Test
+  void instrument_errors() {
+    doThrow(new IllegalStateException()).when(metricPublisher).increment("count", 1L, TAGS);
+    assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> instrumented.increment("count", 1L, TAGS));
+    assertThat(stats.getPublisherErrors()).isEqualTo(1);
+    assertThat(stats.getPublisherCalls()).isEqualTo(1);
+    assertThat(stats.getIncrementsPublished()).isZero();
+  }
+
+  @Test
+  void activeSeries() {
+    when(metricPublisher.seriesCount()).thenReturn(7L);
+    assertThat(stats.getActiveSeries()).isEqualTo(7);
+    assertThat(new MetricsStats().getActiveSeries()).isEqualTo(-1);
+  }
+
+  @Test
+  void contextsAndReset() {
+    stats.contextOpened();
+    stats.contextOpened();
+    stats.contextClosed();
+    stats.tagGeneration(100);
+    assertThat(stats.getContextsActive()).isEqualTo(1);
+    assertThat(stats.getTagGenerationNanos()).isEqualTo(100);
+    assertThat(stats.getMetricsTimePercent()).isPositive();
+
+    stats.reset();
+    assertThat(stats.getContextsOpened()).isZero();
+    assertThat(stats.getTagGenerationNanos()).isZero();
+  }
+
+  @Test
+  void register() throws Exception {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName name = stats.register("stats-test").objectName();
+    instrumented.increment("count", 1L, TAGS);
+    assertThat(server.getAttribute(name, "IncrementsPublished")).isEqualTo(1L);
+
+    // registering the same name again replaces the old stats.
+    final MetricsStats replacement = new MetricsStats().register("stats-test");
+    assertThat(server.getAttribute(name, "IncrementsPublished")).isEqualTo(0L);
+    assertThat(stats.objectName()).isNull();
+
+    // the replaced stats do not remove their replacement.
+    stats.unregister();
+    assertThat(server.isRegistered(name)).isTrue();
+
+    replacement.unregister();
+    assertThat(server.isRegistered(name)).isFalse();
+  }
+
+}
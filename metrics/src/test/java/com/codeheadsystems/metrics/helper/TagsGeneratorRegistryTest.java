@@ -14,6 +14,8 @@ class TagsGeneratorRegistryTest {
 
   private static final TagsGenerator<Integer> INTEGER_TAGS_GENERATOR = (i) -> INTEGER_TAGS;
   private static final TagsGenerator<Float> FLOAT_TAGS_GENERATOR = (f) -> FLOAT_TAGS;
+  private static final Tags NUMBER_TAGS = Tags.of("number", "1");
+  private static final Tags COMPARABLE_TAGS = Tags.of("comparable", "1");
 
   private TagsGeneratorRegistry tagsGeneratorRegistry;
 
@@ -36,6 +38,45 @@ class TagsGeneratorRegistryTest {
     assertThat(tagsGeneratorRegistry.get(Integer.class)).isNull();
   }
 
+  @Test
+  public void testResolve_exact() {
+    assertThat(tagsGeneratorRegistry.resolve(Integer.class)).isSameAs(INTEGER_TAGS_GENERATOR);
+    assertThat(tagsGeneratorRegistry.resolve(Long.class)).isNull();
+  }
+
+  @Test
+  public void testResolve_superclass() {
+    tagsGeneratorRegistry.register(Number.class, n -> NUMBER_TAGS);
+    assertThat(tagsGeneratorRegistry.resolve(Long.class).from(1L)).isEqualTo(NUMBER_TAGS);
+    assertThat(tagsGeneratorRegistry.resolve(Integer.class)).isSameAs(INTEGER_TAGS_GENERATOR);
+  }
+
+  @Test
+  public void testResolve_interface() {
+    tagsGeneratorRegistry.register(CharSequence.class, c -> COMPARABLE_TAGS);
+    assertThat(tagsGeneratorRegistry.resolve(String.class).from("a")).isEqualTo(COMPARABLE_TAGS);
+    assertThat(tagsGeneratorRegistry.resolve(StringBuilder.class).from(new StringBuilder())).isEqualTo(COMPARABLE_TAGS);
+  }
+
+  @Test
+  public void testResolve_cacheInvalidated() {
+    assertThat(tagsGeneratorRegistry.resolve(Long.class)).isNull();
+    tagsGeneratorRegistry.register(Long.class, l -> NUMBER_TAGS);
+    assertThat(tagsGeneratorRegistry.resolve(Long.class)).isNotNull();
+    tagsGeneratorRegistry.deregister(Long.class);
+    assertThat(tagsGeneratorRegistry.resolve(Long.class)).isNull();
+  }
+
+  @Test
+  public void testAggregateIfFound() {
+    tagsGeneratorRegistry.register(Number.class, n -> NUMBER_TAGS);
+    final Tags tags = Tags.of("base", "1");
+    tagsGeneratorRegistry.aggregateIfFound(tags, 1L);
+    tagsGeneratorRegistry.aggregateIfFound(tags, null);
+    tagsGeneratorRegistry.aggregateIfFound(tags, "not registered");
+    assertThat(tags).isEqualTo(Tags.of("base", "1", "number", "1"));
+  }
+
   @Test
   public void testGetRegisteredClasses() {
     assertThat(tagsGeneratorRegistry.getRegisteredClasses()).containsExactlyInAnyOrder(Integer.class, Float.class);
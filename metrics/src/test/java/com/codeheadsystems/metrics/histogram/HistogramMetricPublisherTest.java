@@ -0,0 +1,114 @@
+package com.codeheadsystems.metrics.histogram;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class HistogramMetricPublisherTest {
+
+  @Mock private MetricPublisher delegate;
+
+  private HistogramMetricPublisher publisher;
+
+  @BeforeEach
+  void setup() {
+    publisher = HistogramMetricPublisher.builder()
+        .withDelegate(delegate)
+        .withInterval(Duration.ofHours(1))
+        .withMaxSeries(2)
+        .build();
+  }
+
+  @AfterEach
+  void shutdown() {
+    publisher.shutdown();
+  }
+
+  @Test
+  void time_passedThrough() {
+    publisher.time("a", Duration.ofMillis(5), Tags.of("k", "v"));
+    verify(delegate).time("a", Duration.ofMillis(5), Tags.of("k", "v"));
+  }
+
+  @Test
+  void begin_passedThrough() {
+    final Object begun = new Object();
+    when(delegate.begin("a")).thenReturn(begun);
+
+    publisher.time("a", Duration.ofMillis(5), Tags.of("k", "v"), publisher.begin("a"));
+    publisher.flush();
+
+    verify(delegate).time("a", Duration.ofMillis(5), Tags.of("k", "v"), begun);
+    verify(delegate).histogram(eq("a"), any(), eq(Tags.of("k", "v")));
+  }
+
+  @Test
+  void flush_perSeries() {
+    final Tags tags = Tags.of("k", "v");
+    publisher.time("a", Duration.ofMillis(5), tags);
+    publisher.time("a", Duration.ofMillis(7), Tags.of("k", "v"));
+    publisher.time("b", Duration.ofMillis(1), tags);
+    tags.add("changed", "later");
+
+    publisher.flush();
+
+    final ArgumentCaptor<HistogramSnapshot> captor = ArgumentCaptor.forClass(HistogramSnapshot.class);
+    verify(delegate).histogram(eq("a"), captor.capture(), eq(Tags.of("k", "v")));
+    assertThat(captor.getValue().count()).isEqualTo(2);
+    assertThat(captor.getValue().max()).isBetween(6_800_000L, 7_200_000L);
+    verify(delegate).histogram(eq("b"), argThat(snapshot -> snapshot.count() == 1), eq(Tags.of("k", "v")));
+  }
+
+  @Test
+  void flush_skipsEmpty() {
+    publisher.time("a", Duration.ofMillis(5), Tags.empty());
+    publisher.flush();
+    publisher.flush();
+    verify(delegate).histogram(eq("a"), any(), eq(Tags.empty()));
+  }
+
+  @Test
+  void time_maxSeries() {
+    publisher.time("a", Duration.ofMillis(1), Tags.empty());
+    publisher.time("b", Duration.ofMillis(1), null);
+    publisher.time("c", Duration.ofMillis(1), Tags.empty());
+
+    assertThat(publisher.size()).isEqualTo(2);
+    assertThat(publisher.overflow()).isEqualTo(1);
+    verify(delegate).time("c", Duration.ofMillis(1), Tags.empty());
+    publisher.flush();
+    verify(delegate, never()).histogram(eq("c"), any(), any());
+  }
+
+  @Test
+  void flush_scheduled() {
+    final HistogramMetricPublisher scheduled = HistogramMetricPublisher.builder()
+        .withDelegate(delegate)
+        .withInterval(Duration.ofMillis(10))
+        .build();
+    try {
+      scheduled.time("a", Duration.ofMillis(5), Tags.empty());
+      verify(delegate, timeout(1000)).histogram(eq("a"), any(), eq(Tags.empty()));
+    } finally {
+      scheduled.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,104 @@
+package com.codeheadsystems.metrics.histogram;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+
+  @Test
+  void layout_exactBelowSubBuckets() {
+    final HistogramLayout layout = HistogramLayout.of(5, 1_000_000);
+    for (long value = 0; value < 32; value++) {
+      assertThat(layout.value(layout.index(value))).isEqualTo(value);
+    }
+  }
+
+  @Test
+  void layout_withinRelativeError() {
+    final HistogramLayout layout = HistogramLayout.DEFAULT;
+    for (long value = 1; value < layout.highestValue(); value = value * 3 / 2 + 1) {
+      final int index = layout.index(value);
+      assertThat(layout.lowestValue(index)).isLessThanOrEqualTo(value);
+      assertThat(index + 1 == layout.bucketCount() || layout.lowestValue(index + 1) > value).isTrue();
+      assertThat(Math.abs(layout.value(index) - value) / (double) value)
+          .isLessThanOrEqualTo(layout.relativeError() * 2);
+    }
+  }
+
+  @Test
+  void layout_clampsOutOfRange() {
+    final HistogramLayout layout = HistogramLayout.of(3, 1000);
+    assertThat(layout.index(-5)).isZero();
+    assertThat(layout.index(Long.MAX_VALUE)).isEqualTo(layout.bucketCount() - 1);
+    assertThat(layout.memoryBytes()).isEqualTo(layout.bucketCount() * 8L);
+  }
+
+  @Test
+  void layout_invalid() {
+    assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> HistogramLayout.of(0, 1000));
+    assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> HistogramLayout.of(5, 10));
+  }
+
+  @Test
+  void snapshot_percentiles() {
+    final Histogram histogram = new Histogram(HistogramLayout.DEFAULT);
+    for (long value = 1; value <= 10_000; value++) {
+      histogram.record(value * 1000);
+    }
+    final HistogramSnapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.count()).isEqualTo(10_000);
+    assertThat(snapshot.p50()).isBetween(4_850_000L, 5_150_000L);
+    assertThat(snapshot.p90()).isBetween(8_750_000L, 9_250_000L);
+    assertThat(snapshot.p99()).isBetween(9_600_000L, 10_200_000L);
+    assertThat(snapshot.p999()).isBetween(9_690_000L, 10_300_000L);
+    assertThat(snapshot.max()).isBetween(9_700_000L, 10_300_000L);
+  }
+
+  @Test
+  void snapshot_onlyKeepsUsedBuckets() {
+    final Histogram histogram = new Histogram(HistogramLayout.DEFAULT);
+    histogram.record(1_000_000);
+    histogram.record(1_000_000);
+    histogram.record(1_100_000);
+    final HistogramSnapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.offset()).isEqualTo(HistogramLayout.DEFAULT.index(1_000_000));
+    assertThat(snapshot.counts()).containsExactly(2, 0, 0, 0, 1);
+  }
+
+  @Test
+  void snapshot_startsNewInterval() {
+    final Histogram histogram = new Histogram(HistogramLayout.DEFAULT);
+    histogram.record(10);
+    assertThat(histogram.snapshot().count()).isEqualTo(1);
+    final HistogramSnapshot empty = histogram.snapshot();
+    assertThat(empty.isEmpty()).isTrue();
+    assertThat(empty.p99()).isZero();
+    assertThat(empty.max()).isZero();
+  }
+
+  @Test
+  void record_concurrentNothingLost() throws InterruptedException {
+    final Histogram histogram = new Histogram(HistogramLayout.DEFAULT);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int thread = 0; thread < 4; thread++) {
+      executor.execute(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          histogram.record(i);
+        }
+      });
+    }
+    executor.shutdown();
+    long total = 0;
+    while (!executor.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+      total += histogram.snapshot().count();
+    }
+    total += histogram.snapshot().count();
+    assertThat(total).isEqualTo(400_000);
+  }
+
+}
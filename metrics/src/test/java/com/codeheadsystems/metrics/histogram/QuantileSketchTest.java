@@ -0,0 +1,148 @@
+package com.codeheadsystems.metrics.histogram;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+  private static final double[] QUANTILES = {0, 0.25, 0.5, 0.9, 0.99, 0.999, 1};
+
+  @Test
+  void quantile_withinRelativeAccuracy() {
+    final Random random = new Random(1);
+    final QuantileSketch sketch = new QuantileSketch();
+    final double[] values = new double[100_000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = Math.exp(random.nextGaussian() * 2 + 13);
+      sketch.add(values[i]);
+    }
+    assertAccurate(sketch, values);
+  }
+
+  @Test
+  void merge_sameAsOneSketch() {
+    final Random random = new Random(2);
+    final QuantileSketch merged = new QuantileSketch();
+    final double[] values = new double[90_000];
+    for (int host = 0; host < 3; host++) {
+      final QuantileSketch sketch = new QuantileSketch();
+      for (int i = 0; i < 30_000; i++) {
+        // each host has a different spread, so averaging their p99 would be well off.
+        values[host * 30_000 + i] = Math.exp(random.nextGaussian() * (host + 1) + 10 + host);
+        sketch.add(values[host * 30_000 + i]);
+      }
+      merged.merge(sketch);
+    }
+    assertThat(merged.count()).isEqualTo(90_000);
+    assertAccurate(merged, values);
+  }
+
+  @Test
+  void merge_differentAccuracy() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> new QuantileSketch(0.01, 100).merge(new QuantileSketch(0.02, 100)));
+  }
+
+  @Test
+  void serialization_roundTrip() throws IOException {
+    final QuantileSketch sketch = new QuantileSketch(0.02, 500);
+    for (int i = 0; i < 10_000; i++) {
+      sketch.add(i * 37 % 5000);
+    }
+    final QuantileSketch read = QuantileSketch.fromBytes(sketch.toBytes());
+    assertThat(read.relativeAccuracy()).isEqualTo(0.02);
+    assertThat(read.maxBins()).isEqualTo(500);
+    assertThat(read.count()).isEqualTo(sketch.count());
+    assertThat(read.sum()).isEqualTo(sketch.sum());
+    assertThat(read.min()).isEqualTo(sketch.min());
+    assertThat(read.max()).isEqualTo(sketch.max());
+    for (double quantile : QUANTILES) {
+      assertThat(read.quantile(quantile)).isEqualTo(sketch.quantile(quantile));
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sketch.writeTo(out);
+    new QuantileSketch().writeTo(out);
+    final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    assertThat(QuantileSketch.readFrom(in).count()).isEqualTo(10_000);
+    assertThat(QuantileSketch.readFrom(in).isEmpty()).isTrue();
+    assertThat(QuantileSketch.readFrom(in)).isNull();
+  }
+
+  @Test
+  void serialization_compact() {
+    final QuantileSketch sketch = new QuantileSketch();
+    for (int i = 0; i < 100_000; i++) {
+      sketch.add(1_000_000 + i * 10);
+    }
+    assertThat(sketch.toBytes().length).isLessThan(200);
+  }
+
+  @Test
+  void serialization_unknownVersion() {
+    final byte[] bytes = new QuantileSketch().toBytes();
+    bytes[4] = 2;
+    assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> QuantileSketch.fromBytes(bytes));
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> QuantileSketch.fromBytes(new byte[]{1, 2, 3, 4, 5}));
+  }
+
+  @Test
+  void add_zerosAndNegatives() {
+    final QuantileSketch sketch = new QuantileSketch();
+    sketch.add(0);
+    sketch.add(-5);
+    sketch.add(100);
+    assertThat(sketch.quantile(0.5)).isZero();
+    assertThat(sketch.min()).isEqualTo(-5);
+    assertThat(sketch.quantile(0)).isEqualTo(-5);
+    assertThat(sketch.quantile(1)).isEqualTo(100);
+  }
+
+  @Test
+  void add_maxBinsCollapsesLowest() {
+    final QuantileSketch sketch = new QuantileSketch(0.01, 100);
+    for (int i = 1; i <= 1_000_000; i++) {
+      sketch.add(i);
+    }
+    assertThat(sketch.count()).isEqualTo(1_000_000);
+    assertThat(sketch.quantile(0.5)).isCloseTo(500_000, within(5_000.0));
+    assertThat(sketch.quantile(0.99)).isCloseTo(990_000, within(9_900.0));
+    assertThat(QuantileSketch.fromBytes(sketch.toBytes()).quantile(0.99)).isEqualTo(sketch.quantile(0.99));
+    // the lowest buckets are merged, but the ends are still exact.
+    assertThat(sketch.quantile(0)).isEqualTo(1);
+    assertThat(sketch.quantile(1)).isEqualTo(1_000_000);
+    assertThat(QuantileSketch.fromBytes(sketch.toBytes()).quantile(0)).isEqualTo(1);
+  }
+
+  @Test
+  void snapshot_empties() {
+    final QuantileSketch sketch = new QuantileSketch();
+    sketch.add(10);
+    assertThat(sketch.snapshot().count()).isEqualTo(1);
+    assertThat(sketch.isEmpty()).isTrue();
+    assertThat(sketch.quantile(0.99)).isZero();
+    sketch.add(20);
+    assertThat(sketch.quantile(0.99)).isEqualTo(20);
+  }
+
+  private void assertAccurate(final QuantileSketch sketch, final double[] values) {
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    for (double quantile : QUANTILES) {
+      final double expected = sorted[(int) Math.floor(quantile * (sorted.length - 1))];
+      assertThat(sketch.quantile(quantile))
+          .as("quantile %s", quantile)
+          .isCloseTo(expected, within(expected * sketch.relativeAccuracy()));
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+package com.codeheadsystems.metrics.histogram;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SketchMetricPublisherTest {
+
+  @Mock private MetricPublisher delegate;
+
+  private SketchMetricPublisher publisher;
+
+  @BeforeEach
+  void setup() {
+    publisher = SketchMetricPublisher.builder()
+        .withDelegate(delegate)
+        .withRelativeAccuracy(0.02)
+        .withInterval(Duration.ofHours(1))
+        .withMaxSeries(1)
+        .build();
+  }
+
+  @AfterEach
+  void shutdown() {
+    publisher.shutdown();
+  }
+
+  @Test
+  void flush_deliversSketch() {
+    publisher.time("a", Duration.ofMillis(5), Tags.of("k", "v"));
+    publisher.time("a", Duration.ofMillis(7), Tags.of("k", "v"));
+    verify(delegate).time("a", Duration.ofMillis(7), Tags.of("k", "v"));
+
+    publisher.flush();
+    publisher.flush();
+
+    final ArgumentCaptor<QuantileSketch> captor = ArgumentCaptor.forClass(QuantileSketch.class);
+    verify(delegate).sketch(eq("a"), captor.capture(), eq(Tags.of("k", "v")));
+    assertThat(captor.getValue().relativeAccuracy()).isEqualTo(0.02);
+    assertThat(captor.getValue().count()).isEqualTo(2);
+    assertThat(captor.getValue().quantile(0.5)).isCloseTo(5_000_000, within(100_000.0));
+  }
+
+  @Test
+  void time_maxSeries() {
+    publisher.time("a", Duration.ofMillis(1), null);
+    publisher.time("b", Duration.ofMillis(1), Tags.empty());
+
+    assertThat(publisher.size()).isEqualTo(1);
+    assertThat(publisher.overflow()).isEqualTo(1);
+    publisher.flush();
+    verify(delegate).sketch(eq("a"), any(), eq(Tags.empty()));
+    verify(delegate, never()).sketch(eq("b"), any(), any());
+  }
+
+}
@@ -0,0 +1,71 @@
+package com.codeheadsystems.metrics.histogram;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SketchToolTest {
+
+  @TempDir Path directory;
+
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+  private final PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+
+  @Test
+  void run_mergesFiles() throws IOException {
+    final Path first = directory.resolve("host1.sketch");
+    try (OutputStream stream = Files.newOutputStream(first)) {
+      sketch(1, 100).writeTo(stream);
+      sketch(101, 200).writeTo(stream);
+    }
+    final Path second = directory.resolve("host2.sketch");
+    Files.write(second, sketch(201, 1000).toBytes());
+    final Path merged = directory.resolve("merged.sketch");
+
+    assertThat(SketchTool.run(out, "--unit=us", "--out=" + merged, first.toString(), second.toString())).isZero();
+
+    assertThat(report())
+        .contains("files     2")
+        .contains("sketches  3")
+        .contains("count     1000")
+        .contains("min       1.000 us")
+        .contains("p99.9")
+        .contains("max       1000.000 us");
+    assertThat(QuantileSketch.fromBytes(Files.readAllBytes(merged)).count()).isEqualTo(1000);
+  }
+
+  @Test
+  void run_badFile() throws IOException {
+    final Path file = directory.resolve("bad.sketch");
+    Files.write(file, new byte[]{1, 2, 3, 4, 5});
+    assertThat(SketchTool.run(out, file.toString())).isEqualTo(1);
+    assertThat(report()).contains("Not a sketch");
+  }
+
+  @Test
+  void run_usage() {
+    assertThat(SketchTool.run(out, "--unit=weeks", "file")).isEqualTo(1);
+    assertThat(report()).contains("Unknown unit").contains("Usage");
+  }
+
+  private QuantileSketch sketch(final int from, final int to) {
+    final QuantileSketch sketch = new QuantileSketch();
+    for (int value = from; value <= to; value++) {
+      sketch.add(value * 1000);
+    }
+    return sketch;
+  }
+
+  private String report() {
+    return output.toString(StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,69 @@
+package com.codeheadsystems.metrics.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mockito;
+
+class ContextStorageTest {
+
+  private static final MetricsImpl OUTER = Mockito.mock(MetricsImpl.class);
+  private static final MetricsImpl INNER = Mockito.mock(MetricsImpl.class);
+
+  static Stream<ContextStorage> storages() {
+    return Stream.of(ContextStorage.threadLocal(), ContextStorage.scopedValue());
+  }
+
+  @ParameterizedTest
+  @MethodSource("storages")
+  void setAndRestore(final ContextStorage storage) {
+    assertThat(storage.get()).isNull();
+    final MetricsImpl first = storage.set(OUTER);
+    assertThat(storage.get()).isEqualTo(OUTER);
+    final MetricsImpl second = storage.set(INNER);
+    assertThat(storage.get()).isEqualTo(INNER);
+    storage.restore(second);
+    assertThat(storage.get()).isEqualTo(OUTER);
+    storage.restore(first);
+    assertThat(storage.get()).isNull();
+  }
+
+  @ParameterizedTest
+  @MethodSource("storages")
+  void call(final ContextStorage storage) {
+    final MetricsImpl result = storage.call(OUTER, outer -> storage.call(INNER, inner -> storage.get()));
+    assertThat(result).isEqualTo(INNER);
+    assertThat(storage.call(OUTER, outer -> outer)).isEqualTo(OUTER);
+    assertThat(storage.get()).isNull();
+  }
+
+  @ParameterizedTest
+  @MethodSource("storages")
+  void callInsideSet(final ContextStorage storage) {
+    final MetricsImpl previous = storage.set(OUTER);
+    assertThat(storage.call(INNER, inner -> storage.get())).isEqualTo(INNER);
+    assertThat(storage.get()).isEqualTo(OUTER);
+    storage.restore(previous);
+    assertThat(storage.get()).isNull();
+  }
+
+  @ParameterizedTest
+  @MethodSource("storages")
+  void callNotVisibleToOtherThreads(final ContextStorage storage) throws Exception {
+    final MetricsImpl[] seen = new MetricsImpl[]{OUTER};
+    storage.call(OUTER, outer -> {
+      final Thread thread = new Thread(() -> seen[0] = storage.get());
+      thread.start();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return null;
+    });
+    assertThat(seen[0]).isNull();
+  }
+
+}
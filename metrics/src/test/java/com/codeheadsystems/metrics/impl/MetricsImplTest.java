@@ -2,14 +2,24 @@ package com.codeheadsystems.metrics.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.codeheadsystems.metrics.Tags;
 import com.codeheadsystems.metrics.TagsGenerator;
+import com.codeheadsystems.metrics.config.MetricRule;
+import com.codeheadsystems.metrics.config.MetricsConfiguration;
+import com.codeheadsystems.metrics.config.MetricsConfigurationHolder;
+import com.codeheadsystems.metrics.helper.MetricsStats;
 import com.codeheadsystems.metrics.helper.TagsGeneratorRegistry;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -71,6 +81,25 @@ class MetricsImplTest {
         .isEqualTo(COMBINED_TAGS);
   }
 
+  @Test
+  void reset_copiesTagsOnChange() {
+    final Tags parentTags = Tags.of("a", "1");
+    metricsImpl.reset(parentTags);
+    assertThat(metricsImpl.getTags()).isEqualTo(parentTags);
+    metricsImpl.and("b", "2");
+    assertThat(metricsImpl.getTags()).isEqualTo(Tags.of("a", "1", "b", "2"));
+    assertThat(parentTags).isEqualTo(Tags.of("a", "1"));
+  }
+
+  @Test
+  void reset_sharedTagsUsedForIncrement() {
+    final Tags parentTags = Tags.of("a", "1");
+    metricsImpl.reset(parentTags);
+    metricsImpl.increment(METRIC_NAME, 1L, "b", "2");
+    verify(metricPublisher).increment(METRIC_NAME, 1L, Tags.of("a", "1", "b", "2"));
+    assertThat(parentTags).isEqualTo(Tags.of("a", "1"));
+  }
+
   @Test
   void testIncrement() {
     metricsImpl.increment(METRIC_NAME, 1L, OVERRIDE_ARRAY);
@@ -87,6 +116,18 @@ class MetricsImplTest {
         .time(METRIC_NAME, Duration.ofMillis(100), COMBINED_TAGS);
   }
 
+  @Test
+  void testPublishGauge() {
+    metricsImpl.publishGauge(METRIC_NAME, 1.5, COMBINED_TAGS);
+    verify(metricPublisher).gauge(METRIC_NAME, 1.5, COMBINED_TAGS);
+  }
+
+  @Test
+  void testPublishTime_nullTags() {
+    metricsImpl.publishTime(METRIC_NAME, Duration.ofMillis(100), null);
+    verify(metricPublisher).time(METRIC_NAME, Duration.ofMillis(100), Tags.empty());
+  }
+
   @Test
   void time_base() {
     when(clock.millis()).thenReturn(200L).thenReturn(300L);
@@ -239,6 +280,78 @@ class MetricsImplTest {
         .time(METRIC_NAME, Duration.ofMillis(100), COMBINED_TAGS.from(ERROR_TAGS));
   }
 
+  @Test
+  void timeAsync_publishesOnCompletion() {
+    when(clock.millis()).thenReturn(200L).thenReturn(300L);
+    final CompletableFuture<Object> future = new CompletableFuture<>();
+    final CompletableFuture<Object> result = metricsImpl.timeAsync(METRIC_NAME, () -> future, OVERRIDE_TAGS);
+    assertThat(result).isSameAs(future);
+    metricsImpl.and("late", "tag"); // taken after the call, so not included.
+    verifyNoInteractions(metricPublisher);
+
+    future.complete(RESULT);
+    verify(metricPublisher).time(METRIC_NAME, Duration.ofMillis(100), COMBINED_TAGS);
+  }
+
+  @Test
+  void timeAsync_exceptionalCompletion() {
+    metricsImpl = new MetricsImpl(clock, metricPublisher, TAGS_GENERATOR_ERROR, null, DEFAULT_TAGS, metricsName);
+    when(clock.millis()).thenReturn(200L).thenReturn(300L);
+    final CompletableFuture<Object> future = metricsImpl.timeAsync(METRIC_NAME,
+        () -> CompletableFuture.supplyAsync(() -> {
+          throw new IllegalStateException();
+        }), OVERRIDE_TAGS);
+    assertThatExceptionOfType(CompletionException.class).isThrownBy(future::join);
+    verify(metricPublisher, timeout(1000)).time(METRIC_NAME, Duration.ofMillis(100), COMBINED_TAGS.from(ERROR_TAGS));
+  }
+
+  @Test
+  void timeAsync_supplierThrows() {
+    when(clock.millis()).thenReturn(200L).thenReturn(300L);
+    assertThatExceptionOfType(SomeException.class)
+        .isThrownBy(() -> metricsImpl.timeAsync(METRIC_NAME, () -> {
+          throw new SomeException();
+        }, OVERRIDE_TAGS));
+    verify(metricPublisher).time(METRIC_NAME, Duration.ofMillis(100), COMBINED_TAGS);
+  }
+
+  @Test
+  void configuration_disabled() {
+    final MetricsConfigurationHolder holder = new MetricsConfigurationHolder(new MetricsConfiguration(null,
+        MetricRule.DEFAULT, Map.of(METRIC_NAME, new MetricRule(false, 1.0, Set.of(), Set.of()))));
+    metricsImpl = new MetricsImpl(clock, metricPublisher, null, null, DEFAULT_TAGS, metricsName, holder);
+    metricsImpl.increment(METRIC_NAME, 1L, OVERRIDE_ARRAY);
+    assertThat(metricsImpl.time(METRIC_NAME, this::testMethod)).isEqualTo(RESULT);
+    verifyNoInteractions(metricPublisher, clock);
+  }
+
+  @Test
+  void configuration_stats() {
+    final MetricsConfigurationHolder holder = new MetricsConfigurationHolder(new MetricsConfiguration(null,
+        new MetricRule(true, 0.0, Set.of(), Set.of()),
+        Map.of(METRIC_NAME, new MetricRule(false, 1.0, Set.of(), Set.of()))));
+    final MetricsStats stats = new MetricsStats();
+    metricsImpl = new MetricsImpl(clock, metricPublisher, null, null, DEFAULT_TAGS, metricsName, holder, stats);
+    metricsImpl.increment(METRIC_NAME, 1L, OVERRIDE_ARRAY);
+    metricsImpl.increment("sampled", 1L, OVERRIDE_ARRAY);
+    metricsImpl.publishTime("sampled", Duration.ofMillis(1), OVERRIDE_TAGS);
+    verifyNoInteractions(metricPublisher);
+    assertThat(stats.getDroppedEvents()).isEqualTo(1);
+    assertThat(stats.getSampledOutEvents()).isEqualTo(2);
+  }
+
+  @Test
+  void configuration_prefixAndFilter() {
+    final MetricsConfigurationHolder holder = new MetricsConfigurationHolder();
+    metricsImpl = new MetricsImpl(clock, metricPublisher, null, null, DEFAULT_TAGS, metricsName, holder);
+    metricsImpl.increment(METRIC_NAME, 1L, OVERRIDE_ARRAY);
+    verify(metricPublisher).increment(METRIC_NAME, 1L, COMBINED_TAGS);
+
+    holder.set(new MetricsConfiguration("prefix.", new MetricRule(true, 1.0, Set.of(), Set.of("c")), Map.of()));
+    metricsImpl.increment(METRIC_NAME, 1L, OVERRIDE_ARRAY);
+    verify(metricPublisher).increment("prefix." + METRIC_NAME, 1L, Tags.of("a", "1", "b", "3"));
+  }
+
   Object testMethod() {
     return RESULT;
   }
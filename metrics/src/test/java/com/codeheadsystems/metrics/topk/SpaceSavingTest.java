@@ -0,0 +1,70 @@
+package com.codeheadsystems.metrics.topk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SpaceSavingTest {
+
+  @Test
+  void add_exactUnderCapacity() {
+    final SpaceSaving spaceSaving = new SpaceSaving(10);
+    spaceSaving.add("a", 5);
+    spaceSaving.add("b", 3);
+    spaceSaving.add("a", 1);
+    assertThat(spaceSaving.top(5)).containsExactly(new HeavyHitter("a", 6, 0), new HeavyHitter("b", 3, 0));
+    assertThat(spaceSaving.total()).isEqualTo(9);
+  }
+
+  @Test
+  void add_newValueTakesSmallest() {
+    final SpaceSaving spaceSaving = new SpaceSaving(2);
+    spaceSaving.add("a", 5);
+    spaceSaving.add("b", 3);
+    spaceSaving.add("c", 1);
+    assertThat(spaceSaving.top(2)).containsExactly(new HeavyHitter("a", 5, 0), new HeavyHitter("c", 4, 3));
+    assertThat(spaceSaving.top(2).get(1).guaranteed()).isEqualTo(1);
+  }
+
+  @Test
+  void add_heavyHittersFoundInLongTail() {
+    final SpaceSaving spaceSaving = new SpaceSaving(20);
+    for (int i = 0; i < 100_000; i++) {
+      spaceSaving.add(i % 4 == 0 ? "heavy" : "tail" + i, 1);
+      if (i % 10 == 0) {
+        spaceSaving.add("second", 1);
+      }
+    }
+    final List<HeavyHitter> top = spaceSaving.top(2);
+    assertThat(top.get(0).value()).isEqualTo("heavy");
+    assertThat(top.get(0).guaranteed()).isLessThanOrEqualTo(25_000).isGreaterThan(20_000);
+    assertThat(top.get(0).estimate()).isGreaterThanOrEqualTo(25_000);
+    assertThat(top.get(1).value()).isEqualTo("second");
+  }
+
+  @Test
+  void add_concurrent() throws InterruptedException {
+    final SpaceSaving spaceSaving = new SpaceSaving(50);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int thread = 0; thread < 4; thread++) {
+      final int seed = thread;
+      executor.execute(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          spaceSaving.add(i % 2 == 0 ? "hot" : "cold" + seed + "." + i, 1);
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+    assertThat(spaceSaving.total()).isEqualTo(400_000);
+    final HeavyHitter hot = spaceSaving.top(1).get(0);
+    assertThat(hot.value()).isEqualTo("hot");
+    assertThat(hot.estimate()).isGreaterThanOrEqualTo(190_000);
+  }
+
+}
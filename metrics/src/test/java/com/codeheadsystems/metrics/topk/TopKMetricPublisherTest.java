@@ -0,0 +1,163 @@
+package com.codeheadsystems.metrics.topk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.codeheadsystems.metrics.Tags;
+import com.codeheadsystems.metrics.impl.MetricPublisher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TopKMetricPublisherTest {
+
+  @Mock private MetricPublisher delegate;
+
+  private TopKMetricPublisher publisher;
+
+  @BeforeEach
+  void setup() {
+    publisher = TopKMetricPublisher.builder()
+        .withDelegate(delegate)
+        .withTagKeys("customer")
+        .withTopK(2)
+        .withCapacity(10)
+        .withInterval(Duration.ofHours(1))
+        .build();
+  }
+
+  @AfterEach
+  void shutdown() {
+    publisher.shutdown();
+  }
+
+  @Test
+  void events_tagRemovedForDelegate() {
+    publisher.increment("requests", 1, Tags.of("customer", "a", "region", "x"));
+    publisher.time("latency", Duration.ofMillis(5), Tags.of("customer", "a"));
+    publisher.increment("requests", 1, Tags.of("region", "y"));
+
+    verify(delegate).increment("requests", 1, Tags.of("region", "x"));
+    verify(delegate).time("latency", Duration.ofMillis(5), Tags.empty());
+    verify(delegate).increment("requests", 1, Tags.of("region", "y"));
+  }
+
+  @Test
+  void flush_publishesTop() {
+    assertThat(publisher.top("customer")).isNull();
+    publisher.increment("requests", 1, Tags.of("customer", "a"));
+    publisher.increment("requests", 1, Tags.of("customer", "a"));
+    publisher.increment("requests", 1, Tags.of("customer", "b"));
+    publisher.increment("requests", 1, Tags.of("customer", "c"));
+    publisher.time("latency", Duration.ofMillis(5), Tags.of("customer", "c"));
+
+    publisher.flush();
+
+    final TopK top = publisher.top("customer");
+    assertThat(top.byCount()).extracting(HeavyHitter::value).containsExactly("a", "c");
+    assertThat(top.byTime()).containsExactly(new HeavyHitter("c", 5_000_000, 0));
+    assertThat(top.totalCount()).isEqualTo(5);
+    assertThat(top.totalNanos()).isEqualTo(5_000_000);
+    verify(delegate).gauge("topk.customer.count", 2.0, Tags.of("rank", "1"));
+    verify(delegate).gauge("topk.customer.count", 2.0, Tags.of("rank", "2"));
+    verify(delegate).gauge("topk.customer.nanos", 5_000_000.0, Tags.of("rank", "1"));
+    verify(delegate).gauge("topk.customer.nanos", 0.0, Tags.of("rank", "2"));
+
+    publisher.flush();
+    assertThat(publisher.top("customer").byCount()).isEmpty();
+  }
+
+  @Test
+  void flush_seriesBoundedAcrossIntervals() {
+    final Set<String> series = new HashSet<>();
+    final List<String> info = new ArrayList<>();
+    final TopKMetricPublisher recording = TopKMetricPublisher.builder()
+        .withDelegate(new MetricPublisher() {
+          @Override
+          public void increment(final String metricName, final long value, final Tags tags) {
+          }
+
+          @Override
+          public void time(final String metricName, final Duration duration, final Tags tags) {
+          }
+
+          @Override
+          public void gauge(final String metricName, final double value, final Tags tags) {
+            if (metricName.endsWith(".info")) {
+              info.add(metricName + tags.getTags() + "=" + value);
+            } else {
+              series.add(metricName + tags.getTags());
+            }
+          }
+        })
+        .withTagKeys("customer")
+        .withTopK(2)
+        .withCapacity(10)
+        .withInterval(Duration.ofHours(1))
+        .build();
+    try {
+      for (int interval = 0; interval < 20; interval++) {
+        for (int customer = 0; customer < 5; customer++) {
+          recording.time("latency", Duration.ofMillis(customer + 1), Tags.of("customer", interval + "-" + customer));
+        }
+        info.clear();
+        recording.flush();
+        // each rank of the two gauges sets its new value and clears the one it replaced.
+        assertThat(info).hasSizeLessThanOrEqualTo(8);
+      }
+      assertThat(series).hasSize(4);
+      assertThat(recording.top("customer").byCount()).hasSize(2);
+    } finally {
+      recording.shutdown();
+    }
+  }
+
+  @Test
+  void flush_publishesValueOfEachRank() {
+    publisher.increment("requests", 1, Tags.of("customer", "a"));
+    publisher.increment("requests", 1, Tags.of("customer", "a"));
+    publisher.increment("requests", 1, Tags.of("customer", "b"));
+    publisher.flush();
+
+    verify(delegate).gauge("topk.customer.count.info", 1.0, Tags.of("rank", "1", "customer", "a"));
+    verify(delegate).gauge("topk.customer.count.info", 1.0, Tags.of("rank", "2", "customer", "b"));
+
+    publisher.increment("requests", 1, Tags.of("customer", "b"));
+    publisher.flush();
+
+    verify(delegate).gauge("topk.customer.count.info", 0.0, Tags.of("rank", "1", "customer", "a"));
+    verify(delegate).gauge("topk.customer.count.info", 1.0, Tags.of("rank", "1", "customer", "b"));
+    verify(delegate).gauge("topk.customer.count.info", 0.0, Tags.of("rank", "2", "customer", "b"));
+
+    publisher.flush();
+
+    verify(delegate, times(1)).gauge("topk.customer.count.info", 0.0, Tags.of("rank", "1", "customer", "a"));
+    verify(delegate).gauge("topk.customer.count.info", 0.0, Tags.of("rank", "1", "customer", "b"));
+  }
+
+  @Test
+  void keepTags() {
+    final TopKMetricPublisher keeping = TopKMetricPublisher.builder()
+        .withDelegate(delegate)
+        .withTagKeys("customer")
+        .withKeepTags(true)
+        .build();
+    try {
+      keeping.increment("requests", 1, Tags.of("customer", "a"));
+      verify(delegate).increment("requests", 1, Tags.of("customer", "a"));
+    } finally {
+      keeping.shutdown();
+    }
+  }
+
+}
@@ -11,4 +11,6 @@ plugins {
 }
 
 rootProject.name = "metrics"
-include("metrics", "metrics-test", "metrics-micrometer", "metrics-declarative", "metrics-declarative-test")
+include("metrics", "metrics-test", "metrics-micrometer", "metrics-declarative", "metrics-declarative-test",
+    "metrics-declarative-processor", "metrics-jmh", "metrics-stress", "metrics-jfr",
+    "metrics-jvm", "metrics-mmap", "metrics-uds", "metrics-aggregator")